@@ -7,6 +7,8 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
+import com.heikeji.common.core.monitor.MetricsCollector;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -26,6 +28,9 @@ public class ApiPerformanceAspect {
 
     private static final Logger log = LoggerFactory.getLogger(ApiPerformanceAspect.class);
 
+    @Autowired(required = false)
+    private MetricsCollector metricsCollector;
+
     // 定义切入点：监控所有Controller包下的方法
     @Pointcut("execution(* com.heikeji.*.*.controller..*.*(..))")
     public void apiPointCut() {
@@ -71,6 +76,11 @@ public class ApiPerformanceAspect {
         // 计算执行时间
         long endTime = System.currentTimeMillis();
         long executionTime = endTime - startTime;
+
+        // 进程内聚合耗时分布，按方法统计以避免路径参数导致指标数量膨胀
+        if (metricsCollector != null) {
+            metricsCollector.recordApiCostTime(method.getDeclaringClass().getSimpleName() + "." + methodName, executionTime);
+        }
         
         // 根据执行时间记录不同级别的日志
         if (executionTime > 5000) {
@@ -1,42 +1,40 @@
 package com.heikeji.common.core.aspect;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.heikeji.common.core.constant.CommonConstants;
+import com.heikeji.common.core.oplog.OperationLogDispatcher;
+import com.heikeji.common.core.oplog.OperationLogEvent;
+import com.heikeji.common.core.security.GatewayAuthHeaders;
 import com.heikeji.common.core.utils.LogUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
 
 /**
  * 操作日志切面
  * 记录用户操作日志，包括操作时间、操作人、操作内容、IP地址等信息
+ * 请求线程采集事件并把参数、返回值转换为字符串后交给 {@link OperationLogDispatcher}，写入在后台线程完成
  */
 @Aspect
 @Component
 public class OperationLogAspect {
 
-    private static final Logger log = LoggerFactory.getLogger("operation");
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
     @Autowired
-    private ObjectMapper objectMapper;
+    private OperationLogDispatcher operationLogDispatcher;
 
     /**
      * 定义切入点 - 拦截所有Controller方法
@@ -52,19 +50,19 @@ public class OperationLogAspect {
     public Object around(ProceedingJoinPoint point) throws Throwable {
         long startTime = System.currentTimeMillis();
         Object result = null;
-        String errorMsg = null;
+        Exception error = null;
 
         try {
             // 执行原方法
             result = point.proceed();
             return result;
         } catch (Exception e) {
-            errorMsg = getErrorStackTrace(e);
+            error = e;
             throw e;
         } finally {
             try {
                 // 记录操作日志
-                recordOperationLog(point, startTime, System.currentTimeMillis(), errorMsg, result);
+                recordOperationLog(point, startTime, System.currentTimeMillis(), error, result);
             } catch (Exception e) {
                 // 记录日志失败不影响主流程
                 LogUtils.error(LoggerFactory.getLogger(OperationLogAspect.class), "记录操作日志失败", e);
@@ -73,53 +71,36 @@ public class OperationLogAspect {
     }
 
     /**
-     * 记录操作日志
+     * 采集操作日志事件
      */
-    private void recordOperationLog(ProceedingJoinPoint point, long startTime, long endTime, String errorMsg, Object result) {
+    private void recordOperationLog(ProceedingJoinPoint point, long startTime, long endTime, Exception error, Object result) {
         HttpServletRequest request = getRequest();
         if (request == null) {
             return;
         }
+        String requestMethod = request.getMethod();
+        if (!operationLogDispatcher.shouldRecord(requestMethod, error == null)) {
+            return;
+        }
 
         // 获取方法签名
         MethodSignature signature = (MethodSignature) point.getSignature();
         Method method = signature.getMethod();
 
-        // 构建日志信息
-        Map<String, Object> logInfo = new HashMap<>();
-        logInfo.put("timestamp", LocalDateTime.now().format(DATE_TIME_FORMATTER));
-        logInfo.put("costTime", endTime - startTime);
-        logInfo.put("ip", getIp(request));
-        logInfo.put("method", request.getMethod());
-        logInfo.put("uri", request.getRequestURI());
-        logInfo.put("userAgent", request.getHeader("User-Agent"));
-        logInfo.put("className", method.getDeclaringClass().getName());
-        logInfo.put("methodName", method.getName());
-        logInfo.put("userId", getCurrentUserId());
-        logInfo.put("username", getCurrentUsername());
-        logInfo.put("params", getRequestParams(point));
-        logInfo.put("success", errorMsg == null);
-        logInfo.put("errorMsg", errorMsg);
-
-        // 记录结果，限制长度
-        if (result != null) {
-            String resultStr = result.toString();
-            if (resultStr.length() > 500) {
-                resultStr = resultStr.substring(0, 500) + "...";
-            }
-            logInfo.put("result", resultStr);
-        }
-
-        try {
-            String logJson = objectMapper.writeValueAsString(logInfo);
-            if (errorMsg != null) {
-                log.error(logJson);
-            } else {
-                log.info(logJson);
-            }
-        } catch (Exception e) {
-            LogUtils.error(LoggerFactory.getLogger(OperationLogAspect.class), "序列化操作日志失败", e);
-        }
+        operationLogDispatcher.publish(new OperationLogEvent(
+                endTime,
+                endTime - startTime,
+                getIp(request),
+                requestMethod,
+                request.getRequestURI(),
+                request.getHeader("User-Agent"),
+                method.getDeclaringClass().getName(),
+                method.getName(),
+                getCurrentUserId(request),
+                getCurrentUsername(request),
+                operationLogDispatcher.serializeParams(getLoggableArgs(point)),
+                operationLogDispatcher.serializeResult(result),
+                error));
     }
 
     /**
@@ -155,38 +136,51 @@ public class OperationLogAspect {
     }
 
     /**
-     * 获取请求参数
+     * 获取可记录的请求参数
+     * 请求、响应、上传文件等对象无法序列化或内容过大，连同包含它们的数组和集合一起替换为类型名
      */
-    private String getRequestParams(ProceedingJoinPoint point) {
+    private Object[] getLoggableArgs(ProceedingJoinPoint point) {
         Object[] args = point.getArgs();
-        if (args == null || args.length == 0) {
-            return "[]";
+        if (args == null) {
+            return null;
         }
-        
-        try {
-            String paramsJson = objectMapper.writeValueAsString(args);
-            // 限制参数长度
-            if (paramsJson.length() > 1000) {
-                paramsJson = paramsJson.substring(0, 1000) + "... [省略部分参数]";
+        Object[] loggableArgs = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            loggableArgs[i] = isUnloggable(arg) ? "[" + arg.getClass().getSimpleName() + "]" : arg;
+        }
+        return loggableArgs;
+    }
+
+    private static boolean isUnloggable(Object arg) {
+        if (arg instanceof ServletRequest || arg instanceof ServletResponse || arg instanceof InputStreamSource
+                || arg instanceof InputStream || arg instanceof BindingResult) {
+            return true;
+        }
+        if (arg instanceof Object[] array) {
+            for (Object element : array) {
+                if (isUnloggable(element)) {
+                    return true;
+                }
+            }
+        } else if (arg instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                if (isUnloggable(element)) {
+                    return true;
+                }
             }
-            return paramsJson;
-        } catch (Exception e) {
-            return "[参数序列化失败]";
         }
+        return false;
     }
 
     /**
      * 获取当前用户ID
-     * 这里需要根据实际的用户认证方式进行实现
+     * 取网关验证Token后写入的身份头
      */
-    private String getCurrentUserId() {
-        // 从线程上下文或请求头获取用户ID
-        HttpServletRequest request = getRequest();
-        if (request != null) {
-            String userId = request.getHeader("X-User-Id");
-            if (userId != null && !userId.isEmpty()) {
-                return userId;
-            }
+    private String getCurrentUserId(HttpServletRequest request) {
+        String userId = request.getHeader(GatewayAuthHeaders.USER_ID);
+        if (userId != null && !userId.isEmpty()) {
+            return userId;
         }
         // 默认返回未认证
         return "unauthorized";
@@ -195,28 +189,15 @@ public class OperationLogAspect {
     /**
      * 获取当前用户名
      */
-    private String getCurrentUsername() {
-        HttpServletRequest request = getRequest();
-        if (request != null) {
-            String username = request.getHeader("X-Username");
-            if (username != null && !username.isEmpty()) {
-                return username;
-            }
+    private String getCurrentUsername(HttpServletRequest request) {
+        String username = request.getHeader(GatewayAuthHeaders.USER_NAME);
+        if (username != null && !username.isEmpty()) {
+            return GatewayAuthHeaders.decode(username);
         }
-        return "unknown";
-    }
-
-    /**
-     * 获取错误堆栈信息
-     */
-    private String getErrorStackTrace(Exception e) {
-        try {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            return sw.toString();
-        } catch (Exception ex) {
-            return "Error getting stack trace: " + ex.getMessage();
+        username = request.getHeader("X-Username");
+        if (username != null && !username.isEmpty()) {
+            return username;
         }
+        return "unknown";
     }
 }
@@ -1,18 +1,36 @@
 package com.heikeji.common.core.cache;
 
+import com.heikeji.common.core.utils.MurmurHash3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.BitSet;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * 布隆过滤器实现
  * 用于防止缓存穿透，判断一个元素是否可能存在于集合中
+ * 每个值只计算一次128位MurmurHash3，通过双重哈希派生k个位置；
+ * 一个值（或一批值）的全部位操作合并为一条BITFIELD命令，一次网络往返完成。
+ * 每个过滤器在本地维护一份定期与Redis同步的位数组镜像，镜像命中时无需访问Redis。
  *
  * @author generator
  * @date 2024-01-01
@@ -20,18 +38,54 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class BloomFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(BloomFilter.class);
+
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
 
     /**
-     * 默认位数组大小
+     * 默认预期元素数量
+     */
+    private static final int DEFAULT_EXPECTED_INSERTIONS = 1000000;
+
+    /**
+     * 默认误判率
+     */
+    private static final double DEFAULT_FPP = 0.01;
+
+    /**
+     * 默认过期时间（天）
+     */
+    private static final long DEFAULT_EXPIRE_DAYS = 30;
+
+    /**
+     * 同一过滤器续期的最小间隔（毫秒），避免每次添加都发送EXPIRE
+     */
+    private static final long EXPIRE_RENEW_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 单条BITFIELD命令最多携带的子命令数
+     */
+    private static final int MAX_SUB_COMMANDS = 512;
+
+    /**
+     * 本地镜像与Redis同步的间隔（秒）
+     */
+    private static final long MIRROR_SYNC_INTERVAL = 30;
+
+    private static final BitFieldSubCommands.BitFieldType BIT = BitFieldSubCommands.BitFieldType.unsigned(1);
+
+    /**
+     * 本地镜像，键为过滤器的键
      */
-    private static final int DEFAULT_SIZE = 1000000;
+    private final Map<String, LocalBloomFilter> mirrors = new ConcurrentHashMap<>();
 
     /**
-     * 默认哈希函数个数
+     * 各过滤器最近一次续期时间
      */
-    private static final int DEFAULT_HASH_NUMBERS = 3;
+    private final Map<String, Long> lastExpireTimes = new ConcurrentHashMap<>();
+
+    private volatile ScheduledExecutorService mirrorSyncExecutor;
 
     /**
      * 添加元素到布隆过滤器
@@ -40,40 +94,69 @@ public class BloomFilter {
      * @param value     要添加的值
      */
     public void add(String filterKey, String value) {
-        add(filterKey, value, DEFAULT_SIZE, DEFAULT_HASH_NUMBERS);
+        add(filterKey, value, DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FPP);
     }
 
     /**
      * 添加元素到布隆过滤器
      *
-     * @param filterKey    过滤器的键
-     * @param value        要添加的值
-     * @param expectedSize 预期元素数量
-     * @param hashNumbers  哈希函数个数
+     * @param filterKey          过滤器的键
+     * @param value              要添加的值
+     * @param expectedInsertions 预期元素数量
+     * @param fpp                期望误判率
      */
-    public void add(String filterKey, String value, int expectedSize, int hashNumbers) {
-        if (redisTemplate != null) {
-            for (int i = 0; i < hashNumbers; i++) {
-                int index = getIndex(value, i, expectedSize);
-                redisTemplate.opsForValue().setBit(filterKey, index, true);
-            }
-            // 设置过期时间，默认30天
-            redisTemplate.expire(filterKey, 30, TimeUnit.DAYS);
-        }
+    public void add(String filterKey, String value, int expectedInsertions, double fpp) {
+        addBatch(filterKey, new String[]{value}, Sizing.of(expectedInsertions, fpp));
     }
 
     /**
-     * 批量添加元素到布隆过滤器
+     * 批量添加元素到布隆过滤器，所有位操作在一次管道调用中完成
      *
      * @param filterKey 过滤器的键
      * @param values    要添加的值数组
      */
     public void addBatch(String filterKey, String[] values) {
-        if (redisTemplate != null) {
-            for (String value : values) {
-                add(filterKey, value);
+        addBatch(filterKey, values, Sizing.of(DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FPP));
+    }
+
+    private void addBatch(String filterKey, String[] values, Sizing sizing) {
+        if (redisTemplate == null || values == null || values.length == 0) {
+            return;
+        }
+        LocalBloomFilter mirror = mirrorFor(filterKey, sizing);
+        List<BitFieldSubCommands> commands = new ArrayList<>();
+        BitFieldSubCommands command = BitFieldSubCommands.create();
+        int subCommands = 0;
+        for (String value : values) {
+            long[] indexes = sizing.indexes(value);
+            for (long index : indexes) {
+                mirror.setBit(index);
+                command = command.set(BIT).valueAt(index).to(1);
+                if (++subCommands == MAX_SUB_COMMANDS) {
+                    commands.add(command);
+                    command = BitFieldSubCommands.create();
+                    subCommands = 0;
+                }
             }
         }
+        if (subCommands > 0) {
+            commands.add(command);
+        }
+        boolean renewExpire = shouldRenewExpire(filterKey);
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (BitFieldSubCommands subCommands : commands) {
+                    ops.opsForValue().bitField(filterKey, subCommands);
+                }
+                if (renewExpire) {
+                    ops.expire(filterKey, DEFAULT_EXPIRE_DAYS, TimeUnit.DAYS);
+                }
+                return null;
+            }
+        });
     }
 
     /**
@@ -84,57 +167,52 @@ public class BloomFilter {
      * @return 如果返回false，则元素一定不存在；如果返回true，则元素可能存在
      */
     public boolean mightContain(String filterKey, String value) {
-        return mightContain(filterKey, value, DEFAULT_SIZE, DEFAULT_HASH_NUMBERS);
+        return mightContain(filterKey, value, DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FPP);
     }
 
     /**
      * 判断元素是否可能存在于布隆过滤器中
+     * 本地镜像中k个位都已置位时直接返回true；否则用一条BITFIELD命令向Redis确认，
+     * 避免其他节点在两次同步之间新增的元素被误判为不存在
      *
-     * @param filterKey    过滤器的键
-     * @param value        要检查的值
-     * @param expectedSize 预期元素数量
-     * @param hashNumbers  哈希函数个数
+     * @param filterKey          过滤器的键
+     * @param value              要检查的值
+     * @param expectedInsertions 预期元素数量
+     * @param fpp                期望误判率
      * @return 如果返回false，则元素一定不存在；如果返回true，则元素可能存在
      */
-    public boolean mightContain(String filterKey, String value, int expectedSize, int hashNumbers) {
+    public boolean mightContain(String filterKey, String value, int expectedInsertions, double fpp) {
         if (redisTemplate == null) {
             // Redis不可用时，返回true，允许请求继续执行
             return true;
         }
-        
-        for (int i = 0; i < hashNumbers; i++) {
-            int index = getIndex(value, i, expectedSize);
-            Boolean exists = redisTemplate.opsForValue().getBit(filterKey, index);
-            if (exists == null || !exists) {
-                // 只要有一个位为false，则元素一定不存在
-                return false;
-            }
+        Sizing sizing = Sizing.of(expectedInsertions, fpp);
+        long[] indexes = sizing.indexes(value);
+        LocalBloomFilter mirror = mirrorFor(filterKey, sizing);
+        if (mirror.containsAll(indexes)) {
+            return true;
         }
-        // 所有位都为true，元素可能存在
-        return true;
-    }
 
-    /**
-     * 计算值在位数组中的索引位置
-     *
-     * @param value     要计算的值
-     * @param seed      哈希种子
-     * @param size      位数组大小
-     * @return 索引位置
-     */
-    private static int getIndex(String value, int seed, int size) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("MD5");
-            String valueWithSeed = value + seed;
-            byte[] bytes = digest.digest(valueWithSeed.getBytes(StandardCharsets.UTF_8));
-            int index = 0;
-            for (int i = 0; i < 4; i++) {
-                index += ((int) bytes[i] & 0xFF) << (i * 8);
+        BitFieldSubCommands command = BitFieldSubCommands.create();
+        for (long index : indexes) {
+            command = command.get(BIT).valueAt(index);
+        }
+        List<Long> bits = redisTemplate.opsForValue().bitField(filterKey, command);
+        if (bits == null || bits.size() != indexes.length) {
+            return false;
+        }
+        for (int i = 0; i < indexes.length; i++) {
+            Long bit = bits.get(i);
+            if (bit == null || bit == 0) {
+                // 只要有一个位为0，则元素一定不存在
+                return false;
             }
-            return Math.abs(index % size);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 algorithm not found", e);
         }
+        // 所有位都为1，元素可能存在，同步到本地镜像
+        for (long index : indexes) {
+            mirror.setBit(index);
+        }
+        return true;
     }
 
     /**
@@ -143,6 +221,11 @@ public class BloomFilter {
      * @param filterKey 过滤器的键
      */
     public void clear(String filterKey) {
+        LocalBloomFilter mirror = mirrors.get(filterKey);
+        if (mirror != null) {
+            mirror.clear();
+        }
+        lastExpireTimes.remove(filterKey);
         if (redisTemplate != null) {
             redisTemplate.delete(filterKey);
         }
@@ -172,42 +255,278 @@ public class BloomFilter {
         return new LocalBloomFilter(expectedSize, errorRate);
     }
 
+    /**
+     * 创建一个可自动扩容的本地布隆过滤器
+     *
+     * @param initialCapacity 初始容量
+     * @param errorRate       整体误判率上限
+     * @return 可扩容的本地布隆过滤器实例
+     */
+    public ScalableBloomFilter createScalableFilter(int initialCapacity, double errorRate) {
+        return new ScalableBloomFilter(initialCapacity, errorRate);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (mirrorSyncExecutor != null) {
+            mirrorSyncExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取或创建本地镜像，首次创建时启动后台同步任务
+     */
+    private LocalBloomFilter mirrorFor(String filterKey, Sizing sizing) {
+        LocalBloomFilter mirror = mirrors.get(filterKey);
+        if (mirror != null && mirror.bitSize == sizing.bitSize) {
+            return mirror;
+        }
+        mirror = mirrors.compute(filterKey, (k, existing) ->
+                existing != null && existing.bitSize == sizing.bitSize
+                        ? existing : new LocalBloomFilter(sizing.bitSize, sizing.hashNumbers));
+        startMirrorSync();
+        return mirror;
+    }
+
+    private void startMirrorSync() {
+        if (mirrorSyncExecutor != null) {
+            return;
+        }
+        synchronized (this) {
+            if (mirrorSyncExecutor == null) {
+                ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "bloom-filter-sync");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                executor.scheduleWithFixedDelay(this::syncMirrors, 0, MIRROR_SYNC_INTERVAL, TimeUnit.SECONDS);
+                mirrorSyncExecutor = executor;
+            }
+        }
+    }
+
+    /**
+     * 从Redis拉取完整位数组合并到本地镜像
+     */
+    @SuppressWarnings("unchecked")
+    private void syncMirrors() {
+        if (redisTemplate == null) {
+            return;
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        for (Map.Entry<String, LocalBloomFilter> entry : mirrors.entrySet()) {
+            try {
+                byte[] rawKey = keySerializer.serialize(entry.getKey());
+                byte[] bitmap = redisTemplate.execute(
+                        (RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey), true);
+                if (bitmap != null) {
+                    entry.getValue().mergeRedisBitmap(bitmap);
+                }
+            } catch (Exception e) {
+                log.warn("同步布隆过滤器本地镜像失败, key={}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean shouldRenewExpire(String filterKey) {
+        long now = System.currentTimeMillis();
+        Long last = lastExpireTimes.get(filterKey);
+        if (last != null && now - last < EXPIRE_RENEW_INTERVAL) {
+            return false;
+        }
+        lastExpireTimes.put(filterKey, now);
+        return true;
+    }
+
+    /**
+     * 计算值在位数组中的k个索引位置
+     * 只计算一次128位哈希，使用 h1 + i * h2 的双重哈希派生其余位置
+     */
+    static long[] indexes(String value, long bitSize, int hashNumbers) {
+        long[] hash = MurmurHash3.hash128(value);
+        long combined = hash[0];
+        long[] indexes = new long[hashNumbers];
+        for (int i = 0; i < hashNumbers; i++) {
+            indexes[i] = (combined & Long.MAX_VALUE) % bitSize;
+            combined += hash[1];
+        }
+        return indexes;
+    }
+
+    /**
+     * 过滤器容量参数，根据预期元素数量和误判率计算位数组大小和哈希函数个数
+     */
+    static final class Sizing {
+        private static final Map<Long, Sizing> CACHE = new ConcurrentHashMap<>();
+
+        private final int expectedInsertions;
+        private final double fpp;
+        final long bitSize;
+        final int hashNumbers;
+
+        private Sizing(int expectedInsertions, double fpp) {
+            this.expectedInsertions = expectedInsertions;
+            this.fpp = fpp;
+            this.bitSize = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.hashNumbers = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        }
+
+        static Sizing of(int expectedInsertions, double fpp) {
+            if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+                throw new IllegalArgumentException("expectedInsertions must be positive and fpp must be in (0, 1)");
+            }
+            long cacheKey = ((long) expectedInsertions << 32) ^ Double.doubleToLongBits(fpp);
+            Sizing sizing = CACHE.computeIfAbsent(cacheKey, k -> new Sizing(expectedInsertions, fpp));
+            if (sizing.expectedInsertions != expectedInsertions || sizing.fpp != fpp) {
+                // 缓存键冲突时直接计算，不覆盖已缓存的参数
+                return new Sizing(expectedInsertions, fpp);
+            }
+            return sizing;
+        }
+
+        long[] indexes(String value) {
+            return BloomFilter.indexes(value, bitSize, hashNumbers);
+        }
+    }
+
     /**
      * 本地布隆过滤器实现
-     * 用于不需要分布式的场景
+     * 用于不需要分布式的场景，也作为Redis过滤器的本地镜像，线程安全
      */
     public static class LocalBloomFilter {
-        private BitSet bits;
-        private int size;
-        private int hashNumbers;
+        private final AtomicLongArray words;
+        private final long bitSize;
+        private final int hashNumbers;
 
         public LocalBloomFilter(int expectedSize, double errorRate) {
-            // 计算最佳位数组大小
-            this.size = (int) Math.ceil(-expectedSize * Math.log(errorRate) / (Math.log(2) * Math.log(2)));
-            // 计算最佳哈希函数个数
-            this.hashNumbers = (int) Math.ceil((size / expectedSize) * Math.log(2));
-            this.bits = new BitSet(size);
+            this(Sizing.of(expectedSize, errorRate));
+        }
+
+        private LocalBloomFilter(Sizing sizing) {
+            this(sizing.bitSize, sizing.hashNumbers);
+        }
+
+        LocalBloomFilter(long bitSize, int hashNumbers) {
+            this.bitSize = bitSize;
+            this.hashNumbers = hashNumbers;
+            this.words = new AtomicLongArray((int) ((bitSize + 63) >>> 6));
         }
 
         public void add(String value) {
-            for (int i = 0; i < hashNumbers; i++) {
-                int index = getIndex(value, i, size);
-                bits.set(index);
+            for (long index : indexes(value, bitSize, hashNumbers)) {
+                setBit(index);
             }
         }
 
         public boolean mightContain(String value) {
-            for (int i = 0; i < hashNumbers; i++) {
-                int index = getIndex(value, i, size);
-                if (!bits.get(index)) {
+            return containsAll(indexes(value, bitSize, hashNumbers));
+        }
+
+        public void clear() {
+            for (int i = 0; i < words.length(); i++) {
+                words.set(i, 0L);
+            }
+        }
+
+        void setBit(long index) {
+            int wordIndex = (int) (index >>> 6);
+            long mask = 1L << (index & 63);
+            long word = words.get(wordIndex);
+            while ((word & mask) == 0 && !words.compareAndSet(wordIndex, word, word | mask)) {
+                word = words.get(wordIndex);
+            }
+        }
+
+        boolean containsAll(long[] indexes) {
+            for (long index : indexes) {
+                if ((words.get((int) (index >>> 6)) & (1L << (index & 63))) == 0) {
                     return false;
                 }
             }
             return true;
         }
 
-        public void clear() {
-            bits.clear();
+        /**
+         * 合并Redis位图，Redis中第n位位于第n/8个字节的高位优先位置
+         */
+        void mergeRedisBitmap(byte[] bitmap) {
+            long maxBytes = Math.min(bitmap.length, (bitSize + 7) >>> 3);
+            for (int wordIndex = 0; (long) wordIndex * 8 < maxBytes; wordIndex++) {
+                long word = 0;
+                for (int b = 0; b < 8; b++) {
+                    int byteIndex = wordIndex * 8 + b;
+                    if (byteIndex >= maxBytes) {
+                        break;
+                    }
+                    // 字节内高位优先转换为低位优先
+                    long reversed = Integer.reverse(bitmap[byteIndex] & 0xff) >>> 24;
+                    word |= reversed << (b * 8);
+                }
+                if (word != 0) {
+                    words.getAndAccumulate(wordIndex, word, (current, update) -> current | update);
+                }
+            }
+        }
+    }
+
+    /**
+     * 可自动扩容的本地布隆过滤器
+     * 当前层元素数达到容量后新增一层，新层容量翻倍、误判率减半，使整体误判率收敛在设定值附近
+     */
+    public static class ScalableBloomFilter {
+        private static final int GROWTH_FACTOR = 2;
+        private static final double TIGHTENING_RATIO = 0.5;
+
+        private final List<Layer> layers = new CopyOnWriteArrayList<>();
+
+        public ScalableBloomFilter(int initialCapacity, double errorRate) {
+            layers.add(new Layer(initialCapacity, errorRate * (1 - TIGHTENING_RATIO)));
+        }
+
+        /**
+         * 添加元素
+         *
+         * @return 元素此前可能已存在时返回false
+         */
+        public synchronized boolean add(String value) {
+            if (mightContain(value)) {
+                return false;
+            }
+            Layer current = layers.get(layers.size() - 1);
+            if (current.count.get() >= current.capacity) {
+                long capacity = Math.min(Integer.MAX_VALUE, (long) current.capacity * GROWTH_FACTOR);
+                current = new Layer((int) capacity, current.errorRate * TIGHTENING_RATIO);
+                layers.add(current);
+            }
+            current.filter.add(value);
+            current.count.incrementAndGet();
+            return true;
+        }
+
+        public boolean mightContain(String value) {
+            for (Layer layer : layers) {
+                if (layer.filter.mightContain(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int getLayerCount() {
+            return layers.size();
+        }
+
+        private static final class Layer {
+            private final int capacity;
+            private final double errorRate;
+            private final LocalBloomFilter filter;
+            private final AtomicLong count = new AtomicLong();
+
+            private Layer(int capacity, double errorRate) {
+                this.capacity = capacity;
+                this.errorRate = errorRate;
+                this.filter = new LocalBloomFilter(capacity, errorRate);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -3,43 +3,102 @@ package com.heikeji.common.core.cache;
 import com.heikeji.common.core.constant.CacheConstants;
 import com.heikeji.common.core.constant.ErrorCode;
 import com.heikeji.common.core.exception.BusinessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.connection.RedisStringCommands;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.SerializationUtils;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 /**
  * 统一缓存管理器
  * 提供高级缓存操作和缓存问题解决方案
+ * 采用两级缓存：一级为有界本地缓存（{@link LocalCache}），二级为Redis；
+ * 写入和删除时通过Redis发布/订阅通知其他节点失效本地副本
  *
  * @author: zky
  * @date: 2024-01-01
  */
 public class CacheManager implements InitializingBean {
 
+    private static final Logger log = LoggerFactory.getLogger(CacheManager.class);
+
     private static final CacheManager INSTANCE = new CacheManager();
+
+    /** 失效消息类型：按键删除 */
+    private static final String INVALIDATE_KEYS = "K";
+
+    /** 失效消息类型：按通配符删除 */
+    private static final String INVALIDATE_PATTERN = "P";
     
     private RedisTemplate<String, Object> redisTemplate;
     private RedisCacheManager redisCacheManager;
     
-    // 本地缓存作为Redis的后备
-    private final Map<String, CacheEntry> localCache = new ConcurrentHashMap<>();
+    // 一级本地缓存，按条目数和权重限制容量
+    private final LocalCache localCache = new LocalCache(CacheConstants.LOCAL_CACHE_MAXIMUM_SIZE,
+            CacheConstants.LOCAL_CACHE_MAXIMUM_WEIGHT, CacheConstants.LOCAL_CACHE_REFRESH_AHEAD_RATIO);
+
+    // 当前节点标识，用于忽略自己发布的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // 跨节点失效消息监听容器
+    private volatile RedisMessageListenerContainer invalidationListenerContainer;
+
+    // 过期清理定时任务
+    private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cache-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 提前刷新线程池，队列满时直接丢弃刷新任务，由正常过期兜底
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(1, 4, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(1000), r -> {
+                Thread thread = new Thread(r, "cache-refresh-ahead");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    // 正在加载中的键，同一节点对同一键的并发未命中共享一次加载
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadExceptionCount = new LongAdder();
     
     // 布隆过滤器，用于防止缓存穿透
     private final Map<String, com.heikeji.common.core.cache.BloomFilter> bloomFilters = new ConcurrentHashMap<>();
     
     // 分布式锁，用于防止缓存击穿
     private final RedisLock redisLock = new RedisLock();
+
+    private CacheManager() {
+        localCache.setStaleWindowSeconds(CacheConstants.STALE_WHILE_REVALIDATE_TIME);
+        maintenanceExecutor.scheduleWithFixedDelay(localCache::cleanUp, CacheConstants.LOCAL_CACHE_CLEANUP_INTERVAL,
+                CacheConstants.LOCAL_CACHE_CLEANUP_INTERVAL, TimeUnit.SECONDS);
+    }
     
     /**
      * 获取单例实例
@@ -53,8 +112,17 @@ public class CacheManager implements InitializingBean {
      */
     public void setRedisTemplate(RedisTemplate<String, Object> redisTemplate) {
         this.redisTemplate = redisTemplate;
+        subscribeInvalidation();
     }
     
+    /**
+     * 设置过期宽限期（秒）
+     * 某个键正在加载时，其他并发请求在宽限期内直接返回已过期的旧值，而不是等待加载完成
+     */
+    public void setStaleWhileRevalidateSeconds(long staleWhileRevalidateSeconds) {
+        localCache.setStaleWindowSeconds(staleWhileRevalidateSeconds);
+    }
+
     /**
      * 设置RedisCacheManager
      */
@@ -67,15 +135,29 @@ public class CacheManager implements InitializingBean {
      */
     @Override
     public void afterPropertiesSet() {
+        // RedisTemplate由各服务的CacheConfig注入，这里只负责订阅跨节点失效通知
+        subscribeInvalidation();
+    }
+
+    /**
+     * 订阅跨节点失效通知，重复调用只会订阅一次
+     */
+    private synchronized void subscribeInvalidation() {
+        if (redisTemplate == null || redisTemplate.getConnectionFactory() == null
+                || invalidationListenerContainer != null) {
+            return;
+        }
         try {
-            // 从Spring容器中获取RedisTemplate和RedisCacheManager
-            // 如果SpringUtils不可用，可以使用其他方式获取Bean
-            // 暂时设置为null，实际运行时会由Spring注入
-            this.redisTemplate = null;
-            this.redisCacheManager = null;
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisTemplate.getConnectionFactory());
+            container.addMessageListener(new InvalidationListener(),
+                    new ChannelTopic(CacheConstants.CACHE_INVALIDATION_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            invalidationListenerContainer = container;
         } catch (Exception e) {
-            // Redis不可用时，使用本地缓存
-            System.err.println("Redis初始化失败，将使用本地缓存: " + e.getMessage());
+            // Redis不可用时，仅使用本地缓存，本地副本依靠较短的TTL保证最终一致
+            log.warn("订阅缓存失效通知失败，将只依赖本地缓存过期: {}", e.getMessage());
         }
     }
     
@@ -106,48 +188,27 @@ public class CacheManager implements InitializingBean {
         }
         
         try {
-            // 2. 从Redis获取缓存
+            // 2. 从本地缓存获取，临近过期时异步提前刷新
             Object value = null;
-            if (redisTemplate != null) {
-                value = redisTemplate.opsForValue().get(key);
+            LocalCache.Node node = localCache.getNode(key);
+            if (node != null) {
+                value = node.getValue();
+                if (node.shouldRefresh(System.currentTimeMillis()) && node.tryMarkRefreshing()) {
+                    refreshAhead(key, node, loader, expireTime);
+                }
             }
             
-            // 3. 如果Redis不可用或缓存未命中，从本地缓存获取
-            if (value == null) {
-                CacheEntry entry = localCache.get(key);
-                if (entry != null && !entry.isExpired()) {
-                    value = entry.getValue();
+            // 3. 本地缓存未命中，从Redis获取并回填本地缓存
+            if (value == null && redisTemplate != null) {
+                value = redisTemplate.opsForValue().get(key);
+                if (value != null) {
+                    localCache.put(key, value, getLocalExpireTime(expireTime));
                 }
             }
             
-            // 4. 如果缓存未命中且提供了加载器，则加载数据
+            // 4. 如果缓存未命中且提供了加载器，则合并本节点的并发请求后加载数据
             if (value == null && loader != null) {
-                // 使用分布式锁防止缓存击穿
-                String lockKey = CacheConstants.LOCK_PREFIX + key;
-                if (redisLock.tryLock(lockKey, "lockValue")) {
-                    try {
-                        // 双重检查，防止其他线程已经加载了数据
-                        value = redisTemplate != null ? redisTemplate.opsForValue().get(key) : null;
-                        if (value == null) {
-                            // 加载数据
-                            value = loader.get();
-                            
-                            // 存储数据到缓存
-                            if (value != null) {
-                                // 添加随机过期时间，防止缓存雪崩
-                                long actualExpireTime = expireTime + getRandomExpireOffset(expireTime);
-                                set(key, value, actualExpireTime);
-                                // 添加到布隆过滤器
-                                addToBloomFilter(key);
-                            } else {
-                                // 缓存空值，防止缓存穿透
-                                set(key, CacheConstants.NULL_VALUE, CacheConstants.SHORT_EXPIRE_TIME);
-                            }
-                        }
-                    } finally {
-                        redisLock.unlock(lockKey, "lockValue");
-                    }
-                }
+                value = loadSingleFlight(key, loader, expireTime);
             }
             
             // 5. 处理空值标记
@@ -158,14 +219,144 @@ public class CacheManager implements InitializingBean {
             return (T) value;
         } catch (Exception e) {
             // 发生异常时，尝试从本地缓存获取数据
-            CacheEntry entry = localCache.get(key);
-            if (entry != null && !entry.isExpired()) {
-                Object value = entry.getValue();
-                return CacheConstants.NULL_VALUE.equals(value) ? null : (T) value;
+            Object value = localCache.get(key);
+            return value == null || CacheConstants.NULL_VALUE.equals(value) ? null : (T) value;
+        }
+    }
+
+    /**
+     * 本节点内合并同一键的并发加载
+     * 第一个未命中的线程负责加载（每个节点只尝试一次分布式锁），其余线程在宽限期内返回旧值，否则等待加载结果；
+     * 等待超时后自行调用加载器，不把超时当作数据不存在，结果由负责加载的线程写入缓存
+     */
+    private Object loadSingleFlight(String key, Supplier<?> loader, long expireTime) throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            LocalCache.Node staleNode = localCache.getStaleNode(key);
+            if (staleNode != null) {
+                return staleNode.getValue();
+            }
+            try {
+                return inFlight.get(CacheConstants.LOAD_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("等待缓存加载超时，直接调用加载器, key={}", key);
+                return load(loader);
             }
-            return null;
+        }
+        try {
+            Object value = loadWithLock(key, loader, expireTime);
+            future.complete(value);
+            return value;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, future);
         }
     }
+
+    /**
+     * 使用分布式锁加载数据，防止多个节点同时回源（缓存击穿）
+     * 未抢到锁时短暂轮询Redis等待持锁节点的加载结果，超时后直接加载，不返回空结果
+     */
+    private Object loadWithLock(String key, Supplier<?> loader, long expireTime) {
+        String lockKey = CacheConstants.LOCK_PREFIX + key;
+        if (redisLock.tryLock(lockKey, nodeId)) {
+            try {
+                // 双重检查，防止其他节点已经加载了数据
+                Object value = redisTemplate != null ? redisTemplate.opsForValue().get(key) : null;
+                if (value != null) {
+                    localCache.put(key, value, getLocalExpireTime(expireTime));
+                    return value;
+                }
+                return loadAndCache(key, loader, expireTime);
+            } finally {
+                redisLock.unlock(lockKey, nodeId);
+            }
+        }
+
+        for (int i = 0; i < CacheConstants.LOCK_WAIT_RETRIES; i++) {
+            try {
+                Thread.sleep(CacheConstants.LOCK_WAIT_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Object value = redisTemplate != null ? redisTemplate.opsForValue().get(key) : null;
+            if (value != null) {
+                localCache.put(key, value, getLocalExpireTime(expireTime));
+                return value;
+            }
+        }
+        return loadAndCache(key, loader, expireTime);
+    }
+
+    /**
+     * 调用加载器并写入缓存
+     */
+    private Object loadAndCache(String key, Supplier<?> loader, long expireTime) {
+        Object value = load(loader);
+        if (value != null) {
+            // 添加随机过期时间，防止缓存雪崩
+            long actualExpireTime = expireTime + getRandomExpireOffset(expireTime);
+            set(key, value, actualExpireTime);
+            // 添加到布隆过滤器
+            addToBloomFilter(key);
+            return value;
+        }
+        // 缓存空值，防止缓存穿透
+        set(key, CacheConstants.NULL_VALUE, CacheConstants.SHORT_EXPIRE_TIME);
+        return CacheConstants.NULL_VALUE;
+    }
+
+    /**
+     * 提前刷新本地缓存：优先从Redis回填，Redis中已不存在时才调用加载器
+     */
+    private void refreshAhead(String key, LocalCache.Node node, Supplier<?> loader, long expireTime) {
+        refreshExecutor.execute(() -> {
+            try {
+                Object value = redisTemplate != null ? redisTemplate.opsForValue().get(key) : null;
+                if (value != null) {
+                    localCache.put(key, value, getLocalExpireTime(expireTime));
+                } else if (loader != null) {
+                    value = load(loader);
+                    if (value != null) {
+                        set(key, value, expireTime + getRandomExpireOffset(expireTime));
+                    }
+                } else {
+                    node.clearRefreshing();
+                }
+            } catch (Exception e) {
+                node.clearRefreshing();
+                log.warn("缓存提前刷新失败, key={}: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 调用加载器并统计加载结果
+     */
+    private <T> T load(Supplier<T> loader) {
+        try {
+            T value = loader.get();
+            loadSuccessCount.increment();
+            return value;
+        } catch (RuntimeException e) {
+            loadExceptionCount.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * 计算本地缓存过期时间，Redis可用时本地副本不超过上限，避免长时间读到旧值
+     */
+    private long getLocalExpireTime(long expireTime) {
+        if (redisTemplate == null || expireTime <= 0) {
+            return expireTime;
+        }
+        return Math.min(expireTime, CacheConstants.LOCAL_CACHE_EXPIRE_TIME);
+    }
     
     /**
      * 设置缓存
@@ -182,13 +373,15 @@ public class CacheManager implements InitializingBean {
             // 存储到Redis
             if (redisTemplate != null) {
                 redisTemplate.opsForValue().set(key, value, expireTime, java.util.concurrent.TimeUnit.SECONDS);
+                // 通知其他节点失效旧的本地副本
+                publishInvalidation(INVALIDATE_KEYS, key);
             }
             
             // 同时更新本地缓存
-            localCache.put(key, new CacheEntry(value, expireTime));
+            localCache.put(key, value, getLocalExpireTime(expireTime));
         } catch (Exception e) {
             // Redis操作失败时，只更新本地缓存
-            localCache.put(key, new CacheEntry(value, expireTime));
+            localCache.put(key, value, expireTime);
         }
     }
     
@@ -201,15 +394,16 @@ public class CacheManager implements InitializingBean {
         }
         
         try {
-            // 从Redis删除
-            if (redisTemplate != null) {
-                redisTemplate.delete(Arrays.asList(keys));
-            }
-            
             // 从本地缓存删除
             for (String key : keys) {
                 localCache.remove(key);
             }
+
+            // 从Redis删除，并通知其他节点删除本地副本
+            if (redisTemplate != null) {
+                redisTemplate.delete(Arrays.asList(keys));
+                publishInvalidation(INVALIDATE_KEYS, keys);
+            }
         } catch (Exception e) {
             // Redis操作失败时，只删除本地缓存
             for (String key : keys) {
@@ -222,20 +416,112 @@ public class CacheManager implements InitializingBean {
      * 批量删除缓存（支持通配符）
      */
     public void deleteByPattern(String pattern) {
+        Pattern keyPattern = compilePattern(pattern);
+        // 从本地缓存删除
+        localCache.removeIf(key -> keyPattern.matcher(key).matches());
         try {
-            // 从Redis删除
+            // 从Redis删除，并通知其他节点删除本地副本
             if (redisTemplate != null) {
                 Set<String> keys = redisTemplate.keys(pattern);
                 if (!CollectionUtils.isEmpty(keys)) {
                     redisTemplate.delete(keys);
                 }
+                publishInvalidation(INVALIDATE_PATTERN, pattern);
             }
-            
-            // 从本地缓存删除
-            localCache.keySet().removeIf(key -> key.matches(pattern.replace("*", ".*")));
         } catch (Exception e) {
             // Redis操作失败时，只删除本地缓存
-            localCache.keySet().removeIf(key -> key.matches(pattern.replace("*", ".*")));
+            log.warn("按通配符删除Redis缓存失败, pattern={}: {}", pattern, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取缓存统计信息（本地缓存命中/未命中/淘汰次数及加载次数）
+     */
+    public CacheWarmUpManager.CacheStats getStats() {
+        CacheWarmUpManager.CacheStats stats = new CacheWarmUpManager.CacheStats();
+        stats.setHitCount(localCache.getHitCount());
+        stats.setMissCount(localCache.getMissCount());
+        stats.setEvictionCount(localCache.getEvictionCount());
+        stats.setLoadSuccessCount(loadSuccessCount.sum());
+        stats.setLoadExceptionCount(loadExceptionCount.sum());
+        return stats;
+    }
+
+    /**
+     * 获取本地缓存当前条目数
+     */
+    public long getLocalCacheSize() {
+        return localCache.size();
+    }
+
+    /**
+     * 发布跨节点失效消息，格式：节点ID、消息类型、键（或通配符）逐行排列
+     */
+    private void publishInvalidation(String type, String... keys) {
+        if (invalidationListenerContainer == null) {
+            return;
+        }
+        try {
+            StringBuilder message = new StringBuilder(nodeId).append('\n').append(type);
+            for (String key : keys) {
+                message.append('\n').append(key);
+            }
+            redisTemplate.convertAndSend(CacheConstants.CACHE_INVALIDATION_CHANNEL, message.toString());
+        } catch (Exception e) {
+            log.warn("发布缓存失效通知失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 将Redis通配符（*、?）转换为正则表达式
+     */
+    private static Pattern compilePattern(String pattern) {
+        StringBuilder regex = new StringBuilder(pattern.length() + 8);
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * 跨节点失效消息监听器
+     */
+    private class InvalidationListener implements MessageListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            try {
+                Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+                if (body == null) {
+                    return;
+                }
+                String[] lines = body.toString().split("\n");
+                if (lines.length < 3 || nodeId.equals(lines[0])) {
+                    return;
+                }
+                if (INVALIDATE_PATTERN.equals(lines[1])) {
+                    Pattern keyPattern = compilePattern(lines[2]);
+                    localCache.removeIf(key -> keyPattern.matcher(key).matches());
+                } else {
+                    for (int i = 2; i < lines.length; i++) {
+                        localCache.remove(lines[i]);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("处理缓存失效通知失败: {}", e.getMessage());
+            }
         }
     }
     
@@ -342,28 +628,5 @@ public class CacheManager implements InitializingBean {
         return offset;
     }
     
-    /**
-     * 本地缓存条目
-     */
-    private static class CacheEntry {
-        private final Object value;
-        private final long expireTime;
-        private final long createTime;
-        
-        public CacheEntry(Object value, long expireTime) {
-            this.value = value;
-            this.expireTime = expireTime;
-            this.createTime = System.currentTimeMillis();
-        }
-        
-        public Object getValue() {
-            return value;
-        }
-        
-        public boolean isExpired() {
-            return expireTime > 0 && System.currentTimeMillis() - createTime > expireTime * 1000;
-        }
-    }
-    
     // 移除内部的DistributedLock和BloomFilter实现，使用外部实现
 }
\ No newline at end of file
@@ -157,8 +157,7 @@ public class CacheWarmUpManager implements ApplicationRunner {
      * @return 缓存统计信息
      */
     public CacheStats getCacheStats() {
-        // 返回空的统计信息，避免调用不存在的方法
-        return new CacheStats();
+        return CacheManager.getInstance().getStats();
     }
 
     /**
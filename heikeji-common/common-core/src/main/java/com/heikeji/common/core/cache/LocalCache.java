@@ -0,0 +1,446 @@
+package com.heikeji.common.core.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * 有界本地缓存（一级缓存）
+ * 采用分段LRU（SLRU）淘汰策略：新写入的条目先进入试用区，再次命中后晋升到保护区，
+ * 淘汰时优先淘汰试用区中最久未访问的条目，避免一次性扫描类访问冲掉热点数据。
+ * 同时按条目数和权重两个维度限制容量，并按分段加锁以降低并发竞争。
+ *
+ * @author: zky
+ * @date: 2024-01-01
+ */
+public final class LocalCache {
+
+    /**
+     * 分段数量，必须为2的幂
+     */
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * 保护区占分段容量的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final Segment[] segments;
+    private final ToIntFunction<Object> weigher;
+    private final double refreshAheadRatio;
+
+    /**
+     * 过期宽限期（毫秒），过期条目在宽限期内仍保留，供并发加载期间返回旧值
+     */
+    private volatile long staleWindowMillis;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+
+    /**
+     * @param maximumSize       最大条目数
+     * @param maximumWeight     最大总权重
+     * @param refreshAheadRatio 提前刷新比例（0-1），条目存活时间超过TTL的该比例后标记为需要刷新
+     */
+    public LocalCache(long maximumSize, long maximumWeight, double refreshAheadRatio) {
+        this(maximumSize, maximumWeight, refreshAheadRatio, LocalCache::defaultWeight);
+    }
+
+    public LocalCache(long maximumSize, long maximumWeight, double refreshAheadRatio, ToIntFunction<Object> weigher) {
+        if (maximumSize <= 0 || maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumSize and maximumWeight must be positive");
+        }
+        this.weigher = weigher;
+        this.refreshAheadRatio = refreshAheadRatio;
+        this.segments = new Segment[SEGMENT_COUNT];
+        long segmentSize = Math.max(1, maximumSize / SEGMENT_COUNT);
+        long segmentWeight = Math.max(1, maximumWeight / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize, segmentWeight);
+        }
+    }
+
+    /**
+     * 获取未过期的缓存条目，同时统计命中/未命中
+     */
+    public Node getNode(String key) {
+        Node node = segmentFor(key).get(key, System.currentTimeMillis(), false);
+        if (node == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return node;
+    }
+
+    /**
+     * 获取已过期但仍在宽限期内的条目（未过期的条目也会返回），不计入命中统计
+     */
+    public Node getStaleNode(String key) {
+        return segmentFor(key).get(key, System.currentTimeMillis(), true);
+    }
+
+    /**
+     * 设置过期宽限期（秒）
+     */
+    public void setStaleWindowSeconds(long staleWindowSeconds) {
+        this.staleWindowMillis = Math.max(0, staleWindowSeconds) * 1000;
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时返回null
+     */
+    public Object get(String key) {
+        Node node = getNode(key);
+        return node == null ? null : node.getValue();
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key        缓存键
+     * @param value      缓存值
+     * @param ttlSeconds 过期时间（秒），小于等于0表示不过期（仍受容量限制）
+     */
+    public void put(String key, Object value, long ttlSeconds) {
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlSeconds > 0 ? ttlSeconds * 1000 : 0;
+        Node node = new Node(key, value, Math.max(1, weigher.applyAsInt(value)), now,
+                ttlMillis > 0 ? now + ttlMillis : Long.MAX_VALUE,
+                ttlMillis > 0 && refreshAheadRatio > 0 && refreshAheadRatio < 1
+                        ? now + (long) (ttlMillis * refreshAheadRatio) : Long.MAX_VALUE);
+        segmentFor(key).put(node);
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void remove(String key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * 按条件删除缓存
+     */
+    public void removeIf(Predicate<String> keyPredicate) {
+        for (Segment segment : segments) {
+            segment.removeIf(keyPredicate);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        removeIf(key -> true);
+    }
+
+    /**
+     * 清理已过期的条目，由后台定时任务调用
+     */
+    public void cleanUp() {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            segment.purgeExpired(now);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 默认权重估算：字符串、字节数组按长度计，集合按元素数计，其他对象计为1
+     */
+    private static int defaultWeight(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() / 64 + 1;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length / 64 + 1;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size() + 1;
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size() + 1;
+        }
+        return 1;
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static final class Node {
+        private final String key;
+        private final Object value;
+        private final int weight;
+        private final long writeTime;
+        private final long expireAt;
+        private final long refreshAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Node(String key, Object value, int weight, long writeTime, long expireAt, long refreshAt) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.expireAt = expireAt;
+            this.refreshAt = refreshAt;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getWriteTime() {
+            return writeTime;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+
+        /**
+         * 是否已超过过期宽限期，可以物理删除
+         */
+        boolean isRemovable(long now, long staleWindowMillis) {
+            return expireAt != Long.MAX_VALUE && now - staleWindowMillis >= expireAt;
+        }
+
+        /**
+         * 是否已到达提前刷新时间点
+         */
+        public boolean shouldRefresh(long now) {
+            return now >= refreshAt && !refreshing.get();
+        }
+
+        /**
+         * 抢占刷新权，保证同一条目只触发一次异步刷新
+         */
+        public boolean tryMarkRefreshing() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        /**
+         * 刷新失败时释放刷新权，允许后续请求重试
+         */
+        public void clearRefreshing() {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * 缓存分段，内部维护试用区和保护区两个LRU队列
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<String, Node> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Node> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maximumSize;
+        private final long maximumWeight;
+        private final long protectedMaximumSize;
+        private long weight;
+
+        Segment(long maximumSize, long maximumWeight) {
+            this.maximumSize = maximumSize;
+            this.maximumWeight = maximumWeight;
+            this.protectedMaximumSize = Math.max(1, (long) (maximumSize * PROTECTED_RATIO));
+        }
+
+        Node get(String key, long now, boolean allowStale) {
+            lock.lock();
+            try {
+                boolean inProtected = true;
+                Node node = protectedArea.get(key);
+                if (node == null) {
+                    node = probation.get(key);
+                    if (node == null) {
+                        return null;
+                    }
+                    inProtected = false;
+                }
+                if (node.isExpired(now)) {
+                    long staleWindow = staleWindowMillis;
+                    if (node.isRemovable(now, staleWindow)) {
+                        (inProtected ? protectedArea : probation).remove(key);
+                        weight -= node.weight;
+                        expirationCount.increment();
+                        return null;
+                    }
+                    return allowStale ? node : null;
+                }
+                if (!inProtected) {
+                    // 再次命中，晋升到保护区
+                    probation.remove(key);
+                    protectedArea.put(key, node);
+                    demoteIfNecessary();
+                }
+                return node;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Node node) {
+            lock.lock();
+            try {
+                Node old = protectedArea.get(node.key);
+                if (old != null) {
+                    // 已在保护区的热点条目原地替换
+                    protectedArea.put(node.key, node);
+                } else {
+                    old = probation.put(node.key, node);
+                }
+                if (old != null) {
+                    weight -= old.weight;
+                }
+                weight += node.weight;
+                evictIfNecessary();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String key) {
+            lock.lock();
+            try {
+                Node node = protectedArea.remove(key);
+                if (node == null) {
+                    node = probation.remove(key);
+                }
+                if (node != null) {
+                    weight -= node.weight;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeIf(Predicate<String> keyPredicate) {
+            lock.lock();
+            try {
+                removeIf(probation, node -> keyPredicate.test(node.key), false);
+                removeIf(protectedArea, node -> keyPredicate.test(node.key), false);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void purgeExpired(long now) {
+            lock.lock();
+            try {
+                long staleWindow = staleWindowMillis;
+                removeIf(probation, node -> node.isRemovable(now, staleWindow), true);
+                removeIf(protectedArea, node -> node.isRemovable(now, staleWindow), true);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long size() {
+            lock.lock();
+            try {
+                return probation.size() + protectedArea.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weight() {
+            lock.lock();
+            try {
+                return weight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void removeIf(LinkedHashMap<String, Node> area, Predicate<Node> predicate, boolean expired) {
+            Iterator<Node> iterator = area.values().iterator();
+            while (iterator.hasNext()) {
+                Node node = iterator.next();
+                if (predicate.test(node)) {
+                    iterator.remove();
+                    weight -= node.weight;
+                    if (expired) {
+                        expirationCount.increment();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 保护区超限时，将最久未访问的条目降级回试用区
+         */
+        private void demoteIfNecessary() {
+            while (protectedArea.size() > protectedMaximumSize) {
+                Iterator<Map.Entry<String, Node>> iterator = protectedArea.entrySet().iterator();
+                Map.Entry<String, Node> eldest = iterator.next();
+                iterator.remove();
+                probation.put(eldest.getKey(), eldest.getValue());
+            }
+        }
+
+        /**
+         * 容量或权重超限时淘汰条目，优先淘汰试用区
+         */
+        private void evictIfNecessary() {
+            while ((probation.size() + protectedArea.size() > maximumSize || weight > maximumWeight)
+                    && !(probation.isEmpty() && protectedArea.isEmpty())) {
+                LinkedHashMap<String, Node> victimArea = probation.isEmpty() ? protectedArea : probation;
+                Iterator<Node> iterator = victimArea.values().iterator();
+                Node victim = iterator.next();
+                iterator.remove();
+                weight -= victim.weight;
+                evictionCount.increment();
+            }
+        }
+    }
+}
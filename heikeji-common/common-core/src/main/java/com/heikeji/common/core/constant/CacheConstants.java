@@ -34,6 +34,39 @@ public class CacheConstants {
     
     /** 分布式锁前缀 */
     public static final String LOCK_PREFIX = "lock:";
+
+    /** 本地缓存最大条目数 */
+    public static final long LOCAL_CACHE_MAXIMUM_SIZE = 10000;
+
+    /** 本地缓存最大总权重 */
+    public static final long LOCAL_CACHE_MAXIMUM_WEIGHT = 100000;
+
+    /** 本地缓存过期时间上限（秒），Redis可用时本地缓存只作为短期副本 */
+    public static final long LOCAL_CACHE_EXPIRE_TIME = 60;
+
+    /** 本地缓存提前刷新比例，条目存活超过TTL的该比例后异步刷新 */
+    public static final double LOCAL_CACHE_REFRESH_AHEAD_RATIO = 0.8;
+
+    /** 本地缓存过期清理间隔（秒） */
+    public static final long LOCAL_CACHE_CLEANUP_INTERVAL = 30;
+
+    /** 过期宽限期（秒），并发加载期间其他请求可返回该时间内的旧值 */
+    public static final long STALE_WHILE_REVALIDATE_TIME = 10;
+
+    /** 等待本节点其他线程加载结果的超时时间（毫秒） */
+    public static final long LOAD_WAIT_TIMEOUT = 3000;
+
+    /** 未获取到分布式锁时轮询Redis的次数 */
+    public static final int LOCK_WAIT_RETRIES = 20;
+
+    /** 未获取到分布式锁时轮询Redis的间隔（毫秒） */
+    public static final long LOCK_WAIT_INTERVAL = 50;
+
+    /** 跨节点本地缓存失效通知频道 */
+    public static final String CACHE_INVALIDATION_CHANNEL = "cache:invalidation";
+
+    /** 网关响应缓存清除通知频道，消息为需要清除的请求路径前缀 */
+    public static final String GATEWAY_RESPONSE_CACHE_PURGE_CHANNEL = "gateway:response-cache:purge";
     
     /**
      * 用户相关缓存前缀
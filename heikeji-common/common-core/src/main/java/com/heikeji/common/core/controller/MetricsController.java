@@ -0,0 +1,51 @@
+package com.heikeji.common.core.controller;
+
+import com.heikeji.common.core.monitor.MetricsCollector;
+import com.heikeji.common.core.oplog.OperationLogDispatcher;
+import com.heikeji.common.core.util.ResponseUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 业务指标采集控制器
+ * 读取进程内聚合的指标，不访问Redis
+ */
+@RestController
+@RequestMapping("/monitor/metrics")
+public class MetricsController {
+
+    @Autowired
+    private MetricsCollector metricsCollector;
+
+    @Autowired
+    private OperationLogDispatcher operationLogDispatcher;
+
+    /**
+     * 获取计数器累计值和各接口最近一个周期的耗时分布（p50/p95/p99）
+     */
+    @GetMapping
+    public ResponseUtil.ApiResponse<Map<String, Object>> scrape() {
+        return ResponseUtil.success(metricsCollector.getSnapshot());
+    }
+
+    /**
+     * 获取指标当日统计
+     */
+    @GetMapping("/daily/{metricName}")
+    public ResponseUtil.ApiResponse<Map<String, Object>> dailyStats(@PathVariable("metricName") String metricName) {
+        return ResponseUtil.success(metricsCollector.getDailyStats(metricName));
+    }
+
+    /**
+     * 获取操作日志分发统计，包括丢弃数和采样跳过数
+     */
+    @GetMapping("/operation-log")
+    public ResponseUtil.ApiResponse<Map<String, Object>> operationLogStats() {
+        return ResponseUtil.success(operationLogDispatcher.getStats());
+    }
+}
@@ -0,0 +1,94 @@
+package com.heikeji.common.core.counter;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于JDBC的浏览量存储
+ *
+ * 一批增量生成一条 UPDATE ... SET view_count = view_count + CASE id WHEN ? THEN ? ... END WHERE id IN (...) 语句，
+ * 按主键升序绑定参数，多个实例同时刷写相同记录时加锁顺序一致，不会互相死锁。
+ */
+public class JdbcViewCountStore implements ViewCountStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String tableName;
+
+    private final String idColumn;
+
+    private final String countColumn;
+
+    /**
+     * @param tableName   表名
+     * @param idColumn    主键列
+     * @param countColumn 浏览量列
+     */
+    public JdbcViewCountStore(JdbcTemplate jdbcTemplate, String tableName, String idColumn, String countColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableName = tableName;
+        this.idColumn = idColumn;
+        this.countColumn = countColumn;
+    }
+
+    @Override
+    public void increment(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(deltas.keySet());
+        Collections.sort(ids);
+        Object[] args = new Object[ids.size() * 3];
+        int index = 0;
+        for (Long id : ids) {
+            args[index++] = id;
+            args[index++] = deltas.get(id);
+        }
+        for (Long id : ids) {
+            args[index++] = id;
+        }
+        jdbcTemplate.update(buildIncrementSql(ids.size()), args);
+    }
+
+    @Override
+    public Map<Long, Long> loadCounts(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sql = "SELECT `" + idColumn + "`, `" + countColumn + "` FROM `" + tableName + "` WHERE `" + idColumn
+                + "` IN (" + placeholders(ids.size()) + ")";
+        Map<Long, Long> counts = new HashMap<>(ids.size() * 2);
+        jdbcTemplate.query(sql, rs -> {
+            counts.put(rs.getLong(1), rs.getLong(2));
+        }, ids.toArray());
+        return counts;
+    }
+
+    /**
+     * 生成累加rowCount条记录的UPDATE语句
+     */
+    String buildIncrementSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(96 + rowCount * 20);
+        sql.append("UPDATE `").append(tableName).append("` SET `").append(countColumn).append("` = `")
+                .append(countColumn).append("` + CASE `").append(idColumn).append('`');
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" ELSE 0 END WHERE `").append(idColumn).append("` IN (").append(placeholders(rowCount)).append(')');
+        return sql.toString();
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+}
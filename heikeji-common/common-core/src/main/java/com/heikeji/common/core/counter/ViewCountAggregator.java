@@ -0,0 +1,307 @@
+package com.heikeji.common.core.counter;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 浏览量写后聚合器
+ *
+ * 浏览只在内存中累加，由后台线程定期把增量按批写入数据库，热门记录的大量浏览合并为一次累加。
+ * 计数按线程分散到多个分段，每个分段是记录ID到增量的ConcurrentHashMap：
+ * 同一记录的并发浏览分布在不同分段上，刷写时逐个原子移除，与并发累加之间不会丢失计数。
+ * 已取出但尚未写入成功的增量保留在待写入表中，写入失败时随下次刷写重试，读取时一并计入。
+ * 进程异常退出时最多丢失一个刷写周期的浏览量。
+ * 排行榜在启动时和读取时检查是否已初始化，未初始化时用排行加载器从数据库补齐完整名次，
+ * 初始化之前读取排行返回空列表，由调用方回源数据库。
+ */
+@Slf4j
+public class ViewCountAggregator {
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final String name;
+
+    private final ViewCountStore store;
+
+    private final ConcurrentHashMap<Long, Long>[] stripes;
+
+    private final int stripeMask;
+
+    /**
+     * 已从分段取出、尚未写入成功的增量，只由刷写线程修改
+     */
+    private final ConcurrentHashMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private ViewRanking ranking;
+
+    private Supplier<Map<Long, Long>> rankingLoader;
+
+    private Consumer<Collection<Long>> flushListener;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param name  名称，用于日志与线程名
+     * @param store 浏览量存储
+     */
+    @SuppressWarnings("unchecked")
+    public ViewCountAggregator(String name, ViewCountStore store) {
+        this.name = name;
+        this.store = store;
+        int stripeCount = 1;
+        while (stripeCount < Runtime.getRuntime().availableProcessors()) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new ConcurrentHashMap[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * 单条UPDATE语句累加的最大记录数
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 设置排行榜，写入成功后用数据库中的最新浏览量刷新排行
+     */
+    public void setRanking(ViewRanking ranking) {
+        this.ranking = ranking;
+    }
+
+    /**
+     * 设置排行加载器，返回数据库中浏览量最高的记录ID与浏览量，条数为排行榜的最大名次
+     */
+    public void setRankingLoader(Supplier<Map<Long, Long>> rankingLoader) {
+        this.rankingLoader = rankingLoader;
+    }
+
+    /**
+     * 设置刷写回调，参数为本次写入成功的记录ID，可用于清理缓存中的旧浏览量
+     */
+    public void setFlushListener(Consumer<Collection<Long>> flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * 启动定期刷写
+     *
+     * @param flushIntervalMillis 刷写间隔（毫秒）
+     */
+    public synchronized void start(long flushIntervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "view-count-flush-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::ensureRankingSeeded);
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定期刷写并写入剩余的增量
+     */
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+    }
+
+    /**
+     * 记录一次浏览
+     */
+    public void increment(Long id) {
+        if (id == null) {
+            return;
+        }
+        stripes[stripeIndex()].merge(id, 1L, Long::sum);
+    }
+
+    /**
+     * 获取尚未写入数据库的浏览量，用于与数据库或缓存中的浏览量合并展示
+     */
+    public long pending(Long id) {
+        if (id == null) {
+            return 0;
+        }
+        long total = inFlight.getOrDefault(id, 0L);
+        for (ConcurrentHashMap<Long, Long> stripe : stripes) {
+            total += stripe.getOrDefault(id, 0L);
+        }
+        return total;
+    }
+
+    /**
+     * 按浏览量从高到低取前limit条记录ID
+     * 未配置排行榜、排行榜未初始化或不可用时返回空列表；超出排行榜最大名次的部分不返回
+     */
+    public List<Long> top(int limit) {
+        if (ranking == null || !ensureRankingSeeded()) {
+            return Collections.emptyList();
+        }
+        try {
+            return ranking.top(Math.min(limit, ranking.getMaxSize()));
+        } catch (Exception e) {
+            log.warn("读取浏览排行失败，name={}: {}", name, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 排行榜未初始化时从数据库加载，返回排行榜是否可用
+     */
+    private boolean ensureRankingSeeded() {
+        if (ranking == null) {
+            return false;
+        }
+        try {
+            if (ranking.isSeeded()) {
+                return true;
+            }
+            if (rankingLoader == null) {
+                return false;
+            }
+            ranking.seed(rankingLoader.get());
+            log.info("浏览排行初始化完成，name={}", name);
+            return true;
+        } catch (Exception e) {
+            log.warn("浏览排行初始化失败，name={}: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 把从数据库查到的浏览量写入排行榜，用于排行榜为空或名次不足时回源后补齐
+     */
+    public void rank(Map<Long, Long> counts) {
+        if (ranking == null || counts.isEmpty()) {
+            return;
+        }
+        try {
+            ranking.update(counts);
+        } catch (Exception e) {
+            log.warn("写入浏览排行失败，name={}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 从排行榜移除已下架或已删除的记录
+     */
+    public void unrank(Collection<Long> ids) {
+        if (ranking == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            ranking.remove(ids);
+        } catch (Exception e) {
+            log.warn("移除浏览排行失败，name={}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * 把累计的增量写入数据库
+     *
+     * @return 本次写入成功的记录数
+     */
+    public synchronized int flush() {
+        for (ConcurrentHashMap<Long, Long> stripe : stripes) {
+            for (Long id : stripe.keySet()) {
+                Long count = stripe.remove(id);
+                if (count != null) {
+                    inFlight.merge(id, count, Long::sum);
+                }
+            }
+        }
+        if (inFlight.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(inFlight.keySet());
+        Collections.sort(ids);
+        List<Long> written = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batchIds = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            Map<Long, Long> deltas = new HashMap<>(batchIds.size() * 2);
+            for (Long id : batchIds) {
+                deltas.put(id, inFlight.get(id));
+            }
+            try {
+                store.increment(deltas);
+            } catch (RuntimeException e) {
+                // 未写入的增量留在待写入表中，下次刷写时重试
+                log.warn("浏览量写入失败，name={}, 待写入记录数={}: {}", name, inFlight.size(), e.getMessage());
+                break;
+            }
+            for (Long id : batchIds) {
+                inFlight.remove(id);
+            }
+            written.addAll(batchIds);
+        }
+        if (!written.isEmpty()) {
+            afterFlush(written);
+        }
+        return written.size();
+    }
+
+    private void afterFlush(List<Long> written) {
+        if (ranking != null) {
+            try {
+                ranking.update(store.loadCounts(written));
+            } catch (Exception e) {
+                log.warn("刷新浏览排行失败，name={}: {}", name, e.getMessage());
+            }
+        }
+        if (flushListener != null) {
+            try {
+                flushListener.accept(written);
+            } catch (Exception e) {
+                log.warn("浏览量刷写回调失败，name={}: {}", name, e.getMessage());
+            }
+        }
+        log.debug("浏览量刷写完成，name={}, 记录数={}", name, written.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("浏览量刷写异常，name={}", name, e);
+        }
+    }
+
+    private int stripeIndex() {
+        long threadId = Thread.currentThread().getId();
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+}
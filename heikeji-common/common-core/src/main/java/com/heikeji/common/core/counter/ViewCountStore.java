@@ -0,0 +1,22 @@
+package com.heikeji.common.core.counter;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 浏览量持久化存储
+ */
+public interface ViewCountStore {
+
+    /**
+     * 以一条语句把一批增量累加到存储，失败时抛出异常且不累加任何记录
+     *
+     * @param deltas 记录ID到浏览量增量
+     */
+    void increment(Map<Long, Long> deltas);
+
+    /**
+     * 读取记录当前的浏览量，不存在的记录不返回
+     */
+    Map<Long, Long> loadCounts(Collection<Long> ids);
+}
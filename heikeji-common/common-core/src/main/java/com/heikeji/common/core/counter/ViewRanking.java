@@ -0,0 +1,109 @@
+package com.heikeji.common.core.counter;
+
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于Redis有序集合的浏览量排行榜
+ *
+ * 成员为记录ID，分数为数据库中的浏览量总数。每次刷写后用刷写结果覆盖分数而不是累加，
+ * 重复写入不会重复计数；集合只保留前maxSize名，超出部分在写入时裁剪。
+ * 刷写只写入被浏览过的记录，集合需先用数据库中浏览量最高的maxSize条记录初始化，
+ * 初始化完成后写入标记键，没有标记时集合中的名次不完整，不能作为排行使用。
+ */
+public class ViewRanking {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final String key;
+
+    private final String seededKey;
+
+    private final int maxSize;
+
+    /**
+     * @param key     有序集合的键
+     * @param maxSize 保留的最大名次
+     */
+    public ViewRanking(RedisTemplate<String, Object> redisTemplate, String key, int maxSize) {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.seededKey = key + ":seeded";
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 是否已用数据库数据初始化
+     */
+    public boolean isSeeded() {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(seededKey));
+    }
+
+    /**
+     * 用数据库中浏览量最高的记录初始化排行并写入标记
+     * 已在集合中的记录保留原分数，它们来自更晚的刷写
+     */
+    public void seed(Map<Long, Long> counts) {
+        if (!counts.isEmpty()) {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(counts.size() * 2);
+            counts.forEach((id, count) -> tuples.add(new DefaultTypedTuple<>(String.valueOf(id), count.doubleValue())));
+            redisTemplate.opsForZSet().addIfAbsent(key, tuples);
+            redisTemplate.opsForZSet().removeRange(key, 0, -(maxSize + 1L));
+        }
+        redisTemplate.opsForValue().set(seededKey, "1");
+    }
+
+    /**
+     * 写入记录的浏览量总数
+     */
+    public void update(Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(counts.size() * 2);
+        counts.forEach((id, count) -> tuples.add(new DefaultTypedTuple<>(String.valueOf(id), count.doubleValue())));
+        redisTemplate.opsForZSet().add(key, tuples);
+        redisTemplate.opsForZSet().removeRange(key, 0, -(maxSize + 1L));
+    }
+
+    /**
+     * 按浏览量从高到低取前limit条记录ID
+     */
+    public List<Long> top(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Set<Object> members = redisTemplate.opsForZSet().reverseRange(key, 0, limit - 1L);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(members.size());
+        for (Object member : members) {
+            ids.add(Long.valueOf(member.toString()));
+        }
+        return ids;
+    }
+
+    /**
+     * 移除已下架或已删除的记录
+     */
+    public void remove(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForZSet().remove(key, ids.stream().map(String::valueOf).toArray());
+    }
+}
@@ -0,0 +1,59 @@
+package com.heikeji.common.core.domain;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块处理结果
+ * 定时任务按主键游标分块调用业务服务，每块返回本块的处理情况和下一块的起始游标
+ */
+@Data
+public class ChunkResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 本块最后一条记录的主键，作为下一块的游标
+     */
+    private Long lastId;
+
+    /**
+     * 本块读取的记录数
+     */
+    private Integer scanned;
+
+    /**
+     * 本块实际处理的记录数
+     */
+    private Integer processed;
+
+    /**
+     * 是否还有后续记录
+     */
+    private boolean hasMore;
+
+    /**
+     * 本块中最早到期记录的到期时间（毫秒时间戳），用于计算处理延迟，没有记录时为空
+     */
+    private Long oldestDueTime;
+
+    /**
+     * 创建分块结果
+     *
+     * @param afterId       本块的起始游标，本块没有记录时作为lastId返回
+     * @param lastId        本块最后一条记录的主键
+     * @param scanned       本块读取的记录数
+     * @param processed     本块实际处理的记录数
+     * @param limit         每块的最大记录数
+     * @param oldestDueTime 本块中最早到期记录的到期时间
+     */
+    public static ChunkResult of(Long afterId, Long lastId, int scanned, int processed, int limit, Long oldestDueTime) {
+        ChunkResult result = new ChunkResult();
+        result.setLastId(lastId != null ? lastId : afterId);
+        result.setScanned(scanned);
+        result.setProcessed(processed);
+        result.setHasMore(scanned >= limit);
+        result.setOldestDueTime(oldestDueTime);
+        return result;
+    }
+}
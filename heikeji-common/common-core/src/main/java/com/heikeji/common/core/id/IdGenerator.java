@@ -0,0 +1,338 @@
+package com.heikeji.common.core.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式ID生成器（Snowflake布局）
+ * 64位ID = 41位毫秒时间戳（自2024-01-01起） + 10位工作节点ID + 12位序列号，
+ * 时间戳与序列号打包在同一个AtomicLong中通过CAS推进，无锁且单节点每毫秒可生成4096个ID，
+ * 序列号用尽或时钟小幅回拨时借用后续毫秒，超过允许范围才拒绝生成。
+ * 工作节点ID优先读取配置 heikeji.id.worker-id，否则从Redis租用并定期续约。
+ */
+@Component
+public class IdGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGenerator.class);
+
+    /**
+     * 起始时间 2024-01-01 00:00:00 UTC
+     */
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 允许的最大时钟回拨（毫秒），范围内借用已发放的时间戳继续生成
+     */
+    private static final long MAX_CLOCK_BACKWARD = 5000;
+
+    private static final String WORKER_KEY_PREFIX = "id:worker:";
+
+    /**
+     * 工作节点ID租约时间（秒）
+     */
+    private static final long LEASE_SECONDS = 60;
+
+    /**
+     * 续约间隔（秒）
+     */
+    private static final long RENEW_INTERVAL = 20;
+
+    /**
+     * 节点最后使用时间保留时长（天），用于重启后避免生成比上次更早的ID
+     */
+    private static final long LAST_TIME_RETENTION_DAYS = 7;
+
+    /**
+     * 续约脚本：仅当租约仍属于当前实例时延长过期时间，并记录最后使用时间
+     */
+    private static final String RENEW_LUA_SCRIPT = """
+        if redis.call('GET', KEYS[1]) == ARGV[1] then
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[4])
+            return 1
+        end
+        return 0
+    """;
+
+    /**
+     * 释放脚本：仅释放属于当前实例的租约
+     */
+    private static final String RELEASE_LUA_SCRIPT = """
+        if redis.call('GET', KEYS[1]) == ARGV[1] then
+            return redis.call('DEL', KEYS[1])
+        end
+        return 0
+    """;
+
+    private static final ThreadLocal<NoFormatter> FORMATTER = ThreadLocal.withInitial(NoFormatter::new);
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${heikeji.id.worker-id:-1}")
+    private int configuredWorkerId;
+
+    private final DefaultRedisScript<Long> renewScript = new DefaultRedisScript<>(RENEW_LUA_SCRIPT, Long.class);
+
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>(RELEASE_LUA_SCRIPT, Long.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 打包状态：高位为相对时间戳，低12位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private volatile int workerId;
+
+    private volatile boolean workerLeased;
+
+    private ScheduledExecutorService renewExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (configuredWorkerId >= 0) {
+            workerId = configuredWorkerId & MAX_WORKER_ID;
+            log.info("ID生成器使用配置的工作节点ID: {}", workerId);
+            return;
+        }
+        if (stringRedisTemplate != null && leaseWorkerId()) {
+            renewExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "id-worker-renew");
+                thread.setDaemon(true);
+                return thread;
+            });
+            renewExecutor.scheduleWithFixedDelay(this::renewLease, RENEW_INTERVAL, RENEW_INTERVAL, TimeUnit.SECONDS);
+            return;
+        }
+        workerId = fallbackWorkerId();
+        log.warn("未配置工作节点ID且无法从Redis租用，使用主机与进程推导的工作节点ID: {}，多实例部署时请配置 heikeji.id.worker-id", workerId);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewExecutor != null) {
+            renewExecutor.shutdownNow();
+        }
+        if (workerLeased) {
+            try {
+                stringRedisTemplate.execute(releaseScript,
+                        Collections.singletonList(WORKER_KEY_PREFIX + workerId), instanceId);
+            } catch (Exception e) {
+                log.warn("释放工作节点ID租约失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 生成64位数字ID
+     */
+    public long nextId() {
+        long next = nextState();
+        return ((next >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS))
+                | ((long) workerId << SEQUENCE_BITS)
+                | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * 生成可读编号：yyyyMMddHHmmss + 3位毫秒 + 4位工作节点ID + 4位序列号，共25位数字
+     */
+    public String nextNo() {
+        return nextNo("");
+    }
+
+    /**
+     * 生成带前缀的可读编号，如 PAY、REF、TO
+     *
+     * @param prefix 前缀
+     * @return 前缀 + 25位数字编号
+     */
+    public String nextNo(String prefix) {
+        long next = nextState();
+        long timestamp = (next >>> SEQUENCE_BITS) + EPOCH;
+        return FORMATTER.get().format(prefix, timestamp, workerId, next & SEQUENCE_MASK);
+    }
+
+    /**
+     * 当前工作节点ID
+     */
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 推进时间戳与序列号，同一毫秒内序列号用尽时进位到下一毫秒
+     */
+    private long nextState() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = state.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                if (lastTimestamp - now > MAX_CLOCK_BACKWARD) {
+                    throw new IllegalStateException("系统时钟回拨超过" + MAX_CLOCK_BACKWARD + "毫秒，拒绝生成ID");
+                }
+                next = last + 1;
+            }
+            if (state.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 从随机位置开始依次尝试占用空闲的工作节点ID
+     */
+    private boolean leaseWorkerId() {
+        try {
+            int start = ThreadLocalRandom.current().nextInt(MAX_WORKER_ID + 1);
+            for (int i = 0; i <= MAX_WORKER_ID; i++) {
+                int candidate = (start + i) & MAX_WORKER_ID;
+                Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(
+                        WORKER_KEY_PREFIX + candidate, instanceId, LEASE_SECONDS, TimeUnit.SECONDS);
+                if (Boolean.TRUE.equals(acquired)) {
+                    advanceTo(lastUsedTime(candidate));
+                    workerId = candidate;
+                    workerLeased = true;
+                    log.info("ID生成器从Redis租用工作节点ID: {}", candidate);
+                    return true;
+                }
+            }
+            log.warn("Redis中没有空闲的工作节点ID");
+        } catch (Exception e) {
+            log.warn("从Redis租用工作节点ID失败: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 续约工作节点ID，租约丢失时重新租用
+     */
+    private void renewLease() {
+        try {
+            long lastTime = (state.get() >>> SEQUENCE_BITS) + EPOCH;
+            Long renewed = stringRedisTemplate.execute(renewScript,
+                    Arrays.asList(WORKER_KEY_PREFIX + workerId, WORKER_KEY_PREFIX + workerId + ":time"),
+                    instanceId,
+                    String.valueOf(LEASE_SECONDS),
+                    String.valueOf(lastTime),
+                    String.valueOf(TimeUnit.DAYS.toSeconds(LAST_TIME_RETENTION_DAYS)));
+            if (renewed == null || renewed == 0) {
+                log.warn("工作节点ID {} 的租约已丢失，重新租用", workerId);
+                workerLeased = false;
+                leaseWorkerId();
+            }
+        } catch (Exception e) {
+            log.warn("续约工作节点ID失败: {}", e.getMessage());
+        }
+    }
+
+    private long lastUsedTime(int candidate) {
+        String value = stringRedisTemplate.opsForValue().get(WORKER_KEY_PREFIX + candidate + ":time");
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 保证后续生成的时间戳不早于该节点ID上次使用的时间
+     */
+    private void advanceTo(long timestamp) {
+        long target = Math.max(0, timestamp - EPOCH) << SEQUENCE_BITS;
+        state.accumulateAndGet(target, Math::max);
+    }
+
+    private static int fallbackWorkerId() {
+        String identity;
+        try {
+            identity = InetAddress.getLocalHost().getHostName() + "@" + ManagementFactory.getRuntimeMXBean().getName();
+        } catch (Exception e) {
+            identity = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        return identity.hashCode() & MAX_WORKER_ID;
+    }
+
+    /**
+     * 线程内复用字符缓冲区的编号格式化器，同一秒内只渲染一次日期部分
+     */
+    private static final class NoFormatter {
+        private static final int DATE_LENGTH = 14;
+        private static final int NUMBER_LENGTH = DATE_LENGTH + 3 + 4 + 4;
+
+        private final ZoneId zone = ZoneId.systemDefault();
+        private final char[] dateChars = new char[DATE_LENGTH];
+        private char[] buffer = new char[32];
+        private long cachedSecond = Long.MIN_VALUE;
+
+        String format(String prefix, long timestamp, int workerId, long sequence) {
+            int prefixLength = prefix.length();
+            if (buffer.length < prefixLength + NUMBER_LENGTH) {
+                buffer = new char[prefixLength + NUMBER_LENGTH];
+            }
+            prefix.getChars(0, prefixLength, buffer, 0);
+
+            long second = Math.floorDiv(timestamp, 1000);
+            if (second != cachedSecond) {
+                renderDate(second);
+                cachedSecond = second;
+            }
+            System.arraycopy(dateChars, 0, buffer, prefixLength, DATE_LENGTH);
+
+            int pos = prefixLength + DATE_LENGTH;
+            pos = writeDigits(Math.floorMod(timestamp, 1000), 3, pos);
+            pos = writeDigits(workerId, 4, pos);
+            pos = writeDigits(sequence, 4, pos);
+            return new String(buffer, 0, pos);
+        }
+
+        private void renderDate(long second) {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(second, 0,
+                    zone.getRules().getOffset(Instant.ofEpochSecond(second)));
+            writeDigits(dateChars, time.getYear(), 4, 0);
+            writeDigits(dateChars, time.getMonthValue(), 2, 4);
+            writeDigits(dateChars, time.getDayOfMonth(), 2, 6);
+            writeDigits(dateChars, time.getHour(), 2, 8);
+            writeDigits(dateChars, time.getMinute(), 2, 10);
+            writeDigits(dateChars, time.getSecond(), 2, 12);
+        }
+
+        private int writeDigits(long value, int width, int pos) {
+            return writeDigits(buffer, value, width, pos);
+        }
+
+        private static int writeDigits(char[] target, long value, int width, int pos) {
+            for (int i = pos + width - 1; i >= pos; i--) {
+                target[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            return pos + width;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.heikeji.common.core.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁耗时直方图
+ * 采用HDR风格的对数-线性分桶：小于64的值每个值一个桶；更大的值按2的幂分段，每段再均分32个桶，
+ * 相对误差不超过1/32。记录只做一次数组原子自增和几个LongAdder累加，不加锁、不分配对象。
+ * 超过 {@link #HIGHEST_TRACKABLE_VALUE} 的值按上限计入。
+ *
+ * @author: zky
+ * @date: 2024-01-01
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每段的子桶数（2的幂次）
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 小于该值时每个值单独一个桶
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+    private static final int LINEAR_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    /**
+     * 可区分的最高指数，毫秒单位下约4.6小时
+     */
+    private static final int MAX_EXPONENT = 23;
+
+    public static final long HIGHEST_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - LINEAR_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    /**
+     * 记录一个样本
+     *
+     * @param value 样本值，负数按0计
+     */
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0L), HIGHEST_TRACKABLE_VALUE);
+        buckets.incrementAndGet(bucketIndex(clamped));
+        count.increment();
+        sum.add(clamped);
+        max.accumulate(clamped);
+        min.accumulate(clamped);
+    }
+
+    /**
+     * 是否还没有样本
+     */
+    public boolean isEmpty() {
+        return count.sum() == 0;
+    }
+
+    /**
+     * 获取当前数据快照，与并发记录之间不保证原子一致
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), total == 0 ? 0L : max.get(), total == 0 ? 0L : min.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+        return LINEAR_LIMIT + (exponent - LINEAR_EXPONENT) * SUB_BUCKET_COUNT + (mantissa - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 桶内的最大值
+     */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKET_COUNT + LINEAR_EXPONENT - SUB_BUCKET_BITS;
+        long mantissa = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        private final long min;
+
+        private Snapshot(long[] counts, long count, long sum, long max, long min) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.min = min;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0D : (double) sum / count;
+        }
+
+        /**
+         * 获取百分位值
+         *
+         * @param percentile 百分位，取值0-100
+         * @return 不小于该比例样本的最小桶上界，不超过观测到的最大值；没有样本时返回0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100D) / 100D * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
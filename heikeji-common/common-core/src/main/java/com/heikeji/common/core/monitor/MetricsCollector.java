@@ -2,23 +2,41 @@ package com.heikeji.common.core.monitor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 业务指标收集器
  * 用于收集和统计关键业务指标数据
+ * 指标先在进程内聚合：计数器使用LongAdder，接口耗时写入无锁直方图，记录时不访问Redis；
+ * 后台按固定间隔把本周期的增量通过一次管道写入Redis，进程内保留最近一个周期的耗时分布供采集接口读取。
  */
 @Component
-public class MetricsCollector {
+public class MetricsCollector implements InitializingBean {
 
     private static final Logger log = LoggerFactory.getLogger("metrics");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
@@ -31,40 +49,102 @@ public class MetricsCollector {
      * 计数器前缀
      */
     private static final String COUNTER_PREFIX = "metrics:counter:";
-    
+
     /**
      * 统计数据前缀
      */
     private static final String STATS_PREFIX = "metrics:stats:";
-    
+
+    /**
+     * Redis中指标数据的过期时间（秒）
+     */
+    private static final long EXPIRE_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    /**
+     * 合并一个周期的耗时统计：累加总和与次数，更新最大值、最小值并续期
+     * KEYS: sum, count, max, min  ARGV: 总和, 次数, 最大值, 最小值, 过期秒数
+     */
+    private static final byte[] MERGE_STATS_SCRIPT = (
+            "redis.call('INCRBY', KEYS[1], ARGV[1]) "
+            + "redis.call('INCRBY', KEYS[2], ARGV[2]) "
+            + "local max = redis.call('GET', KEYS[3]) "
+            + "if not max or tonumber(ARGV[3]) > tonumber(max) then redis.call('SET', KEYS[3], ARGV[3]) end "
+            + "local min = redis.call('GET', KEYS[4]) "
+            + "if not min or tonumber(ARGV[4]) < tonumber(min) then redis.call('SET', KEYS[4], ARGV[4]) end "
+            + "for i = 1, 4 do redis.call('EXPIRE', KEYS[i], ARGV[5]) end "
+            + "return 1").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 刷新到Redis的间隔（秒）
+     */
+    @Value("${metrics.flush-interval-seconds:10}")
+    private long flushIntervalSeconds = 10;
+
+    /**
+     * 计数器，键为指标名（不含日期）
+     */
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>(64);
+
+    /**
+     * 接口耗时，键为接口名称
+     */
+    private final Map<String, ApiTimer> apiTimers = new ConcurrentHashMap<>(64);
+
+    private volatile ScheduledExecutorService flushExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+        flushExecutor = executor;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            try {
+                flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 停机前写出最后一个周期
+        flush();
+    }
+
     /**
      * 记录用户注册数量
      */
     public void recordUserRegister() {
         incrementCounter("user:register");
     }
-    
+
     /**
      * 记录订单创建数量
      */
     public void recordOrderCreate() {
         incrementCounter("order:create");
     }
-    
+
     /**
      * 记录订单支付数量
      */
     public void recordOrderPay() {
         incrementCounter("order:pay");
     }
-    
+
     /**
      * 记录订单取消数量
      */
     public void recordOrderCancel() {
         incrementCounter("order:cancel");
     }
-    
+
     /**
      * 记录商品浏览量
      * @param productId 商品ID
@@ -72,7 +152,7 @@ public class MetricsCollector {
     public void recordProductView(Long productId) {
         incrementCounter("product:view:" + productId);
     }
-    
+
     /**
      * 记录商品购买量
      * @param productId 商品ID
@@ -80,7 +160,7 @@ public class MetricsCollector {
     public void recordProductBuy(Long productId) {
         incrementCounter("product:buy:" + productId);
     }
-    
+
     /**
      * 记录接口调用次数
      * @param apiName 接口名称
@@ -88,26 +168,21 @@ public class MetricsCollector {
     public void recordApiCall(String apiName) {
         incrementCounter("api:call:" + apiName);
     }
-    
+
     /**
      * 记录接口调用耗时
      * @param apiName 接口名称
      * @param costTime 耗时(毫秒)
      */
     public void recordApiCostTime(String apiName, long costTime) {
-        String dateStr = LocalDate.now().format(DATE_FORMATTER);
-        String hourStr = LocalDateTime.now().format(TIME_FORMATTER);
-        String key = STATS_PREFIX + "api:cost:" + apiName + ":" + dateStr + ":" + hourStr;
-        
-        // 记录接口耗时信息
-        recordStats(key, costTime);
-        
+        apiTimers.computeIfAbsent(apiName, name -> new ApiTimer()).record(costTime);
+
         // 记录慢接口告警
         if (costTime > 1000) { // 1秒以上视为慢接口
             log.warn("慢接口告警: {} 耗时 {}ms", apiName, costTime);
         }
     }
-    
+
     /**
      * 记录系统错误
      * @param errorType 错误类型
@@ -115,7 +190,7 @@ public class MetricsCollector {
     public void recordSystemError(String errorType) {
         incrementCounter("system:error:" + errorType);
     }
-    
+
     /**
      * 记录缓存命中率
      * @param cacheName 缓存名称
@@ -128,78 +203,105 @@ public class MetricsCollector {
             incrementCounter("cache:miss:" + cacheName);
         }
     }
-    
+
     /**
      * 增加计数器
      * @param key 计数器键
      */
     private void incrementCounter(String key) {
+        counters.computeIfAbsent(key, k -> new Counter()).increment();
+    }
+
+    /**
+     * 把本周期的增量写入Redis
+     * 计数器按刷新时的日期、耗时统计按刷新时的小时归档，所有命令在一次管道中发送
+     */
+    public void flush() {
+        Map<String, Long> counterDeltas = new HashMap<>();
+        counters.forEach((key, counter) -> {
+            long delta = counter.drain();
+            if (delta > 0) {
+                counterDeltas.put(key, delta);
+            }
+        });
+        Map<String, LatencyHistogram.Snapshot> statsDeltas = new HashMap<>();
+        apiTimers.forEach((apiName, timer) -> {
+            LatencyHistogram.Snapshot window = timer.rotate();
+            if (window != null) {
+                statsDeltas.put(apiName, window);
+            }
+        });
+        if (counterDeltas.isEmpty() && statsDeltas.isEmpty()) {
+            return;
+        }
+        if (redisTemplate == null) {
+            log.debug("未配置Redis，指标只保留在进程内: 计数器 {} 个，接口 {} 个", counterDeltas.size(), statsDeltas.size());
+            return;
+        }
+
         String dateStr = LocalDate.now().format(DATE_FORMATTER);
-        String counterKey = COUNTER_PREFIX + key + ":" + dateStr;
-        
+        String hourStr = LocalDateTime.now().format(TIME_FORMATTER);
         try {
-            // 如果有Redis，则使用Redis进行计数
-            if (redisTemplate != null) {
-                redisTemplate.opsForValue().increment(counterKey);
-                // 设置过期时间为7天
-                redisTemplate.expire(counterKey, 7, TimeUnit.DAYS);
-            } else {
-                // 如果没有Redis，记录到日志
-                log.info("Counter increment: {}", counterKey);
-            }
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                counterDeltas.forEach((key, delta) -> {
+                    byte[] counterKey = bytes(COUNTER_PREFIX + key + ":" + dateStr);
+                    connection.stringCommands().incrBy(counterKey, delta);
+                    connection.keyCommands().expire(counterKey, EXPIRE_SECONDS);
+                });
+                statsDeltas.forEach((apiName, window) ->
+                        mergeStats(connection, STATS_PREFIX + "api:cost:" + apiName + ":" + dateStr + ":" + hourStr, window));
+                return null;
+            });
         } catch (Exception e) {
-            log.error("Increment counter failed: {}", key, e);
+            // 增量已从内存取出，Redis不可用时丢弃本周期数据，不影响业务
+            log.error("Flush metrics failed: 计数器 {} 个，接口 {} 个", counterDeltas.size(), statsDeltas.size(), e);
         }
     }
-    
+
+    private void mergeStats(RedisConnection connection, String key, LatencyHistogram.Snapshot window) {
+        connection.scriptingCommands().eval(MERGE_STATS_SCRIPT, ReturnType.INTEGER, 4,
+                bytes(key + ":sum"), bytes(key + ":count"), bytes(key + ":max"), bytes(key + ":min"),
+                bytes(String.valueOf(window.getSum())), bytes(String.valueOf(window.getCount())),
+                bytes(String.valueOf(window.getMax())), bytes(String.valueOf(window.getMin())),
+                bytes(String.valueOf(EXPIRE_SECONDS)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
     /**
-     * 记录统计数据
-     * @param key 统计键
-     * @param value 统计值
+     * 获取进程内指标快照，供采集接口使用
+     * 计数器为进程启动以来的累计值；接口耗时分布为最近一个完整刷新周期的数据，
+     * 尚未经历完整周期时为当前周期的数据
+     * @return 指标快照
      */
-    private void recordStats(String key, long value) {
-        try {
-            if (redisTemplate != null) {
-                // 使用List存储统计数据
-                redisTemplate.opsForList().leftPush(key, String.valueOf(value));
-                // 设置过期时间为7天
-                redisTemplate.expire(key, 7, TimeUnit.DAYS);
-                
-                // 维护最大值、最小值、平均值等统计信息
-                String maxKey = key + ":max";
-                String minKey = key + ":min";
-                String sumKey = key + ":sum";
-                String countKey = key + ":count";
-                
-                // 比较并更新最大值
-                String currentMax = redisTemplate.opsForValue().get(maxKey);
-                if (currentMax == null || value > Long.parseLong(currentMax)) {
-                    redisTemplate.opsForValue().set(maxKey, String.valueOf(value));
-                    redisTemplate.expire(maxKey, 7, TimeUnit.DAYS);
-                }
-                
-                // 比较并更新最小值
-                String currentMin = redisTemplate.opsForValue().get(minKey);
-                if (currentMin == null || value < Long.parseLong(currentMin)) {
-                    redisTemplate.opsForValue().set(minKey, String.valueOf(value));
-                    redisTemplate.expire(minKey, 7, TimeUnit.DAYS);
-                }
-                
-                // 更新总和和计数
-                redisTemplate.opsForValue().increment(sumKey, value);
-                redisTemplate.expire(sumKey, 7, TimeUnit.DAYS);
-                
-                redisTemplate.opsForValue().increment(countKey);
-                redisTemplate.expire(countKey, 7, TimeUnit.DAYS);
-            } else {
-                // 如果没有Redis，记录到日志
-                log.info("Stats record: {} = {}", key, value);
-            }
-        } catch (Exception e) {
-            log.error("Record stats failed: {}", key, e);
-        }
+    public Map<String, Object> getSnapshot() {
+        Map<String, Long> counterTotals = new TreeMap<>();
+        counters.forEach((key, counter) -> counterTotals.put(key, counter.total()));
+
+        Map<String, Object> apis = new TreeMap<>();
+        apiTimers.forEach((apiName, timer) -> {
+            LatencyHistogram.Snapshot window = timer.lastWindow();
+            Map<String, Object> api = new LinkedHashMap<>();
+            api.put("total", timer.total());
+            api.put("count", window.getCount());
+            api.put("mean", Math.round(window.getMean() * 100) / 100D);
+            api.put("min", window.getMin());
+            api.put("p50", window.getValueAtPercentile(50));
+            api.put("p95", window.getValueAtPercentile(95));
+            api.put("p99", window.getValueAtPercentile(99));
+            api.put("max", window.getMax());
+            apis.put(apiName, api);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("windowSeconds", flushIntervalSeconds);
+        result.put("counters", counterTotals);
+        result.put("apis", apis);
+        return result;
     }
-    
+
     /**
      * 获取当日统计数据
      * @param metricName 指标名称
@@ -209,30 +311,119 @@ public class MetricsCollector {
         Map<String, Object> result = new HashMap<>();
         String dateStr = LocalDate.now().format(DATE_FORMATTER);
         String counterKey = COUNTER_PREFIX + metricName + ":" + dateStr;
-        
+        Counter counter = counters.get(metricName);
+        // 尚未刷新到Redis的增量
+        long pending = counter != null ? counter.pending() : 0L;
+
         try {
             if (redisTemplate != null) {
-                // 获取计数器的值
-                String countValue = redisTemplate.opsForValue().get(counterKey);
-                result.put("count", countValue != null ? Long.parseLong(countValue) : 0);
-                
-                // 获取统计数据
-                String maxKey = STATS_PREFIX + "api:cost:" + metricName + ":" + dateStr + ":*" + ":max";
-                String minKey = STATS_PREFIX + "api:cost:" + metricName + ":" + dateStr + ":*" + ":min";
-                String sumKey = STATS_PREFIX + "api:cost:" + metricName + ":" + dateStr + ":*" + ":sum";
-                String countKey = STATS_PREFIX + "api:cost:" + metricName + ":" + dateStr + ":*" + ":count";
-                
-                // 这里需要更复杂的逻辑来获取聚合数据
-                result.put("max", 0);
-                result.put("min", 0);
-                result.put("avg", 0);
+                // 获取计数器和当日各小时的耗时统计，一次批量读取
+                List<String> keys = new ArrayList<>(1 + 24 * 4);
+                keys.add(counterKey);
+                for (int hour = 0; hour < 24; hour++) {
+                    String statsKey = STATS_PREFIX + "api:cost:" + metricName + ":" + dateStr + ":" + String.format("%02d", hour);
+                    keys.add(statsKey + ":sum");
+                    keys.add(statsKey + ":count");
+                    keys.add(statsKey + ":max");
+                    keys.add(statsKey + ":min");
+                }
+                List<String> values = redisTemplate.opsForValue().multiGet(keys);
+                String countValue = values != null ? values.get(0) : null;
+                result.put("count", (countValue != null ? Long.parseLong(countValue) : 0) + pending);
+
+                long sum = 0;
+                long count = 0;
+                Long max = null;
+                Long min = null;
+                for (int i = 1; values != null && i + 3 < values.size(); i += 4) {
+                    if (values.get(i) == null || values.get(i + 1) == null
+                            || values.get(i + 2) == null || values.get(i + 3) == null) {
+                        continue;
+                    }
+                    sum += Long.parseLong(values.get(i));
+                    count += Long.parseLong(values.get(i + 1));
+                    long hourMax = Long.parseLong(values.get(i + 2));
+                    long hourMin = Long.parseLong(values.get(i + 3));
+                    max = max == null ? hourMax : Math.max(max, hourMax);
+                    min = min == null ? hourMin : Math.min(min, hourMin);
+                }
+                result.put("max", max != null ? max : 0);
+                result.put("min", min != null ? min : 0);
+                result.put("avg", count > 0 ? sum / count : 0);
             } else {
-                result.put("count", 0);
+                result.put("count", pending);
             }
         } catch (Exception e) {
             log.error("Get daily stats failed: {}", metricName, e);
         }
-        
+
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * 计数器，pending为未刷新的增量，total为进程启动以来的累计值
+     */
+    private static final class Counter {
+
+        private final LongAdder pending = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        void increment() {
+            pending.increment();
+            total.increment();
+        }
+
+        long drain() {
+            return pending.sumThenReset();
+        }
+
+        long pending() {
+            return pending.sum();
+        }
+
+        long total() {
+            return total.sum();
+        }
+    }
+
+    /**
+     * 接口耗时，每个刷新周期使用一个新的直方图，上一周期的快照保留给采集接口
+     */
+    private static final class ApiTimer {
+
+        private final AtomicReference<LatencyHistogram> current = new AtomicReference<>(new LatencyHistogram());
+
+        private final LongAdder total = new LongAdder();
+
+        private volatile LatencyHistogram.Snapshot lastWindow;
+
+        void record(long costTime) {
+            current.get().record(costTime);
+            total.increment();
+        }
+
+        /**
+         * 切换到新周期，本周期没有样本时不切换
+         * @return 刚结束周期的快照，没有样本时返回null
+         */
+        LatencyHistogram.Snapshot rotate() {
+            if (current.get().isEmpty()) {
+                lastWindow = null;
+                return null;
+            }
+            LatencyHistogram.Snapshot window = current.getAndSet(new LatencyHistogram()).snapshot();
+            lastWindow = window;
+            return window;
+        }
+
+        LatencyHistogram.Snapshot lastWindow() {
+            LatencyHistogram.Snapshot window = lastWindow;
+            return window != null ? window : current.get().snapshot();
+        }
+
+        long total() {
+            return total.sum();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.heikeji.common.core.oplog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heikeji.common.core.utils.MpscRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步分发器
+ * 请求线程把事件放入无锁环形队列后立即返回，队列满时丢弃并计数，不阻塞请求；
+ * 后台单线程批量取出事件，写入operation日志，开启入库时再批量插入sys_operation_log表。
+ * 参数和返回值由请求线程调用 {@link #serializeParams(Object[])}、{@link #serializeResult(Object)} 转换后放入事件。
+ * 成功的GET请求按比例采样，写操作和失败请求全部记录。
+ */
+@Component
+public class OperationLogDispatcher implements InitializingBean {
+
+    private static final Logger operationLog = LoggerFactory.getLogger("operation");
+    private static final Logger logger = LoggerFactory.getLogger(OperationLogDispatcher.class);
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    /**
+     * 每批处理的最大事件数
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * 队列为空时消费线程的休眠时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * 丢弃告警的最小间隔（毫秒）
+     */
+    private static final long DROP_WARN_INTERVAL = 60000;
+
+    private static final int MAX_PARAMS_LENGTH = 1000;
+
+    private static final int MAX_RESULT_LENGTH = 500;
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private static final String INSERT_SQL = "INSERT INTO sys_operation_log (title, business_type, method, request_method, "
+            + "operator_type, oper_name, oper_url, oper_ip, oper_param, json_result, status, error_msg, oper_time, cost_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 队列容量
+     */
+    @Value("${operation-log.buffer-size:8192}")
+    private int bufferSize = 8192;
+
+    /**
+     * 成功GET请求的采样比例，1为全部记录
+     */
+    @Value("${operation-log.read-sample-rate:0.1}")
+    private double readSampleRate = 0.1;
+
+    /**
+     * 是否批量写入sys_operation_log表，需要服务连接该表所在的数据库
+     */
+    @Value("${operation-log.db-enabled:false}")
+    private boolean dbEnabled;
+
+    private MpscRingBuffer<OperationLogEvent> buffer;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private volatile long lastDropWarnTime;
+
+    private volatile boolean running;
+
+    private Thread consumer;
+
+    @Override
+    public void afterPropertiesSet() {
+        buffer = new MpscRingBuffer<>(bufferSize);
+        running = true;
+        consumer = new Thread(this::consume, "operation-log-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                // 等待消费线程写完队列中剩余的事件
+                consumer.join(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 是否记录本次请求，写操作和失败请求总是记录
+     *
+     * @param requestMethod HTTP请求方式
+     * @param success       是否执行成功
+     */
+    public boolean shouldRecord(String requestMethod, boolean success) {
+        if (!success || !"GET".equalsIgnoreCase(requestMethod) || readSampleRate >= 1D) {
+            return true;
+        }
+        if (readSampleRate > 0D && ThreadLocalRandom.current().nextDouble() < readSampleRate) {
+            return true;
+        }
+        sampledOut.increment();
+        return false;
+    }
+
+    /**
+     * 提交事件，队列满时丢弃
+     */
+    public void publish(OperationLogEvent event) {
+        if (buffer.offer(event)) {
+            published.increment();
+            return;
+        }
+        dropped.increment();
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarnTime > DROP_WARN_INTERVAL) {
+            lastDropWarnTime = now;
+            logger.warn("操作日志队列已满，丢弃事件，累计丢弃: {}", dropped.sum());
+        }
+    }
+
+    /**
+     * 分发统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("sampledOut", sampledOut.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("pending", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        return stats;
+    }
+
+    private void consume() {
+        List<OperationLogEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || buffer.size() > 0) {
+            batch.clear();
+            if (buffer.drainTo(batch, BATCH_SIZE) == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                write(batch);
+            } catch (Throwable e) {
+                // 消费线程不能退出
+                failed.add(batch.size());
+                logger.error("写入操作日志失败", e);
+            }
+        }
+    }
+
+    private void write(List<OperationLogEvent> batch) {
+        List<Object[]> rows = dbEnabled && jdbcTemplate != null ? new ArrayList<>(batch.size()) : null;
+        for (OperationLogEvent event : batch) {
+            String params = event.getParams();
+            String result = event.getResult();
+            String errorMsg = event.getError() != null ? getErrorStackTrace(event.getError()) : null;
+
+            Map<String, Object> logInfo = new LinkedHashMap<>(24);
+            logInfo.put("timestamp", DATE_TIME_FORMATTER.format(Instant.ofEpochMilli(event.getTimestamp())));
+            logInfo.put("costTime", event.getCostTime());
+            logInfo.put("ip", event.getIp());
+            logInfo.put("method", event.getRequestMethod());
+            logInfo.put("uri", event.getUri());
+            logInfo.put("userAgent", event.getUserAgent());
+            logInfo.put("className", event.getClassName());
+            logInfo.put("methodName", event.getMethodName());
+            logInfo.put("userId", event.getUserId());
+            logInfo.put("username", event.getUsername());
+            logInfo.put("params", params);
+            logInfo.put("success", event.isSuccess());
+            logInfo.put("errorMsg", errorMsg);
+            if (result != null) {
+                logInfo.put("result", result);
+            }
+            try {
+                String logJson = objectMapper.writeValueAsString(logInfo);
+                if (event.isSuccess()) {
+                    operationLog.info(logJson);
+                } else {
+                    operationLog.error(logJson);
+                }
+            } catch (Exception e) {
+                failed.increment();
+                logger.error("序列化操作日志失败", e);
+            }
+            if (rows != null) {
+                rows.add(toRow(event, params, result, errorMsg));
+            }
+        }
+        if (rows != null && !rows.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            } catch (Exception e) {
+                failed.add(rows.size());
+                logger.error("批量写入操作日志表失败，条数: {}", rows.size(), e);
+                return;
+            }
+        }
+        written.add(batch.size());
+    }
+
+    private Object[] toRow(OperationLogEvent event, String params, String result, String errorMsg) {
+        String simpleClassName = event.getClassName().substring(event.getClassName().lastIndexOf('.') + 1);
+        return new Object[]{
+                simpleClassName,
+                businessType(event.getRequestMethod()),
+                event.getClassName() + "." + event.getMethodName() + "()",
+                event.getRequestMethod(),
+                // 2: 手机端用户
+                2,
+                event.getUsername(),
+                event.getUri(),
+                event.getIp(),
+                params,
+                result,
+                event.isSuccess() ? 0 : 1,
+                truncate(errorMsg, MAX_ERROR_LENGTH),
+                new Timestamp(event.getTimestamp()),
+                event.getCostTime()
+        };
+    }
+
+    /**
+     * 按请求方式推断业务类型：1新增，2修改，3删除，0其他
+     */
+    private static int businessType(String requestMethod) {
+        if ("POST".equalsIgnoreCase(requestMethod)) {
+            return 1;
+        }
+        if ("PUT".equalsIgnoreCase(requestMethod) || "PATCH".equalsIgnoreCase(requestMethod)) {
+            return 2;
+        }
+        if ("DELETE".equalsIgnoreCase(requestMethod)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * 序列化请求参数并截断，在请求线程调用
+     */
+    public String serializeParams(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "[]";
+        }
+        try {
+            String paramsJson = objectMapper.writeValueAsString(args);
+            // 限制参数长度
+            if (paramsJson.length() > MAX_PARAMS_LENGTH) {
+                paramsJson = paramsJson.substring(0, MAX_PARAMS_LENGTH) + "... [省略部分参数]";
+            }
+            return paramsJson;
+        } catch (Exception e) {
+            return "[参数序列化失败]";
+        }
+    }
+
+    /**
+     * 转换返回值并截断，在请求线程调用
+     */
+    public String serializeResult(Object result) {
+        return result != null ? truncate(String.valueOf(result), MAX_RESULT_LENGTH) : null;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength) + "...";
+    }
+
+    /**
+     * 获取错误堆栈信息
+     */
+    private static String getErrorStackTrace(Throwable e) {
+        try {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new PrintWriter(sw);
+            e.printStackTrace(pw);
+            return sw.toString();
+        } catch (Exception ex) {
+            return "Error getting stack trace: " + ex.getMessage();
+        }
+    }
+}
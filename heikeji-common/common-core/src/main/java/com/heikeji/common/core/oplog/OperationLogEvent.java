@@ -0,0 +1,109 @@
+package com.heikeji.common.core.oplog;
+
+/**
+ * 操作日志事件
+ * 参数和返回值在请求线程序列化并截断为字符串，事件在队列中不持有业务对象，也不受请求结束后对象被修改的影响；
+ * 异常堆栈渲染仍在后台消费线程完成。
+ */
+public final class OperationLogEvent {
+
+    private final long timestamp;
+
+    private final long costTime;
+
+    private final String ip;
+
+    private final String requestMethod;
+
+    private final String uri;
+
+    private final String userAgent;
+
+    private final String className;
+
+    private final String methodName;
+
+    private final String userId;
+
+    private final String username;
+
+    private final String params;
+
+    private final String result;
+
+    private final Throwable error;
+
+    public OperationLogEvent(long timestamp, long costTime, String ip, String requestMethod, String uri,
+                             String userAgent, String className, String methodName, String userId, String username,
+                             String params, String result, Throwable error) {
+        this.timestamp = timestamp;
+        this.costTime = costTime;
+        this.ip = ip;
+        this.requestMethod = requestMethod;
+        this.uri = uri;
+        this.userAgent = userAgent;
+        this.className = className;
+        this.methodName = methodName;
+        this.userId = userId;
+        this.username = username;
+        this.params = params;
+        this.result = result;
+        this.error = error;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getCostTime() {
+        return costTime;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getRequestMethod() {
+        return requestMethod;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getParams() {
+        return params;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
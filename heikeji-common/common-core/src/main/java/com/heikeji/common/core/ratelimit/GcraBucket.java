@@ -0,0 +1,53 @@
+package com.heikeji.common.core.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地GCRA（通用信元速率算法）限流桶
+ * 只维护一个“理论到达时间”（TAT），与容量为maxCount、速率为maxCount/timeWindow的令牌桶等价，
+ * 通过CAS无锁更新，内存占用O(1)
+ */
+final class GcraBucket {
+
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong();
+
+    /**
+     * 每个请求的发放间隔（纳秒）
+     */
+    private final long emissionInterval;
+
+    /**
+     * 允许的突发容忍度（纳秒）
+     */
+    private final long burstTolerance;
+
+    GcraBucket(int maxCount, int timeWindowSeconds) {
+        this.emissionInterval = Math.max(1, timeWindowSeconds * 1_000_000_000L / maxCount);
+        this.burstTolerance = emissionInterval * maxCount;
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @param now 当前时间（纳秒，System.nanoTime）
+     */
+    boolean tryAcquire(long now) {
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long newTat = Math.max(tat, now) + emissionInterval;
+            if (newTat - now > burstTolerance) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 桶是否已完全恢复（空闲），空闲的桶可以安全清理
+     */
+    boolean isIdle(long now) {
+        return theoreticalArrivalTime.get() <= now;
+    }
+}
@@ -0,0 +1,238 @@
+package com.heikeji.common.core.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地+Redis混合限流器
+ * 集群模式下每个节点按批次从Redis租用令牌（Redis端使用GCRA，单键O(1)内存），
+ * 在本地无锁消费，每个请求访问Redis的次数约为 1/租约大小；
+ * Redis不可用时自动降级为本地GCRA限流，并在一段时间后再尝试恢复。
+ * 过期的限流状态由后台定时任务清理，不占用请求线程。
+ */
+@Component
+public class HybridRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+    /**
+     * 每次租约占单个时间窗口配额的比例（1/N）
+     */
+    private static final int LEASE_FRACTION = 10;
+
+    /**
+     * 单次租约的最大令牌数
+     */
+    private static final int MAX_LEASE_SIZE = 100;
+
+    /**
+     * Redis异常后暂停访问Redis的时间（毫秒）
+     */
+    private static final long REDIS_RETRY_INTERVAL = 5000;
+
+    /**
+     * 本地限流状态最大数量
+     */
+    private static final int MAX_LIMITERS = 10000;
+
+    /**
+     * 后台清理间隔（秒）
+     */
+    private static final long CLEANUP_INTERVAL = 60;
+
+    /**
+     * Redis GCRA租约脚本：一次性申请最多requested个令牌，返回实际发放的数量
+     * 使用Redis服务器时间，避免各节点时钟偏差
+     */
+    private static final String GCRA_LEASE_LUA_SCRIPT = """
+        local key = KEYS[1]
+        local interval = tonumber(ARGV[1])
+        local burst = tonumber(ARGV[2])
+        local requested = tonumber(ARGV[3])
+
+        local time = redis.call('TIME')
+        local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+        local tat = tonumber(redis.call('GET', key)) or now
+        if tat < now then
+            tat = now
+        end
+
+        -- 当前可发放的令牌数
+        local available = math.floor((now + burst - tat) / interval)
+        if available <= 0 then
+            return 0
+        end
+
+        local granted = math.min(requested, available)
+        local newTat = tat + granted * interval
+        redis.call('SET', key, string.format('%.0f', newTat), 'PX', math.ceil((newTat - now) / 1000) + 1)
+        return granted
+    """;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final DefaultRedisScript<Long> gcraLeaseScript = new DefaultRedisScript<>(GCRA_LEASE_LUA_SCRIPT, Long.class);
+
+    private final Map<String, LimiterState> limiters = new ConcurrentHashMap<>(1024);
+
+    private volatile long redisUnavailableUntil;
+
+    private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rate-limiter-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HybridRateLimiter() {
+        cleanupExecutor.scheduleWithFixedDelay(this::cleanUp, CLEANUP_INTERVAL, CLEANUP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @param key        限流键
+     * @param maxCount   时间窗口内允许的最大请求数
+     * @param timeWindow 时间窗口（秒）
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int maxCount, int timeWindow) {
+        long now = System.nanoTime();
+        LimiterState state = limiters.computeIfAbsent(key, k -> new LimiterState(maxCount, timeWindow));
+        state.lastAccessTime = now;
+
+        if (stringRedisTemplate == null || System.currentTimeMillis() < redisUnavailableUntil) {
+            return state.localBucket.tryAcquire(now);
+        }
+
+        // 优先消费本地租约中的令牌
+        if (state.tryConsumeLease(now)) {
+            return true;
+        }
+
+        try {
+            long granted = leaseFromRedis(key, state);
+            if (granted <= 0) {
+                return false;
+            }
+            state.refillLease(granted - 1, now);
+            return true;
+        } catch (Exception e) {
+            redisUnavailableUntil = System.currentTimeMillis() + REDIS_RETRY_INTERVAL;
+            log.warn("Redis限流租约获取失败，{}毫秒内降级为本地限流: {}", REDIS_RETRY_INTERVAL, e.getMessage());
+            return state.localBucket.tryAcquire(now);
+        }
+    }
+
+    /**
+     * 当前本地限流状态数量
+     */
+    public int size() {
+        return limiters.size();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cleanupExecutor.shutdownNow();
+    }
+
+    private long leaseFromRedis(String key, LimiterState state) {
+        Long granted = stringRedisTemplate.execute(gcraLeaseScript,
+                Collections.singletonList(key + ":gcra"),
+                String.valueOf(state.emissionIntervalMicros),
+                String.valueOf(state.burstMicros),
+                String.valueOf(state.leaseSize));
+        return granted == null ? 0 : granted;
+    }
+
+    /**
+     * 清理长时间未访问且已完全恢复的限流状态，数量超限时按最久未访问淘汰
+     */
+    private void cleanUp() {
+        try {
+            long now = System.nanoTime();
+            limiters.entrySet().removeIf(entry -> entry.getValue().isRemovable(now));
+            int overflow = limiters.size() - MAX_LIMITERS;
+            if (overflow > 0) {
+                log.info("本地限流状态过多，清理 {} 条记录", overflow);
+                limiters.entrySet().stream()
+                        .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccessTime))
+                        .limit(overflow)
+                        .map(Map.Entry::getKey)
+                        .toList()
+                        .forEach(limiters::remove);
+            }
+        } catch (Exception e) {
+            log.warn("清理限流状态失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单个限流键的状态：本地降级桶 + 当前租约
+     */
+    private static final class LimiterState {
+        private final GcraBucket localBucket;
+        private final long emissionIntervalMicros;
+        private final long burstMicros;
+        private final int leaseSize;
+        private final long leaseDurationNanos;
+        private final long idleTimeoutNanos;
+        private final AtomicLong leasedTokens = new AtomicLong();
+        private volatile long leaseExpireTime;
+        private volatile long lastAccessTime;
+
+        private LimiterState(int maxCount, int timeWindow) {
+            this.localBucket = new GcraBucket(maxCount, timeWindow);
+            this.emissionIntervalMicros = Math.max(1, timeWindow * 1_000_000L / maxCount);
+            this.burstMicros = emissionIntervalMicros * maxCount;
+            this.leaseSize = Math.max(1, Math.min(MAX_LEASE_SIZE, maxCount / LEASE_FRACTION));
+            // 租约只在其代表的时间段内有效，避免节点长期囤积令牌
+            this.leaseDurationNanos = emissionIntervalMicros * leaseSize * 1000L;
+            this.idleTimeoutNanos = Math.max(TimeUnit.SECONDS.toNanos(CLEANUP_INTERVAL),
+                    TimeUnit.SECONDS.toNanos(timeWindow) * 2);
+        }
+
+        private boolean tryConsumeLease(long now) {
+            if (now - leaseExpireTime >= 0) {
+                return false;
+            }
+            long remaining = leasedTokens.get();
+            while (remaining > 0) {
+                if (leasedTokens.compareAndSet(remaining, remaining - 1)) {
+                    return true;
+                }
+                remaining = leasedTokens.get();
+            }
+            return false;
+        }
+
+        private void refillLease(long tokens, long now) {
+            if (now - leaseExpireTime >= 0) {
+                // 旧租约已过期，剩余令牌作废
+                leasedTokens.set(tokens);
+            } else {
+                leasedTokens.addAndGet(tokens);
+            }
+            leaseExpireTime = now + leaseDurationNanos;
+        }
+
+        private boolean isRemovable(long now) {
+            return now - lastAccessTime > idleTimeoutNanos && localBucket.isIdle(now);
+        }
+    }
+}
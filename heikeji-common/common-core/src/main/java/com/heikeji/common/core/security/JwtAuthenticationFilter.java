@@ -3,6 +3,7 @@ package com.heikeji.common.core.security;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +22,7 @@ import java.util.ArrayList;
 /**
  * JWT认证过滤器
  * 拦截请求中的Token，验证其有效性并设置用户上下文
+ * 配置了网关身份头签名密钥时，经网关签名的身份头校验通过即直接信任，不再重复验签Token
  *
  * @author: zky
  * @date: 2024-01-01
@@ -36,22 +38,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired(required = false)
     private UserDetailsService userDetailsService;
 
+    @Autowired(required = false)
+    private TokenRevocationSet tokenRevocationSet;
+
+    /**
+     * 网关身份头签名密钥，与网关配置一致，留空则不信任网关身份头
+     */
+    @Value("${heikeji.security.gateway-auth-secret:}")
+    private String gatewayAuthSecret;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) 
             throws ServletException, IOException {
         try {
-            // 尝试从请求头中获取Token
-            String authorizationHeader = request.getHeader("Authorization");
-            String token = jwtUtils.extractTokenFromHeader(authorizationHeader);
-            
-            // 如果Token存在且有效
-            if (token != null && jwtUtils.validateToken(token)) {
-                // 从Token中提取用户信息
-                String userId = jwtUtils.getUserIdFromToken(token);
-                String username = jwtUtils.getUsernameFromToken(token);
-                
-                logger.debug("JWT认证成功，用户ID: {}, 用户名: {}", userId, username);
-                
+            String userId = null;
+            String username = null;
+            if (isGatewayAuthenticated(request)) {
+                // 网关已验签Token，直接读取身份头
+                userId = request.getHeader(GatewayAuthHeaders.USER_ID);
+                username = GatewayAuthHeaders.decode(request.getHeader(GatewayAuthHeaders.USER_NAME));
+                logger.debug("网关身份头认证成功，用户ID: {}, 用户名: {}", userId, username);
+            } else {
+                // 尝试从请求头中获取Token
+                String authorizationHeader = request.getHeader("Authorization");
+                String token = jwtUtils.extractTokenFromHeader(authorizationHeader);
+
+                // 如果Token存在且有效，验签结果一次取出，后续不再解析Token
+                VerifiedToken verifiedToken = token != null ? jwtUtils.verify(token) : null;
+                if (verifiedToken != null) {
+                    // 从Token中提取用户信息
+                    userId = verifiedToken.getUserId();
+                    username = verifiedToken.getClaim("username", String.class);
+                    request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
+
+                    logger.debug("JWT认证成功，用户ID: {}, 用户名: {}", userId, username);
+                }
+            }
+
+            if (userId != null) {
                 // 构建用户信息并设置到上下文
                 UserContext.UserInfo userInfo = UserContext.builder()
                         .userId(userId)
@@ -105,4 +129,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             SecurityContextHolder.clearContext();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 请求是否携带有效的网关身份头
+     * 签名校验通过后仍检查Token摘要的吊销状态，吊销在网关缓存过期前也能立即生效
+     */
+    private boolean isGatewayAuthenticated(HttpServletRequest request) {
+        if (gatewayAuthSecret == null || gatewayAuthSecret.isEmpty()) {
+            return false;
+        }
+        String signature = request.getHeader(GatewayAuthHeaders.SIGNATURE);
+        if (signature == null) {
+            return false;
+        }
+        String tokenHash = request.getHeader(GatewayAuthHeaders.TOKEN_HASH);
+        boolean valid = GatewayAuthHeaders.verify(gatewayAuthSecret,
+                request.getHeader(GatewayAuthHeaders.USER_ID),
+                request.getHeader(GatewayAuthHeaders.USER_NAME),
+                request.getHeader(GatewayAuthHeaders.USER_ROLES),
+                tokenHash,
+                request.getHeader(GatewayAuthHeaders.TIMESTAMP),
+                signature,
+                System.currentTimeMillis());
+        if (!valid) {
+            logger.warn("网关身份头签名无效，改为验证Token");
+            return false;
+        }
+        return tokenHash == null || tokenRevocationSet == null || !tokenRevocationSet.isRevoked(tokenHash);
+    }
+}
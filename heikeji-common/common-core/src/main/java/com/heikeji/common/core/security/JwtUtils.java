@@ -13,14 +13,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * JWT工具类
@@ -34,14 +32,14 @@ public class JwtUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
     
-    // Redis中令牌黑名单的前缀
-    private static final String TOKEN_BLACKLIST_PREFIX = "jwt:blacklist:";
-    
-    // 从Redis中获取令牌的TTL（过期时间）前缀
-    private static final String TOKEN_TTL_PREFIX = "jwt:ttl:";
-    
     @Autowired(required = false)
-    private RedisTemplate<String, Object> redisTemplate;
+    private TokenRevocationSet tokenRevocationSet;
+
+    // 已验签Token缓存，同一Token只验签一次
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
+
+    // 签名密钥，首次使用时创建
+    private volatile SecretKey signingKey;
 
     @Value("${jwt.secret:heikeji-mall-secret-key-2024-black-technology-university-campus-mall-system}")
     private String jwtSecret;
@@ -54,14 +52,29 @@ public class JwtUtils {
 
     // 使用强密钥生成器，提高安全性
     private SecretKey getSigningKey() {
+        SecretKey key = signingKey;
+        if (key == null) {
+            key = createSigningKey(jwtSecret);
+            signingKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * 由配置的密钥字符串创建签名密钥，网关与各服务使用同一规则派生密钥
+     *
+     * @param secret 密钥字符串，优先按Base64解码，解码失败时直接使用原始字符串
+     * @return 签名密钥
+     */
+    public static SecretKey createSigningKey(String secret) {
         try {
             // 尝试从Base64解码密钥
-            byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+            byte[] keyBytes = Decoders.BASE64.decode(secret);
             return Keys.hmacShaKeyFor(keyBytes);
         } catch (Exception e) {
             // 如果解码失败，直接使用原始字符串作为密钥
             logger.warn("JWT密钥不是有效的Base64字符串，使用原始字符串作为密钥");
-            return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+            return Keys.hmacShaKeyFor(secret.getBytes());
         }
     }
     
@@ -146,13 +159,69 @@ public class JwtUtils {
         }
     }
 
+    /**
+     * 获取已验签的Token，同一Token只在首次调用时验签和解析，之后直到过期都从缓存读取
+     * 不检查吊销状态，解析失败时抛出的异常与 {@link #extractClaims(String)} 一致
+     * @param token Token字符串
+     * @return 已验签Token
+     */
+    public VerifiedToken parseVerifiedToken(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("Token不能为空");
+        }
+        return parseVerifiedToken(token, VerifiedTokenCache.hash(token));
+    }
+
+    private VerifiedToken parseVerifiedToken(String token, String tokenHash) {
+        VerifiedToken verifiedToken = verifiedTokenCache.get(tokenHash);
+        if (verifiedToken == null) {
+            verifiedToken = VerifiedToken.of(tokenHash, extractClaims(token));
+            verifiedTokenCache.put(verifiedToken);
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * 验证Token并返回已验签的声明，一次完成吊销检查、验签和过期检查
+     * @param token Token字符串
+     * @return 已验签Token，Token无效、已过期或已吊销时返回null
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            logger.error("JWT声明字符串为空");
+            return null;
+        }
+        try {
+            String tokenHash = VerifiedTokenCache.hash(token);
+            // 检查Token是否在黑名单中
+            if (tokenRevocationSet != null && tokenRevocationSet.isRevoked(tokenHash)) {
+                logger.warn("Token已被列入黑名单: {}", token);
+                return null;
+            }
+
+            VerifiedToken verifiedToken = parseVerifiedToken(token, tokenHash);
+            return verifiedToken.isExpired(System.currentTimeMillis()) ? null : verifiedToken;
+        } catch (SignatureException e) {
+            logger.error("无效的JWT签名: {}", e.getMessage());
+        } catch (MalformedJwtException e) {
+            logger.error("无效的JWT令牌: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            logger.error("JWT令牌已过期: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            logger.error("JWT令牌不受支持: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.error("JWT声明字符串为空: {}", e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * 从Token中获取用户ID
      * @param token Token字符串
      * @return 用户ID
      */
     public String getUserIdFromToken(String token) {
-        return extractClaims(token).get("userId", String.class);
+        return parseVerifiedToken(token).getClaim("userId", String.class);
     }
 
     /**
@@ -161,7 +230,7 @@ public class JwtUtils {
      * @return 用户名
      */
     public String getUsernameFromToken(String token) {
-        return extractClaims(token).get("username", String.class);
+        return parseVerifiedToken(token).getClaim("username", String.class);
     }
     
     /**
@@ -170,7 +239,7 @@ public class JwtUtils {
      * @return 过期时间
      */
     public Date getExpirationDateFromToken(String token) {
-        return extractClaims(token).getExpiration();
+        return parseVerifiedToken(token).getExpiration();
     }
     
     /**
@@ -209,12 +278,8 @@ public class JwtUtils {
      * @return 是否在黑名单中
      */
     public boolean isTokenInBlacklist(String token) {
-        if (redisTemplate == null) {
-            // Redis不可用时，默认Token不在黑名单中
-            return false;
-        }
-        String blacklistKey = TOKEN_BLACKLIST_PREFIX + token;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey));
+        return token != null && tokenRevocationSet != null
+                && tokenRevocationSet.isRevoked(VerifiedTokenCache.hash(token));
     }
     
     /**
@@ -222,9 +287,8 @@ public class JwtUtils {
      * @param token Token字符串
      */
     public void addTokenToBlacklist(String token) {
-        if (redisTemplate == null) {
-            // Redis不可用时，记录日志并返回
-            logger.info("Redis不可用，无法将Token加入黑名单: {}", token);
+        if (tokenRevocationSet == null) {
+            logger.info("Token吊销集合不可用，无法将Token加入黑名单: {}", token);
             return;
         }
         
@@ -233,9 +297,10 @@ public class JwtUtils {
             long remainingExpiration = getRemainingExpiration(token);
             
             if (remainingExpiration > 0) {
-                // 如果Token还有效，将其加入黑名单并设置过期时间
-                String blacklistKey = TOKEN_BLACKLIST_PREFIX + token;
-                redisTemplate.opsForValue().set(blacklistKey, "1", remainingExpiration, TimeUnit.MILLISECONDS);
+                // 如果Token还有效，将其加入黑名单，Token过期后记录自动清除
+                String tokenHash = VerifiedTokenCache.hash(token);
+                tokenRevocationSet.revoke(tokenHash, System.currentTimeMillis() + remainingExpiration);
+                verifiedTokenCache.remove(tokenHash);
                 logger.info("Token已加入黑名单: {}, 剩余有效期: {}ms", token, remainingExpiration);
             } else {
                 logger.info("Token已过期，无需加入黑名单: {}", token);
@@ -251,27 +316,7 @@ public class JwtUtils {
      * @return 是否有效
      */
     public boolean validateToken(String token) {
-        try {
-            // 检查Token是否在黑名单中
-            if (isTokenInBlacklist(token)) {
-                logger.warn("Token已被列入黑名单: {}", token);
-                return false;
-            }
-            
-            extractClaims(token);
-            return !isTokenExpired(token);
-        } catch (SignatureException e) {
-            logger.error("无效的JWT签名: {}", e.getMessage());
-        } catch (MalformedJwtException e) {
-            logger.error("无效的JWT令牌: {}", e.getMessage());
-        } catch (ExpiredJwtException e) {
-            logger.error("JWT令牌已过期: {}", e.getMessage());
-        } catch (UnsupportedJwtException e) {
-            logger.error("JWT令牌不受支持: {}", e.getMessage());
-        } catch (IllegalArgumentException e) {
-            logger.error("JWT声明字符串为空: {}", e.getMessage());
-        }
-        return false;
+        return verify(token) != null;
     }
     
     /**
@@ -299,15 +344,15 @@ public class JwtUtils {
         }
         
         // 检查是否为刷新Token
-        Claims claims = extractClaims(refreshToken);
-        Boolean isRefreshToken = claims.get("refresh", Boolean.class);
+        VerifiedToken claims = parseVerifiedToken(refreshToken);
+        Boolean isRefreshToken = claims.getClaim("refresh", Boolean.class);
         if (isRefreshToken == null || !isRefreshToken) {
             logger.error("不是有效的刷新Token: {}", refreshToken);
             throw new RuntimeException("无效的刷新Token");
         }
         
-        String userId = claims.get("userId", String.class);
-        String username = claims.get("username", String.class);
+        String userId = claims.getClaim("userId", String.class);
+        String username = claims.getClaim("username", String.class);
         
         // 生成新的访问Token
         return generateToken(userId, username);
@@ -317,8 +362,8 @@ public class JwtUtils {
      * 清理过期的令牌
      */
     public void cleanExpiredTokens() {
-        // Redis会自动清理过期的键，无需手动清理
-        logger.info("已触发过期令牌清理（Redis自动清理）");
+        // 吊销记录在Token过期后由吊销集合自动清理，无需手动清理
+        logger.info("已触发过期令牌清理（吊销集合自动清理）");
     }
     
     /**
@@ -326,16 +371,6 @@ public class JwtUtils {
      * @return 黑名单大小
      */
     public long getBlacklistSize() {
-        if (redisTemplate == null) {
-            // Redis不可用时，返回0
-            return 0;
-        }
-        
-        try {
-            return redisTemplate.keys(TOKEN_BLACKLIST_PREFIX + "*").size();
-        } catch (Exception e) {
-            logger.error("获取Token黑名单大小失败: {}", e.getMessage());
-            return 0;
-        }
+        return tokenRevocationSet == null ? 0 : tokenRevocationSet.size();
     }
 }
\ No newline at end of file
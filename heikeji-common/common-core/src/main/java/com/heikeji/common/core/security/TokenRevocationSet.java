@@ -0,0 +1,234 @@
+package com.heikeji.common.core.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token吊销集合
+ * 本地维护 Token摘要 -> 过期时间 的吊销集合，验证Token时只查本地内存，不访问Redis。
+ * 吊销时写入Redis有序集合（分值为Token过期时间）并通过发布订阅通知其他节点立即加入本地集合；
+ * 后台定期从有序集合全量同步，补齐订阅断开期间遗漏的通知，并清除已过期的记录。
+ * 启动时把旧版本写入的 jwt:blacklist:{token} 黑名单键迁移到有序集合，旧键保留到自身过期，滚动升级期间两版本互不影响。
+ *
+ * @author: zky
+ * @date: 2024-01-01
+ */
+@Component
+public class TokenRevocationSet implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationSet.class);
+
+    /**
+     * Redis中吊销Token的有序集合，成员为Token摘要，分值为Token过期时间
+     */
+    private static final String REVOKED_KEY = "jwt:revoked";
+
+    /**
+     * 吊销通知频道
+     */
+    private static final String REVOKED_CHANNEL = "jwt:revoked:channel";
+
+    /**
+     * 全量同步间隔（秒）
+     */
+    private static final long SYNC_INTERVAL = 30;
+
+    /**
+     * 旧版本黑名单键前缀，键为前缀加完整Token，过期时间与Token剩余有效期一致
+     */
+    private static final String LEGACY_BLACKLIST_PREFIX = "jwt:blacklist:";
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>(64);
+
+    private volatile RedisMessageListenerContainer listenerContainer;
+
+    private volatile ScheduledExecutorService syncExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (redisTemplate == null || redisTemplate.getConnectionFactory() == null) {
+            return;
+        }
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisTemplate.getConnectionFactory());
+            container.addMessageListener(new RevocationListener(), new ChannelTopic(REVOKED_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+        } catch (Exception e) {
+            logger.warn("订阅Token吊销通知失败，将只依赖定期同步: {}", e.getMessage());
+        }
+
+        // 同步执行，迁移完成前收到的请求才不会放过旧黑名单中的Token
+        migrateLegacyBlacklist();
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sync, 0, SYNC_INTERVAL, TimeUnit.SECONDS);
+        syncExecutor = executor;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                logger.warn("关闭Token吊销通知订阅失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 吊销Token
+     *
+     * @param tokenHash Token摘要
+     * @param expireAt  Token过期时间戳（毫秒），过期后记录自动清除
+     */
+    public void revoke(String tokenHash, long expireAt) {
+        if (expireAt <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(tokenHash, expireAt);
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().add(REVOKED_KEY, tokenHash, expireAt);
+            redisTemplate.convertAndSend(REVOKED_CHANNEL, tokenHash + ":" + expireAt);
+        } catch (Exception e) {
+            // 本节点已生效，其他节点在Redis恢复前无法感知
+            logger.error("同步Token吊销记录到Redis失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Token是否已被吊销
+     *
+     * @param tokenHash Token摘要
+     */
+    public boolean isRevoked(String tokenHash) {
+        Long expireAt = revoked.get(tokenHash);
+        if (expireAt == null) {
+            return false;
+        }
+        if (expireAt <= System.currentTimeMillis()) {
+            // Token本身已过期，吊销记录不再需要
+            revoked.remove(tokenHash, expireAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 当前有效的吊销记录数
+     */
+    public int size() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expireAt -> expireAt <= now);
+        return revoked.size();
+    }
+
+    /**
+     * 把旧版本的黑名单键迁移到吊销集合
+     */
+    private void migrateLegacyBlacklist() {
+        long now = System.currentTimeMillis();
+        int migrated = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(LEGACY_BLACKLIST_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                Long ttl = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+                if (ttl == null || ttl <= 0) {
+                    // 已过期或没有过期时间的键无法确定Token有效期，不再迁移
+                    continue;
+                }
+                String tokenHash = VerifiedTokenCache.hash(key.substring(LEGACY_BLACKLIST_PREFIX.length()));
+                revoked.put(tokenHash, now + ttl);
+                redisTemplate.opsForZSet().add(REVOKED_KEY, tokenHash, now + ttl);
+                migrated++;
+            }
+        } catch (Exception e) {
+            logger.warn("迁移旧版Token黑名单失败: {}", e.getMessage());
+        }
+        if (migrated > 0) {
+            logger.info("迁移旧版Token黑名单{}条", migrated);
+        }
+    }
+
+    /**
+     * 从Redis全量同步吊销记录，并清除两侧已过期的记录
+     */
+    private void sync() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expireAt -> expireAt <= now);
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, 0, now);
+            Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet().rangeWithScores(REVOKED_KEY, 0, -1);
+            if (tuples == null) {
+                return;
+            }
+            for (ZSetOperations.TypedTuple<Object> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    revoked.put(tuple.getValue().toString(), tuple.getScore().longValue());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("同步Token吊销记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 吊销通知监听器，消息格式：Token摘要:过期时间戳
+     */
+    private class RevocationListener implements MessageListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            try {
+                Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+                if (body == null) {
+                    return;
+                }
+                String text = body.toString();
+                int separator = text.lastIndexOf(':');
+                if (separator <= 0) {
+                    return;
+                }
+                revoked.put(text.substring(0, separator), Long.parseLong(text.substring(separator + 1)));
+            } catch (Exception e) {
+                logger.warn("处理Token吊销通知失败: {}", e.getMessage());
+            }
+        }
+    }
+}
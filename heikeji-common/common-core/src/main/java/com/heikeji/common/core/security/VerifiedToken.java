@@ -0,0 +1,130 @@
+package com.heikeji.common.core.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 已验签的Token
+ * 签名校验通过后一次性解析出的不可变声明，过滤器存入请求属性 {@link #REQUEST_ATTRIBUTE}，
+ * 下游直接读取，无需再次解析Token。
+ *
+ * @author: zky
+ * @date: 2024-01-01
+ */
+public final class VerifiedToken {
+
+    /**
+     * 存放已验签Token的请求属性名
+     */
+    public static final String REQUEST_ATTRIBUTE = VerifiedToken.class.getName();
+
+    private final String tokenHash;
+
+    private final Map<String, Object> claims;
+
+    private final String subject;
+
+    private final long issuedAt;
+
+    private final long expiration;
+
+    private VerifiedToken(String tokenHash, Map<String, Object> claims, String subject, long issuedAt, long expiration) {
+        this.tokenHash = tokenHash;
+        this.claims = claims;
+        this.subject = subject;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    /**
+     * 由验签后的声明创建，没有过期时间的Token视为已过期
+     *
+     * @param tokenHash Token摘要，见 {@link VerifiedTokenCache#hash(String)}
+     * @param claims    验签后的声明
+     * @return 已验签Token
+     */
+    public static VerifiedToken of(String tokenHash, Claims claims) {
+        Date issuedAtDate = claims.getIssuedAt();
+        Date expirationDate = claims.getExpiration();
+        return new VerifiedToken(tokenHash,
+                Collections.unmodifiableMap(new LinkedHashMap<>(claims)),
+                claims.getSubject(),
+                issuedAtDate == null ? 0L : issuedAtDate.getTime(),
+                expirationDate == null ? 0L : expirationDate.getTime());
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    /**
+     * 全部声明（只读）
+     */
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    /**
+     * 获取指定声明，数值与字符串之间按需转换
+     *
+     * @param name 声明名
+     * @param type 声明类型
+     * @return 声明值，不存在时返回null
+     */
+    public <T> T getClaim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        if (value == null || type.isInstance(value)) {
+            return type.cast(value);
+        }
+        if (type == String.class) {
+            return type.cast(value.toString());
+        }
+        if (type == Long.class) {
+            return type.cast(value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString()));
+        }
+        if (type == Integer.class) {
+            return type.cast(value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString()));
+        }
+        throw new IllegalArgumentException("声明 " + name + " 的类型为 " + value.getClass().getName() + "，无法转换为 " + type.getName());
+    }
+
+    /**
+     * 用户ID
+     */
+    public String getUserId() {
+        return getClaim("userId", String.class);
+    }
+
+    /**
+     * 用户名，未设置username声明时取subject
+     */
+    public String getUsername() {
+        String username = getClaim("username", String.class);
+        return username != null ? username : subject;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt == 0L ? null : new Date(issuedAt);
+    }
+
+    public Date getExpiration() {
+        return new Date(expiration);
+    }
+
+    /**
+     * 是否已过期
+     *
+     * @param now 当前时间戳（毫秒）
+     */
+    public boolean isExpired(long now) {
+        return now >= expiration;
+    }
+}
@@ -0,0 +1,112 @@
+package com.heikeji.common.core.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已验签Token缓存
+ * 以Token的SHA-256摘要为键缓存验签结果直到Token过期，同一Token的后续请求无需再次验签和解析。
+ * 缓存条目数有上限，另按过期时间维护一个小顶堆：写入时先从堆顶移除已过期的条目，
+ * 仍然写满则淘汰最早过期的条目，每次写入只需O(log n)，读取不加锁。
+ *
+ * @author: zky
+ * @date: 2024-01-01
+ */
+public class VerifiedTokenCache {
+
+    /**
+     * 默认最大缓存条目数
+     */
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final int maxSize;
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>(256);
+
+    /**
+     * 按过期时间排序的条目，只在持有自身锁时访问；被移除或替换的条目留在堆中，到达堆顶时跳过
+     */
+    private final PriorityQueue<VerifiedToken> expiryQueue =
+            new PriorityQueue<>(Comparator.comparingLong(token -> token.getExpiration().getTime()));
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 计算Token摘要
+     * 使用密码学摘要而不是普通哈希，避免构造出与已缓存Token摘要相同的伪造Token
+     *
+     * @param token Token字符串（不含Bearer前缀）
+     * @return Base64URL编码的SHA-256摘要
+     */
+    public static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    /**
+     * 获取未过期的已验签Token
+     *
+     * @param tokenHash Token摘要
+     * @return 已验签Token，不存在或已过期时返回null
+     */
+    public VerifiedToken get(String tokenHash) {
+        VerifiedToken verifiedToken = entries.get(tokenHash);
+        if (verifiedToken != null && verifiedToken.isExpired(System.currentTimeMillis())) {
+            entries.remove(tokenHash, verifiedToken);
+            return null;
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * 缓存已验签Token
+     */
+    public void put(VerifiedToken verifiedToken) {
+        long now = System.currentTimeMillis();
+        if (maxSize <= 0 || verifiedToken.isExpired(now)) {
+            return;
+        }
+        synchronized (expiryQueue) {
+            VerifiedToken head;
+            while ((head = expiryQueue.peek()) != null
+                    && (head.isExpired(now) || entries.size() >= maxSize || entries.get(head.getTokenHash()) != head)) {
+                expiryQueue.poll();
+                entries.remove(head.getTokenHash(), head);
+            }
+            if (expiryQueue.size() >= maxSize * 2) {
+                // 被移除的条目过多时按当前条目重建，避免堆无限增长
+                expiryQueue.clear();
+                expiryQueue.addAll(entries.values());
+            }
+            entries.put(verifiedToken.getTokenHash(), verifiedToken);
+            expiryQueue.add(verifiedToken);
+        }
+    }
+
+    /**
+     * 移除缓存的Token，Token被吊销时调用
+     */
+    public void remove(String tokenHash) {
+        entries.remove(tokenHash);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
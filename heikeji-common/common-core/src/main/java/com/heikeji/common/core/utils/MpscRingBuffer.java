@@ -0,0 +1,128 @@
+package com.heikeji.common.core.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ * 每个槽位带序号：生产者CAS抢占写位置后写入元素并发布序号，消费者按序号判断槽位是否可读。
+ * 队列满时 {@link #offer(Object)} 立即返回false，不阻塞生产者，由调用方决定丢弃或降级。
+ * {@link #poll()} 和 {@link #drainTo(Collection, int)} 只能由同一个消费者线程调用。
+ *
+ * @param <E> 元素类型
+ */
+public class MpscRingBuffer<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> slots;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 只由消费者线程写入，volatile便于其他线程读取队列长度
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("容量必须在1到2^30之间: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队
+     *
+     * @return 队列已满时返回false
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("元素不能为空");
+        }
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    // 发布序号后消费者才能读取该槽位
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // 消费者尚未释放该槽位，队列已满
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 出队，仅限消费者线程调用
+     *
+     * @return 队首元素，队列为空或队首尚未发布完成时返回null
+     */
+    public E poll() {
+        long current = head;
+        int index = (int) (current & mask);
+        if (sequences.get(index) != current + 1) {
+            return null;
+        }
+        E element = slots.get(index);
+        slots.lazySet(index, null);
+        // 释放槽位给下一轮生产者
+        sequences.set(index, current + mask + 1);
+        head = current + 1;
+        return element;
+    }
+
+    /**
+     * 批量出队，仅限消费者线程调用
+     *
+     * @return 取出的元素个数
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * 当前元素个数（近似值）
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0L, Math.min(size, mask + 1L));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.heikeji.mall.common.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 流式导入结果汇总
+ *
+ * 只保留计数和前若干条错误信息，不保留导入的数据本身。
+ */
+public class BulkImportSummary {
+
+    /**
+     * 最多保留的错误条数
+     */
+    private static final int MAX_ERRORS = 100;
+
+    private int totalCount;
+
+    private int successCount;
+
+    private int failCount;
+
+    private final List<String> errors = new ArrayList<>();
+
+    private long durationMs;
+
+    public void addTotal(int count) {
+        totalCount += count;
+    }
+
+    public void addSuccess(int count) {
+        successCount += count;
+    }
+
+    public void addFailure(String error) {
+        failCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailCount() {
+        return failCount;
+    }
+
+    /**
+     * 错误信息，超过上限的部分只计数
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public boolean isErrorsTruncated() {
+        return failCount > errors.size();
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+}
@@ -0,0 +1,71 @@
+package com.heikeji.mall.common.batch;
+
+import java.util.List;
+
+/**
+ * 批量插入执行器
+ *
+ * 整批写入失败时把批次二分后分别重试，直到定位到单条失败的记录：
+ * 一批里只有少量坏数据时，只需额外执行约 坏数据条数 × log2(批大小) 条语句，其余记录仍按多行插入写入。
+ * 每次写入是一条独立的INSERT语句，InnoDB在语句失败时只回滚该语句，
+ * 因此无论调用方是否处于事务中，失败的子批次都不会留下部分数据。
+ */
+public final class BulkInsertEngine {
+
+    private BulkInsertEngine() {
+    }
+
+    /**
+     * 批次写入器
+     */
+    @FunctionalInterface
+    public interface BatchWriter<T> {
+
+        /**
+         * 以一条语句写入整批记录，失败时抛出异常且不写入任何记录
+         */
+        void write(List<T> rows);
+    }
+
+    /**
+     * 写入结果回调
+     */
+    public interface Listener<T> {
+
+        /**
+         * 一批记录写入成功
+         */
+        void onInserted(List<T> rows);
+
+        /**
+         * 单条记录写入失败
+         *
+         * @param index 记录在整个导入中的序号（从0开始）
+         */
+        void onFailed(int index, T row, RuntimeException error);
+    }
+
+    /**
+     * 写入一批记录，失败时二分隔离出错的记录
+     *
+     * @param rows      待写入记录
+     * @param baseIndex rows中第一条记录在整个导入中的序号，用于错误定位
+     */
+    public static <T> void insert(List<T> rows, int baseIndex, BatchWriter<T> writer, Listener<T> listener) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            writer.write(rows);
+            listener.onInserted(rows);
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                listener.onFailed(baseIndex, rows.get(0), e);
+                return;
+            }
+            int middle = rows.size() >>> 1;
+            insert(rows.subList(0, middle), baseIndex, writer, listener);
+            insert(rows.subList(middle, rows.size()), baseIndex + middle, writer, listener);
+        }
+    }
+}
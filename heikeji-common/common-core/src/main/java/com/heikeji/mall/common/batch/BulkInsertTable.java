@@ -0,0 +1,104 @@
+package com.heikeji.mall.common.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 多行插入的表结构描述
+ *
+ * 列按声明顺序写入，所有行使用相同的列集合，值为null时写入NULL。
+ * 主键为自增列时通过idSetter回填生成的主键。
+ *
+ * 使用示例：
+ * <pre>
+ * BulkInsertTable&lt;Product&gt; table = BulkInsertTable.of("product", Product::setId)
+ *         .column("name", Product::getName)
+ *         .column("price", Product::getPrice);
+ * </pre>
+ *
+ * @param <T> 实体类型
+ */
+public final class BulkInsertTable<T> {
+
+    private final String tableName;
+
+    private final BiConsumer<T, Long> idSetter;
+
+    private final List<String> columns = new ArrayList<>();
+
+    private final List<Function<T, Object>> getters = new ArrayList<>();
+
+    private BulkInsertTable(String tableName, BiConsumer<T, Long> idSetter) {
+        this.tableName = tableName;
+        this.idSetter = idSetter;
+    }
+
+    /**
+     * @param tableName 表名
+     * @param idSetter  自增主键回填，不需要回填时传null
+     */
+    public static <T> BulkInsertTable<T> of(String tableName, BiConsumer<T, Long> idSetter) {
+        return new BulkInsertTable<>(tableName, idSetter);
+    }
+
+    @SuppressWarnings("unchecked")
+    public BulkInsertTable<T> column(String column, Function<T, ?> getter) {
+        columns.add(column);
+        getters.add((Function<T, Object>) getter);
+        return this;
+    }
+
+    /**
+     * 生成rowCount行的INSERT ... VALUES语句
+     */
+    public String buildInsertSql(int rowCount) {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("表" + tableName + "未声明任何列");
+        }
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.size(); i++) {
+            row.append(i == 0 ? "?" : ", ?");
+        }
+        row.append(')');
+
+        StringBuilder sql = new StringBuilder(32 + columns.size() * 16 + rowCount * row.length());
+        sql.append("INSERT INTO `").append(tableName).append("` (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append('`').append(columns.get(i)).append('`');
+        }
+        sql.append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    Object getValue(T row, int column) {
+        return getters.get(column).apply(row);
+    }
+
+    BiConsumer<T, Long> getIdSetter() {
+        return idSetter;
+    }
+}
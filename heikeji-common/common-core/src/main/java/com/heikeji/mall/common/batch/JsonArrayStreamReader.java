@@ -0,0 +1,75 @@
+package com.heikeji.mall.common.batch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * JSON数组流式读取器
+ *
+ * 逐个解析请求体中JSON数组的元素，内存中只保留当前元素，用于十万级数据导入。
+ *
+ * @param <T> 元素类型
+ */
+public class JsonArrayStreamReader<T> implements Iterator<T>, Closeable {
+
+    private final ObjectMapper objectMapper;
+
+    private final JsonParser parser;
+
+    private final Class<T> elementType;
+
+    private T next;
+
+    public JsonArrayStreamReader(ObjectMapper objectMapper, InputStream inputStream, Class<T> elementType) throws IOException {
+        this.objectMapper = objectMapper;
+        this.elementType = elementType;
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IOException("请求体必须是JSON数组");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                // 跳过数组中的null元素
+                if (token != JsonToken.VALUE_NULL) {
+                    next = objectMapper.readValue(parser, elementType);
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("解析第" + parser.getCurrentLocation().getLineNr() + "行数据失败", e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T element = next;
+        next = null;
+        return element;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
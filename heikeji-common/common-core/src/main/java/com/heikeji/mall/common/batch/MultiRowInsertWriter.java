@@ -0,0 +1,71 @@
+package com.heikeji.mall.common.batch;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 基于JDBC的多行插入写入器
+ *
+ * 每批生成一条 INSERT ... VALUES (...), (...) 语句，不依赖连接串的rewriteBatchedStatements参数；
+ * 连接通过JdbcTemplate获取，处于Spring事务中时使用事务连接。
+ * 自增主键按返回顺序回填到实体。MySQL单条语句最多65535个占位符，批大小需满足 行数 × 列数 不超过该值。
+ */
+public class MultiRowInsertWriter<T> implements BulkInsertEngine.BatchWriter<T> {
+
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BulkInsertTable<T> table;
+
+    public MultiRowInsertWriter(JdbcTemplate jdbcTemplate, BulkInsertTable<T> table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+    }
+
+    /**
+     * 单批允许的最大行数
+     */
+    public int getMaxRowsPerStatement() {
+        return MAX_PLACEHOLDERS / table.getColumnCount();
+    }
+
+    @Override
+    public void write(List<T> rows) {
+        if (rows.size() > getMaxRowsPerStatement()) {
+            throw new IllegalArgumentException("单批行数" + rows.size() + "超过上限" + getMaxRowsPerStatement());
+        }
+        String sql = table.buildInsertSql(rows.size());
+        BiConsumer<T, Long> idSetter = table.getIdSetter();
+        int columnCount = table.getColumnCount();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            int keyMode = idSetter != null ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+            try (PreparedStatement ps = connection.prepareStatement(sql, keyMode)) {
+                int parameterIndex = 1;
+                for (T row : rows) {
+                    for (int column = 0; column < columnCount; column++) {
+                        ps.setObject(parameterIndex++, table.getValue(row, column));
+                    }
+                }
+                ps.executeUpdate();
+                if (idSetter != null) {
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (T row : rows) {
+                            if (!keys.next()) {
+                                break;
+                            }
+                            idSetter.accept(row, keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+}
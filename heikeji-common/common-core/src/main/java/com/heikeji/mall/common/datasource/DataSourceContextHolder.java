@@ -3,8 +3,9 @@ package com.heikeji.mall.common.datasource;
 /**
  * 数据源上下文持有者
  *
- * 管理当前线程的数据源类型，
- * 配合@Transactional的readOnly属性自动切换。
+ * 管理当前线程的数据源类型，ReadWriteSplitRoutingDataSource按此路由，
+ * ReadWriteRoutingAspect配合@Transactional的readOnly属性自动切换。
+ * 外层已选主库时内层不会切回从库；用户写入后的短时间窗口内，读操作也走主库。
  *
  * 使用示例：
  * <pre>
@@ -16,6 +17,9 @@ package com.heikeji.mall.common.datasource;
  * @Transactional(readOnly = true)
  * public User getUser(Long id) { ... }
  *
+ * // 未标注事务的Service查询方法（get/find/list等前缀）- 自动使用从库
+ * public List<Order> listOrders(Long userId) { ... }
+ *
  * // 手动控制
  * DataSourceContextHolder.forceMaster(); // 强制主库
  * User user = userRepository.findById(id);
@@ -27,6 +31,14 @@ public class DataSourceContextHolder {
     private static final ThreadLocal<ReadWriteSplitRoutingDataSource.DataSourceType> contextHolder =
             new ThreadLocal<>();
 
+    public static void set(ReadWriteSplitRoutingDataSource.DataSourceType type) {
+        if (type == null) {
+            contextHolder.remove();
+        } else {
+            contextHolder.set(type);
+        }
+    }
+
     public static void setMaster() {
         contextHolder.set(ReadWriteSplitRoutingDataSource.DataSourceType.MASTER);
     }
@@ -0,0 +1,134 @@
+package com.heikeji.mall.common.datasource;
+
+import com.heikeji.common.core.security.GatewayAuthHeaders;
+import com.heikeji.common.core.security.UserContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读写分离路由切面
+ *
+ * 在事务切面之前执行（事务开启时就会获取连接），按以下规则设置DataSourceContextHolder：
+ * 1. @Transactional(readOnly = true) → 从库
+ * 2. @Transactional → 主库，方法正常返回后记录当前用户的写入，窗口期内该用户的读操作走主库
+ * 3. 未标注事务的Service查询方法（按方法名前缀识别）→ 从库
+ * 4. 外层已选主库时内层保持主库；其他方法沿用外层的选择
+ * 方法结束后恢复外层的路由类型。
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadWriteRoutingAspect {
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private final boolean queryMethodRouting;
+
+    private final List<String> queryMethodPrefixes;
+
+    /**
+     * 方法 -> 路由类型，NONE表示不改变外层选择
+     */
+    private final Map<MethodClassKey, Route> routeCache = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingAspect(ReadYourWritesTracker readYourWritesTracker, ReadWriteSplitProperties properties) {
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.queryMethodRouting = properties.isQueryMethodRouting();
+        this.queryMethodPrefixes = properties.getQueryMethodPrefixes();
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) "
+            + "|| @within(org.springframework.transaction.annotation.Transactional) "
+            + "|| @annotation(org.springframework.transaction.annotation.Transactional)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> targetClass = joinPoint.getTarget() != null ? joinPoint.getTarget().getClass() : method.getDeclaringClass();
+        Route route = routeCache.computeIfAbsent(new MethodClassKey(method, targetClass),
+                key -> resolveRoute(AopUtils.getMostSpecificMethod(method, targetClass), targetClass));
+        if (route == Route.NONE) {
+            return joinPoint.proceed();
+        }
+
+        ReadWriteSplitRoutingDataSource.DataSourceType previous = DataSourceContextHolder.get();
+        if (route == Route.WRITE) {
+            DataSourceContextHolder.setMaster();
+            try {
+                Object result = joinPoint.proceed();
+                readYourWritesTracker.recordWrite(currentUserId());
+                return result;
+            } finally {
+                DataSourceContextHolder.set(previous);
+            }
+        }
+
+        if (previous == ReadWriteSplitRoutingDataSource.DataSourceType.SLAVE) {
+            return joinPoint.proceed();
+        }
+        if (previous == null && !readYourWritesTracker.isPinned(currentUserId())) {
+            DataSourceContextHolder.setSlave();
+        } else {
+            // 外层已选主库或用户刚写入过，保持主库
+            DataSourceContextHolder.setMaster();
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DataSourceContextHolder.set(previous);
+        }
+    }
+
+    /**
+     * 当前用户ID，未经过认证过滤器的服务读取网关转发的用户头，仅用于路由判断
+     */
+    private static String currentUserId() {
+        String userId = UserContext.getUserId().orElse(null);
+        if (userId != null) {
+            return userId;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getHeader(GatewayAuthHeaders.USER_ID);
+        }
+        return null;
+    }
+
+    private Route resolveRoute(Method method, Class<?> targetClass) {
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(method, Transactional.class);
+        if (transactional == null) {
+            transactional = AnnotatedElementUtils.findMergedAnnotation(targetClass, Transactional.class);
+        }
+        if (transactional != null) {
+            return transactional.readOnly() ? Route.READ : Route.WRITE;
+        }
+        if (queryMethodRouting) {
+            String name = method.getName();
+            for (String prefix : queryMethodPrefixes) {
+                if (name.startsWith(prefix)) {
+                    return Route.READ;
+                }
+            }
+        }
+        return Route.NONE;
+    }
+
+    private enum Route {
+        READ,
+        WRITE,
+        NONE
+    }
+}
@@ -0,0 +1,87 @@
+package com.heikeji.mall.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置
+ *
+ * heikeji.datasource.read-write-split.enabled=true时生效，服务通过@Import引入：
+ * 主库按spring.datasource.*创建，从库按heikeji.datasource.read-write-split.replicas创建，
+ * 对外暴露@Primary的路由数据源，Spring Boot默认的单数据源随之不再创建。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "heikeji.datasource.read-write-split", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadWriteSplitProperties.class)
+public class ReadWriteSplitDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource masterDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public ReadWriteSplitRoutingDataSource readWriteSplitRoutingDataSource(
+            @Qualifier("masterDataSource") DataSource masterDataSource,
+            DataSourceProperties dataSourceProperties,
+            ReadWriteSplitProperties properties) {
+        List<ReplicaNode> replicas = new ArrayList<>();
+        List<ReadWriteSplitProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            ReadWriteSplitProperties.Replica replica = replicaProperties.get(i);
+            String key = replica.getName() != null ? replica.getName() : "SLAVE_" + i;
+            replicas.add(new ReplicaNode(key, createReplicaDataSource(key, replica, dataSourceProperties),
+                    replica.getWeight()));
+        }
+        return new ReadWriteSplitRoutingDataSource(masterDataSource, replicas, properties.getMaxLagSeconds());
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(ReadWriteSplitProperties properties,
+                                                       ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return new ReadYourWritesTracker(properties.getEffectiveReadYourWritesWindowMillis(),
+                redisTemplate.getIfAvailable());
+    }
+
+    @Bean
+    public ReplicaLagProber replicaLagProber(ReadWriteSplitRoutingDataSource readWriteSplitRoutingDataSource,
+                                             ReadWriteSplitProperties properties,
+                                             ReadYourWritesTracker readYourWritesTracker) {
+        return new ReplicaLagProber(readWriteSplitRoutingDataSource.getReplicas(), properties, readYourWritesTracker);
+    }
+
+    @Bean
+    public ReadWriteRoutingAspect readWriteRoutingAspect(ReadYourWritesTracker readYourWritesTracker,
+                                                         ReadWriteSplitProperties properties) {
+        return new ReadWriteRoutingAspect(readYourWritesTracker, properties);
+    }
+
+    private static HikariDataSource createReplicaDataSource(String key, ReadWriteSplitProperties.Replica replica,
+                                                            DataSourceProperties master) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("Replica-" + key);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername() != null ? replica.getUsername() : master.determineUsername());
+        dataSource.setPassword(replica.getPassword() != null ? replica.getPassword() : master.determinePassword());
+        dataSource.setDriverClassName(master.determineDriverClassName());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        // 从库连接只读，误路由的写操作会直接报错而不是写入从库
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
@@ -0,0 +1,96 @@
+package com.heikeji.mall.common.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 读写分离配置属性
+ *
+ * 从application.yml中读取heikeji.datasource.read-write-split.*配置项。
+ * 主库沿用spring.datasource.*配置，从库只需配置url，账号密码缺省时与主库相同。
+ */
+@Data
+@ConfigurationProperties(prefix = "heikeji.datasource.read-write-split")
+public class ReadWriteSplitProperties {
+
+    /**
+     * 是否开启读写分离，关闭时由Spring Boot按spring.datasource.*创建单数据源
+     */
+    private boolean enabled = false;
+
+    /**
+     * 从库列表
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * 允许的最大复制延迟（秒），超过后该从库暂停读流量
+     */
+    private long maxLagSeconds = 5;
+
+    /**
+     * 从库探测间隔（毫秒）
+     */
+    private long probeIntervalMillis = 2000;
+
+    /**
+     * 探测查询超时（秒）
+     */
+    private int probeTimeoutSeconds = 2;
+
+    /**
+     * 复制延迟查询语句
+     * 结果中有Seconds_Behind_Source或Seconds_Behind_Master列时读取该列，否则读取第一列；
+     * 使用心跳表时可配置为返回延迟秒数的SELECT语句
+     */
+    private String lagQuery = "SHOW SLAVE STATUS";
+
+    /**
+     * 写后读主库的窗口（毫秒），实际窗口不小于最大复制延迟加一个探测间隔
+     */
+    private long readYourWritesWindowMillis = 3000;
+
+    /**
+     * 未标注@Transactional的Service查询方法是否路由到从库
+     */
+    private boolean queryMethodRouting = true;
+
+    /**
+     * 查询方法名前缀
+     */
+    private List<String> queryMethodPrefixes = new ArrayList<>(Arrays.asList(
+            "get", "find", "list", "query", "select", "count", "page", "search", "exists"));
+
+    /**
+     * 写后读主库的实际窗口（毫秒）
+     */
+    public long getEffectiveReadYourWritesWindowMillis() {
+        return Math.max(readYourWritesWindowMillis, maxLagSeconds * 1000 + probeIntervalMillis);
+    }
+
+    @Data
+    public static class Replica {
+
+        /**
+         * 从库名称，用作路由键，缺省为SLAVE_序号
+         */
+        private String name;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * 权重，越大分到的读流量越多
+         */
+        private int weight = 1;
+
+        private int maximumPoolSize = 20;
+    }
+}
@@ -1,141 +1,182 @@
 package com.heikeji.mall.common.datasource;
 
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
-import org.springframework.stereotype.Component;
 
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 读写分离数据源路由
  *
  * 基于Spring AbstractRoutingDataSource实现：
  * 1. 写操作路由到主库（Master）
- * 2. 读操作负载均衡到从库（Slave）
- * 3. 支持强制读主库（保证数据一致性）
- * 4. 从库健康检查和自动剔除
+ * 2. 读操作在可用从库间按权重和探测耗时选择（加权随机取两个，选耗时低的）
+ * 3. 复制延迟超过阈值或探测失败的从库暂停读流量，全部不可用时降级到主库
+ * 4. 支持强制读主库（保证数据一致性）
  *
- * 使用方式：
- * @Transactional(readOnly = true) → 自动路由到从库
- * @Transactional → 路由到主库
+ * 路由类型由DataSourceContextHolder保存，ReadWriteRoutingAspect按@Transactional和方法名自动设置：
+ * @Transactional(readOnly = true) → 从库
+ * @Transactional → 主库
  * DataSourceContextHolder.forceMaster() → 强制读主库
+ *
+ * 由ReadWriteSplitDataSourceConfig在开启读写分离时创建。
  */
 @Slf4j
-@Component
 public class ReadWriteSplitRoutingDataSource extends AbstractRoutingDataSource {
 
-    private static final ThreadLocal<DataSourceType> contextHolder = new ThreadLocal<>();
+    public static final String MASTER_KEY = DataSourceType.MASTER.name();
 
-    private final AtomicInteger slaveCounter = new AtomicInteger(0);
-    private final ConcurrentHashMap<String, Boolean> slaveHealthStatus = new ConcurrentHashMap<>();
-    private int slaveCount;
+    private final List<ReplicaNode> replicas;
 
-    @Override
-    protected Object determineCurrentLookupKey() {
-        DataSourceType type = contextHolder.get();
+    private final long maxLagSeconds;
 
-        if (type == null) {
-            type = DataSourceType.MASTER; // 默认主库
+    /**
+     * 上次路由时是否全部从库不可用，用于只在状态切换时打印日志
+     */
+    private volatile boolean degraded;
+
+    public ReadWriteSplitRoutingDataSource(DataSource master, List<ReplicaNode> replicas, long maxLagSeconds) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.maxLagSeconds = maxLagSeconds;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(MASTER_KEY, master);
+        for (ReplicaNode replica : replicas) {
+            targets.put(replica.getKey(), replica.getDataSource());
         }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(master);
+        log.info("读写分离配置: 主库x1 + 从库x{}", replicas.size());
+    }
 
-        if (type == DataSourceType.SLAVE) {
-            return selectHealthySlave();
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (DataSourceContextHolder.isSlave()) {
+            return selectReplica();
         }
-
-        log.debug("数据源路由: {}", type);
-        return type;
+        return MASTER_KEY;
     }
 
     /**
-     * 选择健康的从库（轮询+健康检查）
+     * 选择从库：按权重随机取两个可用从库，返回探测耗时/权重较小的一个
      */
-    private String selectHealthySlave() {
-        if (slaveCount <= 1) {
-            return DataSourceType.SLAVE.name();
+    String selectReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return MASTER_KEY;
         }
-
-        for (int i = 0; i < slaveCount; i++) {
-            int index = Math.abs(slaveCounter.getAndIncrement() % slaveCount);
-            String slaveKey = "SLAVE_" + index;
-
-            if (isSlaveHealthy(slaveKey)) {
-                log.debug("选择从库: {}", slaveKey);
-                return slaveKey;
+        ReplicaNode[] candidates = new ReplicaNode[size];
+        int available = 0;
+        int totalWeight = 0;
+        for (ReplicaNode replica : replicas) {
+            if (replica.isAvailable(maxLagSeconds)) {
+                candidates[available++] = replica;
+                totalWeight += replica.getWeight();
             }
         }
-
-        // 所有从库都不健康，降级到主库
-        log.warn("⚠️ 所有从库不健康，降级到主库读取");
-        contextHolder.set(DataSourceType.MASTER);
-        return DataSourceType.MASTER.name();
+        if (available == 0) {
+            if (!degraded) {
+                degraded = true;
+                log.warn("⚠️ 所有从库不可用或复制延迟超过{}秒，降级到主库读取", maxLagSeconds);
+            }
+            return MASTER_KEY;
+        }
+        if (degraded) {
+            degraded = false;
+            log.info("✅ 从库恢复可用，读流量切回从库");
+        }
+        if (available == 1) {
+            return candidates[0].getKey();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = pickWeighted(candidates, available, random.nextInt(totalWeight), -1);
+        int second = pickWeighted(candidates, available,
+                random.nextInt(totalWeight - candidates[first].getWeight()), first);
+        ReplicaNode chosen = candidates[second].score() < candidates[first].score() ? candidates[second] : candidates[first];
+        return chosen.getKey();
     }
 
-    private boolean isSlaveHealthy(String slaveKey) {
-        return slaveHealthStatus.getOrDefault(slaveKey, true);
+    /**
+     * 按权重定位候选下标
+     *
+     * @param point    [0, 参与候选的总权重)内的随机点
+     * @param excluded 不参与本次选择的下标，-1表示不排除
+     */
+    private static int pickWeighted(ReplicaNode[] candidates, int available, int point, int excluded) {
+        int last = -1;
+        for (int i = 0; i < available; i++) {
+            if (i == excluded) {
+                continue;
+            }
+            last = i;
+            point -= candidates[i].getWeight();
+            if (point < 0) {
+                return i;
+            }
+        }
+        return last;
     }
 
-    public void setSlaveCount(int count) {
-        this.slaveCount = count;
-        log.info("读写分离配置: 主库x1 + 从库x{}", count);
+    public List<ReplicaNode> getReplicas() {
+        return replicas;
     }
 
+    /**
+     * 手动摘除从库，下一次探测成功后自动恢复
+     */
     public void markSlaveUnhealthy(String slaveKey) {
-        slaveHealthStatus.put(slaveKey, false);
-        log.warn("❌ 从库标记为不健康: {}", slaveKey);
-
-        // 启动定时健康检查任务
-        scheduleHealthCheck(slaveKey);
+        for (ReplicaNode replica : replicas) {
+            if (replica.getKey().equals(slaveKey)) {
+                replica.markUnhealthy();
+                log.warn("❌ 从库标记为不健康: {}", slaveKey);
+            }
+        }
     }
 
     public void markSlaveHealthy(String slaveKey) {
-        slaveHealthStatus.put(slaveKey, true);
-        log.info("✅ 从库恢复健康: {}", slaveKey);
-    }
-
-    private void scheduleHealthCheck(String slaveKey) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                // 模拟健康检查（实际应执行真实查询）
-                boolean healthy = checkSlaveHealth(slaveKey);
-                if (healthy) {
-                    markSlaveHealthy(slaveKey);
-                    log.info("✅ 从库健康检查通过: {}", slaveKey);
-                } else {
-                    log.warn("❌ 从库仍不健康: {}，30秒后重试", slaveKey);
-                    scheduleHealthCheck(slaveKey);
-                }
+        for (ReplicaNode replica : replicas) {
+            if (replica.getKey().equals(slaveKey)) {
+                replica.markHealthy();
+                log.info("✅ 从库恢复健康: {}", slaveKey);
             }
-        }, 30000); // 30秒后重试
+        }
     }
 
-    private boolean checkSlaveHealth(String slaveKey) {
-        // 实际实现应执行 SELECT 1 或心跳查询
-        return true;
+    /**
+     * 关闭从库连接池，主库连接池由其自身的Bean销毁
+     */
+    public void close() {
+        for (ReplicaNode replica : replicas) {
+            if (replica.getDataSource() instanceof HikariDataSource) {
+                ((HikariDataSource) replica.getDataSource()).close();
+            }
+        }
     }
 
     public static void setDataSourceType(DataSourceType type) {
-        contextHolder.set(type);
+        DataSourceContextHolder.set(type);
     }
 
     public static DataSourceType getDataSourceType() {
-        return contextHolder.get();
+        return DataSourceContextHolder.get();
     }
 
     public static void clearDataSourceType() {
-        contextHolder.remove();
+        DataSourceContextHolder.clear();
     }
 
     public static void forceMaster() {
-        contextHolder.set(DataSourceType.MASTER);
+        DataSourceContextHolder.setMaster();
     }
 
     public static void forceSlave() {
-        contextHolder.set(DataSourceType.SLAVE);
+        DataSourceContextHolder.setSlave();
     }
 
     public enum DataSourceType {
@@ -0,0 +1,91 @@
+package com.heikeji.mall.common.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写后读一致性跟踪
+ *
+ * 用户提交写事务后，在窗口期内把该用户的读操作固定到主库，避免刚下单就查不到订单。
+ * 本地Map记录本实例上的写入；配置了Redis时同时写入带过期时间的标记，
+ * 使同一用户落到其他实例的读请求也能走主库。Redis不可用时只按本地记录判断。
+ */
+@Slf4j
+public class ReadYourWritesTracker {
+
+    private static final String PIN_KEY_PREFIX = "datasource:rw-pin:";
+
+    private final long windowMillis;
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 用户ID -> 固定主库截止时间
+     */
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    /**
+     * @param redisTemplate 可为null，此时只在本实例内生效
+     */
+    public ReadYourWritesTracker(long windowMillis, StringRedisTemplate redisTemplate) {
+        this.windowMillis = windowMillis;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 记录用户提交了一次写事务
+     */
+    public void recordWrite(String userId) {
+        if (userId == null) {
+            return;
+        }
+        pinnedUntil.put(userId, System.currentTimeMillis() + windowMillis);
+        if (redisTemplate != null) {
+            try {
+                redisTemplate.opsForValue().set(PIN_KEY_PREFIX + userId, "1", windowMillis, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                log.debug("写入写后读标记失败: userId={}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * 用户的读操作当前是否需要走主库
+     */
+    public boolean isPinned(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(userId);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                return true;
+            }
+            pinnedUntil.remove(userId, until);
+        }
+        if (redisTemplate != null) {
+            try {
+                return Boolean.TRUE.equals(redisTemplate.hasKey(PIN_KEY_PREFIX + userId));
+            } catch (Exception e) {
+                log.debug("读取写后读标记失败: userId={}", userId, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清理过期记录
+     */
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        pinnedUntil.values().removeIf(until -> until <= now);
+    }
+
+    public int size() {
+        return pinnedUntil.size();
+    }
+}
@@ -0,0 +1,134 @@
+package com.heikeji.mall.common.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从库复制延迟探测
+ *
+ * 后台线程定期在每个从库上执行延迟查询，记录复制延迟和查询耗时：
+ * 查询失败或复制线程停止（延迟列为NULL）时摘除该从库，下一次探测成功后自动恢复。
+ * 同时顺带清理写后读跟踪中过期的记录。
+ */
+@Slf4j
+public class ReplicaLagProber implements InitializingBean, DisposableBean {
+
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Source", "Seconds_Behind_Master"};
+
+    private final List<ReplicaNode> replicas;
+
+    private final ReadWriteSplitProperties properties;
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private ScheduledExecutorService executor;
+
+    public ReplicaLagProber(List<ReplicaNode> replicas, ReadWriteSplitProperties properties,
+                            ReadYourWritesTracker readYourWritesTracker) {
+        this.replicas = replicas;
+        this.properties = properties;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "datasource-lag-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getProbeIntervalMillis();
+        executor.scheduleWithFixedDelay(this::probeAll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 探测全部从库
+     */
+    public void probeAll() {
+        for (ReplicaNode replica : replicas) {
+            try {
+                probe(replica);
+            } catch (Throwable e) {
+                // 定时任务抛出异常后不会再调度
+                log.error("从库探测异常: {}", replica.getKey(), e);
+            }
+        }
+        readYourWritesTracker.evictExpired();
+    }
+
+    private void probe(ReplicaNode replica) {
+        boolean wasHealthy = replica.isHealthy();
+        long start = System.nanoTime();
+        Long lag;
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(properties.getProbeTimeoutSeconds());
+            try (ResultSet rs = statement.executeQuery(properties.getLagQuery())) {
+                // 无结果说明该库不是从库（如开发环境指向主库），按无延迟处理
+                lag = rs.next() ? readLag(rs) : Long.valueOf(0L);
+            }
+        } catch (Exception e) {
+            replica.markUnhealthy();
+            if (wasHealthy) {
+                log.warn("❌ 从库探测失败，暂停读流量: {}, {}", replica.getKey(), e.getMessage());
+            }
+            return;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        if (lag == null) {
+            replica.markUnhealthy();
+            if (wasHealthy) {
+                log.warn("❌ 从库复制已停止，暂停读流量: {}", replica.getKey());
+            }
+            return;
+        }
+        long previousLag = replica.getLagSeconds();
+        replica.recordProbe(lag, latencyMicros);
+        long maxLag = properties.getMaxLagSeconds();
+        if (!wasHealthy) {
+            log.info("✅ 从库恢复健康: {}, 延迟{}秒", replica.getKey(), lag);
+        } else if (lag > maxLag && previousLag <= maxLag) {
+            log.warn("⚠️ 从库复制延迟{}秒超过阈值{}秒，暂停读流量: {}", lag, maxLag, replica.getKey());
+        } else if (lag <= maxLag && previousLag > maxLag) {
+            log.info("✅ 从库复制延迟恢复到{}秒: {}", lag, replica.getKey());
+        }
+    }
+
+    /**
+     * 读取复制延迟，延迟列为NULL时返回null
+     */
+    private static Long readLag(ResultSet rs) throws Exception {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int column = 1;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String label = metaData.getColumnLabel(i);
+            for (String lagColumn : LAG_COLUMNS) {
+                if (lagColumn.equalsIgnoreCase(label)) {
+                    column = i;
+                }
+            }
+        }
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? null : lag;
+    }
+}
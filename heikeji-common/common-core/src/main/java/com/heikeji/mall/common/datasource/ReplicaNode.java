@@ -0,0 +1,97 @@
+package com.heikeji.mall.common.datasource;
+
+import javax.sql.DataSource;
+
+/**
+ * 从库节点状态
+ *
+ * 健康状态、复制延迟和探测耗时由ReplicaLagProber定期更新，路由时只读取volatile字段，不加锁。
+ */
+public class ReplicaNode {
+
+    /**
+     * 探测耗时指数平均的平滑系数
+     */
+    private static final double LATENCY_ALPHA = 0.3;
+
+    private final String key;
+
+    private final DataSource dataSource;
+
+    private final int weight;
+
+    private volatile boolean healthy = true;
+
+    /**
+     * 复制延迟（秒），-1表示尚未探测
+     */
+    private volatile long lagSeconds = -1;
+
+    /**
+     * 探测耗时的指数平均（微秒）
+     */
+    private volatile double latencyMicros;
+
+    public ReplicaNode(String key, DataSource dataSource, int weight) {
+        this.key = key;
+        this.dataSource = dataSource;
+        this.weight = Math.max(1, weight);
+    }
+
+    /**
+     * 是否可以承接读流量：健康且延迟不超过阈值，尚未探测的节点按可用处理
+     */
+    public boolean isAvailable(long maxLagSeconds) {
+        return healthy && lagSeconds <= maxLagSeconds;
+    }
+
+    /**
+     * 选择得分，越小越优先
+     */
+    public double score() {
+        return (latencyMicros + 1D) / weight;
+    }
+
+    /**
+     * 记录一次成功的探测
+     */
+    public void recordProbe(long lagSeconds, long latencyMicros) {
+        double previous = this.latencyMicros;
+        this.latencyMicros = previous == 0D ? latencyMicros
+                : previous + LATENCY_ALPHA * (latencyMicros - previous);
+        this.lagSeconds = lagSeconds;
+        this.healthy = true;
+    }
+
+    public void markUnhealthy() {
+        this.healthy = false;
+    }
+
+    public void markHealthy() {
+        this.healthy = true;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    public double getLatencyMicros() {
+        return latencyMicros;
+    }
+}
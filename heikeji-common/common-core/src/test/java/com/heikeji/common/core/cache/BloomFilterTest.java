@@ -0,0 +1,87 @@
+package com.heikeji.common.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地布隆过滤器测试
+ */
+public class BloomFilterTest {
+
+    private static final int INSERTIONS = 10000;
+
+    private static final int PROBES = 100000;
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter.LocalBloomFilter filter = new BloomFilter.LocalBloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.add("user:" + i);
+        }
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain("user:" + i), "user:" + i);
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateNearConfigured() {
+        for (double fpp : new double[]{0.01, 0.001}) {
+            BloomFilter.LocalBloomFilter filter = new BloomFilter.LocalBloomFilter(INSERTIONS, fpp);
+            for (int i = 0; i < INSERTIONS; i++) {
+                filter.add("user:" + i);
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < PROBES; i++) {
+                if (filter.mightContain("absent:" + i)) {
+                    falsePositives++;
+                }
+            }
+            double rate = (double) falsePositives / PROBES;
+            assertTrue(rate <= fpp * 1.5, "fpp=" + fpp + ", actual=" + rate);
+        }
+    }
+
+    @Test
+    public void testIndexesStayWithinBitSize() {
+        for (int i = 0; i < 1000; i++) {
+            for (long index : BloomFilter.indexes("key:" + i, 1013, 7)) {
+                assertTrue(index >= 0 && index < 1013);
+            }
+        }
+    }
+
+    @Test
+    public void testScalableFilterGrowsWithoutFalseNegatives() {
+        BloomFilter.ScalableBloomFilter filter = new BloomFilter.ScalableBloomFilter(1000, 0.01);
+        int added = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (filter.add("order:" + i)) {
+                added++;
+            }
+        }
+        assertTrue(filter.getLayerCount() > 1);
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain("order:" + i), "order:" + i);
+        }
+        // add对可能已存在的值返回false，这部分就是插入时的误判
+        assertTrue(INSERTIONS - added <= INSERTIONS * 0.01 * 1.5, "rejected=" + (INSERTIONS - added));
+        int falsePositives = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (filter.mightContain("absent:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue((double) falsePositives / PROBES <= 0.01 * 1.5, "actual=" + falsePositives);
+    }
+
+    @Test
+    public void testMergeRedisBitmapUsesMostSignificantBitFirst() {
+        BloomFilter.LocalBloomFilter filter = new BloomFilter.LocalBloomFilter(64L, 1);
+        // Redis位图第0字节0x80表示第0位，第1字节0x01表示第15位
+        filter.mergeRedisBitmap(new byte[]{(byte) 0x80, 0x01});
+        assertTrue(filter.containsAll(new long[]{0, 15}));
+        assertFalse(filter.containsAll(new long[]{7}));
+        assertFalse(filter.containsAll(new long[]{8}));
+    }
+}
@@ -0,0 +1,153 @@
+package com.heikeji.common.core.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 浏览量写后聚合器测试
+ */
+public class ViewCountAggregatorTest {
+
+    @Test
+    public void testConcurrentIncrementsAreFlushedExactlyOnce() throws Exception {
+        RecordingStore store = new RecordingStore();
+        ViewCountAggregator aggregator = new ViewCountAggregator("test", store);
+        int threads = 8;
+        int perThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    aggregator.increment(1L);
+                    aggregator.increment(2L + (i & 1));
+                }
+                done.countDown();
+            });
+        }
+        // 累加过程中并发刷写，总数不能多也不能少
+        while (done.getCount() > 0) {
+            aggregator.flush();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        aggregator.flush();
+
+        assertEquals((long) threads * perThread, store.counts.get(1L));
+        assertEquals((long) threads * perThread / 2, store.counts.get(2L));
+        assertEquals((long) threads * perThread / 2, store.counts.get(3L));
+        assertEquals(0, aggregator.pending(1L));
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedAndCountedInPending() {
+        RecordingStore store = new RecordingStore();
+        ViewCountAggregator aggregator = new ViewCountAggregator("test", store);
+        List<Collection<Long>> flushed = new ArrayList<>();
+        aggregator.setFlushListener(flushed::add);
+        aggregator.increment(1L);
+        aggregator.increment(1L);
+
+        store.failing = true;
+        assertEquals(0, aggregator.flush());
+        aggregator.increment(1L);
+        assertEquals(3, aggregator.pending(1L));
+        assertTrue(flushed.isEmpty());
+
+        store.failing = false;
+        assertEquals(1, aggregator.flush());
+        assertEquals(3L, store.counts.get(1L));
+        assertEquals(0, aggregator.pending(1L));
+        assertEquals(Collections.singletonList(1L), new ArrayList<>(flushed.get(0)));
+    }
+
+    @Test
+    public void testRankingIsSeededBeforeItIsRead() {
+        RecordingRanking ranking = new RecordingRanking(3);
+        ViewCountAggregator aggregator = new ViewCountAggregator("test", new RecordingStore());
+        aggregator.setRanking(ranking);
+        assertTrue(aggregator.top(2).isEmpty());
+
+        Map<Long, Long> dbTop = new LinkedHashMap<>();
+        dbTop.put(7L, 30L);
+        dbTop.put(8L, 20L);
+        dbTop.put(9L, 10L);
+        aggregator.setRankingLoader(() -> dbTop);
+
+        assertEquals(List.of(7L, 8L), aggregator.top(2));
+        // 超出最大名次的部分不从排行返回，由调用方回源
+        assertEquals(List.of(7L, 8L, 9L), aggregator.top(10));
+        assertEquals(1, ranking.seedCount);
+    }
+
+    @Test
+    public void testIncrementSqlBindsEveryRow() {
+        JdbcViewCountStore store = new JdbcViewCountStore(null, "secondhand_product", "id", "view_count");
+        assertEquals("UPDATE `secondhand_product` SET `view_count` = `view_count` + CASE `id`"
+                        + " WHEN ? THEN ? WHEN ? THEN ? ELSE 0 END WHERE `id` IN (?, ?)",
+                store.buildIncrementSql(2));
+    }
+
+    private static class RecordingStore implements ViewCountStore {
+
+        private final Map<Long, Long> counts = new HashMap<>();
+
+        private volatile boolean failing;
+
+        @Override
+        public void increment(Map<Long, Long> deltas) {
+            if (failing) {
+                throw new IllegalStateException("db down");
+            }
+            deltas.forEach((id, delta) -> counts.merge(id, delta, Long::sum));
+        }
+
+        @Override
+        public Map<Long, Long> loadCounts(Collection<Long> ids) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static class RecordingRanking extends ViewRanking {
+
+        private final List<Long> ids = new ArrayList<>();
+
+        private boolean seeded;
+
+        private int seedCount;
+
+        RecordingRanking(int maxSize) {
+            super(null, "test:rank", maxSize);
+        }
+
+        @Override
+        public boolean isSeeded() {
+            return seeded;
+        }
+
+        @Override
+        public void seed(Map<Long, Long> counts) {
+            ids.addAll(counts.keySet());
+            seeded = true;
+            seedCount++;
+        }
+
+        @Override
+        public List<Long> top(int limit) {
+            return new ArrayList<>(ids.subList(0, Math.min(limit, ids.size())));
+        }
+    }
+}
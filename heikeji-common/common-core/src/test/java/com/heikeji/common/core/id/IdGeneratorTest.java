@@ -0,0 +1,75 @@
+package com.heikeji.common.core.id;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ID生成器测试类
+ */
+public class IdGeneratorTest {
+
+    private IdGenerator idGenerator;
+
+    @BeforeEach
+    public void setup() {
+        idGenerator = new IdGenerator();
+        idGenerator.init();
+    }
+
+    /**
+     * 测试多线程并发生成的ID与编号不重复且单调递增
+     */
+    @Test
+    public void testConcurrentUniqueness() throws InterruptedException {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        Set<String> nos = ConcurrentHashMap.newKeySet();
+        int threadCount = 8;
+        int perThread = 20000;
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                long last = 0;
+                for (int j = 0; j < perThread; j++) {
+                    long id = idGenerator.nextId();
+                    assertTrue(id > last, "同一线程内ID应该单调递增");
+                    last = id;
+                    ids.add(id);
+                    nos.add(idGenerator.nextNo("TO"));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount * perThread, ids.size(), "ID不应该重复");
+        assertEquals(threadCount * perThread, nos.size(), "编号不应该重复");
+    }
+
+    /**
+     * 测试可读编号格式：前缀 + yyyyMMddHHmmss + 毫秒 + 工作节点ID + 序列号
+     */
+    @Test
+    public void testReadableNoFormat() {
+        String before = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+        String no = idGenerator.nextNo("PAY");
+        String after = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+
+        assertTrue(no.startsWith("PAY"));
+        assertEquals(3 + 25, no.length());
+        assertTrue(no.substring(3).chars().allMatch(Character::isDigit));
+
+        String timePart = no.substring(3, 17);
+        assertTrue(timePart.compareTo(before) >= 0 && timePart.compareTo(after) <= 0, "编号应该包含生成时间");
+        assertEquals(String.format("%04d", idGenerator.getWorkerId()), no.substring(20, 24));
+        assertEquals(25, idGenerator.nextNo().length());
+    }
+}
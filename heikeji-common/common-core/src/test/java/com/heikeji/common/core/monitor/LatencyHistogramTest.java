@@ -0,0 +1,59 @@
+package com.heikeji.common.core.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 耗时直方图测试
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertWithinError(5000, snapshot.getValueAtPercentile(50));
+        assertWithinError(9500, snapshot.getValueAtPercentile(95));
+        assertWithinError(9900, snapshot.getValueAtPercentile(99));
+        assertEquals(10000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (long value : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 123456, LatencyHistogram.HIGHEST_TRACKABLE_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValuesClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertTrue(histogram.isEmpty());
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertFalse(histogram.isEmpty());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_VALUE, snapshot.getMax());
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 32 + 1,
+                "expected ~" + expected + " but was " + actual);
+    }
+}
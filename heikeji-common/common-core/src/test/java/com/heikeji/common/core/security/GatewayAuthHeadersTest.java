@@ -0,0 +1,36 @@
+package com.heikeji.common.core.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 网关身份头签名测试
+ */
+public class GatewayAuthHeadersTest {
+
+    private static final String SECRET = "heikeji-gateway-auth-secret";
+
+    @Test
+    public void testSignedHeadersVerified() {
+        long now = System.currentTimeMillis();
+        String userName = GatewayAuthHeaders.encode("张三");
+        String signature = GatewayAuthHeaders.sign(SECRET, "1001", userName, "user", "hash", now);
+
+        assertTrue(GatewayAuthHeaders.verify(SECRET, "1001", userName, "user", "hash", String.valueOf(now), signature, now));
+        assertEquals("张三", GatewayAuthHeaders.decode(userName));
+    }
+
+    @Test
+    public void testForgedOrStaleHeadersRejected() {
+        long now = System.currentTimeMillis();
+        String signature = GatewayAuthHeaders.sign(SECRET, "1001", "alice", null, "hash", now);
+
+        // 篡改用户ID、使用其他密钥或超出时间偏差都不能通过
+        assertFalse(GatewayAuthHeaders.verify(SECRET, "1002", "alice", null, "hash", String.valueOf(now), signature, now));
+        assertFalse(GatewayAuthHeaders.verify("other-secret", "1001", "alice", null, "hash", String.valueOf(now), signature, now));
+        assertFalse(GatewayAuthHeaders.verify(SECRET, "1001", "alice", null, "hash", String.valueOf(now), signature,
+                now + GatewayAuthHeaders.MAX_CLOCK_SKEW + 1));
+        assertFalse(GatewayAuthHeaders.verify(SECRET, "1001", "alice", null, "hash", "abc", signature, now));
+    }
+}
@@ -0,0 +1,73 @@
+package com.heikeji.common.core.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT验签缓存与吊销测试
+ */
+public class JwtUtilsTest {
+
+    private JwtUtils jwtUtils;
+
+    private TokenRevocationSet tokenRevocationSet;
+
+    @BeforeEach
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        tokenRevocationSet = new TokenRevocationSet();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "heikeji-mall-secret-key-2024-black-technology-university-campus-mall-system");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiration", 3600000L);
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpiration", 86400000L);
+        ReflectionTestUtils.setField(jwtUtils, "tokenRevocationSet", tokenRevocationSet);
+    }
+
+    /**
+     * 同一Token只验签一次，后续请求读取缓存的不可变声明
+     */
+    @Test
+    public void testVerifyOnceAndReuseClaims() {
+        String token = jwtUtils.generateToken("1001", "alice");
+
+        VerifiedToken first = jwtUtils.verify(token);
+        assertNotNull(first);
+        assertEquals("1001", first.getUserId());
+        assertEquals("alice", first.getUsername());
+        assertSame(first, jwtUtils.verify(token));
+        assertEquals("1001", jwtUtils.getUserIdFromToken(token));
+        assertThrows(UnsupportedOperationException.class, () -> first.getClaims().put("userId", "1002"));
+    }
+
+    /**
+     * 被篡改的Token即使与缓存中的Token只差一个字符也要重新验签
+     */
+    @Test
+    public void testTamperedTokenRejected() {
+        String token = jwtUtils.generateToken("1001", "alice");
+        assertNotNull(jwtUtils.verify(token));
+
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signatureStart);
+        String tampered = token.substring(0, signatureStart) + (first == 'A' ? 'B' : 'A') + token.substring(signatureStart + 1);
+        assertNull(jwtUtils.verify(tampered));
+        assertFalse(jwtUtils.validateToken(null));
+    }
+
+    /**
+     * 吊销后已缓存的Token立即失效
+     */
+    @Test
+    public void testRevokedTokenRejected() {
+        String token = jwtUtils.generateToken("1001", "alice");
+        assertTrue(jwtUtils.validateToken(token));
+
+        jwtUtils.addTokenToBlacklist(token);
+
+        assertTrue(jwtUtils.isTokenInBlacklist(token));
+        assertNull(jwtUtils.verify(token));
+        assertEquals(1, jwtUtils.getBlacklistSize());
+    }
+}
@@ -0,0 +1,52 @@
+package com.heikeji.common.core.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 已验签Token缓存淘汰测试
+ */
+public class VerifiedTokenCacheTest {
+
+    /**
+     * 写满后淘汰最早过期的条目，新Token照常缓存
+     */
+    @Test
+    public void testEvictEarliestExpiringWhenFull() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        long now = System.currentTimeMillis();
+        cache.put(token("late", now + 60000));
+        cache.put(token("early", now + 30000));
+        cache.put(token("new", now + 90000));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("early"));
+        assertNotNull(cache.get("late"));
+        assertNotNull(cache.get("new"));
+    }
+
+    /**
+     * 被移除的条目不占用容量，也不会让后写入的同名条目被提前淘汰
+     */
+    @Test
+    public void testRemovedEntrySkippedOnEviction() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        long now = System.currentTimeMillis();
+        cache.put(token("a", now + 30000));
+        cache.put(token("b", now + 60000));
+        cache.remove("a");
+        cache.put(token("c", now + 90000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    private static VerifiedToken token(String tokenHash, long expiration) {
+        return VerifiedToken.of(tokenHash, Jwts.claims().subject(tokenHash).expiration(new Date(expiration)).build());
+    }
+}
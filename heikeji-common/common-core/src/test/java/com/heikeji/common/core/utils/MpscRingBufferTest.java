@@ -0,0 +1,62 @@
+package com.heikeji.common.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无锁环形队列测试
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(Integer.valueOf(0), buffer.poll());
+        assertTrue(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNothingAccepted() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer(i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long consumed = 0;
+        List<Integer> batch = new ArrayList<>();
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            batch.clear();
+            consumed += buffer.drainTo(batch, 256);
+        }
+        assertEquals(accepted.get(), consumed);
+        assertTrue(consumed > 0);
+    }
+}
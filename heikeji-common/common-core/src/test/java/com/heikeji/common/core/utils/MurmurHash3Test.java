@@ -0,0 +1,47 @@
+package com.heikeji.common.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MurmurHash3 x64 128位哈希测试，期望值取自参考实现的已知向量
+ */
+public class MurmurHash3Test {
+
+    @Test
+    public void testKnownVectors() {
+        assertHash(0, 0x0000000000000000L, 0x0000000000000000L, "");
+        assertHash(0, 0x629942693e10f867L, 0x92db0b82baeb5347L, "hell");
+        assertHash(1, 0xa78ddff5adae8d10L, 0x128900ef20900135L, "hello");
+        assertHash(2, 0x8a486b23f422e826L, 0xf962a2c58947765fL, "hello ");
+        assertHash(3, 0x2ea59f466f6bed8cL, 0xc610990acc428a17L, "hello w");
+        assertHash(4, 0x79f6305a386c572cL, 0x46305aed3483b94eL, "hello wo");
+        assertHash(5, 0xc2219d213ec1f1b5L, 0xa1d8e2e0a52785bdL, "hello wor");
+        // 超过16字节，覆盖整块与尾部
+        assertHash(0, 0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L, "The quick brown fox jumps over the lazy dog");
+        assertHash(0, 0x658ca970ff85269aL, 0x43fee3eaa68e5c3eL, "The quick brown fox jumps over the lazy cog");
+    }
+
+    @Test
+    public void testStringHashUsesUtf8WithZeroSeed() {
+        String value = "黑科技校园商城";
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(MurmurHash3.hash128(data, 0, data.length, 0), MurmurHash3.hash128(value));
+    }
+
+    @Test
+    public void testOffsetHashesOnlyTheGivenRange() {
+        byte[] value = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] padded = new byte[value.length + 6];
+        System.arraycopy(value, 0, padded, 3, value.length);
+        assertArrayEquals(MurmurHash3.hash128(value, 0, value.length, 1), MurmurHash3.hash128(padded, 3, value.length, 1));
+    }
+
+    private static void assertHash(long seed, long h1, long h2, String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(new long[]{h1, h2}, MurmurHash3.hash128(data, 0, data.length, seed), value);
+    }
+}
@@ -0,0 +1,66 @@
+package com.heikeji.mall.common.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量插入执行器测试
+ */
+public class BulkInsertEngineTest {
+
+    @Test
+    public void testBadRowsIsolatedByBisection() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(i);
+        }
+        Set<Integer> bad = Set.of(7, 63);
+        int[] statements = new int[1];
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> failedIndexes = new ArrayList<>();
+
+        BulkInsertEngine.insert(rows, 1000, batch -> {
+            statements[0]++;
+            for (Integer row : batch) {
+                if (bad.contains(row)) {
+                    throw new IllegalStateException("bad row " + row);
+                }
+            }
+        }, new BulkInsertEngine.Listener<Integer>() {
+            @Override
+            public void onInserted(List<Integer> batch) {
+                inserted.addAll(batch);
+            }
+
+            @Override
+            public void onFailed(int index, Integer row, RuntimeException error) {
+                failedIndexes.add(index);
+                assertEquals("bad row " + row, error.getMessage());
+            }
+        });
+
+        assertEquals(98, inserted.size());
+        assertFalse(inserted.contains(7));
+        assertFalse(inserted.contains(63));
+        assertEquals(Arrays.asList(1007, 1063), failedIndexes);
+        // 两条坏数据各需要约log2(100)层二分，远少于逐条插入的100条语句
+        assertTrue(statements[0] < 30, "statements: " + statements[0]);
+    }
+
+    @Test
+    public void testBuildInsertSql() {
+        BulkInsertTable<String[]> table = BulkInsertTable.<String[]>of("user", null)
+                .column("username", row -> row[0])
+                .column("phone", row -> row[1]);
+
+        assertEquals("INSERT INTO `user` (`username`, `phone`) VALUES (?, ?), (?, ?), (?, ?)", table.buildInsertSql(3));
+        assertEquals(2, table.getColumnCount());
+        assertEquals("13800000000", table.getValue(new String[]{"alice", "13800000000"}, 1));
+    }
+}
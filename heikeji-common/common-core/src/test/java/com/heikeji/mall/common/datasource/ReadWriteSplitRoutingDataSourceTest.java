@@ -0,0 +1,90 @@
+package com.heikeji.mall.common.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读写分离路由测试
+ */
+public class ReadWriteSplitRoutingDataSourceTest {
+
+    @AfterEach
+    public void tearDown() {
+        DataSourceContextHolder.clear();
+    }
+
+    @Test
+    public void testMasterUnlessSlaveSelected() {
+        ReplicaNode replica = new ReplicaNode("SLAVE_0", null, 1);
+        ReadWriteSplitRoutingDataSource dataSource =
+                new ReadWriteSplitRoutingDataSource(null, Collections.singletonList(replica), 5);
+
+        assertEquals("MASTER", dataSource.determineCurrentLookupKey());
+        DataSourceContextHolder.setMaster();
+        assertEquals("MASTER", dataSource.determineCurrentLookupKey());
+        DataSourceContextHolder.setSlave();
+        assertEquals("SLAVE_0", dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    public void testLaggingAndUnhealthyReplicasSkipped() {
+        ReplicaNode lagging = new ReplicaNode("SLAVE_0", null, 1);
+        ReplicaNode healthy = new ReplicaNode("SLAVE_1", null, 1);
+        ReplicaNode down = new ReplicaNode("SLAVE_2", null, 1);
+        lagging.recordProbe(30, 100);
+        healthy.recordProbe(0, 100);
+        down.markUnhealthy();
+        ReadWriteSplitRoutingDataSource dataSource =
+                new ReadWriteSplitRoutingDataSource(null, Arrays.asList(lagging, healthy, down), 5);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("SLAVE_1", dataSource.selectReplica());
+        }
+
+        healthy.markUnhealthy();
+        assertEquals("MASTER", dataSource.selectReplica());
+
+        lagging.recordProbe(1, 100);
+        assertEquals("SLAVE_0", dataSource.selectReplica());
+    }
+
+    @Test
+    public void testFasterReplicaPreferred() {
+        ReplicaNode fast = new ReplicaNode("SLAVE_0", null, 1);
+        ReplicaNode slow = new ReplicaNode("SLAVE_1", null, 1);
+        fast.recordProbe(0, 200);
+        slow.recordProbe(0, 5000);
+        ReadWriteSplitRoutingDataSource dataSource =
+                new ReadWriteSplitRoutingDataSource(null, Arrays.asList(fast, slow), 5);
+
+        // 两个从库时两次选择必然覆盖两者，总是选中耗时低的
+        Set<String> chosen = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            chosen.add(dataSource.selectReplica());
+        }
+        assertEquals(Collections.singleton("SLAVE_0"), chosen);
+    }
+
+    @Test
+    public void testReadYourWritesWindow() throws Exception {
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(50, null);
+        assertFalse(tracker.isPinned("1001"));
+        assertFalse(tracker.isPinned(null));
+
+        tracker.recordWrite("1001");
+        assertTrue(tracker.isPinned("1001"));
+        assertFalse(tracker.isPinned("1002"));
+
+        Thread.sleep(80);
+        assertFalse(tracker.isPinned("1001"));
+        tracker.evictExpired();
+        assertEquals(0, tracker.size());
+    }
+}
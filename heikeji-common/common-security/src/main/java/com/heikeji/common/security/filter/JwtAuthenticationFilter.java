@@ -1,11 +1,13 @@
 package com.heikeji.common.security.filter;
 
+import com.heikeji.common.core.security.TokenRevocationSet;
+import com.heikeji.common.core.security.VerifiedToken;
 import com.heikeji.common.security.utils.JwtUtils;
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
@@ -25,17 +27,22 @@ import java.util.ArrayList;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    @Autowired(required = false)
+    private TokenRevocationSet tokenRevocationSet;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
             // 从请求头获取token
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && JwtUtils.validateToken(jwt)) {
+            // 黑名单检查、验签和过期检查一次完成，验签结果存入请求属性供下游读取
+            VerifiedToken verifiedToken = StringUtils.hasText(jwt) ? JwtUtils.verify(jwt) : null;
+            if (verifiedToken != null && (tokenRevocationSet == null
+                    || !tokenRevocationSet.isRevoked(verifiedToken.getTokenHash()))) {
                 // 从token中获取用户信息
-                Claims claims = JwtUtils.getClaimsFromToken(jwt);
-                String username = claims.getSubject();
-                Long userId = JwtUtils.getUserIdFromToken(jwt);
+                String username = verifiedToken.getSubject();
+                request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
 
                 // 创建认证对象
                 UserDetails userDetails = new User(username, "", new ArrayList<>());
@@ -1,5 +1,7 @@
 package com.heikeji.common.security.utils;
 
+import com.heikeji.common.core.security.VerifiedToken;
+import com.heikeji.common.core.security.VerifiedTokenCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -13,6 +15,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * JWT工具类
@@ -33,8 +36,11 @@ public class JwtUtils {
     // Token请求头名
     public static final String TOKEN_HEADER = "Authorization";
     
-    // Token黑名单（简单实现，实际项目中应使用Redis等持久化存储）
-    private static final Map<String, Long> TOKEN_BLACKLIST = new HashMap<>();
+    // Token黑名单，键为Token摘要，值为Token过期时间（本地实现，跨节点吊销由common-core的TokenRevocationSet同步）
+    private static final Map<String, Long> TOKEN_BLACKLIST = new ConcurrentHashMap<>();
+
+    // 已验签Token缓存，同一Token只验签一次
+    private static final VerifiedTokenCache VERIFIED_TOKENS = new VerifiedTokenCache();
 
     /**
      * 生成token
@@ -125,39 +131,73 @@ public class JwtUtils {
     }
 
     /**
-     * 从Token中获取UserId
+     * 获取已验签的Token，同一Token只在首次调用时验签和解析，之后直到过期都从缓存读取
+     * 不检查黑名单，解析失败时抛出的异常与 {@link #getClaimsFromToken(String)} 一致
      */
-    public static Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        Object userId = claims.get("userId");
-        if (userId == null) {
-            return null;
+    public static VerifiedToken parseVerifiedToken(String token) {
+        if (StringUtils.isBlank(token)) {
+            throw new IllegalArgumentException("Token cannot be blank");
         }
-        // 处理userId可能是String或Long的情况
-        if (userId instanceof Long) {
-            return (Long) userId;
-        } else if (userId instanceof String) {
-            return Long.valueOf((String) userId);
-        } else if (userId instanceof Integer) {
-            return ((Integer) userId).longValue();
+        String cleanToken = cleanTokenPrefix(token);
+        return parseVerifiedToken(cleanToken, VerifiedTokenCache.hash(cleanToken));
+    }
+
+    private static VerifiedToken parseVerifiedToken(String cleanToken, String tokenHash) {
+        VerifiedToken verifiedToken = VERIFIED_TOKENS.get(tokenHash);
+        if (verifiedToken == null) {
+            verifiedToken = VerifiedToken.of(tokenHash, getClaimsFromToken(cleanToken));
+            VERIFIED_TOKENS.put(verifiedToken);
+        }
+        return verifiedToken;
+    }
+
+    /**
+     * 验证Token并返回已验签的声明，一次完成黑名单检查、验签和过期检查
+     *
+     * @param token Token字符串
+     * @return 已验签Token，Token无效、已过期或已列入黑名单时返回null
+     */
+    public static VerifiedToken verify(String token) {
+        try {
+            if (StringUtils.isBlank(token)) {
+                return null;
+            }
+            String cleanToken = cleanTokenPrefix(token);
+            String tokenHash = VerifiedTokenCache.hash(cleanToken);
+            // 检查Token是否在黑名单中
+            if (isHashInBlacklist(tokenHash)) {
+                logger.warn("Token已被列入黑名单: {}", token);
+                return null;
+            }
+
+            VerifiedToken verifiedToken = parseVerifiedToken(cleanToken, tokenHash);
+            return verifiedToken.isExpired(System.currentTimeMillis()) ? null : verifiedToken;
+        } catch (Exception e) {
+            logger.error("验证Token失败: {}", e.getMessage());
+            return null;
         }
-        return null;
+    }
+
+    /**
+     * 从Token中获取UserId
+     */
+    public static Long getUserIdFromToken(String token) {
+        // 处理userId可能是String、Long或Integer的情况
+        return parseVerifiedToken(token).getClaim("userId", Long.class);
     }
 
     /**
      * 从Token中获取OpenId
      */
     public static String getOpenIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("openId", String.class);
+        return parseVerifiedToken(token).getClaim("openId", String.class);
     }
 
     /**
      * 从Token中获取Username
      */
     public static String getUsernameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("username", String.class);
+        return parseVerifiedToken(token).getClaim("username", String.class);
     }
 
     /**
@@ -172,8 +212,7 @@ public class JwtUtils {
      * 获取token的过期时间
      */
     public static Date getExpirationDateFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.getExpiration();
+        return parseVerifiedToken(token).getExpiration();
     }
 
     /**
@@ -211,7 +250,9 @@ public class JwtUtils {
             
             if (remainingExpiration > 0) {
                 // 如果Token还有效，将其加入黑名单并设置过期时间
-                TOKEN_BLACKLIST.put(cleanToken, System.currentTimeMillis() + remainingExpiration);
+                String tokenHash = VerifiedTokenCache.hash(cleanToken);
+                TOKEN_BLACKLIST.put(tokenHash, System.currentTimeMillis() + remainingExpiration);
+                VERIFIED_TOKENS.remove(tokenHash);
                 logger.info("Token已加入黑名单: {}, 剩余有效期: {}ms", cleanToken, remainingExpiration);
             } else {
                 logger.info("Token已过期，无需加入黑名单: {}", cleanToken);
@@ -230,13 +271,19 @@ public class JwtUtils {
      * @return 是否在黑名单中
      */
     public static boolean isTokenInBlacklist(String token) {
+        if (StringUtils.isBlank(token)) {
+            return false;
+        }
         // 清理Token前缀
-        String cleanToken = cleanTokenPrefix(token);
-        
-        // 清理过期的黑名单条目
-        cleanExpiredBlacklist();
-        
-        return TOKEN_BLACKLIST.containsKey(cleanToken);
+        return isHashInBlacklist(VerifiedTokenCache.hash(cleanTokenPrefix(token)));
+    }
+
+    /**
+     * 按Token摘要检查黑名单，只查单个条目，过期条目在添加黑名单和统计时统一清理
+     */
+    private static boolean isHashInBlacklist(String tokenHash) {
+        Long expireAt = TOKEN_BLACKLIST.get(tokenHash);
+        return expireAt != null && expireAt >= System.currentTimeMillis();
     }
     
     /**
@@ -251,19 +298,7 @@ public class JwtUtils {
      * 验证token是否有效
      */
     public static Boolean validateToken(String token) {
-        try {
-            // 检查Token是否在黑名单中
-            if (isTokenInBlacklist(token)) {
-                logger.warn("Token已被列入黑名单: {}", token);
-                return false;
-            }
-            
-            Claims claims = getClaimsFromToken(token);
-            return claims.getExpiration().after(new Date());
-        } catch (Exception e) {
-            logger.error("验证Token失败: {}", e.getMessage());
-            return false;
-        }
+        return verify(token) != null;
     }
 
     /**
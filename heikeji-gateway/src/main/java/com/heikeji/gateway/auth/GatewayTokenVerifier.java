@@ -0,0 +1,60 @@
+package com.heikeji.gateway.auth;
+
+import com.heikeji.common.core.security.JwtUtils;
+import com.heikeji.common.core.security.VerifiedToken;
+import com.heikeji.common.core.security.VerifiedTokenCache;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+
+/**
+ * 网关Token验证器
+ * 签名密钥启动时创建一次；验签结果按Token摘要缓存到过期，同一Token的后续请求只做一次摘要计算。
+ * 验签只涉及CPU计算，不访问网络，可以直接在事件循环线程上执行。
+ * 网关不连接Redis，吊销检查由下游服务根据转发的Token摘要在本地完成。
+ */
+@Component
+@Slf4j
+public class GatewayTokenVerifier {
+
+    private final SecretKey signingKey;
+
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
+
+    public GatewayTokenVerifier(
+            @Value("${gateway.security.jwt.secret:heikeji-mall-secret-key-2024-black-technology-university-campus-mall-system}") String secret) {
+        this.signingKey = JwtUtils.createSigningKey(secret);
+    }
+
+    /**
+     * 验证Token
+     *
+     * @param token Token字符串（不含Bearer前缀）
+     * @return 已验签Token，Token无效或已过期时返回null
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String tokenHash = VerifiedTokenCache.hash(token);
+        VerifiedToken verifiedToken = verifiedTokenCache.get(tokenHash);
+        if (verifiedToken == null) {
+            try {
+                verifiedToken = VerifiedToken.of(tokenHash, Jwts.parser()
+                        .verifyWith(signingKey)
+                        .build()
+                        .parseSignedClaims(token)
+                        .getPayload());
+            } catch (JwtException | IllegalArgumentException e) {
+                log.debug("[Gateway] Token验证失败: {}", e.getMessage());
+                return null;
+            }
+            verifiedTokenCache.put(verifiedToken);
+        }
+        return verifiedToken.isExpired(System.currentTimeMillis()) ? null : verifiedToken;
+    }
+}
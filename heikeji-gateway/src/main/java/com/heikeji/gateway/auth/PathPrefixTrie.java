@@ -0,0 +1,53 @@
+package com.heikeji.gateway.auth;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路径前缀字典树
+ * 启动时把白名单前缀编译成字典树，匹配时沿请求路径逐字符下行，
+ * 耗时只与路径长度有关，不随白名单条数增长。构建完成后只读，可并发使用。
+ */
+public final class PathPrefixTrie {
+
+    private final Node root = new Node();
+
+    public PathPrefixTrie(Collection<String> prefixes) {
+        for (String prefix : prefixes) {
+            add(prefix);
+        }
+    }
+
+    private void add(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * 路径是否以任一前缀开头
+     */
+    public boolean matches(String path) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            if (node.terminal) {
+                return true;
+            }
+            node = node.children.get(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>(4);
+
+        private boolean terminal;
+    }
+}
@@ -0,0 +1,90 @@
+package com.heikeji.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * 缓存的上游响应，创建后不可变，续期时创建新实例替换
+ */
+public final class CachedResponse {
+
+    /**
+     * 除响应体外每个条目的估算开销（字节）
+     */
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private final int status;
+
+    private final HttpHeaders headers;
+
+    private final byte[] body;
+
+    private final String etag;
+
+    private final String upstreamEtag;
+
+    private final boolean shared;
+
+    private final long expiresAt;
+
+    /**
+     * @param status       状态码
+     * @param headers      需要回放的响应头
+     * @param body         响应体
+     * @param etag         返回给客户端的ETag
+     * @param upstreamEtag 上游返回的ETag，用于过期后向上游条件请求，没有时为null
+     * @param shared       上游声明public，可以返回给已登录用户
+     * @param expiresAt    过期时间戳（毫秒）
+     */
+    public CachedResponse(int status, HttpHeaders headers, byte[] body, String etag, String upstreamEtag,
+                          boolean shared, long expiresAt) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.etag = etag;
+        this.upstreamEtag = upstreamEtag;
+        this.shared = shared;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 上游确认未修改后续期
+     */
+    public CachedResponse renew(long expiresAt) {
+        return new CachedResponse(status, headers, body, etag, upstreamEtag, shared, expiresAt);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getUpstreamEtag() {
+        return upstreamEtag;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    /**
+     * 估算占用内存（字节）
+     */
+    public long weight(String key) {
+        return body.length + key.length() * 2L + ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,74 @@
+package com.heikeji.gateway.cache;
+
+import com.heikeji.common.core.constant.CacheConstants;
+import com.heikeji.gateway.config.ResponseCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 网关响应缓存清除通知监听器
+ * 业务服务数据变更后向 {@link CacheConstants#GATEWAY_RESPONSE_CACHE_PURGE_CHANNEL} 发布路径前缀，
+ * 网关收到后清除对应的缓存响应。未开启订阅时缓存只按过期时间失效。
+ */
+@Slf4j
+@Component
+public class ResponseCachePurgeListener implements InitializingBean, DisposableBean {
+
+    private final ResponseCacheStore store;
+
+    private final ResponseCacheProperties properties;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    private volatile RedisMessageListenerContainer listenerContainer;
+
+    public ResponseCachePurgeListener(ResponseCacheStore store, ResponseCacheProperties properties) {
+        this.store = store;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isEnabled() || !properties.isPurgeChannelEnabled() || redisConnectionFactory == null) {
+            return;
+        }
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisConnectionFactory);
+            container.addMessageListener(this::onMessage,
+                    new ChannelTopic(CacheConstants.GATEWAY_RESPONSE_CACHE_PURGE_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+        } catch (Exception e) {
+            log.warn("[Gateway] 订阅响应缓存清除通知失败，缓存只按过期时间失效: {}", e.getMessage());
+        }
+    }
+
+    private void onMessage(Message message, byte[] pattern) {
+        String pathPrefix = new String(message.getBody(), StandardCharsets.UTF_8).trim();
+        int purged = store.purge(pathPrefix);
+        log.debug("[Gateway] 清除响应缓存，路径前缀: {}，清除条目数: {}", pathPrefix, purged);
+    }
+
+    @Override
+    public void destroy() {
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                log.warn("[Gateway] 关闭响应缓存清除通知订阅失败: {}", e.getMessage());
+            }
+        }
+    }
+}
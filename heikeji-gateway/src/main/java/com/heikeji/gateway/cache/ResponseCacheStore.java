@@ -0,0 +1,80 @@
+package com.heikeji.gateway.cache;
+
+import com.heikeji.gateway.config.ResponseCacheProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 网关响应缓存存储
+ * 按访问顺序维护条目，总大小按响应体字节数估算，超过上限时淘汰最久未访问的条目。
+ * 过期条目不会立即删除，保留给带ETag的条件回源使用，由容量淘汰回收。
+ */
+@Component
+public class ResponseCacheStore {
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalBytes;
+
+    public ResponseCacheStore(ResponseCacheProperties properties) {
+        this.maxBytes = properties.getMaxBytes();
+    }
+
+    /**
+     * 获取缓存的响应，可能已过期
+     */
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, CachedResponse response) {
+        long weight = response.weight(key);
+        if (weight > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            totalBytes -= previous.weight(key);
+        }
+        totalBytes += weight;
+        Iterator<Map.Entry<String, CachedResponse>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedResponse> eldest = iterator.next();
+            totalBytes -= eldest.getValue().weight(eldest.getKey());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 清除路径以指定前缀开头的全部响应
+     *
+     * @param pathPrefix 路径前缀，为空时清除全部
+     * @return 清除的条目数
+     */
+    public synchronized int purge(String pathPrefix) {
+        int purged = 0;
+        Iterator<Map.Entry<String, CachedResponse>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedResponse> entry = iterator.next();
+            if (pathPrefix == null || pathPrefix.isEmpty() || entry.getKey().startsWith(pathPrefix)) {
+                totalBytes -= entry.getValue().weight(entry.getKey());
+                iterator.remove();
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
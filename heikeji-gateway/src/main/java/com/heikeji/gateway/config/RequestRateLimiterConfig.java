@@ -1,5 +1,6 @@
 package com.heikeji.gateway.config;
 
+import com.heikeji.gateway.util.ClientIpUtils;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,7 +16,7 @@ public class RequestRateLimiterConfig {
 
     /**
      * 基于用户的限流策略
-     * 从请求头或查询参数中获取用户标识
+     * 从网关验证Token后写入的身份头或查询参数中获取用户标识
      */
     @Bean("userKeyResolver")
     public KeyResolver userKeyResolver() {
@@ -37,15 +38,12 @@ public class RequestRateLimiterConfig {
 
     /**
      * 基于IP的限流策略
-     * 使用请求的远程地址作为限流键
+     * 使用客户端IP作为限流键，不做反向DNS查询
      */
     @Primary
     @Bean("ipKeyResolver")
     public KeyResolver ipKeyResolver() {
-        return exchange -> Mono.just(
-                exchange.getRequest().getRemoteAddress() != null ? 
-                exchange.getRequest().getRemoteAddress().getHostName() : "unknown_ip"
-        );
+        return exchange -> Mono.just(ClientIpUtils.resolve(exchange.getRequest()));
     }
 
     /**
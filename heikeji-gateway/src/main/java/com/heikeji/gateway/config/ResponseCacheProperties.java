@@ -0,0 +1,53 @@
+package com.heikeji.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关响应缓存配置
+ * 从application.yml中读取gateway.response-cache.*配置项
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 是否启用响应缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的GET路径前缀
+     */
+    private List<String> paths = new ArrayList<>();
+
+    /**
+     * 缓存占用内存上限（字节），超出后淘汰最久未访问的响应
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 单个响应体大小上限（字节），超出的响应不缓存
+     */
+    private int maxEntryBytes = 1024 * 1024;
+
+    /**
+     * 上游未返回max-age时的缓存时间（秒）
+     */
+    private long defaultTtlSeconds = 10;
+
+    /**
+     * 等待并发的相同请求回源结果的超时时间（毫秒），超时后自行回源
+     */
+    private long coalesceTimeoutMillis = 3000;
+
+    /**
+     * 是否订阅Redis清除通知，网关未连接Redis时保持关闭
+     */
+    private boolean purgeChannelEnabled = false;
+}
@@ -2,29 +2,38 @@ package com.heikeji.gateway.filter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.heikeji.common.core.security.GatewayAuthHeaders;
+import com.heikeji.common.core.security.VerifiedToken;
+import com.heikeji.gateway.auth.GatewayTokenVerifier;
+import com.heikeji.gateway.auth.PathPrefixTrie;
+import com.heikeji.gateway.util.ClientIpUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 全局网关过滤器
  * 处理请求日志、认证检查、参数校验等
+ * 在网关统一验签Token，验证通过后把用户身份写入签名的身份头转发，下游服务无需重复验签
  */
 @Component
 @Slf4j
@@ -62,67 +71,106 @@ public class GlobalGatewayFilter implements GlobalFilter, Ordered {
             "/fallback"
     );
 
+    private static final PathPrefixTrie WHITE_LIST_TRIE = new PathPrefixTrie(WHITE_LIST);
+
+    @Autowired
+    private GatewayTokenVerifier gatewayTokenVerifier;
+
+    /**
+     * 非白名单路径是否强制要求有效Token，关闭时未认证请求照常转发，由下游服务自行判断
+     */
+    @Value("${gateway.security.enforce-auth:false}")
+    private boolean enforceAuth;
+
+    /**
+     * 身份头签名密钥，与下游服务的 heikeji.security.gateway-auth-secret 一致，留空则只转发不签名
+     */
+    @Value("${heikeji.security.gateway-auth-secret:}")
+    private String gatewayAuthSecret;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         long startTime = System.currentTimeMillis();
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getURI().getPath();
         String method = request.getMethod() != null ? request.getMethod().name() : "unknown";
-        String clientIp = request.getRemoteAddress() != null ? 
-                          request.getRemoteAddress().getHostString() : "unknown";
-        
-        // 记录请求开始日志
-        log.info("[Gateway] 收到请求: {} {} 来自IP: {}", method, path, clientIp);
-        
-        // 记录Authorization头
-        String authHeader = request.getHeaders().getFirst("Authorization");
-        if (StringUtils.isNotBlank(authHeader)) {
-            log.info("[Gateway] Authorization头: {}", maskToken(authHeader));
-        } else {
-            log.info("[Gateway] 无Authorization头");
+
+        if (log.isDebugEnabled()) {
+            log.debug("[Gateway] 收到请求: {} {} 来自IP: {}", method, path, ClientIpUtils.resolve(request));
+            if ("GET".equals(method)) {
+                log.debug("[Gateway] 请求参数: {}", request.getQueryParams().toSingleValueMap());
+            }
         }
-        
+
         // 检查白名单
-        boolean isWhiteList = WHITE_LIST.stream().anyMatch(whitePath -> 
-                path.startsWith(whitePath) || path.equals(whitePath)
-        );
-        
-        // 非白名单路径进行认证检查
-        // TODO: 暂时禁用认证检查以测试Gateway路由
-        // if (!isWhiteList) {
-        //     String token = extractToken(request);
-        //     if (StringUtils.isBlank(token)) {
-        //         return handleUnauthorized(exchange, "未提供认证令牌");
-        //     }
-        //     
-        //     // 这里可以添加token验证逻辑
-        //     // 暂时跳过具体验证，仅打印token信息
-        //     log.debug("[Gateway] 验证token: {}", maskToken(token));
-        // }
-        
-        // 记录请求参数（GET请求）
-        if ("GET".equals(method)) {
-            Map<String, String> queryParams = request.getQueryParams().toSingleValueMap();
-            log.debug("[Gateway] 请求参数: {}", queryParams);
-        } 
-        // 对于POST等请求，可以读取请求体，但需要注意不影响后续处理
-        else if (Arrays.asList("POST", "PUT", "PATCH").contains(method)) {
-            // 这里可以根据需要读取请求体
-            // 注意：读取请求体需要特殊处理，避免流被消费后无法再次读取
-            log.debug("[Gateway] 检测到非GET请求，如需记录请求体请实现相应逻辑");
+        boolean isWhiteList = WHITE_LIST_TRIE.matches(path);
+
+        // 白名单路径携带Token时同样验证，便于下游返回个性化数据
+        String token = extractToken(request);
+        VerifiedToken verifiedToken = gatewayTokenVerifier.verify(token);
+        if (verifiedToken == null && enforceAuth && !isWhiteList) {
+            return handleUnauthorized(exchange, StringUtils.isBlank(token) ? "未提供认证令牌" : "认证令牌无效或已过期");
         }
-        
+
+        // 客户端自带的身份头一律移除，只转发网关验证过的身份
+        ServerHttpRequest mutatedRequest = request.mutate()
+                .headers(headers -> {
+                    for (String name : GatewayAuthHeaders.ALL) {
+                        headers.remove(name);
+                    }
+                    if (verifiedToken != null && verifiedToken.getUserId() != null) {
+                        addIdentityHeaders(headers, verifiedToken);
+                    }
+                })
+                .build();
+
         // 继续过滤器链
-        return chain.filter(exchange).then(Mono.fromRunnable(() -> {
-            long endTime = System.currentTimeMillis();
-            ServerHttpResponse response = exchange.getResponse();
-            int statusCode = response.getStatusCode().value();
-            
-            // 记录请求结束日志
-            log.info("[Gateway] 请求完成: {} {} 状态: {} 耗时: {}ms", 
-                     method, path, statusCode, (endTime - startTime));
+        return chain.filter(exchange.mutate().request(mutatedRequest).build()).then(Mono.fromRunnable(() -> {
+            if (log.isDebugEnabled()) {
+                HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+                log.debug("[Gateway] 请求完成: {} {} 状态: {} 耗时: {}ms",
+                        method, path, statusCode != null ? statusCode.value() : 0, System.currentTimeMillis() - startTime);
+            }
         }));
     }
+
+    /**
+     * 写入身份头，配置了签名密钥时附带签名
+     */
+    private void addIdentityHeaders(HttpHeaders headers, VerifiedToken verifiedToken) {
+        String userId = verifiedToken.getUserId();
+        String userName = GatewayAuthHeaders.encode(verifiedToken.getUsername());
+        String roles = GatewayAuthHeaders.encode(extractRoles(verifiedToken));
+        String tokenHash = verifiedToken.getTokenHash();
+        headers.set(GatewayAuthHeaders.USER_ID, userId);
+        if (userName != null) {
+            headers.set(GatewayAuthHeaders.USER_NAME, userName);
+        }
+        if (roles != null) {
+            headers.set(GatewayAuthHeaders.USER_ROLES, roles);
+        }
+        headers.set(GatewayAuthHeaders.TOKEN_HASH, tokenHash);
+        if (StringUtils.isNotEmpty(gatewayAuthSecret)) {
+            long timestamp = System.currentTimeMillis();
+            headers.set(GatewayAuthHeaders.TIMESTAMP, String.valueOf(timestamp));
+            headers.set(GatewayAuthHeaders.SIGNATURE,
+                    GatewayAuthHeaders.sign(gatewayAuthSecret, userId, userName, roles, tokenHash, timestamp));
+        }
+    }
+
+    /**
+     * 读取角色声明，多个角色以逗号分隔
+     */
+    private String extractRoles(VerifiedToken verifiedToken) {
+        Object roles = verifiedToken.getClaims().get("roles");
+        if (roles == null) {
+            roles = verifiedToken.getClaims().get("role");
+        }
+        if (roles instanceof Collection) {
+            return ((Collection<?>) roles).stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        return roles != null ? roles.toString() : null;
+    }
     
     /**
      * 从请求中提取token
@@ -161,16 +209,6 @@ public class GlobalGatewayFilter implements GlobalFilter, Ordered {
         }
     }
     
-    /**
-     * 隐藏token敏感信息
-     */
-    private String maskToken(String token) {
-        if (token.length() <= 8) {
-            return "******" + token.substring(token.length() - 2);
-        }
-        return token.substring(0, 6) + "******" + token.substring(token.length() - 6);
-    }
-
     @Override
     public int getOrder() {
         // 设置过滤器顺序，数值越小优先级越高
@@ -0,0 +1,433 @@
+package com.heikeji.gateway.filter;
+
+import com.heikeji.common.core.security.GatewayAuthHeaders;
+import com.heikeji.gateway.auth.PathPrefixTrie;
+import com.heikeji.gateway.cache.CachedResponse;
+import com.heikeji.gateway.cache.ResponseCacheStore;
+import com.heikeji.gateway.config.ResponseCacheProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 网关响应缓存过滤器
+ * 缓存配置路径下GET请求的响应，缓存键为规范化路径加排序后的查询参数：
+ * 1. 命中未过期缓存直接返回，客户端If-None-Match与ETag一致时返回304；
+ * 2. 并发的相同请求只有一个回源，其余等待同一结果；
+ * 3. 过期条目带有上游ETag时向上游条件请求，上游返回304则续期并返回缓存内容；
+ * 4. 遵循上游Cache-Control，no-store、private、no-cache和带Set-Cookie的响应不缓存，
+ *    已登录用户只能读取上游声明为public的响应。
+ * 顺序在认证过滤器之后、写回响应的过滤器之前，以便包装响应体。
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    /**
+     * 回放缓存响应时恢复的上游响应头
+     */
+    private static final List<String> REPLAYED_HEADERS = Arrays.asList(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.LAST_MODIFIED
+    );
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final ResponseCacheProperties properties;
+
+    private final ResponseCacheStore store;
+
+    private final PathPrefixTrie cacheablePaths;
+
+    /**
+     * 正在回源的请求，键为缓存键
+     */
+    private final Map<String, Sinks.One<CachedResponse>> inflight = new ConcurrentHashMap<>();
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, ResponseCacheStore store) {
+        this.properties = properties;
+        this.store = store;
+        this.cacheablePaths = new PathPrefixTrie(properties.getPaths());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || request.getMethod() != HttpMethod.GET
+                || !cacheablePaths.matches(request.getURI().getPath())) {
+            return chain.filter(exchange);
+        }
+
+        String key = cacheKey(request);
+        // 身份头由认证过滤器写入，存在即为已登录用户
+        boolean authenticated = request.getHeaders().containsKey(GatewayAuthHeaders.USER_ID);
+        CachedResponse cached = store.get(key);
+        if (cached != null && !cached.isShared() && authenticated) {
+            cached = null;
+        }
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return writeCached(exchange, cached, "HIT");
+        }
+
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Sinks.One<CachedResponse> leader = inflight.putIfAbsent(key, sink);
+        CachedResponse stale = cached;
+        if (leader != null) {
+            return leader.asMono()
+                    .timeout(Duration.ofMillis(properties.getCoalesceTimeoutMillis()))
+                    .onErrorResume(e -> Mono.empty())
+                    .filter(response -> response.isShared() || !authenticated)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(response -> response.isPresent()
+                            ? writeCached(exchange, response.get(), "HIT")
+                            : fetch(exchange, chain, key, stale, authenticated, null));
+        }
+        return fetch(exchange, chain, key, stale, authenticated, sink)
+                .doFinally(signal -> {
+                    inflight.remove(key, sink);
+                    sink.tryEmitEmpty();
+                });
+    }
+
+    /**
+     * 回源，去掉客户端的条件请求头以取得完整响应，过期条目带上游ETag时改为向上游条件请求
+     */
+    private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key, CachedResponse stale,
+                             boolean authenticated, Sinks.One<CachedResponse> sink) {
+        ServerHttpRequest upstreamRequest = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (stale != null && stale.getUpstreamEtag() != null) {
+                        headers.set(HttpHeaders.IF_NONE_MATCH, stale.getUpstreamEtag());
+                    }
+                })
+                .build();
+        CachingResponse response = new CachingResponse(exchange, key, stale, authenticated, sink);
+        return chain.filter(exchange.mutate().request(upstreamRequest).response(response).build());
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached, String cacheStatus) {
+        ServerHttpResponse response = exchange.getResponse();
+        byte[] body = applyCached(response, cached, cacheStatus, exchange.getRequest());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * 把缓存的状态码和响应头写入响应
+     *
+     * @return 需要写出的响应体，客户端缓存仍然有效时为空
+     */
+    private static byte[] applyCached(ServerHttpResponse response, CachedResponse cached, String cacheStatus,
+                                      ServerHttpRequest request) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        headers.set(HttpHeaders.ETAG, cached.getEtag());
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        if (matchesEtag(request.getHeaders().get(HttpHeaders.IF_NONE_MATCH), cached.getEtag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return EMPTY_BODY;
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(cached.getStatus()));
+        headers.setContentLength(cached.getBody().length);
+        return cached.getBody();
+    }
+
+    /**
+     * 缓存键：规范化路径 + 按参数名排序的查询参数
+     */
+    static String cacheKey(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(normalizePath(request.getURI().getPath()));
+        MultiValueMap<String, String> params = request.getQueryParams();
+        char separator = '?';
+        for (Map.Entry<String, List<String>> param : new TreeMap<>(params).entrySet()) {
+            String name = URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8);
+            for (String value : param.getValue()) {
+                key.append(separator).append(name).append('=')
+                        .append(value == null ? "" : URLEncoder.encode(value, StandardCharsets.UTF_8));
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 合并连续的斜杠并去掉末尾斜杠
+     */
+    static String normalizePath(String path) {
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || normalized.length() == 0 || normalized.charAt(normalized.length() - 1) != '/') {
+                normalized.append(c);
+            }
+        }
+        if (normalized.length() > 1 && normalized.charAt(normalized.length() - 1) == '/') {
+            normalized.setLength(normalized.length() - 1);
+        }
+        return normalized.toString();
+    }
+
+    static boolean matchesEtag(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String header : ifNoneMatch) {
+            for (String candidate : header.split(",")) {
+                candidate = candidate.trim();
+                if ("*".equals(candidate) || stripWeak(candidate).equals(opaque)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 解析Cache-Control，指令名转为小写，无参数的指令值为空字符串
+     */
+    static Map<String, String> parseCacheControl(List<String> values) {
+        Map<String, String> directives = new HashMap<>();
+        if (values == null) {
+            return directives;
+        }
+        for (String value : values) {
+            for (String directive : value.split(",")) {
+                String trimmed = directive.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int eq = trimmed.indexOf('=');
+                if (eq < 0) {
+                    directives.put(trimmed.toLowerCase(), "");
+                } else {
+                    directives.put(trimmed.substring(0, eq).trim().toLowerCase(),
+                            trimmed.substring(eq + 1).trim().replace("\"", ""));
+                }
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * 缓存时间（毫秒），优先取s-maxage，其次max-age，都没有时取默认值
+     */
+    private long ttlMillis(Map<String, String> cacheControl) {
+        String seconds = cacheControl.containsKey("s-maxage") ? cacheControl.get("s-maxage") : cacheControl.get("max-age");
+        if (seconds != null) {
+            try {
+                return Math.max(0L, Long.parseLong(seconds)) * 1000L;
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        }
+        return properties.getDefaultTtlSeconds() * 1000L;
+    }
+
+    private static String computeEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private static byte[] toBytes(List<DataBuffer> buffers) {
+        int length = 0;
+        for (DataBuffer buffer : buffers) {
+            length += buffer.readableByteCount();
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for (DataBuffer buffer : buffers) {
+            int count = buffer.readableByteCount();
+            buffer.read(bytes, offset, count);
+            offset += count;
+            DataBufferUtils.release(buffer);
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getOrder() {
+        // 在GlobalGatewayFilter(-100)写入身份头之后、NettyWriteResponseFilter(-1)写回响应之前
+        return -50;
+    }
+
+    /**
+     * 聚合上游响应体，可缓存时写入缓存并通知等待同一结果的请求
+     * 没有Content-Length的响应边读取边计数，超过缓存上限后不再聚合，已读取的部分连同剩余内容直接透传
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final ServerHttpRequest request;
+
+        private final String key;
+
+        private final CachedResponse stale;
+
+        private final boolean authenticated;
+
+        private final Sinks.One<CachedResponse> sink;
+
+        CachingResponse(ServerWebExchange exchange, String key, CachedResponse stale, boolean authenticated,
+                        Sinks.One<CachedResponse> sink) {
+            super(exchange.getResponse());
+            this.request = exchange.getRequest();
+            this.key = key;
+            this.stale = stale;
+            this.authenticated = authenticated;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode statusCode = getStatusCode();
+            int status = statusCode != null ? statusCode.value() : 0;
+            boolean revalidated = status == HttpStatus.NOT_MODIFIED.value() && stale != null;
+            long contentLength = getHeaders().getContentLength();
+            if (!revalidated && (status != HttpStatus.OK.value() || contentLength > properties.getMaxEntryBytes())) {
+                return super.writeWith(body);
+            }
+            if (revalidated) {
+                return Flux.from(body).doOnNext(DataBufferUtils::release).then(Mono.defer(this::writeRevalidated));
+            }
+            long maxEntryBytes = properties.getMaxEntryBytes();
+            AtomicLong received = new AtomicLong();
+            return Flux.from(body)
+                    // 未超过上限时在响应体结束时得到完整的一组，超过上限时立即得到已读取的部分
+                    .bufferUntil(buffer -> received.addAndGet(buffer.readableByteCount()) > maxEntryBytes)
+                    .switchOnFirst((first, chunks) -> {
+                        if (received.get() > maxEntryBytes) {
+                            emit(null);
+                            return super.writeWith(chunks.concatMapIterable(buffers -> buffers));
+                        }
+                        return chunks.next()
+                                .map(ResponseCacheFilter::toBytes)
+                                .defaultIfEmpty(EMPTY_BODY)
+                                .flatMap(this::writeFetched);
+                    })
+                    .then();
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).flatMapSequential(p -> p));
+        }
+
+        /**
+         * 上游确认未修改，续期并返回缓存内容
+         */
+        private Mono<Void> writeRevalidated() {
+            Map<String, String> cacheControl = parseCacheControl(getHeaders().get(HttpHeaders.CACHE_CONTROL));
+            CachedResponse renewed = stale.renew(System.currentTimeMillis() + ttlMillis(cacheControl));
+            store.put(key, renewed);
+            emit(renewed);
+            return write(applyCached(getDelegate(), renewed, "REVALIDATED", request));
+        }
+
+        private Mono<Void> writeFetched(byte[] bytes) {
+            HttpHeaders headers = getHeaders();
+            CachedResponse entry = toCachedResponse(headers, bytes);
+            if (entry == null) {
+                emit(null);
+                return write(bytes);
+            }
+            store.put(key, entry);
+            emit(entry);
+            return write(applyCached(getDelegate(), entry, "MISS", request));
+        }
+
+        /**
+         * 按上游响应头判断能否缓存
+         *
+         * @return 可缓存时返回缓存条目，否则返回null
+         */
+        private CachedResponse toCachedResponse(HttpHeaders headers, byte[] bytes) {
+            if (bytes.length > properties.getMaxEntryBytes()
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+                return null;
+            }
+            Map<String, String> cacheControl = parseCacheControl(headers.get(HttpHeaders.CACHE_CONTROL));
+            boolean shared = cacheControl.containsKey("public");
+            if (cacheControl.containsKey("no-store") || cacheControl.containsKey("private")
+                    || cacheControl.containsKey("no-cache") || (authenticated && !shared)) {
+                return null;
+            }
+            long ttl = ttlMillis(cacheControl);
+            if (ttl <= 0) {
+                return null;
+            }
+            HttpHeaders replayed = new HttpHeaders();
+            for (String name : REPLAYED_HEADERS) {
+                List<String> values = headers.get(name);
+                if (values != null) {
+                    replayed.put(name, values);
+                }
+            }
+            String upstreamEtag = headers.getFirst(HttpHeaders.ETAG);
+            String etag = upstreamEtag != null ? upstreamEtag : computeEtag(bytes);
+            return new CachedResponse(HttpStatus.OK.value(), replayed, bytes, etag, upstreamEtag, shared,
+                    System.currentTimeMillis() + ttl);
+        }
+
+        private void emit(CachedResponse entry) {
+            if (sink == null) {
+                return;
+            }
+            if (entry == null) {
+                sink.tryEmitEmpty();
+            } else {
+                sink.tryEmitValue(entry);
+            }
+        }
+
+        private Mono<Void> write(byte[] bytes) {
+            return super.writeWith(Mono.fromSupplier(() -> bufferFactory().wrap(bytes)));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.heikeji.gateway.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * 客户端IP工具类
+ * 只读取已解析的地址字符串，不做反向DNS查询，避免阻塞事件循环线程
+ */
+public final class ClientIpUtils {
+
+    private ClientIpUtils() {
+    }
+
+    /**
+     * 获取客户端IP
+     * 直连地址是内网或本机地址时视为经过前置代理，依次取X-Real-IP和X-Forwarded-For最后一跳；
+     * 公网直连时忽略这两个请求头，防止客户端伪造IP绕过限流
+     */
+    public static String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null) {
+            return "unknown";
+        }
+        InetAddress address = remoteAddress.getAddress();
+        if (address != null && (address.isLoopbackAddress() || address.isSiteLocalAddress())) {
+            String realIp = request.getHeaders().getFirst("X-Real-IP");
+            if (StringUtils.isNotBlank(realIp)) {
+                return realIp.trim();
+            }
+            String forwardedFor = request.getHeaders().getFirst("X-Forwarded-For");
+            if (StringUtils.isNotBlank(forwardedFor)) {
+                String lastHop = forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+                if (!lastHop.isEmpty()) {
+                    return lastHop;
+                }
+            }
+        }
+        return remoteAddress.getHostString();
+    }
+}
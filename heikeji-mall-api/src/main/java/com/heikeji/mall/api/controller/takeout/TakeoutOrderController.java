@@ -1,5 +1,6 @@
 package com.heikeji.mall.api.controller.takeout;
 
+import com.heikeji.common.core.domain.ChunkResult;
 import com.heikeji.common.core.domain.R;
 import com.heikeji.mall.takeout.entity.TakeoutOrder;
 import com.heikeji.mall.takeout.service.TakeoutOrderService;
@@ -121,4 +122,16 @@ public class TakeoutOrderController {
         Integer releasedCount = takeoutOrderService.releaseTimeoutLockers(hours);
         return R.success(releasedCount);
     }
+    
+    /**
+     * 分块释放超时占用的外卖柜（供定时任务按主键游标分块调用）
+     */
+    @PostMapping("/release-timeout-lockers/chunk")
+    public R<ChunkResult> releaseTimeoutLockerChunk(@RequestParam Integer hours,
+                                                    @RequestParam(required = false) Long afterId,
+                                                    @RequestParam(defaultValue = "0") Integer shardIndex,
+                                                    @RequestParam(defaultValue = "1") Integer shardTotal,
+                                                    @RequestParam(defaultValue = "200") Integer limit) {
+        return R.success(takeoutOrderService.releaseTimeoutLockerChunk(hours, afterId, shardIndex, shardTotal, limit));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.heikeji.job.chunk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块任务检查点存储
+ * 每个分片处理完一块后记录游标，运行中断后下次从游标继续；分片处理完成后删除检查点，下次从头开始。
+ * 检查点按任务名和分片总数隔离，分片数调整后旧检查点不再使用并自然过期。
+ *
+ * @author heikeji
+ */
+@Component
+@Slf4j
+public class ChunkCheckpointStore {
+
+    /**
+     * Redis中检查点的键前缀
+     */
+    private static final String CHECKPOINT_KEY_PREFIX = "job:chunk:checkpoint:";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 检查点过期时间（小时）
+     */
+    @Value("${job.chunk.checkpoint-expire-hours:24}")
+    private long checkpointExpireHours;
+
+    /**
+     * 读取分片的游标
+     *
+     * @return 游标，没有检查点或读取失败时返回null
+     */
+    public Long load(String jobName, int shardTotal, int shardIndex) {
+        try {
+            Object cursor = redisTemplate.opsForHash().get(key(jobName, shardTotal), String.valueOf(shardIndex));
+            return cursor instanceof Number ? ((Number) cursor).longValue() : null;
+        } catch (Exception e) {
+            log.warn("读取分块任务检查点失败，任务: {}，分片: {}/{}: {}", jobName, shardIndex, shardTotal, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 记录分片的游标，写入失败时只影响中断后的续跑位置
+     */
+    public void save(String jobName, int shardTotal, int shardIndex, Long cursor) {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            String key = key(jobName, shardTotal);
+            redisTemplate.opsForHash().put(key, String.valueOf(shardIndex), cursor);
+            redisTemplate.expire(key, checkpointExpireHours, TimeUnit.HOURS);
+        } catch (Exception e) {
+            log.warn("保存分块任务检查点失败，任务: {}，分片: {}/{}: {}", jobName, shardIndex, shardTotal, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除分片的检查点
+     */
+    public void clear(String jobName, int shardTotal, int shardIndex) {
+        try {
+            redisTemplate.opsForHash().delete(key(jobName, shardTotal), String.valueOf(shardIndex));
+        } catch (Exception e) {
+            log.warn("删除分块任务检查点失败，任务: {}，分片: {}/{}: {}", jobName, shardIndex, shardTotal, e.getMessage());
+        }
+    }
+
+    private static String key(String jobName, int shardTotal) {
+        return CHECKPOINT_KEY_PREFIX + jobName + ":" + shardTotal;
+    }
+}
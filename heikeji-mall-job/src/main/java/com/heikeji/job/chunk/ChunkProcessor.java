@@ -0,0 +1,24 @@
+package com.heikeji.job.chunk;
+
+import com.heikeji.common.core.domain.ChunkResult;
+
+/**
+ * 分块处理器
+ * 处理一个分片中主键大于游标的下一块记录，每块应在业务服务的独立短事务中提交
+ *
+ * @author heikeji
+ */
+@FunctionalInterface
+public interface ChunkProcessor {
+
+    /**
+     * 处理下一块记录
+     *
+     * @param afterId    游标，为空时从分片开头处理
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit      每块最大记录数
+     * @return 本块处理结果
+     */
+    ChunkResult process(Long afterId, int shardIndex, int shardTotal, int limit);
+}
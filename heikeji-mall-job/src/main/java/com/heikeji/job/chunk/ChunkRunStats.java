@@ -0,0 +1,125 @@
+package com.heikeji.job.chunk;
+
+import com.heikeji.common.core.domain.ChunkResult;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 分块任务单次运行统计
+ *
+ * @author heikeji
+ */
+@Data
+public class ChunkRunStats {
+
+    /**
+     * 任务名称
+     */
+    private String jobName;
+
+    /**
+     * 执行节点
+     */
+    private String nodeId;
+
+    /**
+     * 参与分配的节点数
+     */
+    private int nodeCount;
+
+    /**
+     * 分片总数
+     */
+    private int shardTotal;
+
+    /**
+     * 本节点处理的分片
+     */
+    private List<Integer> shards;
+
+    /**
+     * 从检查点继续处理的分片数
+     */
+    private int resumedShards;
+
+    /**
+     * 处理完成的分片数
+     */
+    private int completedShards;
+
+    /**
+     * 处理的块数
+     */
+    private int chunks;
+
+    /**
+     * 读取的记录数
+     */
+    private long scanned;
+
+    /**
+     * 实际处理的记录数
+     */
+    private long processed;
+
+    /**
+     * 单块最长耗时（毫秒）
+     */
+    private long maxChunkMillis;
+
+    /**
+     * 最大处理延迟（毫秒），即记录到期到被处理的最长间隔
+     */
+    private long maxLagMillis;
+
+    /**
+     * 开始时间
+     */
+    private Date startTime;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long durationMillis;
+
+    /**
+     * 是否因达到单次运行时长上限而中止，未处理的分片由下次运行从检查点继续
+     */
+    private boolean timedOut;
+
+    /**
+     * 错误信息，为空表示运行成功
+     */
+    private String error;
+
+    /**
+     * 累加一块的处理结果
+     */
+    void addChunk(ChunkResult result, long chunkStart, long chunkMillis) {
+        chunks++;
+        scanned += result.getScanned() != null ? result.getScanned() : 0;
+        processed += result.getProcessed() != null ? result.getProcessed() : 0;
+        maxChunkMillis = Math.max(maxChunkMillis, chunkMillis);
+        if (result.getOldestDueTime() != null) {
+            maxLagMillis = Math.max(maxLagMillis, chunkStart - result.getOldestDueTime());
+        }
+    }
+
+    /**
+     * 每秒处理的记录数
+     */
+    public double getThroughput() {
+        return durationMillis > 0 ? processed * 1000.0 / durationMillis : processed;
+    }
+
+    /**
+     * 运行摘要，写入任务日志
+     */
+    public String summary() {
+        return String.format("分片%d/%d（%d个节点），%d块，扫描%d条，处理%d条，耗时%dms，吞吐%.1f条/秒，最大延迟%dms%s",
+                completedShards, shards != null ? shards.size() : 0, nodeCount, chunks, scanned, processed,
+                durationMillis, getThroughput(), maxLagMillis, timedOut ? "，达到运行时长上限，剩余部分下次继续" : "");
+    }
+}
@@ -0,0 +1,125 @@
+package com.heikeji.job.chunk;
+
+import com.heikeji.common.core.domain.ChunkResult;
+import com.heikeji.common.core.domain.R;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 分块任务执行器
+ * 对当前节点认领的每个分片按主键游标循环调用分块处理器，每块在业务服务中独立提交，
+ * 处理完一块即记录检查点。单次运行超过时长上限或出错时停止，下次运行从检查点继续。
+ *
+ * @author heikeji
+ */
+@Component
+@Slf4j
+public class ChunkedJobRunner {
+
+    @Autowired
+    private ShardCoordinator shardCoordinator;
+
+    @Autowired
+    private ChunkCheckpointStore checkpointStore;
+
+    /**
+     * 每块最大记录数
+     */
+    @Value("${job.chunk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * 单次运行时长上限（秒）
+     */
+    @Value("${job.chunk.max-run-seconds:50}")
+    private long maxRunSeconds = 50;
+
+    /**
+     * 各任务最近一次运行统计
+     */
+    private final Map<String, ChunkRunStats> lastRuns = new ConcurrentHashMap<>();
+
+    /**
+     * 执行分块任务
+     *
+     * @param jobName   任务名称，用于隔离检查点
+     * @param processor 分块处理器
+     * @return 运行统计，出错时error不为空
+     */
+    public ChunkRunStats run(String jobName, ChunkProcessor processor) {
+        ChunkRunStats stats = new ChunkRunStats();
+        stats.setJobName(jobName);
+        stats.setStartTime(new Date());
+        long start = System.currentTimeMillis();
+        long deadline = start + maxRunSeconds * 1000;
+
+        try {
+            ShardCoordinator.ShardAssignment assignment = shardCoordinator.assign();
+            int shardTotal = assignment.getShardTotal();
+            stats.setNodeId(assignment.getNodeId());
+            stats.setNodeCount(assignment.getNodeCount());
+            stats.setShardTotal(shardTotal);
+            stats.setShards(assignment.getShards());
+
+            for (Integer shard : assignment.getShards()) {
+                Long cursor = checkpointStore.load(jobName, shardTotal, shard);
+                if (cursor != null) {
+                    stats.setResumedShards(stats.getResumedShards() + 1);
+                }
+                while (true) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        stats.setTimedOut(true);
+                        return stats;
+                    }
+                    long chunkStart = System.currentTimeMillis();
+                    ChunkResult result = processor.process(cursor, shard, shardTotal, chunkSize);
+                    if (result == null) {
+                        throw new IllegalStateException("分块处理未返回结果");
+                    }
+                    stats.addChunk(result, chunkStart, System.currentTimeMillis() - chunkStart);
+                    cursor = result.getLastId();
+                    if (!result.isHasMore()) {
+                        checkpointStore.clear(jobName, shardTotal, shard);
+                        stats.setCompletedShards(stats.getCompletedShards() + 1);
+                        break;
+                    }
+                    checkpointStore.save(jobName, shardTotal, shard, cursor);
+                }
+            }
+        } catch (Exception e) {
+            // 已提交的块保留检查点，下次运行从出错的块重新开始
+            stats.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            log.error("分块任务执行失败，任务: {}", jobName, e);
+        } finally {
+            stats.setDurationMillis(System.currentTimeMillis() - start);
+            lastRuns.put(jobName, stats);
+            log.info("分块任务运行结束，任务: {}，{}", jobName, stats.summary());
+        }
+        return stats;
+    }
+
+    /**
+     * 获取各任务最近一次运行统计
+     */
+    public Collection<ChunkRunStats> getLastRuns() {
+        return new ArrayList<>(lastRuns.values());
+    }
+
+    /**
+     * 取出远程调用返回的分块结果，调用失败时抛出异常中止本次运行
+     */
+    public static ChunkResult requireData(R<ChunkResult> response) {
+        if (response == null || !response.isSuccess() || response.getData() == null) {
+            throw new IllegalStateException(response != null ? response.getMsg() : "分块处理调用无响应");
+        }
+        return response.getData();
+    }
+}
@@ -0,0 +1,194 @@
+package com.heikeji.job.chunk;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.Scheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 分片协调器
+ * 超时类任务的数据按主键取模划分为固定数量的分片。调度器使用内存存储时每个节点都会触发任务，
+ * 各节点通过Redis中的心跳集合得到存活节点列表，按节点排序后轮流认领分片；
+ * 调度器使用集群存储时同一次触发只在一个节点执行，由该节点处理全部分片。
+ *
+ * @author heikeji
+ */
+@Component
+@Slf4j
+public class ShardCoordinator {
+
+    /**
+     * Redis中存活节点集合的键，成员为节点标识，分数为最近一次心跳时间
+     */
+    private static final String NODES_KEY = "job:chunk:nodes";
+
+    /**
+     * 调度器未启用集群时Quartz返回的实例标识
+     */
+    private static final String NON_CLUSTERED = "NON_CLUSTERED";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private Scheduler scheduler;
+
+    /**
+     * 分片总数，调整后各任务从头开始处理
+     */
+    @Value("${job.chunk.shard-count:8}")
+    private int shardCount = 8;
+
+    /**
+     * 节点心跳超时时间（秒），超过该时间未上报心跳的节点不再分配分片
+     */
+    @Value("${job.chunk.node-expire-seconds:30}")
+    private long nodeExpireSeconds = 30;
+
+    private volatile String nodeId;
+
+    /**
+     * 上报节点心跳
+     */
+    @Scheduled(fixedDelayString = "${job.chunk.heartbeat-millis:10000}")
+    public void heartbeat() {
+        try {
+            redisTemplate.opsForZSet().add(NODES_KEY, getNodeId(), System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("上报分块任务节点心跳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 节点下线时移出存活节点集合，其余节点在下次任务触发时接管其分片
+     */
+    @PreDestroy
+    public void leave() {
+        try {
+            redisTemplate.opsForZSet().remove(NODES_KEY, getNodeId());
+        } catch (Exception e) {
+            log.warn("移除分块任务节点失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 计算当前节点认领的分片
+     */
+    public ShardAssignment assign() {
+        String self = getNodeId();
+        if (isClustered()) {
+            return ShardAssignment.of(self, 1, allShards(), shardCount);
+        }
+
+        List<String> liveNodes;
+        try {
+            long now = System.currentTimeMillis();
+            redisTemplate.opsForZSet().add(NODES_KEY, self, now);
+            redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, 0, now - nodeExpireSeconds * 1000);
+            Set<Object> members = redisTemplate.opsForZSet().range(NODES_KEY, 0, -1);
+            // 按节点标识排序，避免心跳先后不同导致各节点看到的顺序不一致
+            Set<String> sorted = new TreeSet<>();
+            if (members != null) {
+                for (Object member : members) {
+                    sorted.add(String.valueOf(member));
+                }
+            }
+            sorted.add(self);
+            liveNodes = new ArrayList<>(sorted);
+        } catch (Exception e) {
+            // 无法获取存活节点时处理全部分片，业务更新带状态条件，重复处理不会产生错误结果
+            log.warn("获取分块任务存活节点失败，当前节点处理全部分片: {}", e.getMessage());
+            return ShardAssignment.of(self, 1, allShards(), shardCount);
+        }
+
+        int nodeCount = liveNodes.size();
+        int nodeIndex = liveNodes.indexOf(self);
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = nodeIndex; shard < shardCount; shard += nodeCount) {
+            shards.add(shard);
+        }
+        return ShardAssignment.of(self, nodeCount, shards, shardCount);
+    }
+
+    /**
+     * 获取当前节点标识，调度器未启用集群时使用进程标识
+     */
+    public String getNodeId() {
+        if (nodeId == null) {
+            String id = null;
+            try {
+                id = scheduler.getSchedulerInstanceId();
+            } catch (Exception e) {
+                log.warn("获取调度器实例标识失败: {}", e.getMessage());
+            }
+            if (id == null || NON_CLUSTERED.equals(id)) {
+                id = ManagementFactory.getRuntimeMXBean().getName();
+            }
+            nodeId = id;
+        }
+        return nodeId;
+    }
+
+    private boolean isClustered() {
+        try {
+            return scheduler.getMetaData().isJobStoreClustered();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * 分片分配结果
+     */
+    @Data
+    public static class ShardAssignment {
+
+        /**
+         * 当前节点标识
+         */
+        private String nodeId;
+
+        /**
+         * 参与分配的节点数
+         */
+        private int nodeCount;
+
+        /**
+         * 当前节点认领的分片
+         */
+        private List<Integer> shards;
+
+        /**
+         * 分片总数
+         */
+        private int shardTotal;
+
+        static ShardAssignment of(String nodeId, int nodeCount, List<Integer> shards, int shardTotal) {
+            ShardAssignment assignment = new ShardAssignment();
+            assignment.setNodeId(nodeId);
+            assignment.setNodeCount(nodeCount);
+            assignment.setShards(shards);
+            assignment.setShardTotal(shardTotal);
+            return assignment;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.heikeji.job.controller;
 
+import com.heikeji.job.chunk.ChunkRunStats;
+import com.heikeji.job.chunk.ChunkedJobRunner;
 import com.heikeji.job.scheduler.QuartzJobScheduler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,6 +13,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
 import java.util.Date;
 
 /**
@@ -28,6 +31,9 @@ public class JobController {
     @Autowired
     private QuartzJobScheduler quartzJobScheduler;
 
+    @Autowired
+    private ChunkedJobRunner chunkedJobRunner;
+
     /**
      * 添加定时任务
      * 
@@ -269,6 +275,17 @@ public class JobController {
         }
     }
 
+    /**
+     * 获取分块任务最近一次运行统计
+     * 
+     * @return 各任务的分片、块数、吞吐量和最大处理延迟
+     */
+    @GetMapping("/chunk/stats")
+    @Operation(summary = "获取分块任务运行统计")
+    public ResponseEntity<Collection<ChunkRunStats>> getChunkStats() {
+        return ResponseEntity.ok(chunkedJobRunner.getLastRuns());
+    }
+
     /**
      * 验证cron表达式是否有效
      * 
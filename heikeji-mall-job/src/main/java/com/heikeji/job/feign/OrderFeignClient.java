@@ -1,5 +1,7 @@
 package com.heikeji.job.feign;
 
+import com.heikeji.common.core.domain.ChunkResult;
+import com.heikeji.common.core.domain.R;
 import com.heikeji.job.feign.fallback.OrderFeignClientFallback;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -41,4 +43,55 @@ public interface OrderFeignClient {
     @PostMapping("/api/takeout/order/release-timeout-lockers")
     Integer releaseTimeoutLockers(@RequestParam("hours") Integer hours);
 
+    /**
+     * 分块取消超时未支付的订单
+     * 
+     * @param minutes    超时分钟数
+     * @param afterId    游标，为空时从分片开头处理
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit      每块最大记录数
+     * @return 本块处理结果
+     */
+    @PostMapping("/order/auto-cancel/chunk")
+    R<ChunkResult> cancelTimeoutOrderChunk(@RequestParam("minutes") Integer minutes,
+                                           @RequestParam(value = "afterId", required = false) Long afterId,
+                                           @RequestParam("shardIndex") Integer shardIndex,
+                                           @RequestParam("shardTotal") Integer shardTotal,
+                                           @RequestParam("limit") Integer limit);
+
+    /**
+     * 分块自动确认超时未收货的订单
+     * 
+     * @param days       超时天数
+     * @param afterId    游标，为空时从分片开头处理
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit      每块最大记录数
+     * @return 本块处理结果
+     */
+    @PostMapping("/order/auto-confirm/chunk")
+    R<ChunkResult> confirmTimeoutOrderChunk(@RequestParam("days") Integer days,
+                                            @RequestParam(value = "afterId", required = false) Long afterId,
+                                            @RequestParam("shardIndex") Integer shardIndex,
+                                            @RequestParam("shardTotal") Integer shardTotal,
+                                            @RequestParam("limit") Integer limit);
+
+    /**
+     * 分块释放超时占用的外卖柜
+     * 
+     * @param hours      超时小时数
+     * @param afterId    游标，为空时从分片开头处理
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit      每块最大记录数
+     * @return 本块处理结果
+     */
+    @PostMapping("/api/takeout/order/release-timeout-lockers/chunk")
+    R<ChunkResult> releaseTimeoutLockerChunk(@RequestParam("hours") Integer hours,
+                                             @RequestParam(value = "afterId", required = false) Long afterId,
+                                             @RequestParam("shardIndex") Integer shardIndex,
+                                             @RequestParam("shardTotal") Integer shardTotal,
+                                             @RequestParam("limit") Integer limit);
+
 }
@@ -1,5 +1,7 @@
 package com.heikeji.job.feign.fallback;
 
+import com.heikeji.common.core.domain.ChunkResult;
+import com.heikeji.common.core.domain.R;
 import com.heikeji.job.feign.OrderFeignClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -50,4 +52,40 @@ public class OrderFeignClientFallback implements OrderFeignClient {
         return 0;
     }
 
+    /**
+     * 分块取消超时未支付的订单 - 降级实现
+     * 
+     * @return 失败结果，分块任务保留检查点待下次继续
+     */
+    @Override
+    public R<ChunkResult> cancelTimeoutOrderChunk(Integer minutes, Long afterId, Integer shardIndex,
+                                                  Integer shardTotal, Integer limit) {
+        log.error("调用订单服务分块取消超时订单失败，执行降级处理");
+        return R.error("订单服务不可用");
+    }
+
+    /**
+     * 分块自动确认超时未收货的订单 - 降级实现
+     * 
+     * @return 失败结果，分块任务保留检查点待下次继续
+     */
+    @Override
+    public R<ChunkResult> confirmTimeoutOrderChunk(Integer days, Long afterId, Integer shardIndex,
+                                                   Integer shardTotal, Integer limit) {
+        log.error("调用订单服务分块自动确认收货失败，执行降级处理");
+        return R.error("订单服务不可用");
+    }
+
+    /**
+     * 分块释放超时占用的外卖柜 - 降级实现
+     * 
+     * @return 失败结果，分块任务保留检查点待下次继续
+     */
+    @Override
+    public R<ChunkResult> releaseTimeoutLockerChunk(Integer hours, Long afterId, Integer shardIndex,
+                                                    Integer shardTotal, Integer limit) {
+        log.error("调用订单服务分块释放超时外卖柜失败，执行降级处理");
+        return R.error("订单服务不可用");
+    }
+
 }
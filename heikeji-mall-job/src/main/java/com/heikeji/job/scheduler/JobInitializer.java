@@ -68,7 +68,8 @@ public class JobInitializer implements ApplicationRunner {
             String jobGroup = "orderJobGroup";
             String triggerName = jobName + "Trigger";
             String triggerGroup = jobGroup;
-            String cronExpression = "0 0/1 * * * ?";
+            // 到期订单由订单服务的延时队列及时取消，本任务作为兜底补偿低频执行
+            String cronExpression = "0 0/15 * * * ?";
             
             // 检查任务是否已存在，避免重复添加
             if (!quartzJobScheduler.checkJobExists(jobName, jobGroup)) {
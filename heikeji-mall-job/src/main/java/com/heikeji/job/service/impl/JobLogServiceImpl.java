@@ -2,19 +2,30 @@ package com.heikeji.job.service.impl;
 
 import com.heikeji.job.entity.JobLog;
 import com.heikeji.job.service.JobLogService;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.zset.Aggregate;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * 任务日志服务实现类
  * 使用Redis作为临时存储，记录任务执行情况
- * 
+ * <p>
+ * 日志详情按ID单独存储并设置过期时间，另外维护以创建时间为分数的有序集合索引：
+ * 全部日志、每个任务、每个任务组、每种执行状态各一个。分页查询先在索引上按时间范围计数并取出当前页的ID，
+ * 再用一次MGET读取这一页的详情；统计信息直接取各索引的元素数，不再读取全部日志。
+ * 旧版本只把日志ID写入 job:log:list 列表，启动时把列表中的日志补写到各索引后删除该列表。
+ *
  * @author heikeji
  */
 @Service
@@ -24,24 +35,125 @@ public class JobLogServiceImpl implements JobLogService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     /**
      * Redis中任务日志的键前缀
      */
     private static final String JOB_LOG_KEY_PREFIX = "job:log:";
 
     /**
-     * 任务日志列表的键
+     * 任务日志ID生成器的键
+     */
+    private static final String JOB_LOG_ID_KEY = "job:log:id";
+
+    /**
+     * 全部日志的时间索引
+     */
+    private static final String INDEX_ALL_KEY = "job:log:idx:all";
+
+    /**
+     * 单个任务的时间索引键前缀，后接 任务组:任务名称
+     */
+    private static final String INDEX_JOB_PREFIX = "job:log:idx:job:";
+
+    /**
+     * 任务组的时间索引键前缀
+     */
+    private static final String INDEX_GROUP_PREFIX = "job:log:idx:group:";
+
+    /**
+     * 执行状态的时间索引键前缀
+     */
+    private static final String INDEX_STATUS_PREFIX = "job:log:idx:status:";
+
+    /**
+     * 出现过的任务集合，成员为 任务组:任务名称
      */
-    private static final String JOB_LOG_LIST_KEY = "job:log:list";
+    private static final String JOB_SET_KEY = "job:log:jobs";
+
+    /**
+     * 旧版本的日志ID列表
+     */
+    private static final String LEGACY_LIST_KEY = "job:log:list";
+
+    /**
+     * 组合查询条件的临时结果键前缀
+     */
+    private static final String QUERY_RESULT_PREFIX = "job:log:query:";
+
+    /**
+     * 当前存在的临时结果键集合，删除日志时从这些结果中一并移除
+     */
+    private static final String QUERY_RESULT_SET_KEY = "job:log:queries";
+
+    /**
+     * 组合查询临时结果的过期时间（秒），只在翻到第二页及以后时复用，第一页总是重新生成
+     */
+    private static final long QUERY_RESULT_EXPIRE_SECONDS = 30;
+
+    /**
+     * 执行状态：成功、失败
+     */
+    private static final int[] STATUSES = {0, 1};
+
+    /**
+     * 批量读取或删除日志时的单批数量
+     */
+    private static final int BATCH_SIZE = 500;
 
     /**
      * 任务日志的过期时间（小时）
      */
     private static final int JOB_LOG_EXPIRE_HOURS = 72;
 
+    /**
+     * 把旧版本列表中的日志补写到各时间索引，完成后删除列表
+     * 写入索引是幂等的，多个实例同时启动时重复补写不影响结果
+     */
+    @PostConstruct
+    public void backfillLegacyLogs() {
+        try {
+            Long size = redisTemplate.opsForList().size(LEGACY_LIST_KEY);
+            if (size == null || size == 0) {
+                return;
+            }
+            int migrated = 0;
+            for (long start = 0; start < size; start += BATCH_SIZE) {
+                List<Object> ids = redisTemplate.opsForList().range(LEGACY_LIST_KEY, start, start + BATCH_SIZE - 1);
+                if (ids == null || ids.isEmpty()) {
+                    break;
+                }
+                List<String> members = new ArrayList<>(ids.size());
+                for (Object id : ids) {
+                    members.add(id.toString());
+                }
+                List<JobLog> jobLogs = loadJobLogs(members);
+                pipelined(connection -> {
+                    for (JobLog jobLog : jobLogs) {
+                        if (jobLog.getId() == null || jobLog.getCreateTime() == null) {
+                            continue;
+                        }
+                        byte[] member = bytes(String.valueOf(jobLog.getId()));
+                        for (String indexKey : indexKeys(jobLog)) {
+                            connection.zSetCommands().zAdd(bytes(indexKey), jobLog.getCreateTime().getTime(), member);
+                        }
+                        connection.setCommands().sAdd(bytes(JOB_SET_KEY), bytes(jobKey(jobLog)));
+                    }
+                });
+                migrated += jobLogs.size();
+            }
+            redisTemplate.delete(LEGACY_LIST_KEY);
+            log.info("旧版任务日志补写索引完成，数量: {}", migrated);
+        } catch (Exception e) {
+            log.warn("旧版任务日志补写索引失败，下次启动重试", e);
+        }
+    }
+
     /**
      * 记录任务执行日志
-     * 
+     *
      * @param jobLog 任务日志
      * @return 影响行数
      */
@@ -49,31 +161,39 @@ public class JobLogServiceImpl implements JobLogService {
     public int saveJobLog(JobLog jobLog) {
         try {
             // 生成唯一ID
-            Long id = redisTemplate.opsForValue().increment("job:log:id");
+            Long id = redisTemplate.opsForValue().increment(JOB_LOG_ID_KEY);
             jobLog.setId(id);
-            
+
             // 设置创建时间
             if (jobLog.getCreateTime() == null) {
                 jobLog.setCreateTime(new Date());
             }
-            
+
             // 计算执行时间
             if (jobLog.getStartTime() != null && jobLog.getEndTime() != null) {
                 jobLog.setExecuteTime(jobLog.getEndTime().getTime() - jobLog.getStartTime().getTime());
             }
-            
+
             // 保存日志详情
             String logKey = JOB_LOG_KEY_PREFIX + id;
             redisTemplate.opsForValue().set(logKey, jobLog, JOB_LOG_EXPIRE_HOURS, TimeUnit.HOURS);
-            
-            // 将日志ID添加到列表中
-            redisTemplate.opsForList().leftPush(JOB_LOG_LIST_KEY, id);
-            
-            // 设置列表过期时间
-            redisTemplate.expire(JOB_LOG_LIST_KEY, JOB_LOG_EXPIRE_HOURS, TimeUnit.HOURS);
-            
-            log.info("保存任务日志成功，任务名称: {}, 执行状态: {}", 
-                    jobLog.getJobName(), jobLog.getStatus() == 0 ? "成功" : "失败");
+
+            // 写入各时间索引，同时移除详情已过期的索引项
+            double score = jobLog.getCreateTime().getTime();
+            byte[] member = bytes(String.valueOf(id));
+            double expiredBefore = retentionCutoff();
+            List<String> indexKeys = indexKeys(jobLog);
+            pipelined(connection -> {
+                for (String indexKey : indexKeys) {
+                    byte[] rawKey = bytes(indexKey);
+                    connection.zSetCommands().zAdd(rawKey, score, member);
+                    connection.zSetCommands().zRemRangeByScore(rawKey, Double.NEGATIVE_INFINITY, expiredBefore);
+                }
+                connection.setCommands().sAdd(bytes(JOB_SET_KEY), bytes(jobKey(jobLog)));
+            });
+
+            log.info("保存任务日志成功，任务名称: {}, 执行状态: {}",
+                    jobLog.getJobName(), Integer.valueOf(0).equals(jobLog.getStatus()) ? "成功" : "失败");
             return 1;
         } catch (Exception e) {
             log.error("保存任务日志失败", e);
@@ -86,7 +206,7 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 根据ID查询任务日志
-     * 
+     *
      * @param id 日志ID
      * @return 任务日志
      */
@@ -103,34 +223,30 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 查询任务日志列表
-     * 
+     *
      * @param params 查询参数
-     * @return 任务日志列表
+     * @return 任务日志列表，按创建时间倒序
      */
     @Override
     public List<JobLog> listJobLogs(Map<String, Object> params) {
         try {
-            // 获取所有日志ID
-            List<Long> logIds = redisTemplate.opsForList().range(JOB_LOG_LIST_KEY, 0, -1)
-                    .stream()
-                    .map(id -> Long.valueOf(id.toString()))
-                    .collect(Collectors.toList());
-            
-            // 查询日志详情
+            String indexKey = resolveIndex(params, false);
+            if (indexKey == null) {
+                return new ArrayList<>();
+            }
+            double[] range = scoreRange(params);
             List<JobLog> jobLogs = new ArrayList<>();
-            for (Long id : logIds) {
-                JobLog jobLog = getJobLogById(id);
-                if (jobLog != null) {
-                    // 应用过滤条件
-                    if (applyFilter(jobLog, params)) {
-                        jobLogs.add(jobLog);
-                    }
+            for (long offset = 0; ; offset += BATCH_SIZE) {
+                Set<String> ids = stringRedisTemplate.opsForZSet()
+                        .reverseRangeByScore(indexKey, range[0], range[1], offset, BATCH_SIZE);
+                if (ids == null || ids.isEmpty()) {
+                    break;
+                }
+                jobLogs.addAll(loadJobLogs(ids));
+                if (ids.size() < BATCH_SIZE) {
+                    break;
                 }
             }
-            
-            // 排序（按创建时间倒序）
-            jobLogs.sort(Comparator.comparing(JobLog::getCreateTime).reversed());
-            
             return jobLogs;
         } catch (Exception e) {
             log.error("查询任务日志列表失败", e);
@@ -140,7 +256,8 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 分页查询任务日志
-     * 
+     * 只读取当前页的日志详情，总数由索引按时间范围计数得到
+     *
      * @param params 查询参数
      * @param pageNum 页码
      * @param pageSize 每页数量
@@ -149,29 +266,28 @@ public class JobLogServiceImpl implements JobLogService {
     @Override
     public Map<String, Object> pageJobLogs(Map<String, Object> params, int pageNum, int pageSize) {
         try {
-            // 查询所有符合条件的日志
-            List<JobLog> allLogs = listJobLogs(params);
-            
-            // 计算总数
-            int total = allLogs.size();
-            
-            // 计算分页索引
-            int start = (pageNum - 1) * pageSize;
-            int end = Math.min(start + pageSize, total);
-            
-            // 获取分页数据
+            long total = 0;
             List<JobLog> pageLogs = new ArrayList<>();
-            if (start < total) {
-                pageLogs = allLogs.subList(start, end);
+            String indexKey = resolveIndex(params, pageNum > 1);
+            if (indexKey != null) {
+                double[] range = scoreRange(params);
+                Long count = stringRedisTemplate.opsForZSet().count(indexKey, range[0], range[1]);
+                total = count != null ? count : 0;
+                long offset = (long) (pageNum - 1) * pageSize;
+                if (offset < total) {
+                    Set<String> ids = stringRedisTemplate.opsForZSet()
+                            .reverseRangeByScore(indexKey, range[0], range[1], offset, pageSize);
+                    pageLogs = loadJobLogs(ids);
+                }
             }
-            
+
             // 构建返回结果
             Map<String, Object> result = new HashMap<>();
             result.put("total", total);
             result.put("pageNum", pageNum);
             result.put("pageSize", pageSize);
             result.put("list", pageLogs);
-            
+
             return result;
         } catch (Exception e) {
             log.error("分页查询任务日志失败", e);
@@ -186,22 +302,47 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 删除任务日志
-     * 
+     *
      * @param ids 日志ID列表
      * @return 影响行数
      */
     @Override
     public int deleteJobLogs(List<Long> ids) {
         try {
-            int count = 0;
+            List<String> logKeys = new ArrayList<>(ids.size());
+            List<String> members = new ArrayList<>(ids.size());
             for (Long id : ids) {
-                String logKey = JOB_LOG_KEY_PREFIX + id;
-                if (redisTemplate.delete(logKey)) {
-                    count++;
+                logKeys.add(JOB_LOG_KEY_PREFIX + id);
+                members.add(String.valueOf(id));
+            }
+            // 先读取详情，确定日志所在的任务和任务组索引
+            List<Object> jobLogs = redisTemplate.opsForValue().multiGet(logKeys);
+            Map<String, List<String>> removals = new HashMap<>();
+            removals.put(INDEX_ALL_KEY, members);
+            for (int status : STATUSES) {
+                removals.put(INDEX_STATUS_PREFIX + status, members);
+            }
+            Set<String> queryKeys = stringRedisTemplate.opsForSet().members(QUERY_RESULT_SET_KEY);
+            if (queryKeys != null) {
+                for (String queryKey : queryKeys) {
+                    removals.put(queryKey, members);
+                }
+            }
+            if (jobLogs != null) {
+                for (Object item : jobLogs) {
+                    if (item instanceof JobLog) {
+                        JobLog jobLog = (JobLog) item;
+                        String member = String.valueOf(jobLog.getId());
+                        removals.computeIfAbsent(INDEX_JOB_PREFIX + jobKey(jobLog), k -> new ArrayList<>()).add(member);
+                        removals.computeIfAbsent(INDEX_GROUP_PREFIX + groupOf(jobLog), k -> new ArrayList<>()).add(member);
+                    }
                 }
-                // 从列表中移除
-                redisTemplate.opsForList().remove(JOB_LOG_LIST_KEY, 0, id);
             }
+
+            Long deleted = redisTemplate.delete(logKeys);
+            pipelined(connection -> removals.forEach((indexKey, indexMembers) ->
+                    connection.zSetCommands().zRem(bytes(indexKey), toBytes(indexMembers))));
+            int count = deleted != null ? deleted.intValue() : 0;
             log.info("删除任务日志成功，数量: {}", count);
             return count;
         } catch (Exception e) {
@@ -212,36 +353,34 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 清理过期的任务日志
-     * 
+     * 按时间索引分批找出过期日志删除详情，再按分数范围清理各索引
+     *
      * @param days 保留天数
      * @return 清理数量
      */
     @Override
     public int cleanJobLogs(int days) {
         try {
-            // 计算清理时间点
-            long cleanTime = System.currentTimeMillis() - (long) days * 24 * 60 * 60 * 1000;
-            
-            // 获取所有日志ID
-            List<Long> logIds = redisTemplate.opsForList().range(JOB_LOG_LIST_KEY, 0, -1)
-                    .stream()
-                    .map(id -> Long.valueOf(id.toString()))
-                    .collect(Collectors.toList());
-            
-            // 清理过期日志
+            // 计算清理时间点，清理创建时间早于该时间点的日志
+            double maxScore = System.currentTimeMillis() - (long) days * 24 * 60 * 60 * 1000 - 1;
+
             int cleanCount = 0;
-            for (Long id : logIds) {
-                JobLog jobLog = getJobLogById(id);
-                if (jobLog != null && jobLog.getCreateTime().getTime() < cleanTime) {
-                    String logKey = JOB_LOG_KEY_PREFIX + id;
-                    if (redisTemplate.delete(logKey)) {
-                        cleanCount++;
-                    }
-                    // 从列表中移除
-                    redisTemplate.opsForList().remove(JOB_LOG_LIST_KEY, 0, id);
+            while (true) {
+                Set<String> ids = stringRedisTemplate.opsForZSet()
+                        .rangeByScore(INDEX_ALL_KEY, Double.NEGATIVE_INFINITY, maxScore, 0, BATCH_SIZE);
+                if (ids == null || ids.isEmpty()) {
+                    break;
                 }
+                List<String> logKeys = new ArrayList<>(ids.size());
+                for (String id : ids) {
+                    logKeys.add(JOB_LOG_KEY_PREFIX + id);
+                }
+                Long deleted = redisTemplate.delete(logKeys);
+                cleanCount += deleted != null ? deleted.intValue() : 0;
+                stringRedisTemplate.opsForZSet().remove(INDEX_ALL_KEY, ids.toArray());
             }
-            
+            removeIndexRange(secondaryIndexKeys(), maxScore);
+
             log.info("清理过期任务日志成功，数量: {}", cleanCount);
             return cleanCount;
         } catch (Exception e) {
@@ -252,33 +391,55 @@ public class JobLogServiceImpl implements JobLogService {
 
     /**
      * 获取任务执行统计信息
-     * 
+     * 各计数即对应索引的元素数，随日志写入和清理增量维护
+     *
      * @return 统计信息
      */
     @Override
     public Map<String, Object> getJobLogStatistics() {
         try {
-            // 查询最近的任务日志
-            List<JobLog> jobLogs = listJobLogs(Collections.emptyMap());
-            
-            // 统计成功和失败的任务数量
-            long successCount = jobLogs.stream().filter(log -> log.getStatus() == 0).count();
-            long failCount = jobLogs.stream().filter(log -> log.getStatus() == 1).count();
-            
-            // 统计各任务的执行情况
-            Map<String, Long> jobCountMap = jobLogs.stream()
-                    .collect(Collectors.groupingBy(
-                            log -> log.getJobGroup() + ":" + log.getJobName(),
-                            Collectors.counting()
-                    ));
-            
+            // 先移除详情已过期的索引项，使计数与保留的日志一致
+            List<String> secondaryKeys = secondaryIndexKeys();
+            List<String> trimKeys = new ArrayList<>(secondaryKeys);
+            trimKeys.add(INDEX_ALL_KEY);
+            removeIndexRange(trimKeys, retentionCutoff());
+
+            List<String> jobs = new ArrayList<>(jobs());
+            List<String> countKeys = new ArrayList<>();
+            countKeys.add(INDEX_ALL_KEY);
+            countKeys.add(INDEX_STATUS_PREFIX + 0);
+            countKeys.add(INDEX_STATUS_PREFIX + 1);
+            for (String job : jobs) {
+                countKeys.add(INDEX_JOB_PREFIX + job);
+            }
+            List<Object> counts = pipelined(connection -> {
+                for (String countKey : countKeys) {
+                    connection.zSetCommands().zCard(bytes(countKey));
+                }
+            });
+
+            // 统计各任务的执行情况，已没有日志的任务移出任务集合
+            Map<String, Long> jobCountMap = new HashMap<>();
+            List<String> emptyJobs = new ArrayList<>();
+            for (int i = 0; i < jobs.size(); i++) {
+                long count = toLong(counts.get(i + 3));
+                if (count > 0) {
+                    jobCountMap.put(jobs.get(i), count);
+                } else {
+                    emptyJobs.add(jobs.get(i));
+                }
+            }
+            if (!emptyJobs.isEmpty()) {
+                stringRedisTemplate.opsForSet().remove(JOB_SET_KEY, emptyJobs.toArray());
+            }
+
             // 构建统计结果
             Map<String, Object> statistics = new HashMap<>();
-            statistics.put("totalCount", jobLogs.size());
-            statistics.put("successCount", successCount);
-            statistics.put("failCount", failCount);
+            statistics.put("totalCount", toLong(counts.get(0)));
+            statistics.put("successCount", toLong(counts.get(1)));
+            statistics.put("failCount", toLong(counts.get(2)));
             statistics.put("jobCountMap", jobCountMap);
-            
+
             return statistics;
         } catch (Exception e) {
             log.error("获取任务执行统计信息失败", e);
@@ -292,52 +453,179 @@ public class JobLogServiceImpl implements JobLogService {
     }
 
     /**
-     * 应用过滤条件
-     * 
-     * @param jobLog 任务日志
-     * @param params 查询参数
-     * @return 是否符合条件
+     * 根据查询参数确定使用的索引
+     * 任务名称按包含匹配，可能对应多个任务索引；多个索引或附加状态条件时，
+     * 在Redis中合并或求交集生成临时结果，翻页时在有效期内复用
+     *
+     * @param params       查询参数
+     * @param reuseResult  是否复用有效期内的临时结果，为false时重新生成以包含最新写入的日志
+     * @return 索引键，没有匹配的任务时返回null
      */
-    private boolean applyFilter(JobLog jobLog, Map<String, Object> params) {
-        // 任务名称过滤
-        if (params.containsKey("jobName")) {
-            String jobName = (String) params.get("jobName");
-            if (!jobLog.getJobName().contains(jobName)) {
-                return false;
+    private String resolveIndex(Map<String, Object> params, boolean reuseResult) {
+        String jobName = (String) params.get("jobName");
+        String jobGroup = (String) params.get("jobGroup");
+        Integer status = (Integer) params.get("status");
+
+        List<String> keys = new ArrayList<>();
+        if (jobName != null) {
+            for (String job : jobs()) {
+                int separator = job.indexOf(':');
+                String group = job.substring(0, separator);
+                String name = job.substring(separator + 1);
+                if (name.contains(jobName) && (jobGroup == null || group.equals(jobGroup))) {
+                    keys.add(INDEX_JOB_PREFIX + job);
+                }
             }
-        }
-        
-        // 任务组过滤
-        if (params.containsKey("jobGroup")) {
-            String jobGroup = (String) params.get("jobGroup");
-            if (!jobLog.getJobGroup().equals(jobGroup)) {
-                return false;
+            if (keys.isEmpty()) {
+                return null;
             }
+        } else if (jobGroup != null) {
+            keys.add(INDEX_GROUP_PREFIX + jobGroup);
         }
-        
-        // 执行状态过滤
-        if (params.containsKey("status")) {
-            Integer status = (Integer) params.get("status");
-            if (!jobLog.getStatus().equals(status)) {
-                return false;
+
+        String statusKey = status != null ? INDEX_STATUS_PREFIX + status : null;
+        if (keys.isEmpty()) {
+            return statusKey != null ? statusKey : INDEX_ALL_KEY;
+        }
+        if (keys.size() == 1 && statusKey == null) {
+            return keys.get(0);
+        }
+
+        String resultKey = QUERY_RESULT_PREFIX + jobGroup + ":" + jobName + ":" + status;
+        if (reuseResult && Boolean.TRUE.equals(stringRedisTemplate.hasKey(resultKey))) {
+            return resultKey;
+        }
+        // 同一日志在各索引中的分数相同，合并时取最大值即保留创建时间
+        if (keys.size() > 1) {
+            stringRedisTemplate.opsForZSet().unionAndStore(keys.get(0), keys.subList(1, keys.size()), resultKey, Aggregate.MAX);
+            if (statusKey != null) {
+                stringRedisTemplate.opsForZSet().intersectAndStore(resultKey, Collections.singletonList(statusKey), resultKey, Aggregate.MAX);
             }
+        } else {
+            stringRedisTemplate.opsForZSet().intersectAndStore(keys.get(0), Collections.singletonList(statusKey), resultKey, Aggregate.MAX);
+        }
+        stringRedisTemplate.expire(resultKey, QUERY_RESULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        stringRedisTemplate.opsForSet().add(QUERY_RESULT_SET_KEY, resultKey);
+        stringRedisTemplate.expire(QUERY_RESULT_SET_KEY, QUERY_RESULT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        return resultKey;
+    }
+
+    /**
+     * 根据时间参数计算索引的分数范围
+     */
+    private double[] scoreRange(Map<String, Object> params) {
+        Date startTime = (Date) params.get("startTime");
+        Date endTime = (Date) params.get("endTime");
+        return new double[]{
+                startTime != null ? startTime.getTime() : Double.NEGATIVE_INFINITY,
+                endTime != null ? endTime.getTime() : Double.POSITIVE_INFINITY
+        };
+    }
+
+    /**
+     * 按ID批量读取日志详情，保持ID的顺序，已过期的日志跳过
+     */
+    private List<JobLog> loadJobLogs(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
         }
-        
-        // 时间范围过滤
-        if (params.containsKey("startTime")) {
-            Date startTime = (Date) params.get("startTime");
-            if (jobLog.getCreateTime().before(startTime)) {
-                return false;
+        List<String> logKeys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            logKeys.add(JOB_LOG_KEY_PREFIX + id);
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(logKeys);
+        List<JobLog> jobLogs = new ArrayList<>(ids.size());
+        if (values != null) {
+            for (Object value : values) {
+                if (value instanceof JobLog) {
+                    jobLogs.add((JobLog) value);
+                }
             }
         }
-        
-        if (params.containsKey("endTime")) {
-            Date endTime = (Date) params.get("endTime");
-            if (jobLog.getCreateTime().after(endTime)) {
-                return false;
+        return jobLogs;
+    }
+
+    /**
+     * 按分数范围清理索引，分数不大于maxScore的索引项被移除
+     */
+    private void removeIndexRange(List<String> indexKeys, double maxScore) {
+        pipelined(connection -> {
+            for (String indexKey : indexKeys) {
+                connection.zSetCommands().zRemRangeByScore(bytes(indexKey), Double.NEGATIVE_INFINITY, maxScore);
             }
+        });
+    }
+
+    /**
+     * 除全部日志索引外的各索引键
+     */
+    private List<String> secondaryIndexKeys() {
+        List<String> keys = new ArrayList<>();
+        Set<String> groups = new HashSet<>();
+        for (String job : jobs()) {
+            keys.add(INDEX_JOB_PREFIX + job);
+            groups.add(job.substring(0, job.indexOf(':')));
+        }
+        for (String group : groups) {
+            keys.add(INDEX_GROUP_PREFIX + group);
+        }
+        for (int status : STATUSES) {
+            keys.add(INDEX_STATUS_PREFIX + status);
+        }
+        return keys;
+    }
+
+    /**
+     * 日志所属的各索引键
+     */
+    private List<String> indexKeys(JobLog jobLog) {
+        List<String> keys = new ArrayList<>(4);
+        keys.add(INDEX_ALL_KEY);
+        keys.add(INDEX_JOB_PREFIX + jobKey(jobLog));
+        keys.add(INDEX_GROUP_PREFIX + groupOf(jobLog));
+        if (jobLog.getStatus() != null) {
+            keys.add(INDEX_STATUS_PREFIX + jobLog.getStatus());
+        }
+        return keys;
+    }
+
+    private Set<String> jobs() {
+        Set<String> jobs = stringRedisTemplate.opsForSet().members(JOB_SET_KEY);
+        return jobs != null ? jobs : Collections.emptySet();
+    }
+
+    private List<Object> pipelined(Consumer<RedisConnection> commands) {
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            commands.accept(connection);
+            return null;
+        });
+    }
+
+    private static String jobKey(JobLog jobLog) {
+        return groupOf(jobLog) + ":" + Objects.toString(jobLog.getJobName(), "");
+    }
+
+    private static String groupOf(JobLog jobLog) {
+        return Objects.toString(jobLog.getJobGroup(), "");
+    }
+
+    private static double retentionCutoff() {
+        return System.currentTimeMillis() - TimeUnit.HOURS.toMillis(JOB_LOG_EXPIRE_HOURS);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] toBytes(List<String> values) {
+        byte[][] result = new byte[values.size()][];
+        for (int i = 0; i < values.size(); i++) {
+            result[i] = bytes(values.get(i));
         }
-        
-        return true;
+        return result;
     }
 }
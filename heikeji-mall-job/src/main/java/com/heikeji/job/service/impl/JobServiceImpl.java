@@ -1,5 +1,7 @@
 package com.heikeji.job.service.impl;
 
+import com.heikeji.job.chunk.ChunkRunStats;
+import com.heikeji.job.chunk.ChunkedJobRunner;
 import com.heikeji.job.entity.JobLog;
 import com.heikeji.job.feign.OrderFeignClient;
 import com.heikeji.job.feign.ProductFeignClient;
@@ -47,6 +49,9 @@ public class JobServiceImpl implements JobService {
     @Autowired
     private JobLogService jobLogService;
 
+    @Autowired
+    private ChunkedJobRunner chunkedJobRunner;
+
     /**
      * 执行订单自动取消任务
      * 取消超时未支付的订单
@@ -61,9 +66,15 @@ public class JobServiceImpl implements JobService {
         jobLog.setStatus(0); // 默认成功
         log.info("开始执行订单自动取消任务，超时时间: {}分钟", orderAutoCancelMinutes);
         try {
-            Integer result = orderFeignClient.cancelTimeoutOrders(orderAutoCancelMinutes);
-            jobLog.setResult("成功取消" + result + "个超时订单");
-            log.info("订单自动取消任务执行完成，成功取消{}个超时订单", result);
+            ChunkRunStats stats = chunkedJobRunner.run("orderAutoCancel", (afterId, shardIndex, shardTotal, limit) ->
+                    ChunkedJobRunner.requireData(orderFeignClient.cancelTimeoutOrderChunk(
+                            orderAutoCancelMinutes, afterId, shardIndex, shardTotal, limit)));
+            jobLog.setResult("成功取消" + stats.getProcessed() + "个超时订单，" + stats.summary());
+            if (stats.getError() != null) {
+                jobLog.setStatus(1); // 执行失败，下次从检查点继续
+                jobLog.setErrorMsg(stats.getError());
+            }
+            log.info("订单自动取消任务执行完成，成功取消{}个超时订单", stats.getProcessed());
         } catch (Exception e) {
             jobLog.setStatus(1); // 执行失败
             jobLog.setErrorMsg(e.getMessage());
@@ -93,9 +104,15 @@ public class JobServiceImpl implements JobService {
         jobLog.setStatus(0); // 默认成功
         log.info("开始执行订单自动确认收货任务，超时时间: {}天", orderAutoConfirmDays);
         try {
-            Integer result = orderFeignClient.confirmTimeoutOrders(orderAutoConfirmDays);
-            jobLog.setResult("成功确认收货" + result + "个超时订单");
-            log.info("订单自动确认收货任务执行完成，成功确认收货{}个超时订单", result);
+            ChunkRunStats stats = chunkedJobRunner.run("orderAutoConfirm", (afterId, shardIndex, shardTotal, limit) ->
+                    ChunkedJobRunner.requireData(orderFeignClient.confirmTimeoutOrderChunk(
+                            orderAutoConfirmDays, afterId, shardIndex, shardTotal, limit)));
+            jobLog.setResult("成功确认收货" + stats.getProcessed() + "个超时订单，" + stats.summary());
+            if (stats.getError() != null) {
+                jobLog.setStatus(1); // 执行失败，下次从检查点继续
+                jobLog.setErrorMsg(stats.getError());
+            }
+            log.info("订单自动确认收货任务执行完成，成功确认收货{}个超时订单", stats.getProcessed());
         } catch (Exception e) {
             jobLog.setStatus(1); // 执行失败
             jobLog.setErrorMsg(e.getMessage());
@@ -231,9 +248,15 @@ public class JobServiceImpl implements JobService {
         
         log.info("开始执行外卖柜超时释放任务，超时时间: {}小时", timeoutHours);
         try {
-            Integer result = orderFeignClient.releaseTimeoutLockers(timeoutHours);
-            jobLog.setResult("成功释放" + result + "个超时外卖柜");
-            log.info("外卖柜超时释放任务执行完成，成功释放{}个超时外卖柜", result);
+            ChunkRunStats stats = chunkedJobRunner.run("deliveryLockerTimeoutRelease", (afterId, shardIndex, shardTotal, limit) ->
+                    ChunkedJobRunner.requireData(orderFeignClient.releaseTimeoutLockerChunk(
+                            timeoutHours, afterId, shardIndex, shardTotal, limit)));
+            jobLog.setResult("成功释放" + stats.getProcessed() + "个超时外卖柜，" + stats.summary());
+            if (stats.getError() != null) {
+                jobLog.setStatus(1); // 执行失败，下次从检查点继续
+                jobLog.setErrorMsg(stats.getError());
+            }
+            log.info("外卖柜超时释放任务执行完成，成功释放{}个超时外卖柜", stats.getProcessed());
         } catch (Exception e) {
             jobLog.setStatus(1); // 执行失败
             jobLog.setErrorMsg(e.getMessage());
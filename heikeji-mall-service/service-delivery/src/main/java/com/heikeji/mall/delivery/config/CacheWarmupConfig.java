@@ -1,5 +1,6 @@
 package com.heikeji.mall.delivery.config;
 
+import com.heikeji.mall.delivery.dispatch.RiderGeoIndex;
 import com.heikeji.mall.delivery.service.DeliveryOrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
@@ -20,13 +21,17 @@ public class CacheWarmupConfig implements ApplicationRunner {
     @Autowired
     private DeliveryOrderService deliveryOrderService;
 
+    @Autowired
+    private RiderGeoIndex riderGeoIndex;
+
     @Override
     public void run(ApplicationArguments args) throws Exception {
         System.out.println("开始配送服务缓存预热...");
         
         // 预热配送员信息
         System.out.println("预热配送员信息...");
-        // 例如：预热在线配送员列表
+        // 加载最近上报过位置的配送员到位置索引
+        riderGeoIndex.warmUp();
         
         // 预热配送统计数据
         System.out.println("预热配送统计数据...");
@@ -74,4 +74,16 @@ public class DeliveryAssignController {
         result.put("matchScore", matchScore);
         return R.success(result);
     }
+
+    /**
+     * 批量分配待接单订单
+     */
+    @Operation(summary = "批量分配待接单订单")
+    @PostMapping("/batch")
+    public R<Map<String, Integer>> assignPendingOrders() {
+        int assigned = deliveryAssignService.assignPendingOrders();
+        Map<String, Integer> result = new HashMap<>();
+        result.put("assigned", assigned);
+        return R.success(result);
+    }
 }
@@ -2,12 +2,15 @@ package com.heikeji.mall.delivery.controller;
 
 import com.heikeji.common.core.domain.R;
 import com.heikeji.mall.delivery.service.DeliveryTrackingService;
+import com.heikeji.mall.delivery.tracking.RiderLocationStore;
 import com.heikeji.mall.delivery.vo.DeliveryTrackingVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 /**
  * 配送跟踪控制器
  */
@@ -19,6 +22,9 @@ public class DeliveryTrackingController {
     @Autowired
     private DeliveryTrackingService deliveryTrackingService;
 
+    @Autowired
+    private RiderLocationStore riderLocationStore;
+
     /**
      * 获取订单配送跟踪信息
      */
@@ -53,4 +59,13 @@ public class DeliveryTrackingController {
         boolean result = deliveryTrackingService.addTrackingEvent(orderId, eventType, eventDesc);
         return R.success(result);
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取位置上报与写回统计
+     */
+    @GetMapping("/location/stats")
+    @Operation(summary = "获取位置上报与写回统计")
+    public R<Map<String, Object>> getLocationStats() {
+        return R.success(riderLocationStore.getStats());
+    }
+}
@@ -0,0 +1,61 @@
+package com.heikeji.mall.delivery.dispatch;
+
+/**
+ * 地理坐标工具类
+ */
+public final class GeoUtils {
+
+    /**
+     * 地球平均半径（米）
+     */
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    /**
+     * 每度纬度对应的距离（米）
+     */
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Haversine公式计算两点间的球面距离
+     *
+     * @return 距离（米）
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double sinHalfDeltaLat = Math.sin((lat2 - lat1) / 2);
+        double sinHalfDeltaLng = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfDeltaLat * sinHalfDeltaLat
+                + Math.cos(lat1) * Math.cos(lat2) * sinHalfDeltaLng * sinHalfDeltaLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1D, Math.sqrt(a)));
+    }
+
+    /**
+     * 解析"经度,纬度"格式的坐标
+     *
+     * @param location 地址字段，如"116.3245,39.9921"
+     * @return [纬度, 经度]，不是坐标格式时返回null
+     */
+    public static double[] parseLngLat(String location) {
+        if (location == null) {
+            return null;
+        }
+        int comma = location.indexOf(',');
+        if (comma <= 0 || comma != location.lastIndexOf(',')) {
+            return null;
+        }
+        try {
+            double longitude = Double.parseDouble(location.substring(0, comma).trim());
+            double latitude = Double.parseDouble(location.substring(comma + 1).trim());
+            if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                return null;
+            }
+            return new double[]{latitude, longitude};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
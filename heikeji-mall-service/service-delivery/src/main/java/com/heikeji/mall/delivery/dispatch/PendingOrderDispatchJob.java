@@ -0,0 +1,35 @@
+package com.heikeji.mall.delivery.dispatch;
+
+import com.heikeji.mall.delivery.service.DeliveryAssignService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 待接单订单定时批量分配
+ * delivery.dispatch.batch.enabled=true时生效，每个周期把一批待接单订单分配给附近的配送员。
+ */
+@Component
+@ConditionalOnProperty(prefix = "delivery.dispatch.batch", name = "enabled", havingValue = "true")
+public class PendingOrderDispatchJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingOrderDispatchJob.class);
+
+    @Autowired
+    private DeliveryAssignService deliveryAssignService;
+
+    @Scheduled(fixedDelayString = "${delivery.dispatch.batch.interval-millis:2000}")
+    public void dispatch() {
+        try {
+            int assigned = deliveryAssignService.assignPendingOrders();
+            if (assigned > 0) {
+                log.info("批量分配订单完成，分配数: {}", assigned);
+            }
+        } catch (Exception e) {
+            log.error("批量分配订单失败", e);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.heikeji.mall.delivery.dispatch;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.heikeji.mall.delivery.entity.DeliveryUser;
+import com.heikeji.mall.delivery.mapper.DeliveryUserMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 配送员位置网格索引
+ * 按固定边长的经纬度网格划分位置，每个网格保存其中的配送员ID，位置由配送员上报位置时实时更新。
+ * 查询最近的k个配送员时从订单所在网格开始逐圈向外扩展，只计算附近网格中配送员的Haversine距离，
+ * 当已找到k个且第k个的距离不超过下一圈的最近可能距离时停止。超过position-ttl-seconds未上报的位置视为离线。
+ */
+@Component
+public class RiderGeoIndex implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RiderGeoIndex.class);
+
+    /**
+     * 单次查询最多扩展的圈数
+     */
+    private static final int MAX_RINGS = 200;
+
+    @Autowired(required = false)
+    private DeliveryUserMapper deliveryUserMapper;
+
+    /**
+     * 网格边长（米）
+     */
+    @Value("${delivery.dispatch.cell-size-meters:500}")
+    private double cellSizeMeters = 500;
+
+    /**
+     * 位置有效期（秒）
+     */
+    @Value("${delivery.dispatch.position-ttl-seconds:300}")
+    private long positionTtlSeconds = 300;
+
+    private final ConcurrentHashMap<Long, RiderPosition> positions = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    private double cellDegrees;
+
+    @Override
+    public void afterPropertiesSet() {
+        cellDegrees = cellSizeMeters / GeoUtils.METERS_PER_DEGREE;
+    }
+
+    /**
+     * 从数据库加载最近上报过位置的已审核配送员
+     */
+    public void warmUp() {
+        if (deliveryUserMapper == null) {
+            return;
+        }
+        LambdaQueryWrapper<DeliveryUser> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(DeliveryUser::getId, DeliveryUser::getLatitude, DeliveryUser::getLongitude,
+                        DeliveryUser::getLastLocationTime)
+                .eq(DeliveryUser::getStatus, 1)
+                .isNotNull(DeliveryUser::getLatitude)
+                .isNotNull(DeliveryUser::getLongitude)
+                .ge(DeliveryUser::getLastLocationTime,
+                        new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(positionTtlSeconds)));
+        List<DeliveryUser> riders;
+        try {
+            riders = deliveryUserMapper.selectList(queryWrapper);
+        } catch (Exception e) {
+            // 预热失败不影响启动，配送员下次上报位置时会重新加入索引
+            log.warn("配送员位置索引预热失败: {}", e.getMessage());
+            return;
+        }
+        for (DeliveryUser rider : riders) {
+            update(rider.getId(), rider.getLatitude(), rider.getLongitude(), rider.getLastLocationTime().getTime());
+        }
+        log.info("配送员位置索引预热完成，配送员数: {}", riders.size());
+    }
+
+    /**
+     * 更新配送员位置
+     */
+    public void update(Long riderId, double latitude, double longitude) {
+        update(riderId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    void update(Long riderId, double latitude, double longitude, long timestamp) {
+        long cell = cellOf(latitude, longitude);
+        positions.compute(riderId, (id, old) -> {
+            if (old != null && old.timestamp > timestamp) {
+                return old;
+            }
+            if (old == null || old.cell != cell) {
+                if (old != null) {
+                    removeFromCell(old.cell, id);
+                }
+                addToCell(cell, id);
+            }
+            return new RiderPosition(latitude, longitude, timestamp, cell);
+        });
+    }
+
+    /**
+     * 移除配送员，如配送员被禁用
+     */
+    public void remove(Long riderId) {
+        positions.computeIfPresent(riderId, (id, old) -> {
+            removeFromCell(old.cell, id);
+            return null;
+        });
+    }
+
+    /**
+     * 获取配送员的有效位置
+     *
+     * @return 位置，没有或已过期时返回null
+     */
+    public RiderPosition get(Long riderId) {
+        RiderPosition position = positions.get(riderId);
+        return position != null && !isExpired(position, System.currentTimeMillis()) ? position : null;
+    }
+
+    /**
+     * 查询距离指定点最近的k个配送员
+     *
+     * @param maxDistanceMeters 最大距离（米）
+     * @return 按距离升序排列的候选配送员
+     */
+    public List<Candidate> nearest(double latitude, double longitude, int k, double maxDistanceMeters) {
+        return nearest(latitude, longitude, k, maxDistanceMeters, System.currentTimeMillis());
+    }
+
+    List<Candidate> nearest(double latitude, double longitude, int k, double maxDistanceMeters, long now) {
+        if (k <= 0 || positions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long center = cellOf(latitude, longitude);
+        int centerRow = (int) (center >> 32);
+        int centerColumn = (int) center;
+        // 经度方向的网格宽度随纬度变窄，按较窄的一边估算每圈的最近距离
+        double ringWidthMeters = cellSizeMeters * Math.max(Math.cos(Math.toRadians(Math.abs(latitude) + cellDegrees)), 0.01);
+        int maxRing = (int) Math.min(Math.ceil(maxDistanceMeters / ringWidthMeters) + 1, MAX_RINGS);
+
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Candidate::getDistanceMeters).reversed());
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    collect(cellKey(row, column), latitude, longitude, k, maxDistanceMeters, now, heap);
+                }
+            }
+            // 下一圈中的点距离不小于ring个网格宽度
+            if (heap.size() == k && heap.peek().getDistanceMeters() <= ring * ringWidthMeters) {
+                break;
+            }
+        }
+        List<Candidate> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(Candidate::getDistanceMeters));
+        return result;
+    }
+
+    private void collect(long cell, double latitude, double longitude, int k, double maxDistanceMeters, long now,
+                         PriorityQueue<Candidate> heap) {
+        Set<Long> riderIds = cells.get(cell);
+        if (riderIds == null) {
+            return;
+        }
+        for (Long riderId : riderIds) {
+            RiderPosition position = positions.get(riderId);
+            if (position == null || position.cell != cell || isExpired(position, now)) {
+                continue;
+            }
+            double distance = GeoUtils.distanceMeters(latitude, longitude, position.latitude, position.longitude);
+            if (distance > maxDistanceMeters) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(new Candidate(riderId, distance));
+            } else if (distance < heap.peek().getDistanceMeters()) {
+                heap.poll();
+                heap.add(new Candidate(riderId, distance));
+            }
+        }
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * 清理过期的位置
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        positions.forEach((riderId, position) -> {
+            if (isExpired(position, now)) {
+                positions.computeIfPresent(riderId, (id, current) -> {
+                    if (!isExpired(current, now)) {
+                        return current;
+                    }
+                    removeFromCell(current.cell, id);
+                    return null;
+                });
+            }
+        });
+    }
+
+    private boolean isExpired(RiderPosition position, long now) {
+        return now - position.timestamp > TimeUnit.SECONDS.toMillis(positionTtlSeconds);
+    }
+
+    private void addToCell(long cell, Long riderId) {
+        // 增删都在compute中完成，避免与删除空网格并发时加入到已被移除的集合
+        cells.compute(cell, (key, riderIds) -> {
+            Set<Long> target = riderIds != null ? riderIds : ConcurrentHashMap.newKeySet();
+            target.add(riderId);
+            return target;
+        });
+    }
+
+    private void removeFromCell(long cell, Long riderId) {
+        cells.computeIfPresent(cell, (key, riderIds) -> {
+            riderIds.remove(riderId);
+            return riderIds.isEmpty() ? null : riderIds;
+        });
+    }
+
+    private long cellOf(double latitude, double longitude) {
+        return cellKey((int) Math.floor(latitude / cellDegrees), (int) Math.floor(longitude / cellDegrees));
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 配送员位置
+     */
+    public static final class RiderPosition {
+
+        private final double latitude;
+
+        private final double longitude;
+
+        private final long timestamp;
+
+        private final long cell;
+
+        private RiderPosition(double latitude, double longitude, long timestamp, long cell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+            this.cell = cell;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * 候选配送员
+     */
+    public static final class Candidate {
+
+        private final Long riderId;
+
+        private final double distanceMeters;
+
+        public Candidate(Long riderId, double distanceMeters) {
+            this.riderId = riderId;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public Long getRiderId() {
+            return riderId;
+        }
+
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+    }
+}
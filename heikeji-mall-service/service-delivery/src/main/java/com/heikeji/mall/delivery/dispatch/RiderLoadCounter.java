@@ -0,0 +1,107 @@
+package com.heikeji.mall.delivery.dispatch;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.heikeji.mall.delivery.constant.DeliveryConstant;
+import com.heikeji.mall.delivery.entity.DeliveryOrder;
+import com.heikeji.mall.delivery.mapper.DeliveryOrderMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 配送员实时负载计数
+ * 记录每个配送员已接单和配送中的订单数，接单、完成、取消时在事务提交后增减；
+ * 定时按delivery_order重新统计一次，纠正多实例部署或异常导致的偏差。
+ */
+@Component
+public class RiderLoadCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(RiderLoadCounter.class);
+
+    @Autowired
+    private DeliveryOrderMapper deliveryOrderMapper;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    /**
+     * 配送员当前未完成的订单数
+     */
+    public int get(Long riderId) {
+        AtomicInteger load = loads.get(riderId);
+        return load != null ? load.get() : 0;
+    }
+
+    /**
+     * 配送员接单
+     */
+    public void increment(Long riderId) {
+        afterCommit(() -> loads.computeIfAbsent(riderId, id -> new AtomicInteger()).incrementAndGet());
+    }
+
+    /**
+     * 配送员完成或取消订单
+     */
+    public void decrement(Long riderId) {
+        afterCommit(() -> {
+            AtomicInteger load = loads.get(riderId);
+            if (load != null) {
+                load.updateAndGet(value -> Math.max(value - 1, 0));
+            }
+        });
+    }
+
+    /**
+     * 按数据库重新统计各配送员的负载
+     */
+    @Scheduled(fixedDelayString = "${delivery.dispatch.load-resync-millis:300000}")
+    public void resync() {
+        try {
+            QueryWrapper<DeliveryOrder> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("delivery_user_id", "COUNT(*) AS active_count")
+                    .in("status", DeliveryConstant.OrderStatus.ACCEPTED, DeliveryConstant.OrderStatus.DELIVERING)
+                    .isNotNull("delivery_user_id")
+                    .eq("deleted", 0)
+                    .groupBy("delivery_user_id");
+            List<Map<String, Object>> rows = deliveryOrderMapper.selectMaps(queryWrapper);
+            Map<Long, Integer> counts = new HashMap<>(rows.size() * 2);
+            for (Map<String, Object> row : rows) {
+                Object riderId = row.get("delivery_user_id");
+                Object count = row.get("active_count");
+                if (riderId instanceof Number && count instanceof Number) {
+                    counts.put(((Number) riderId).longValue(), ((Number) count).intValue());
+                }
+            }
+            counts.forEach((riderId, count) -> loads.computeIfAbsent(riderId, id -> new AtomicInteger()).set(count));
+            loads.forEach((riderId, load) -> {
+                if (!counts.containsKey(riderId)) {
+                    load.set(0);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("重新统计配送员负载失败: {}", e.getMessage());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
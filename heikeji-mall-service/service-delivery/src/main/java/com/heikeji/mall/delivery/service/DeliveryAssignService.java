@@ -38,4 +38,10 @@ public interface DeliveryAssignService {
      * @return 匹配度分数（0-100）
      */
     int calculateMatchScore(Long deliveryUserId, Long orderId);
+
+    /**
+     * 批量分配待接单订单
+     * @return 成功分配的订单数
+     */
+    int assignPendingOrders();
 }
@@ -3,6 +3,9 @@ package com.heikeji.mall.delivery.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.heikeji.common.core.exception.BaseException;
 import com.heikeji.mall.delivery.constant.DeliveryConstant;
+import com.heikeji.mall.delivery.dispatch.GeoUtils;
+import com.heikeji.mall.delivery.dispatch.RiderGeoIndex;
+import com.heikeji.mall.delivery.dispatch.RiderLoadCounter;
 import com.heikeji.mall.delivery.entity.DeliveryOrder;
 import com.heikeji.mall.delivery.entity.DeliveryUser;
 import com.heikeji.mall.delivery.service.DeliveryAssignService;
@@ -11,24 +14,62 @@ import com.heikeji.mall.delivery.service.DeliveryUserService;
 import com.heikeji.mall.delivery.vo.AssignResultVO;
 import com.heikeji.mall.delivery.vo.OrderAcceptRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 配送订单分配服务实现
+ * 候选配送员来自内存位置索引中距取货点最近的若干人，只对这些人批量查询并评分，
+ * 距离按Haversine公式计算，负载取自实时负载计数。
+ * 起始地址无法解析为坐标时在全部已审核通过的配送员中选择，距离按未知计分。
  */
 @Service
 public class DeliveryAssignServiceImpl implements DeliveryAssignService {
 
+    /**
+     * 距离未知时按最远档计分
+     */
+    private static final double UNKNOWN_DISTANCE = Double.MAX_VALUE;
+
     @Autowired
     private DeliveryOrderService deliveryOrderService;
 
     @Autowired
     private DeliveryUserService deliveryUserService;
 
+    @Autowired
+    private RiderGeoIndex riderGeoIndex;
+
+    @Autowired
+    private RiderLoadCounter riderLoadCounter;
+
+    /**
+     * 每个订单参与评分的最近配送员数
+     */
+    @Value("${delivery.dispatch.candidate-count:20}")
+    private int candidateCount = 20;
+
+    /**
+     * 候选配送员的最大距离（米）
+     */
+    @Value("${delivery.dispatch.search-radius-meters:5000}")
+    private double searchRadiusMeters = 5000;
+
+    /**
+     * 配送员同时持有的最大订单数
+     */
+    @Value("${delivery.dispatch.max-active-orders:5}")
+    private int maxActiveOrders = 5;
+
+    /**
+     * 每次批量分配处理的最大订单数
+     */
+    @Value("${delivery.dispatch.batch-size:100}")
+    private int batchSize = 100;
+
     /**
      * 自动分配订单给最合适的配送员
      */
@@ -52,35 +93,18 @@ public class DeliveryAssignServiceImpl implements DeliveryAssignService {
             return result;
         }
 
-        // 获取可分配的配送员列表
-        List<DeliveryUser> availableUsers = getAvailableDeliveryUsers();
-        if (availableUsers.isEmpty()) {
+        // 从位置索引中取附近的配送员并评分
+        List<ScoredRider> rankedRiders = rankRiders(order);
+        if (rankedRiders.isEmpty()) {
             AssignResultVO result = new AssignResultVO();
             result.setStatus(0);
-            result.setMessage("暂无可用配送员");
+            result.setMessage("附近暂无可用配送员");
             return result;
         }
 
-        // 计算每个配送员的匹配度
-        List<Map<String, Object>> userScores = new ArrayList<>();
-        for (DeliveryUser user : availableUsers) {
-            int matchScore = calculateMatchScore(user.getId(), orderId);
-            Map<String, Object> userScore = new HashMap<>();
-            userScore.put("user", user);
-            userScore.put("score", matchScore);
-            userScores.add(userScore);
-        }
-
-        // 按匹配度降序排序
-        userScores.sort((a, b) -> {
-            Integer scoreA = (Integer) a.get("score");
-            Integer scoreB = (Integer) b.get("score");
-            return scoreB.compareTo(scoreA);
-        });
-
         // 分配给匹配度最高的配送员
-        DeliveryUser bestMatchUser = (DeliveryUser) userScores.get(0).get("user");
-        Integer bestMatchScore = (Integer) userScores.get(0).get("score");
+        DeliveryUser bestMatchUser = rankedRiders.get(0).user;
+        Integer bestMatchScore = rankedRiders.get(0).score;
 
         // 调用接单逻辑
         OrderAcceptRequest acceptRequest = new OrderAcceptRequest();
@@ -159,26 +183,22 @@ public class DeliveryAssignServiceImpl implements DeliveryAssignService {
      */
     @Override
     public Map<String, Object> getAvailableDeliveryUsers(Long orderId) {
-        // 获取所有已审核通过的配送员
-        List<DeliveryUser> availableUsers = getAvailableDeliveryUsers();
-
-        // 计算每个配送员与订单的匹配度
-        List<Map<String, Object>> userMatchList = availableUsers.stream()
-                .map(user -> {
-                    Map<String, Object> userMatch = new HashMap<>();
-                    userMatch.put("deliveryUserId", user.getId());
-                    userMatch.put("name", user.getName());
-                    userMatch.put("phone", user.getPhone());
-                    userMatch.put("status", user.getStatus());
-                    userMatch.put("matchScore", calculateMatchScore(user.getId(), orderId));
-                    return userMatch;
-                })
-                .sorted((a, b) -> {
-                    Integer scoreA = (Integer) a.get("matchScore");
-                    Integer scoreB = (Integer) b.get("matchScore");
-                    return scoreB.compareTo(scoreA);
-                })
-                .collect(Collectors.toList());
+        DeliveryOrder order = deliveryOrderService.getById(orderId);
+        List<ScoredRider> rankedRiders = order != null ? rankRiders(order) : Collections.emptyList();
+
+        // 附近配送员已按匹配度降序排列
+        List<Map<String, Object>> userMatchList = new ArrayList<>(rankedRiders.size());
+        for (ScoredRider rider : rankedRiders) {
+            Map<String, Object> userMatch = new HashMap<>();
+            userMatch.put("deliveryUserId", rider.user.getId());
+            userMatch.put("name", rider.user.getName());
+            userMatch.put("phone", rider.user.getPhone());
+            userMatch.put("status", rider.user.getStatus());
+            userMatch.put("distance", rider.distanceMeters != UNKNOWN_DISTANCE ? Math.round(rider.distanceMeters) : null);
+            userMatch.put("activeOrders", rider.activeOrders);
+            userMatch.put("matchScore", rider.score);
+            userMatchList.add(userMatch);
+        }
 
         Map<String, Object> result = new HashMap<>();
         result.put("deliveryUsers", userMatchList);
@@ -203,32 +223,152 @@ public class DeliveryAssignServiceImpl implements DeliveryAssignService {
             return 0;
         }
 
+        // 优先使用位置索引中的实时位置，没有时使用最后一次入库的位置；取货点无法定位时距离按未知计分
+        double[] pickup = resolvePickupPoint(order);
+        double distance = UNKNOWN_DISTANCE;
+        if (pickup != null) {
+            RiderGeoIndex.RiderPosition position = riderGeoIndex.get(deliveryUserId);
+            if (position != null) {
+                distance = GeoUtils.distanceMeters(pickup[0], pickup[1], position.getLatitude(), position.getLongitude());
+            } else if (user.getLatitude() != null && user.getLongitude() != null) {
+                distance = GeoUtils.distanceMeters(pickup[0], pickup[1], user.getLatitude(), user.getLongitude());
+            }
+        }
+        return score(user, distance, riderLoadCounter.get(deliveryUserId));
+    }
+
+    /**
+     * 批量分配待接单订单
+     * 一次取出最早的一批待接单订单，合并查询所有候选配送员后按匹配度从高到低贪心分配，
+     * 每个配送员的负载随分配实时增加，达到上限后不再分配。
+     */
+    @Override
+    public int assignPendingOrders() {
+        LambdaQueryWrapper<DeliveryOrder> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(DeliveryOrder::getStatus, DeliveryConstant.OrderStatus.PENDING)
+                .eq(DeliveryOrder::getDeleted, 0)
+                .orderByAsc(DeliveryOrder::getCreateTime)
+                .last("LIMIT " + batchSize);
+        List<DeliveryOrder> pendingOrders = deliveryOrderService.list(queryWrapper);
+        if (pendingOrders.isEmpty()) {
+            return 0;
+        }
+
+        // 先对每个订单取附近的候选配送员，再一次性查询所有候选配送员的信息
+        // 取货点无法定位的订单以全部已审核通过的配送员为候选，只查询一次
+        Map<Long, List<RiderGeoIndex.Candidate>> candidatesByOrder = new HashMap<>();
+        Set<Long> riderIds = new HashSet<>();
+        Map<Long, DeliveryUser> allVerifiedRiders = null;
+        for (DeliveryOrder order : pendingOrders) {
+            double[] pickup = resolvePickupPoint(order);
+            List<RiderGeoIndex.Candidate> candidates;
+            if (pickup != null) {
+                candidates = riderGeoIndex.nearest(pickup[0], pickup[1], candidateCount, searchRadiusMeters);
+            } else {
+                if (allVerifiedRiders == null) {
+                    allVerifiedRiders = listVerifiedRiders();
+                }
+                candidates = unlocatedCandidates(allVerifiedRiders);
+            }
+            candidatesByOrder.put(order.getId(), candidates);
+            for (RiderGeoIndex.Candidate candidate : candidates) {
+                riderIds.add(candidate.getRiderId());
+            }
+        }
+        Map<Long, DeliveryUser> riders = allVerifiedRiders != null ? allVerifiedRiders : loadVerifiedRiders(riderIds);
+
+        List<Assignment> assignments = new ArrayList<>();
+        for (DeliveryOrder order : pendingOrders) {
+            for (ScoredRider rider : score(candidatesByOrder.get(order.getId()), riders)) {
+                assignments.add(new Assignment(order.getId(), rider));
+            }
+        }
+        assignments.sort(Comparator.comparingInt((Assignment a) -> a.rider.score).reversed()
+                .thenComparingDouble(a -> a.rider.distanceMeters));
+
+        Set<Long> assignedOrders = new HashSet<>();
+        int assigned = 0;
+        for (Assignment assignment : assignments) {
+            Long riderId = assignment.rider.user.getId();
+            if (assignedOrders.contains(assignment.orderId) || riderLoadCounter.get(riderId) >= maxActiveOrders) {
+                continue;
+            }
+            OrderAcceptRequest acceptRequest = new OrderAcceptRequest();
+            acceptRequest.setOrderId(assignment.orderId);
+            acceptRequest.setDeliveryUserId(riderId);
+            try {
+                // 每单独立事务，提交后负载计数随之增加
+                if (deliveryOrderService.acceptOrder(acceptRequest)) {
+                    assigned++;
+                }
+                assignedOrders.add(assignment.orderId);
+            } catch (BaseException e) {
+                // 订单已被其他配送员接单或取消
+                assignedOrders.add(assignment.orderId);
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * 取订单附近的候选配送员并按匹配度降序排列，已达负载上限的配送员不参与
+     */
+    private List<ScoredRider> rankRiders(DeliveryOrder order) {
+        double[] pickup = resolvePickupPoint(order);
+        if (pickup == null) {
+            Map<Long, DeliveryUser> riders = listVerifiedRiders();
+            return score(unlocatedCandidates(riders), riders);
+        }
+        List<RiderGeoIndex.Candidate> candidates = riderGeoIndex.nearest(pickup[0], pickup[1], candidateCount,
+                searchRadiusMeters);
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> riderIds = new HashSet<>();
+        for (RiderGeoIndex.Candidate candidate : candidates) {
+            riderIds.add(candidate.getRiderId());
+        }
+        return score(candidates, loadVerifiedRiders(riderIds));
+    }
+
+    private List<ScoredRider> score(List<RiderGeoIndex.Candidate> candidates, Map<Long, DeliveryUser> riders) {
+        List<ScoredRider> scored = new ArrayList<>(candidates.size());
+        for (RiderGeoIndex.Candidate candidate : candidates) {
+            DeliveryUser user = riders.get(candidate.getRiderId());
+            int activeOrders = riderLoadCounter.get(candidate.getRiderId());
+            if (user == null || activeOrders >= maxActiveOrders) {
+                continue;
+            }
+            scored.add(new ScoredRider(user, candidate.getDistanceMeters(), activeOrders,
+                    score(user, candidate.getDistanceMeters(), activeOrders)));
+        }
+        scored.sort(Comparator.comparingInt((ScoredRider rider) -> rider.score).reversed()
+                .thenComparingDouble(rider -> rider.distanceMeters));
+        return scored;
+    }
+
+    /**
+     * 计算匹配度（0-100）
+     *
+     * @param distanceMeters 配送员到取货点的距离，未知时为UNKNOWN_DISTANCE
+     * @param activeOrders   配送员当前未完成的订单数
+     */
+    private int score(DeliveryUser user, double distanceMeters, int activeOrders) {
         int score = 0;
 
         // 1. 配送员状态（最高20分）
-        if (user.getStatus() == 1) { // 已审核通过
+        if (user.getStatus() != null && user.getStatus() == 1) { // 已审核通过
             score += 20;
         }
 
-        // 2. 配送员与订单的距离评分（最高40分）
-        // 这里简化处理，实际应该计算真实距离
-        // 假设订单起点坐标为(116.3, 39.9)，配送员坐标为user.getLatitude()和user.getLongitude()
-        double orderLat = 116.3;
-        double orderLng = 39.9;
-        double userLat = user.getLatitude() != null ? user.getLatitude() : 0;
-        double userLng = user.getLongitude() != null ? user.getLongitude() : 0;
-        
-        // 简化的距离计算（实际应该使用Haversine公式）
-        double distance = Math.sqrt(Math.pow(orderLat - userLat, 2) + Math.pow(orderLng - userLng, 2));
-        
-        // 距离越近，分数越高
-        if (distance < 0.1) {
+        // 2. 配送员与取货点的距离评分（最高40分），距离越近分数越高
+        if (distanceMeters < 500) {
             score += 40;
-        } else if (distance < 0.3) {
+        } else if (distanceMeters < 1000) {
             score += 30;
-        } else if (distance < 0.5) {
+        } else if (distanceMeters < 2000) {
             score += 20;
-        } else if (distance < 1.0) {
+        } else if (distanceMeters < 3000) {
             score += 10;
         } else {
             score += 5;
@@ -236,24 +376,97 @@ public class DeliveryAssignServiceImpl implements DeliveryAssignService {
 
         // 3. 配送员历史表现（最高20分）
         // 这里简化处理，实际应该查询配送员历史订单完成率和评分
-        // 假设配送员的历史表现良好
         score += 20;
 
-        // 4. 配送员当前负载（最高20分）
-        // 这里简化处理，实际应该查询配送员当前待完成的订单数量
-        // 假设配送员当前负载较低
-        score += 20;
+        // 4. 配送员当前负载（最高20分），未完成订单越多分数越低
+        score += 20 * Math.max(maxActiveOrders - activeOrders, 0) / maxActiveOrders;
 
         // 确保分数在0-100之间
         return Math.min(Math.max(score, 0), 100);
     }
 
     /**
-     * 获取所有可用的配送员（已审核通过且在线的配送员）
+     * 批量查询已审核通过的配送员
+     */
+    private Map<Long, DeliveryUser> loadVerifiedRiders(Set<Long> riderIds) {
+        Map<Long, DeliveryUser> riders = new HashMap<>();
+        if (riderIds.isEmpty()) {
+            return riders;
+        }
+        for (DeliveryUser user : deliveryUserService.listByIds(riderIds)) {
+            if (user.getStatus() != null && user.getStatus() == 1) { // 1-已审核通过
+                riders.put(user.getId(), user);
+            }
+        }
+        return riders;
+    }
+
+    /**
+     * 查询全部已审核通过的配送员，用于取货点无法定位的订单
      */
-    private List<DeliveryUser> getAvailableDeliveryUsers() {
+    private Map<Long, DeliveryUser> listVerifiedRiders() {
         LambdaQueryWrapper<DeliveryUser> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(DeliveryUser::getStatus, 1); // 1-已审核通过
-        return deliveryUserService.list(queryWrapper);
+        Map<Long, DeliveryUser> riders = new HashMap<>();
+        for (DeliveryUser user : deliveryUserService.list(queryWrapper)) {
+            riders.put(user.getId(), user);
+        }
+        return riders;
+    }
+
+    /**
+     * 取货点无法定位时的候选配送员，距离按未知计分
+     */
+    private static List<RiderGeoIndex.Candidate> unlocatedCandidates(Map<Long, DeliveryUser> riders) {
+        List<RiderGeoIndex.Candidate> candidates = new ArrayList<>(riders.size());
+        for (Long riderId : riders.keySet()) {
+            candidates.add(new RiderGeoIndex.Candidate(riderId, UNKNOWN_DISTANCE));
+        }
+        return candidates;
+    }
+
+    /**
+     * 取货点坐标：起始地址为"经度,纬度"格式时使用该坐标
+     *
+     * @return [纬度, 经度]，起始地址无法解析为坐标时返回null
+     */
+    private double[] resolvePickupPoint(DeliveryOrder order) {
+        return GeoUtils.parseLngLat(order.getStartLocation());
+    }
+
+    /**
+     * 已评分的候选配送员
+     */
+    private static final class ScoredRider {
+
+        private final DeliveryUser user;
+
+        private final double distanceMeters;
+
+        private final int activeOrders;
+
+        private final int score;
+
+        private ScoredRider(DeliveryUser user, double distanceMeters, int activeOrders, int score) {
+            this.user = user;
+            this.distanceMeters = distanceMeters;
+            this.activeOrders = activeOrders;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 批量分配中的订单与配送员组合
+     */
+    private static final class Assignment {
+
+        private final Long orderId;
+
+        private final ScoredRider rider;
+
+        private Assignment(Long orderId, ScoredRider rider) {
+            this.orderId = orderId;
+            this.rider = rider;
+        }
     }
 }
@@ -3,7 +3,9 @@ package com.heikeji.mall.delivery.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.heikeji.common.core.exception.BaseException;
+import com.heikeji.common.core.id.IdGenerator;
 import com.heikeji.mall.delivery.constant.DeliveryConstant;
+import com.heikeji.mall.delivery.dispatch.RiderLoadCounter;
 import com.heikeji.mall.delivery.entity.DeliveryOrder;
 import com.heikeji.mall.delivery.mapper.DeliveryOrderMapper;
 import com.heikeji.mall.delivery.service.DeliveryOrderService;
@@ -21,7 +23,6 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * 配送订单服务实现
@@ -35,6 +36,12 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
     @Autowired
     private DeliveryTrackingService deliveryTrackingService;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired(required = false)
+    private RiderLoadCounter riderLoadCounter;
+
     /**
      * 创建配送订单
      */
@@ -127,6 +134,9 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
         
         // 创建配送跟踪记录
         if (result) {
+            if (riderLoadCounter != null) {
+                riderLoadCounter.increment(request.getDeliveryUserId());
+            }
             deliveryTrackingService.createTracking(request.getOrderId(), request.getDeliveryUserId());
             deliveryTrackingService.addTrackingEvent(request.getOrderId(), 2, "配送员已接单，正在前往取货地点");
         }
@@ -198,6 +208,9 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
         
         // 更新配送跟踪状态
         if (result) {
+            if (riderLoadCounter != null) {
+                riderLoadCounter.decrement(order.getDeliveryUserId());
+            }
             deliveryTrackingService.updateLocation(orderId, null, null, DeliveryConstant.OrderStatus.COMPLETED);
             deliveryTrackingService.addTrackingEvent(orderId, 4, "配送已完成，感谢您的使用");
         }
@@ -223,6 +236,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
             throw new BaseException("已完成的订单无法取消");
         }
         
+        Integer previousStatus = order.getStatus();
+
         // 更新订单信息
         order.setStatus(DeliveryConstant.OrderStatus.CANCELLED); // 已取消
         order.setCancelReason(reason);
@@ -233,6 +248,10 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
         
         // 更新配送跟踪状态（如果已存在）
         if (result && order.getDeliveryUserId() != null) {
+            if (riderLoadCounter != null && !DeliveryConstant.OrderStatus.PENDING.equals(previousStatus)
+                    && !DeliveryConstant.OrderStatus.CANCELLED.equals(previousStatus)) {
+                riderLoadCounter.decrement(order.getDeliveryUserId());
+            }
             deliveryTrackingService.updateLocation(orderId, null, null, DeliveryConstant.OrderStatus.CANCELLED);
             deliveryTrackingService.addTrackingEvent(orderId, 5, "订单已取消：" + reason);
         }
@@ -285,13 +304,7 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
      * 生成订单号
      */
     private String generateOrderNo() {
-        StringBuilder orderNo = new StringBuilder();
-        // 时间戳
-        orderNo.append(System.currentTimeMillis());
-        // 随机数
-        Random random = new Random();
-        orderNo.append(String.format("%04d", random.nextInt(10000)));
-        return orderNo.toString();
+        return idGenerator.nextNo();
     }
 
     /**
@@ -11,6 +11,7 @@ import com.heikeji.mall.delivery.service.DeliveryEventService;
 import com.heikeji.mall.delivery.service.DeliveryOrderService;
 import com.heikeji.mall.delivery.service.DeliveryTrackingService;
 import com.heikeji.mall.delivery.service.DeliveryUserService;
+import com.heikeji.mall.delivery.tracking.RiderLocationStore;
 import com.heikeji.mall.delivery.vo.DeliveryEventVO;
 import com.heikeji.mall.delivery.vo.DeliveryTrackingVO;
 import org.springframework.beans.BeanUtils;
@@ -38,6 +39,9 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
     @Autowired
     private DeliveryEventService deliveryEventService;
 
+    @Autowired
+    private RiderLocationStore riderLocationStore;
+
     @Override
     @Transactional
     public boolean createTracking(Long orderId, Long deliveryUserId) {
@@ -72,18 +76,52 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
     }
 
     @Override
-    @Transactional
     public boolean updateLocation(Long orderId, Double latitude, Double longitude, Integer status) {
+        // 单纯的位置上报只写内存，由RiderLocationStore合并后定时批量写回
+        if (status == null && latitude != null && longitude != null) {
+            RiderLocationStore.OrderLocation current = riderLocationStore.getOrderLocation(orderId);
+            Long deliveryUserId = current != null ? current.getRiderId() : null;
+            if (deliveryUserId == null) {
+                DeliveryTracking tracking = deliveryTrackingMapper.selectByOrderId(orderId);
+                if (tracking == null) {
+                    throw new BaseException("配送跟踪记录不存在");
+                }
+                deliveryUserId = tracking.getDeliveryUserId();
+            }
+            if (deliveryUserId == null) {
+                throw new BaseException("订单尚未分配配送员");
+            }
+            riderLocationStore.report(orderId, deliveryUserId, latitude, longitude);
+            return true;
+        }
+        return updateTracking(orderId, latitude, longitude, status);
+    }
+
+    /**
+     * 状态变更同步写入跟踪记录，并带上内存中的最新位置
+     */
+    private boolean updateTracking(Long orderId, Double latitude, Double longitude, Integer status) {
         // 查找跟踪记录
         DeliveryTracking tracking = deliveryTrackingMapper.selectByOrderId(orderId);
         if (tracking == null) {
             throw new BaseException("配送跟踪记录不存在");
         }
         
-        // 更新位置信息
-        tracking.setLatitude(latitude);
-        tracking.setLongitude(longitude);
-        tracking.setLastUpdateTime(new Date());
+        // 更新位置信息，同时更新配送员的位置
+        if (latitude != null && longitude != null) {
+            riderLocationStore.report(orderId, tracking.getDeliveryUserId(), latitude, longitude);
+        }
+        // 订单结束后不再需要内存中的最新位置，移除后随状态一起写回
+        boolean finished = DeliveryConstant.OrderStatus.COMPLETED.equals(status)
+                || DeliveryConstant.OrderStatus.CANCELLED.equals(status);
+        RiderLocationStore.OrderLocation current = finished
+                ? riderLocationStore.removeOrder(orderId) : riderLocationStore.getOrderLocation(orderId);
+        if (current != null) {
+            RiderLocationStore.Location latest = current.getLatest();
+            tracking.setLatitude(latest.getLatitude());
+            tracking.setLongitude(latest.getLongitude());
+            tracking.setLastUpdateTime(new Date(latest.getTimestamp()));
+        }
         
         // 如果状态有变化，则更新状态
         if (status != null && !status.equals(tracking.getStatus())) {
@@ -92,9 +130,6 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
         
         tracking.setUpdateTime(new Date());
         
-        // 同时更新配送员的位置信息
-        deliveryUserService.updateLocation(tracking.getDeliveryUserId(), latitude, longitude);
-        
         return updateById(tracking);
     }
 
@@ -110,6 +145,15 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
         DeliveryTrackingVO vo = new DeliveryTrackingVO();
         BeanUtils.copyProperties(tracking, vo);
         
+        // 内存中的位置比数据库中的新，最多相差一个写回周期
+        RiderLocationStore.OrderLocation current = riderLocationStore.getOrderLocation(orderId);
+        if (current != null) {
+            RiderLocationStore.Location latest = current.getLatest();
+            vo.setLatitude(latest.getLatitude());
+            vo.setLongitude(latest.getLongitude());
+            vo.setLastUpdateTime(new Date(latest.getTimestamp()));
+        }
+        
         // 获取配送员信息
         DeliveryUser deliveryUser = deliveryUserService.getById(tracking.getDeliveryUserId());
         if (deliveryUser != null) {
@@ -129,6 +173,9 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
         // 获取配送事件列表（这里简单模拟，实际应该从数据库查询）
         vo.setEvents(getDeliveryEvents(orderId));
         
+        // 回放配送轨迹
+        vo.setTrack(getTrack(orderId));
+        
         return vo;
     }
 
@@ -184,6 +231,21 @@ public class DeliveryTrackingServiceImpl extends ServiceImpl<DeliveryTrackingMap
         }
     }
     
+    /**
+     * 获取配送轨迹
+     */
+    private List<DeliveryTrackingVO.TrackPoint> getTrack(Long orderId) {
+        List<DeliveryTrackingVO.TrackPoint> track = new ArrayList<>();
+        for (RiderLocationStore.Location location : riderLocationStore.getTrack(orderId)) {
+            DeliveryTrackingVO.TrackPoint point = new DeliveryTrackingVO.TrackPoint();
+            point.setLatitude(location.getLatitude());
+            point.setLongitude(location.getLongitude());
+            point.setTime(new Date(location.getTimestamp()));
+            track.add(point);
+        }
+        return track;
+    }
+    
     /**
      * 获取配送事件列表
      */
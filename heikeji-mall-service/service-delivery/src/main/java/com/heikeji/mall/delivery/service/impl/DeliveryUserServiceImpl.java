@@ -2,9 +2,11 @@ package com.heikeji.mall.delivery.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.heikeji.common.core.exception.BaseException;
+import com.heikeji.mall.delivery.dispatch.RiderGeoIndex;
 import com.heikeji.mall.delivery.entity.DeliveryUser;
 import com.heikeji.mall.delivery.mapper.DeliveryUserMapper;
 import com.heikeji.mall.delivery.service.DeliveryUserService;
+import com.heikeji.mall.delivery.tracking.RiderLocationStore;
 import com.heikeji.mall.delivery.vo.DeliveryUserInfoVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,6 +23,12 @@ public class DeliveryUserServiceImpl extends ServiceImpl<DeliveryUserMapper, Del
     @Autowired
     private DeliveryUserMapper deliveryUserMapper;
 
+    @Autowired(required = false)
+    private RiderGeoIndex riderGeoIndex;
+
+    @Autowired
+    private RiderLocationStore riderLocationStore;
+
     @Override
     public DeliveryUser getByUserId(Long userId) {
         return deliveryUserMapper.getByUserId(userId);
@@ -110,6 +118,9 @@ public class DeliveryUserServiceImpl extends ServiceImpl<DeliveryUserMapper, Del
         DeliveryUser user = new DeliveryUser();
         user.setId(deliveryUserId);
         user.setStatus(status);
+        if (riderGeoIndex != null && !Integer.valueOf(1).equals(status)) {
+            riderGeoIndex.remove(deliveryUserId);
+        }
         return updateById(user);
     }
 
@@ -121,11 +132,11 @@ public class DeliveryUserServiceImpl extends ServiceImpl<DeliveryUserMapper, Del
 
     @Override
     public boolean updateLocation(Long deliveryUserId, Double latitude, Double longitude) {
-        // 简单实现，后续可以完善
-        DeliveryUser user = new DeliveryUser();
-        user.setId(deliveryUserId);
-        user.setLatitude(latitude);
-        user.setLongitude(longitude);
-        return updateById(user);
+        if (latitude == null || longitude == null) {
+            return false;
+        }
+        // 只更新内存中的最新位置和派单位置索引，由RiderLocationStore合并后定时批量写回
+        riderLocationStore.reportRider(deliveryUserId, latitude, longitude);
+        return true;
     }
 }
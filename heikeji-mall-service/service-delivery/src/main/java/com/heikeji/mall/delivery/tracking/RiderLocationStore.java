@@ -0,0 +1,510 @@
+package com.heikeji.mall.delivery.tracking;
+
+import com.heikeji.common.core.utils.MpscRingBuffer;
+import com.heikeji.mall.common.batch.BulkInsertEngine;
+import com.heikeji.mall.common.batch.BulkInsertTable;
+import com.heikeji.mall.common.batch.MultiRowInsertWriter;
+import com.heikeji.mall.delivery.dispatch.GeoUtils;
+import com.heikeji.mall.delivery.dispatch.RiderGeoIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 配送员实时位置存储
+ * 位置上报只更新内存中订单和配送员的最新位置以及派单用的位置索引，跟踪查询直接读内存；
+ * 最新位置每隔flush-interval-millis合并后批量写回delivery_tracking和delivery_user，期间多次上报只写最后一次。
+ * 与上一个轨迹点相距超过track-min-distance-meters或间隔超过track-min-interval-seconds的位置
+ * 追加到delivery_track_point作为轨迹，超过track-retention-days的轨迹定时分批删除。
+ * 轨迹批量写入时个别轨迹点数据不合法，二分定位后丢弃这些点，其余照常写入；数据库不可用时整批保留到下次刷新重试。
+ */
+@Component
+public class RiderLocationStore implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RiderLocationStore.class);
+
+    private static final String UPDATE_TRACKING_SQL = "UPDATE delivery_tracking SET latitude = ?, longitude = ?, "
+            + "last_update_time = ?, update_time = ? WHERE order_id = ? AND deleted = 0";
+
+    private static final String UPDATE_RIDER_SQL = "UPDATE delivery_user SET latitude = ?, longitude = ?, "
+            + "last_location_time = ? WHERE id = ?";
+
+    private static final String SELECT_TRACK_SQL = "SELECT latitude, longitude, recorded_at FROM delivery_track_point "
+            + "WHERE order_id = ? ORDER BY recorded_at, id";
+
+    private static final String DELETE_EXPIRED_TRACK_SQL = "DELETE FROM delivery_track_point WHERE recorded_at < ? LIMIT ?";
+
+    private static final BulkInsertTable<TrackPoint> TRACK_TABLE = BulkInsertTable.<TrackPoint>of("delivery_track_point", null)
+            .column("order_id", TrackPoint::getOrderId)
+            .column("delivery_user_id", TrackPoint::getRiderId)
+            .column("latitude", point -> point.location.latitude)
+            .column("longitude", point -> point.location.longitude)
+            .column("recorded_at", point -> new Timestamp(point.location.timestamp));
+
+    @Autowired(required = false)
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired(required = false)
+    private RiderGeoIndex riderGeoIndex;
+
+    /**
+     * 每条批量语句的最大行数
+     */
+    @Value("${delivery.tracking.flush-batch-size:500}")
+    private int flushBatchSize = 500;
+
+    /**
+     * 与上一个轨迹点的最小距离（米）
+     */
+    @Value("${delivery.tracking.track-min-distance-meters:20}")
+    private double trackMinDistanceMeters = 20;
+
+    /**
+     * 与上一个轨迹点的最大间隔（秒），超过后即使未移动也记录
+     */
+    @Value("${delivery.tracking.track-min-interval-seconds:60}")
+    private long trackMinIntervalSeconds = 60;
+
+    /**
+     * 待写入轨迹点的缓冲容量，写满后丢弃新的轨迹点
+     */
+    @Value("${delivery.tracking.track-buffer-capacity:65536}")
+    private int trackBufferCapacity = 65536;
+
+    /**
+     * 轨迹保留天数
+     */
+    @Value("${delivery.tracking.track-retention-days:30}")
+    private int trackRetentionDays = 30;
+
+    /**
+     * 每条删除语句删除的最大行数
+     */
+    @Value("${delivery.tracking.purge-batch-size:5000}")
+    private int purgeBatchSize = 5000;
+
+    /**
+     * 超过该时间未上报的位置从内存移除（分钟）
+     */
+    @Value("${delivery.tracking.idle-minutes:30}")
+    private long idleMinutes = 30;
+
+    private final ConcurrentHashMap<Long, OrderLocation> orderLocations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Location> riderLocations = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyOrders = ConcurrentHashMap.newKeySet();
+
+    private final Set<Long> dirtyRiders = ConcurrentHashMap.newKeySet();
+
+    private MpscRingBuffer<TrackPoint> trackBuffer;
+
+    private MultiRowInsertWriter<TrackPoint> trackWriter;
+
+    /**
+     * 上次写入失败、等待重试的轨迹点，只在刷新时访问
+     */
+    private List<TrackPoint> unwrittenTrack = new ArrayList<>();
+
+    private final LongAdder reported = new LongAdder();
+
+    private final LongAdder trackAppended = new LongAdder();
+
+    private final LongAdder trackDropped = new LongAdder();
+
+    private final LongAdder trackFailed = new LongAdder();
+
+    private final LongAdder flushedRows = new LongAdder();
+
+    @Override
+    public void afterPropertiesSet() {
+        trackBuffer = new MpscRingBuffer<>(trackBufferCapacity);
+        if (jdbcTemplate != null) {
+            trackWriter = new MultiRowInsertWriter<>(jdbcTemplate, TRACK_TABLE);
+        }
+    }
+
+    /**
+     * 配送中订单的位置上报
+     */
+    public void report(Long orderId, Long riderId, double latitude, double longitude) {
+        report(orderId, riderId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    void report(Long orderId, Long riderId, double latitude, double longitude, long timestamp) {
+        if (orderId == null) {
+            throw new IllegalArgumentException("订单ID不能为空");
+        }
+        validate(riderId, latitude, longitude);
+        Location location = new Location(latitude, longitude, timestamp);
+        orderLocations.compute(orderId, (id, old) -> {
+            if (old != null && old.latest.timestamp > timestamp) {
+                return old;
+            }
+            if (old != null && !isTrackPoint(old.lastTrack, location)) {
+                return new OrderLocation(riderId, location, old.lastTrack);
+            }
+            if (trackBuffer.offer(new TrackPoint(id, riderId, location))) {
+                trackAppended.increment();
+            } else {
+                trackDropped.increment();
+            }
+            return new OrderLocation(riderId, location, location);
+        });
+        dirtyOrders.add(orderId);
+        reportRider(riderId, latitude, longitude, timestamp);
+    }
+
+    /**
+     * 配送员的位置上报（未关联订单）
+     */
+    public void reportRider(Long riderId, double latitude, double longitude) {
+        reportRider(riderId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    void reportRider(Long riderId, double latitude, double longitude, long timestamp) {
+        validate(riderId, latitude, longitude);
+        reported.increment();
+        Location location = new Location(latitude, longitude, timestamp);
+        riderLocations.merge(riderId, location, (old, current) -> old.timestamp > current.timestamp ? old : current);
+        dirtyRiders.add(riderId);
+        if (riderGeoIndex != null) {
+            riderGeoIndex.update(riderId, latitude, longitude);
+        }
+    }
+
+    /**
+     * 订单的最新位置
+     *
+     * @return 最新位置，本实例未收到过该订单的上报或已移除时返回null
+     */
+    public OrderLocation getOrderLocation(Long orderId) {
+        return orderLocations.get(orderId);
+    }
+
+    /**
+     * 订单结束后移除其最新位置，调用方负责把返回的位置随订单状态一起写回
+     */
+    public OrderLocation removeOrder(Long orderId) {
+        return orderLocations.remove(orderId);
+    }
+
+    /**
+     * 按上报时间回放订单轨迹，末尾补上尚未写入轨迹表的最新位置
+     */
+    public List<Location> getTrack(Long orderId) {
+        List<Location> track = new ArrayList<>();
+        if (jdbcTemplate != null) {
+            track.addAll(jdbcTemplate.query(SELECT_TRACK_SQL, (rs, rowNum) ->
+                    new Location(rs.getDouble(1), rs.getDouble(2), rs.getTimestamp(3).getTime()), orderId));
+        }
+        OrderLocation current = orderLocations.get(orderId);
+        if (current != null && (track.isEmpty() || track.get(track.size() - 1).timestamp < current.latest.timestamp)) {
+            track.add(current.latest);
+        }
+        return track;
+    }
+
+    /**
+     * 把合并后的最新位置和新增的轨迹点写回数据库
+     */
+    @Scheduled(fixedDelayString = "${delivery.tracking.flush-interval-millis:3000}")
+    public synchronized void flush() {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        List<Long> orderIds = drainDirty(dirtyOrders);
+        List<Object[]> trackingArgs = new ArrayList<>(orderIds.size());
+        Date now = new Date();
+        for (Long orderId : orderIds) {
+            OrderLocation current = orderLocations.get(orderId);
+            if (current != null) {
+                Location location = current.latest;
+                trackingArgs.add(new Object[]{location.latitude, location.longitude,
+                        new Date(location.timestamp), now, orderId});
+            }
+        }
+        if (!batchUpdate(UPDATE_TRACKING_SQL, trackingArgs)) {
+            dirtyOrders.addAll(orderIds);
+        }
+
+        List<Long> riderIds = drainDirty(dirtyRiders);
+        List<Object[]> riderArgs = new ArrayList<>(riderIds.size());
+        for (Long riderId : riderIds) {
+            Location location = riderLocations.get(riderId);
+            if (location != null) {
+                riderArgs.add(new Object[]{location.latitude, location.longitude, new Date(location.timestamp), riderId});
+            }
+        }
+        if (!batchUpdate(UPDATE_RIDER_SQL, riderArgs)) {
+            dirtyRiders.addAll(riderIds);
+        }
+
+        flushTrack();
+    }
+
+    private void flushTrack() {
+        int batchSize = Math.min(flushBatchSize, trackWriter.getMaxRowsPerStatement());
+        List<TrackPoint> batch = unwrittenTrack;
+        unwrittenTrack = new ArrayList<>();
+        while (true) {
+            if (batch.size() < batchSize) {
+                trackBuffer.drainTo(batch, batchSize - batch.size());
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                trackWriter.write(batch);
+                flushedRows.add(batch.size());
+            } catch (DataIntegrityViolationException e) {
+                // 个别轨迹点数据不合法，二分定位后丢弃，其余照常写入
+                insertIsolatingInvalid(batch);
+            } catch (Exception e) {
+                // 保留这一批到下次刷新重试，新的轨迹点继续留在缓冲中
+                log.warn("写入配送轨迹失败，{}个轨迹点等待重试: {}", batch.size(), e.getMessage());
+                unwrittenTrack = batch;
+                return;
+            }
+            if (!unwrittenTrack.isEmpty() || batch.size() < batchSize) {
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void insertIsolatingInvalid(List<TrackPoint> batch) {
+        BulkInsertEngine.insert(batch, 0, trackWriter::write, new BulkInsertEngine.Listener<>() {
+            @Override
+            public void onInserted(List<TrackPoint> rows) {
+                flushedRows.add(rows.size());
+            }
+
+            @Override
+            public void onFailed(int index, TrackPoint row, RuntimeException error) {
+                if (error instanceof DataIntegrityViolationException) {
+                    trackFailed.increment();
+                    log.warn("配送轨迹点数据不合法，已丢弃，订单: {}, 配送员: {}, 原因: {}", row.orderId, row.riderId,
+                            error.getMessage());
+                } else {
+                    // 二分过程中数据库不可用，未写入的轨迹点留到下次刷新重试
+                    unwrittenTrack.add(row);
+                }
+            }
+        });
+    }
+
+    private boolean batchUpdate(String sql, List<Object[]> args) {
+        try {
+            for (int from = 0; from < args.size(); from += flushBatchSize) {
+                jdbcTemplate.batchUpdate(sql, args.subList(from, Math.min(from + flushBatchSize, args.size())));
+            }
+            flushedRows.add(args.size());
+            return true;
+        } catch (Exception e) {
+            // 更新是幂等的，失败时重新标记待写回，下次刷新写入届时的最新位置
+            log.warn("写回配送位置失败，{}条等待重试: {}", args.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 分批删除过期的轨迹点
+     */
+    @Scheduled(fixedDelayString = "${delivery.tracking.purge-interval-millis:3600000}")
+    public void purgeExpiredTrack() {
+        if (jdbcTemplate == null || trackRetentionDays <= 0) {
+            return;
+        }
+        Timestamp before = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(trackRetentionDays));
+        long total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(DELETE_EXPIRED_TRACK_SQL, before, purgeBatchSize);
+                total += deleted;
+            } while (deleted >= purgeBatchSize);
+        } catch (Exception e) {
+            log.warn("清理过期配送轨迹失败: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("清理{}天前的配送轨迹点{}个", trackRetentionDays, total);
+        }
+    }
+
+    /**
+     * 移除长时间未上报且已写回的位置
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        orderLocations.forEach((orderId, current) -> {
+            if (current.latest.timestamp < expireBefore && !dirtyOrders.contains(orderId)) {
+                orderLocations.remove(orderId, current);
+            }
+        });
+        riderLocations.forEach((riderId, location) -> {
+            if (location.timestamp < expireBefore && !dirtyRiders.contains(riderId)) {
+                riderLocations.remove(riderId, location);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 上报与写回统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reported", reported.sum());
+        stats.put("trackAppended", trackAppended.sum());
+        stats.put("trackDropped", trackDropped.sum());
+        stats.put("trackFailed", trackFailed.sum());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("pendingTrackPoints", trackBuffer.size() + unwrittenTrack.size());
+        stats.put("activeOrders", orderLocations.size());
+        stats.put("activeRiders", riderLocations.size());
+        return stats;
+    }
+
+    int pendingTrackPoints() {
+        return trackBuffer.size();
+    }
+
+    boolean isDirty(Long orderId) {
+        return dirtyOrders.contains(orderId);
+    }
+
+    private static void validate(Long riderId, double latitude, double longitude) {
+        if (riderId == null) {
+            throw new IllegalArgumentException("配送员ID不能为空");
+        }
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("经纬度超出范围: " + latitude + ", " + longitude);
+        }
+    }
+
+    private boolean isTrackPoint(Location lastTrack, Location location) {
+        return location.timestamp - lastTrack.timestamp >= TimeUnit.SECONDS.toMillis(trackMinIntervalSeconds)
+                || GeoUtils.distanceMeters(lastTrack.latitude, lastTrack.longitude,
+                location.latitude, location.longitude) >= trackMinDistanceMeters;
+    }
+
+    private static List<Long> drainDirty(Set<Long> dirty) {
+        List<Long> ids = new ArrayList<>();
+        for (Iterator<Long> iterator = dirty.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            // 先移除再读取最新位置，之后的上报会重新标记，不会丢失
+            iterator.remove();
+        }
+        return ids;
+    }
+
+    /**
+     * 位置
+     */
+    public static final class Location {
+
+        private final double latitude;
+
+        private final double longitude;
+
+        private final long timestamp;
+
+        Location(double latitude, double longitude, long timestamp) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * 订单的最新位置
+     */
+    public static final class OrderLocation {
+
+        private final Long riderId;
+
+        private final Location latest;
+
+        /**
+         * 最后一个写入轨迹的位置
+         */
+        private final Location lastTrack;
+
+        private OrderLocation(Long riderId, Location latest, Location lastTrack) {
+            this.riderId = riderId;
+            this.latest = latest;
+            this.lastTrack = lastTrack;
+        }
+
+        public Long getRiderId() {
+            return riderId;
+        }
+
+        public Location getLatest() {
+            return latest;
+        }
+    }
+
+    /**
+     * 待写入的轨迹点
+     */
+    static final class TrackPoint {
+
+        private final Long orderId;
+
+        private final Long riderId;
+
+        private final Location location;
+
+        private TrackPoint(Long orderId, Long riderId, Location location) {
+            this.orderId = orderId;
+            this.riderId = riderId;
+            this.location = location;
+        }
+
+        Long getOrderId() {
+            return orderId;
+        }
+
+        Long getRiderId() {
+            return riderId;
+        }
+    }
+}
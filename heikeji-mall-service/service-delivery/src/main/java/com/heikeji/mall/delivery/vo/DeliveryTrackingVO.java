@@ -66,6 +66,11 @@ public class DeliveryTrackingVO {
      */
     private List<DeliveryEvent> events;
 
+    /**
+     * 配送轨迹，按时间升序
+     */
+    private List<TrackPoint> track;
+
     /**
      * 配送事件
      */
@@ -86,4 +91,25 @@ public class DeliveryTrackingVO {
          */
         private Date eventTime;
     }
+
+    /**
+     * 轨迹点
+     */
+    @Data
+    public static class TrackPoint {
+        /**
+         * 纬度
+         */
+        private Double latitude;
+
+        /**
+         * 经度
+         */
+        private Double longitude;
+
+        /**
+         * 上报时间
+         */
+        private Date time;
+    }
 }
\ No newline at end of file
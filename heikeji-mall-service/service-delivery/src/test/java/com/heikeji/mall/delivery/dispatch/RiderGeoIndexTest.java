@@ -0,0 +1,78 @@
+package com.heikeji.mall.delivery.dispatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 配送员位置网格索引测试
+ */
+public class RiderGeoIndexTest {
+
+    private static final double CENTER_LAT = 39.9;
+    private static final double CENTER_LNG = 116.3;
+
+    private RiderGeoIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RiderGeoIndex();
+        index.afterPropertiesSet();
+    }
+
+    @Test
+    public void testHaversineDistance() {
+        // 纬度相差0.01度约为1112米
+        double distance = GeoUtils.distanceMeters(39.90, 116.30, 39.91, 116.30);
+        assertEquals(1112, distance, 2);
+        assertArrayEquals(new double[]{39.9921, 116.3245}, GeoUtils.parseLngLat("116.3245, 39.9921"), 1e-9);
+        assertNull(GeoUtils.parseLngLat("测试起始地址"));
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        double[][] riders = new double[500][];
+        for (int i = 0; i < riders.length; i++) {
+            riders[i] = new double[]{CENTER_LAT + (random.nextDouble() - 0.5) * 0.1,
+                    CENTER_LNG + (random.nextDouble() - 0.5) * 0.1};
+            index.update((long) i, riders[i][0], riders[i][1], now);
+        }
+
+        List<RiderGeoIndex.Candidate> nearest = index.nearest(CENTER_LAT, CENTER_LNG, 10, 10000, now);
+
+        List<RiderGeoIndex.Candidate> expected = new ArrayList<>();
+        for (int i = 0; i < riders.length; i++) {
+            expected.add(new RiderGeoIndex.Candidate((long) i,
+                    GeoUtils.distanceMeters(CENTER_LAT, CENTER_LNG, riders[i][0], riders[i][1])));
+        }
+        expected.sort(Comparator.comparingDouble(RiderGeoIndex.Candidate::getDistanceMeters));
+        assertEquals(10, nearest.size());
+        for (int i = 0; i < nearest.size(); i++) {
+            assertEquals(expected.get(i).getRiderId(), nearest.get(i).getRiderId());
+        }
+    }
+
+    @Test
+    public void testMovedExpiredAndRemovedRiders() {
+        long now = System.currentTimeMillis();
+        index.update(1L, CENTER_LAT, CENTER_LNG, now);
+        index.update(2L, CENTER_LAT + 0.001, CENTER_LNG, now - 600_000);
+        index.update(3L, CENTER_LAT + 0.002, CENTER_LNG, now);
+        // 移动到远处后不再出现在附近
+        index.update(3L, CENTER_LAT + 1, CENTER_LNG, now);
+        index.update(4L, CENTER_LAT, CENTER_LNG + 0.001, now);
+        index.remove(4L);
+
+        List<RiderGeoIndex.Candidate> nearest = index.nearest(CENTER_LAT, CENTER_LNG, 5, 5000, now);
+        assertEquals(1, nearest.size());
+        assertEquals(Long.valueOf(1L), nearest.get(0).getRiderId());
+    }
+}
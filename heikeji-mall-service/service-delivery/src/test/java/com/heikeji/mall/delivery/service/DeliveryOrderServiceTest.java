@@ -1,6 +1,7 @@
 package com.heikeji.mall.delivery.service;
 
 import com.heikeji.common.core.exception.BaseException;
+import com.heikeji.common.core.id.IdGenerator;
 import com.heikeji.mall.delivery.constant.DeliveryConstant;
 import com.heikeji.mall.delivery.entity.DeliveryOrder;
 import com.heikeji.mall.delivery.mapper.DeliveryOrderMapper;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -35,6 +37,9 @@ public class DeliveryOrderServiceTest {
     @Mock
     private DeliveryTrackingService deliveryTrackingService;
 
+    @Spy
+    private IdGenerator idGenerator = new IdGenerator();
+
     @InjectMocks
     private DeliveryOrderServiceImpl deliveryOrderService;
 
@@ -0,0 +1,90 @@
+package com.heikeji.mall.delivery.tracking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 配送员实时位置存储测试
+ */
+public class RiderLocationStoreTest {
+
+    private static final double LAT = 39.9;
+
+    private static final double LNG = 116.3;
+
+    /**
+     * 约1米对应的纬度差
+     */
+    private static final double ONE_METER = 1 / 111195.0;
+
+    private RiderLocationStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RiderLocationStore();
+        store.afterPropertiesSet();
+    }
+
+    @Test
+    public void testTrackSampledByDistanceAndInterval() {
+        long now = System.currentTimeMillis();
+        store.report(1L, 10L, LAT, LNG, now);
+        // 每秒移动5米，不足20米时只更新最新位置
+        for (int i = 1; i <= 3; i++) {
+            store.report(1L, 10L, LAT + 5 * i * ONE_METER, LNG, now + i * 1000);
+        }
+        assertEquals(1, store.pendingTrackPoints());
+        store.report(1L, 10L, LAT + 25 * ONE_METER, LNG, now + 4000);
+        assertEquals(2, store.pendingTrackPoints());
+        // 停留超过60秒后即使未移动也记录
+        store.report(1L, 10L, LAT + 25 * ONE_METER, LNG, now + 5000);
+        store.report(1L, 10L, LAT + 25 * ONE_METER, LNG, now + 65000);
+        assertEquals(3, store.pendingTrackPoints());
+
+        RiderLocationStore.Location latest = store.getOrderLocation(1L).getLatest();
+        assertEquals(now + 65000, latest.getTimestamp());
+        assertEquals(Long.valueOf(10L), store.getOrderLocation(1L).getRiderId());
+        assertTrue(store.isDirty(1L));
+    }
+
+    @Test
+    public void testOutOfOrderReportIgnored() {
+        long now = System.currentTimeMillis();
+        store.report(1L, 10L, LAT + 0.01, LNG, now);
+        store.report(1L, 10L, LAT, LNG, now - 1000);
+
+        assertEquals(LAT + 0.01, store.getOrderLocation(1L).getLatest().getLatitude(), 1e-9);
+        assertEquals(1, store.pendingTrackPoints());
+    }
+
+    @Test
+    public void testTrackEndsWithLatestAndRemoveOrder() {
+        long now = System.currentTimeMillis();
+        store.report(1L, 10L, LAT, LNG, now);
+        store.report(1L, 10L, LAT + 5 * ONE_METER, LNG, now + 1000);
+
+        List<RiderLocationStore.Location> track = store.getTrack(1L);
+        assertEquals(1, track.size());
+        assertEquals(now + 1000, track.get(0).getTimestamp());
+
+        assertNotNull(store.removeOrder(1L));
+        assertNull(store.getOrderLocation(1L));
+        assertTrue(store.getTrack(1L).isEmpty());
+    }
+
+    @Test
+    public void testInvalidReportRejected() {
+        long now = System.currentTimeMillis();
+        assertThrows(IllegalArgumentException.class, () -> store.report(1L, null, LAT, LNG, now));
+        assertThrows(IllegalArgumentException.class, () -> store.report(1L, 10L, 91, LNG, now));
+        assertThrows(IllegalArgumentException.class, () -> store.reportRider(10L, LAT, -180.5, now));
+        assertThrows(IllegalArgumentException.class, () -> store.reportRider(10L, Double.NaN, LNG, now));
+
+        assertNull(store.getOrderLocation(1L));
+        assertEquals(0, store.pendingTrackPoints());
+    }
+}
@@ -0,0 +1,59 @@
+package com.heikeji.mall.lostfound.config;
+
+import com.heikeji.common.core.counter.JdbcViewCountStore;
+import com.heikeji.common.core.counter.ViewCountAggregator;
+import com.heikeji.common.core.counter.ViewRanking;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 失物招领浏览量配置
+ * 浏览量在内存中聚合后定期批量写入数据库；启用Redis时同时维护热门排行，排行为空时按数据库浏览量加载前rank-size名
+ */
+@Configuration
+public class ViewCountConfig {
+
+    /**
+     * 热门排行有序集合的键
+     */
+    public static final String HOT_RANK_KEY = "lostfound:hot:rank";
+
+    @Value("${lostfound.view-count.flush-interval-millis:5000}")
+    private long flushIntervalMillis;
+
+    @Value("${lostfound.view-count.batch-size:500}")
+    private int batchSize;
+
+    @Value("${lostfound.view-count.rank-size:1000}")
+    private int rankSize;
+
+    @Bean(destroyMethod = "stop")
+    public ViewCountAggregator lostFoundViewCounter(JdbcTemplate jdbcTemplate,
+                                                    ObjectProvider<RedisTemplate<String, Object>> redisTemplate) {
+        ViewCountAggregator aggregator = new ViewCountAggregator("lostfound",
+                new JdbcViewCountStore(jdbcTemplate, "lost_found", "id", "view_count"));
+        aggregator.setBatchSize(batchSize);
+        RedisTemplate<String, Object> template = redisTemplate.getIfAvailable();
+        if (template != null) {
+            aggregator.setRanking(new ViewRanking(template, HOT_RANK_KEY, rankSize));
+            aggregator.setRankingLoader(() -> jdbcTemplate.query(
+                    "SELECT id, view_count FROM lost_found WHERE del_flag = 0 AND status = 1 ORDER BY view_count DESC LIMIT ?",
+                    rs -> {
+                        Map<Long, Long> counts = new LinkedHashMap<>();
+                        while (rs.next()) {
+                            counts.put(rs.getLong(1), rs.getLong(2));
+                        }
+                        return counts;
+                    }, rankSize));
+        }
+        aggregator.start(flushIntervalMillis);
+        return aggregator;
+    }
+}
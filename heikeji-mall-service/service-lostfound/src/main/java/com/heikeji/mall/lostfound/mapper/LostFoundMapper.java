@@ -8,10 +8,4 @@ import com.heikeji.mall.lostfound.entity.LostFound;
  */
 public interface LostFoundMapper extends BaseMapper<LostFound> {
 
-    /**
-     * 增加浏览量
-     * @param id 失物招领ID
-     */
-    void increaseViewCount(Long id);
-
 }
\ No newline at end of file
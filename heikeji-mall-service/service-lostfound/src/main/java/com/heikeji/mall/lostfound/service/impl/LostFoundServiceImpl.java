@@ -4,17 +4,26 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.common.core.counter.ViewCountAggregator;
 import com.heikeji.mall.lostfound.entity.LostFound;
 import com.heikeji.mall.lostfound.mapper.LostFoundMapper;
 import com.heikeji.mall.lostfound.service.LostFoundService;
+import com.heikeji.mall.lostfound.util.LostFoundMatcher;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 失物招领服务实现类
@@ -29,6 +38,37 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private ViewCountAggregator viewCountAggregator;
+
+    @Autowired
+    private LostFoundMatcher lostFoundMatcher;
+
+    /**
+     * 启动后把待审核和已发布的信息载入匹配索引，之后随发布、审核和状态变更增量更新
+     * 索引是每个实例各自的内存索引，只反映本实例处理的变更
+     * 先清空再查询，查询期间提交的新信息由发布后的增量写入补上，不会被清空
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildMatchIndex() {
+        lostFoundMatcher.clear();
+        QueryWrapper<LostFound> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("del_flag", 0);
+        queryWrapper.in("status", 0, 1);
+        List<LostFound> items = lostFoundMapper.selectList(queryWrapper);
+        items.forEach(lostFoundMatcher::index);
+        log.info("失物招领匹配索引加载完成，数量={}", items.size());
+    }
+
+    @PostConstruct
+    public void init() {
+        if (redisTemplate != null) {
+            // 浏览量写入数据库后删除详情缓存，下次读取时加载最新浏览量
+            viewCountAggregator.setFlushListener(ids -> redisTemplate.delete(
+                    ids.stream().map(id -> "lostfound:detail:" + id).collect(Collectors.toList())));
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long publishLostFound(LostFound lostFound) {
@@ -42,6 +82,7 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
 
         // 保存失物招领信息
         lostFoundMapper.insert(lostFound);
+        afterCommit(() -> lostFoundMatcher.index(lostFound));
         return lostFound.getId();
     }
 
@@ -61,6 +102,9 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
             }
         }
 
+        if (lostFound != null) {
+            mergePendingViews(lostFound);
+        }
         increaseViewCount(id);
 
         return lostFound;
@@ -118,6 +162,9 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
             String redisKey = "lostfound:detail:" + id;
             redisTemplate.delete(redisKey);
         }
+        if (result > 0) {
+            afterCommit(() -> syncMatchIndex(id, status));
+        }
 
         return result > 0;
     }
@@ -136,47 +183,58 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
             String redisKey = "lostfound:detail:" + id;
             redisTemplate.delete(redisKey);
         }
+        if (result > 0) {
+            afterCommit(() -> syncMatchIndex(id, status));
+        }
 
         return result > 0;
     }
 
     @Override
     public void increaseViewCount(Long id) {
-        new Thread(() -> {
-            lostFoundMapper.increaseViewCount(id);
-
-            if (redisTemplate != null) {
-                String redisKey = "lostfound:detail:" + id;
-                LostFound lostFound = (LostFound) redisTemplate.opsForValue().get(redisKey);
-                if (lostFound != null) {
-                    lostFound.setViewCount(lostFound.getViewCount() + 1);
-                    redisTemplate.opsForValue().set(redisKey, lostFound, 1, TimeUnit.HOURS);
-                }
-            }
-        }).start();
+        viewCountAggregator.increment(id);
     }
 
     @Override
     public List<LostFound> getHotLostFound(Integer limit) {
-        List<LostFound> hotLostFound = null;
-        if (redisTemplate != null) {
-            String redisKey = "lostfound:hot:" + limit;
-            hotLostFound = (List<LostFound>) redisTemplate.opsForValue().get(redisKey);
+        // 优先按浏览排行取信息，多取一倍以跳过已结束或已删除的信息
+        List<Long> rankedIds = viewCountAggregator.top(limit * 2);
+        if (!rankedIds.isEmpty()) {
+            Map<Long, LostFound> lostFoundMap = lostFoundMapper.selectBatchIds(rankedIds).stream()
+                    .collect(Collectors.toMap(LostFound::getId, Function.identity()));
+            List<LostFound> hotLostFound = new ArrayList<>(limit);
+            List<Long> closedIds = new ArrayList<>();
+            for (Long id : rankedIds) {
+                LostFound lostFound = lostFoundMap.get(id);
+                if (lostFound == null || !Integer.valueOf(1).equals(lostFound.getStatus())
+                        || !Integer.valueOf(0).equals(lostFound.getDelFlag())) {
+                    closedIds.add(id);
+                } else if (hotLostFound.size() < limit) {
+                    hotLostFound.add(lostFound);
+                }
+            }
+            viewCountAggregator.unrank(closedIds);
+            if (hotLostFound.size() >= limit) {
+                hotLostFound.forEach(this::mergePendingViews);
+                return hotLostFound;
+            }
         }
 
-        if (hotLostFound == null) {
-            QueryWrapper<LostFound> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("del_flag", 0);
-            queryWrapper.eq("status", 1);
-            queryWrapper.orderByDesc("view_count");
-            queryWrapper.last("LIMIT " + limit);
-
-            hotLostFound = lostFoundMapper.selectList(queryWrapper);
-
-            if (hotLostFound != null && !hotLostFound.isEmpty() && redisTemplate != null) {
-                String redisKey = "lostfound:hot:" + limit;
-                redisTemplate.opsForValue().set(redisKey, hotLostFound, 1, TimeUnit.HOURS);
+        // 排行为空或名次不足时按数据库浏览量查询，并把结果补入排行
+        QueryWrapper<LostFound> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("del_flag", 0);
+        queryWrapper.eq("status", 1);
+        queryWrapper.orderByDesc("view_count");
+        queryWrapper.last("LIMIT " + limit);
+
+        List<LostFound> hotLostFound = lostFoundMapper.selectList(queryWrapper);
+        if (hotLostFound != null && !hotLostFound.isEmpty()) {
+            Map<Long, Long> counts = new HashMap<>(hotLostFound.size() * 2);
+            for (LostFound lostFound : hotLostFound) {
+                counts.put(lostFound.getId(), lostFound.getViewCount() != null ? lostFound.getViewCount().longValue() : 0L);
+                mergePendingViews(lostFound);
             }
+            viewCountAggregator.rank(counts);
         }
 
         return hotLostFound;
@@ -234,4 +292,42 @@ public class LostFoundServiceImpl extends ServiceImpl<LostFoundMapper, LostFound
 
         return result;
     }
+
+    /**
+     * 把尚未写入数据库的浏览量合并到失物招领信息上
+     */
+    private void mergePendingViews(LostFound lostFound) {
+        long pending = viewCountAggregator.pending(lostFound.getId());
+        if (pending > 0) {
+            int viewCount = lostFound.getViewCount() != null ? lostFound.getViewCount() : 0;
+            lostFound.setViewCount((int) Math.min(Integer.MAX_VALUE, viewCount + pending));
+        }
+    }
+
+    /**
+     * 待审核和已发布的信息保留在匹配索引中，已解决、已删除和审核失败的信息移出索引
+     */
+    private void syncMatchIndex(Long id, Integer status) {
+        if (status != null && (status == 0 || status == 1)) {
+            LostFound lostFound = lostFoundMapper.selectById(id);
+            if (lostFound != null && Integer.valueOf(0).equals(lostFound.getDelFlag())) {
+                lostFoundMatcher.index(lostFound);
+            }
+        } else {
+            lostFoundMatcher.remove(id);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
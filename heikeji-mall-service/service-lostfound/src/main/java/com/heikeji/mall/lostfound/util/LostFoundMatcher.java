@@ -4,14 +4,22 @@ import com.heikeji.mall.lostfound.entity.LostFound;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+/**
+ * 失物与招领信息匹配器
+ * <p>
+ * 招领物品按分类、标题与描述的词元、地点词元建立倒排索引，匹配失物时只对至少共享一个索引键的招领物品打分，
+ * 不再与全部招领物品逐一比较。中文按相邻两字切分，连续的字母数字作为一个词，每件物品的词元在入索引时计算一次。
+ * 索引与物品表均为并发容器，发布信息时增量写入，可与匹配同时进行；批量匹配按失物并行计算。
+ * <p>
+ * 索引只保存在本实例内存中，启动时从数据库加载，之后只随本实例处理的发布、审核和状态变更更新；
+ * 多实例部署时其他实例上的变更要到本实例重启后才可见。
+ */
 @Component
 public class LostFoundMatcher {
 
-    private final List<LostFound> lostItems = new ArrayList<>();
-    private final List<LostFound> foundItems = new ArrayList<>();
-
     private static final Map<String, Double> WEIGHTS = Map.of(
             "category", 0.35,
             "name", 0.25,
@@ -20,86 +28,195 @@ public class LostFoundMatcher {
             "description", 0.1
     );
 
+    /**
+     * 不共享任何索引键的两件物品最多获得时间分与地点互相包含的一半地点分
+     * （只靠单个汉字或半个单词包含的地点不共享词元），阈值不超过该值时需要比较全部招领物品
+     */
+    private static final double MAX_SCORE_WITHOUT_SHARED_KEY = WEIGHTS.get("time") + 0.5 * WEIGHTS.get("location");
+
+    private static final String CATEGORY_KEY = "c:";
+    private static final String TEXT_KEY = "t:";
+    private static final String LOCATION_KEY = "l:";
+
+    private final Map<Long, ItemProfile> lostItems = new ConcurrentHashMap<>();
+    private final Map<Long, ItemProfile> foundItems = new ConcurrentHashMap<>();
+
+    /**
+     * 招领物品倒排索引：索引键 → 招领物品ID
+     */
+    private final ConcurrentHashMap<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * 按类型加入失物或招领物品，未保存（没有ID）的物品不加入
+     */
+    public void index(LostFound item) {
+        addLostItem(item);
+        addFoundItem(item);
+    }
+
     public void addLostItem(LostFound item) {
-        if (item.getType() != null && item.getType() == 0) {
-            lostItems.add(item);
+        if (item.getId() != null && item.getType() != null && item.getType() == 0) {
+            lostItems.put(item.getId(), new ItemProfile(item));
         }
     }
 
     public void addFoundItem(LostFound item) {
-        if (item.getType() != null && item.getType() == 1) {
-            foundItems.add(item);
+        if (item.getId() != null && item.getType() != null && item.getType() == 1) {
+            ItemProfile profile = new ItemProfile(item);
+            foundItems.compute(item.getId(), (id, old) -> {
+                if (old != null) {
+                    unlink(old);
+                }
+                link(profile);
+                return profile;
+            });
+        }
+    }
+
+    /**
+     * 移除已解决、已删除或审核失败的物品
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
         }
+        lostItems.remove(id);
+        foundItems.computeIfPresent(id, (key, old) -> {
+            unlink(old);
+            return null;
+        });
     }
 
     public List<MatchResult> findMatches(LostFound lostItem, double threshold) {
+        ItemProfile cached = lostItem.getId() != null ? lostItems.get(lostItem.getId()) : null;
+        ItemProfile profile = cached != null && cached.item == lostItem ? cached : new ItemProfile(lostItem);
+        return findMatches(profile, threshold);
+    }
+
+    public List<BatchMatchResult> batchMatch(double threshold) {
+        List<ItemProfile> profiles = new ArrayList<>(lostItems.values());
+        profiles.sort(Comparator.comparing(profile -> profile.item.getId()));
+        return profiles.parallelStream()
+                .map(profile -> new BatchMatchResult(profile.item, findMatches(profile, threshold)))
+                .filter(result -> !result.getMatches().isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    public double calculateSimilarity(LostFound item1, LostFound item2) {
+        return calculateSimilarity(new ItemProfile(item1), new ItemProfile(item2));
+    }
+
+    public void clear() {
+        lostItems.clear();
+        foundItems.clear();
+        postings.clear();
+    }
+
+    /**
+     * 需要打分的招领物品ID，测试用于确认不共享索引键的物品已被排除
+     */
+    Set<Long> candidateIds(LostFound lostItem, double threshold) {
+        Set<Long> ids = new HashSet<>();
+        for (ItemProfile found : candidates(new ItemProfile(lostItem), threshold)) {
+            ids.add(found.item.getId());
+        }
+        return ids;
+    }
+
+    private List<MatchResult> findMatches(ItemProfile lost, double threshold) {
         List<MatchResult> matches = new ArrayList<>();
-        
-        foundItems.forEach(foundItem -> {
-            double similarity = calculateSimilarity(lostItem, foundItem);
+        for (ItemProfile found : candidates(lost, threshold)) {
+            double similarity = calculateSimilarity(lost, found);
             if (similarity >= threshold) {
-                matches.add(new MatchResult(foundItem, similarity));
+                matches.add(new MatchResult(found.item, similarity));
             }
-        });
-
-        return matches.stream()
-                .sorted((a, b) -> Double.compare(b.similarity, a.similarity))
-                .collect(Collectors.toList());
+        }
+        matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return matches;
     }
 
-    public List<BatchMatchResult> batchMatch(double threshold) {
-        List<BatchMatchResult> allMatches = new ArrayList<>();
-        
-        lostItems.forEach(lostItem -> {
-            List<MatchResult> matches = findMatches(lostItem, threshold);
-            if (!matches.isEmpty()) {
-                allMatches.add(new BatchMatchResult(lostItem, matches));
+    private Collection<ItemProfile> candidates(ItemProfile lost, double threshold) {
+        Collection<ItemProfile> candidates;
+        if (threshold <= MAX_SCORE_WITHOUT_SHARED_KEY) {
+            candidates = foundItems.values();
+        } else {
+            Set<Long> candidateIds = new HashSet<>();
+            for (String key : lost.keys) {
+                Set<Long> ids = postings.get(key);
+                if (ids != null) {
+                    candidateIds.addAll(ids);
+                }
             }
-        });
-        
-        return allMatches;
+            candidates = new ArrayList<>(candidateIds.size());
+            for (Long id : candidateIds) {
+                ItemProfile found = foundItems.get(id);
+                if (found != null) {
+                    candidates.add(found);
+                }
+            }
+        }
+        return candidates;
     }
 
-    public double calculateSimilarity(LostFound item1, LostFound item2) {
+    private double calculateSimilarity(ItemProfile item1, ItemProfile item2) {
         double score = 0.0;
 
-        if (item1.getCategoryId() != null && item1.getCategoryId().equals(item2.getCategoryId())) {
+        if (item1.item.getCategoryId() != null && item1.item.getCategoryId().equals(item2.item.getCategoryId())) {
             score += WEIGHTS.get("category");
         }
 
-        double nameSimilarity = calculateTextSimilarity(item1.getTitle(), item2.getTitle());
+        double nameSimilarity = calculateTextSimilarity(item1.titleTokens, item2.titleTokens);
         score += nameSimilarity * WEIGHTS.get("name");
 
-        double locationSimilarity = calculateLocationSimilarity(item1.getLocation(), item2.getLocation());
+        double locationSimilarity = calculateLocationSimilarity(item1.item.getLocation(), item2.item.getLocation());
         score += locationSimilarity * WEIGHTS.get("location");
 
-        double timeSimilarity = calculateTimeSimilarity(item1.getTime(), item2.getTime());
+        double timeSimilarity = calculateTimeSimilarity(item1.item.getTime(), item2.item.getTime());
         score += timeSimilarity * WEIGHTS.get("time");
 
-        double descSimilarity = calculateTextSimilarity(
-                item1.getContent() != null ? item1.getContent() : "",
-                item2.getContent() != null ? item2.getContent() : ""
-        );
+        double descSimilarity = calculateTextSimilarity(item1.contentTokens, item2.contentTokens);
         score += descSimilarity * WEIGHTS.get("description");
 
         return score;
     }
 
-    private double calculateTextSimilarity(String text1, String text2) {
-        if (text1 == null || text2 == null || text1.isEmpty() || text2.isEmpty()) {
-            return 0.0;
+    private void link(ItemProfile profile) {
+        Long id = profile.item.getId();
+        for (String key : profile.keys) {
+            postings.compute(key, (k, ids) -> {
+                Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
         }
+    }
 
-        Set<String> words1 = new HashSet<>(Arrays.asList(text1.toLowerCase().split("\\s+")));
-        Set<String> words2 = new HashSet<>(Arrays.asList(text2.toLowerCase().split("\\s+")));
-
-        Set<String> commonWords = new HashSet<>(words1);
-        commonWords.retainAll(words2);
-
-        Set<String> allWords = new HashSet<>(words1);
-        allWords.addAll(words2);
+    private void unlink(ItemProfile profile) {
+        Long id = profile.item.getId();
+        for (String key : profile.keys) {
+            postings.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
 
-        return allWords.isEmpty() ? 0.0 : (double) commonWords.size() / allWords.size();
+    /**
+     * 词元集合的Jaccard相似度
+     */
+    private double calculateTextSimilarity(Set<String> words1, Set<String> words2) {
+        if (words1.isEmpty() || words2.isEmpty()) {
+            return 0.0;
+        }
+        Set<String> smaller = words1.size() <= words2.size() ? words1 : words2;
+        Set<String> larger = smaller == words1 ? words2 : words1;
+        int common = 0;
+        for (String word : smaller) {
+            if (larger.contains(word)) {
+                common++;
+            }
+        }
+        return (double) common / (words1.size() + words2.size() - common);
     }
 
     private double calculateLocationSimilarity(String loc1, String loc2) {
@@ -129,9 +246,69 @@ public class LostFoundMatcher {
         return Math.max(0.0, 1.0 - (double) diff / maxDiff);
     }
 
-    public void clear() {
-        lostItems.clear();
-        foundItems.clear();
+    /**
+     * 切分词元：汉字按相邻两字切分（单个汉字保留原字），连续的字母数字作为一个词，其余字符作为分隔符
+     */
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptySet();
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        Set<String> tokens = new HashSet<>();
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            char c = lower.charAt(i);
+            int start = i;
+            if (isHan(c)) {
+                while (i < length && isHan(lower.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(lower.substring(start, i));
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(lower.substring(j, j + 2));
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                while (i < length && Character.isLetterOrDigit(lower.charAt(i)) && !isHan(lower.charAt(i))) {
+                    i++;
+                }
+                tokens.add(lower.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * 物品的预计算词元与索引键
+     */
+    private static final class ItemProfile {
+        private final LostFound item;
+        private final Set<String> titleTokens;
+        private final Set<String> contentTokens;
+        private final List<String> keys;
+
+        private ItemProfile(LostFound item) {
+            this.item = item;
+            this.titleTokens = tokenize(item.getTitle());
+            this.contentTokens = tokenize(item.getContent());
+            Set<String> keySet = new LinkedHashSet<>();
+            if (item.getCategoryId() != null) {
+                keySet.add(CATEGORY_KEY + item.getCategoryId());
+            }
+            titleTokens.forEach(token -> keySet.add(TEXT_KEY + token));
+            contentTokens.forEach(token -> keySet.add(TEXT_KEY + token));
+            // 地点互相包含时通常共享词元；只靠单个汉字或半个单词包含的地点不会因地点成为候选，其得分计入MAX_SCORE_WITHOUT_SHARED_KEY
+            tokenize(item.getLocation()).forEach(token -> keySet.add(LOCATION_KEY + token));
+            this.keys = new ArrayList<>(keySet);
+        }
     }
 
     public static class MatchResult {
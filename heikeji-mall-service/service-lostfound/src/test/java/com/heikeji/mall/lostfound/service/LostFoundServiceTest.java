@@ -1,8 +1,10 @@
 package com.heikeji.mall.lostfound.service;
 
+import com.heikeji.common.core.counter.ViewCountAggregator;
 import com.heikeji.mall.lostfound.entity.LostFound;
 import com.heikeji.mall.lostfound.mapper.LostFoundMapper;
 import com.heikeji.mall.lostfound.service.impl.LostFoundServiceImpl;
+import com.heikeji.mall.lostfound.util.LostFoundMatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,6 +24,12 @@ public class LostFoundServiceTest {
     @Mock
     private LostFoundMapper lostFoundMapper;
 
+    @Mock
+    private ViewCountAggregator viewCountAggregator;
+
+    @Mock
+    private LostFoundMatcher lostFoundMatcher;
+
     @InjectMocks
     private LostFoundServiceImpl lostFoundService;
 
@@ -61,6 +69,7 @@ public class LostFoundServiceTest {
         assertEquals(1L, result);
         
         verify(lostFoundMapper, times(1)).insert(any(LostFound.class));
+        verify(lostFoundMatcher, times(1)).index(testLostFound);
     }
 
     @Test
@@ -123,13 +132,10 @@ public class LostFoundServiceTest {
 
     @Test
     void testIncreaseViewCount() {
-        // 测试increaseViewCount方法是否能够正常调用
-        // 由于该方法在新线程中执行，无法直接验证方法调用
-        // 我们只能测试方法是否能够正常执行，不抛出异常
+        // 浏览量只在内存中累加，由聚合器定期批量写入数据库
         lostFoundService.increaseViewCount(1L);
         
-        // 验证方法能够正常执行，不抛出异常
-        assertTrue(true);
+        verify(viewCountAggregator, times(1)).increment(1L);
     }
 
     @Test
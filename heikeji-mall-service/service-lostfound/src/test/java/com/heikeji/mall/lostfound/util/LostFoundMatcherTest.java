@@ -0,0 +1,125 @@
+package com.heikeji.mall.lostfound.util;
+
+import com.heikeji.mall.lostfound.entity.LostFound;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 失物招领匹配器测试
+ */
+public class LostFoundMatcherTest {
+
+    @Test
+    void testTokenizeSegmentsChineseIntoBigrams() {
+        Set<String> tokens = LostFoundMatcher.tokenize("黑色iPhone手机，图书馆");
+
+        assertTrue(tokens.containsAll(Set.of("黑色", "iphone", "手机", "图书", "书馆")));
+        assertFalse(tokens.contains("，"));
+    }
+
+    @Test
+    void testFindMatchesOnlyScoresItemsSharingKeys() {
+        LostFoundMatcher matcher = new LostFoundMatcher();
+        Date now = new Date();
+        LostFound lost = item(1L, 0, 10L, "丢失黑色钱包", "图书馆三楼", now);
+        matcher.index(lost);
+        matcher.index(item(2L, 1, 10L, "捡到黑色钱包", "图书馆", now));
+        matcher.index(item(3L, 1, 20L, "捡到蓝色雨伞", "食堂", now));
+
+        // 不共享任何索引键的招领物品不参与打分
+        assertEquals(Set.of(2L), matcher.candidateIds(lost, 0.3));
+        List<LostFoundMatcher.MatchResult> matches = matcher.findMatches(lost, 0.3);
+
+        assertEquals(1, matches.size());
+        assertEquals(2L, matches.get(0).getItem().getId());
+
+        matcher.remove(2L);
+        assertTrue(matcher.findMatches(lost, 0.3).isEmpty());
+    }
+
+    @Test
+    void testLowThresholdScoresLocationContainmentWithoutSharedToken() {
+        LostFoundMatcher matcher = new LostFoundMatcher();
+        Date now = new Date();
+        LostFound lost = item(1L, 0, 10L, "丢失钱包", "东门", now);
+        matcher.index(lost);
+        // "东"只靠单个汉字包含于"东门"，两件物品不共享任何索引键，仍有时间分与一半地点分
+        matcher.index(item(2L, 1, 20L, "捡到雨伞", "东", now));
+
+        List<LostFoundMatcher.MatchResult> matches = matcher.findMatches(lost, 0.15);
+
+        assertEquals(1, matches.size());
+        assertEquals(0.2, matches.get(0).getSimilarity(), 1e-9);
+    }
+
+    @Test
+    void testIndexedMatchesEqualBruteForce() {
+        String[] titles = {"丢失黑色钱包", "捡到黑色钱包", "蓝色雨伞", "校园卡", "iPhone手机", "白色耳机", "钥匙一串", "黑色书包"};
+        String[] locations = {"图书馆", "图书馆三楼", "食堂", "东门", "东", "操场", "体育馆", ""};
+        Random random = new Random(42);
+        LostFoundMatcher matcher = new LostFoundMatcher();
+        List<LostFound> lostItems = new ArrayList<>();
+        List<LostFound> foundItems = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (long id = 1; id <= 300; id++) {
+            int type = random.nextInt(2);
+            LostFound item = item(id, type, (long) random.nextInt(5), titles[random.nextInt(titles.length)],
+                    locations[random.nextInt(locations.length)], new Date(now - random.nextInt(10) * 86400000L));
+            item.setContent(random.nextBoolean() ? titles[random.nextInt(titles.length)] : null);
+            matcher.index(item);
+            (type == 0 ? lostItems : foundItems).add(item);
+        }
+
+        for (double threshold : new double[]{0.1, 0.2, 0.25, 0.4, 0.6}) {
+            for (LostFound lost : lostItems) {
+                Map<Long, Double> expected = new HashMap<>();
+                for (LostFound found : foundItems) {
+                    double similarity = matcher.calculateSimilarity(lost, found);
+                    if (similarity >= threshold) {
+                        expected.put(found.getId(), similarity);
+                    }
+                }
+                Map<Long, Double> actual = new HashMap<>();
+                for (LostFoundMatcher.MatchResult match : matcher.findMatches(lost, threshold)) {
+                    actual.put(match.getItem().getId(), match.getSimilarity());
+                }
+                assertEquals(expected, actual, "threshold=" + threshold + ", lost=" + lost.getId());
+            }
+        }
+    }
+
+    @Test
+    void testBatchMatch() {
+        LostFoundMatcher matcher = new LostFoundMatcher();
+        Date now = new Date();
+        matcher.index(item(1L, 0, 10L, "丢失校园卡", "操场", now));
+        matcher.index(item(2L, 0, 30L, "丢失耳机", "体育馆", now));
+        matcher.index(item(3L, 1, 10L, "捡到校园卡", "操场", now));
+
+        List<LostFoundMatcher.BatchMatchResult> results = matcher.batchMatch(0.3);
+
+        assertEquals(1, results.size());
+        assertEquals(1L, results.get(0).getLostItem().getId());
+        assertEquals(3L, results.get(0).getMatches().get(0).getItem().getId());
+    }
+
+    private static LostFound item(Long id, int type, Long categoryId, String title, String location, Date time) {
+        LostFound item = new LostFound();
+        item.setId(id);
+        item.setType(type);
+        item.setCategoryId(categoryId);
+        item.setTitle(title);
+        item.setLocation(location);
+        item.setTime(time);
+        return item;
+    }
+}
@@ -0,0 +1,166 @@
+package com.heikeji.mall.order.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 用户订单列表缓存
+ * 每个用户维护一个版本号，列表分页与各状态订单数都缓存在当前版本的命名空间下；
+ * 该用户的订单发生写操作时只需递增其版本号，旧版本的缓存自然失效并由过期时间回收，
+ * 不会影响其他用户的缓存。Redis不可用时直接回源查询数据库。
+ */
+@Slf4j
+@Component
+public class UserOrderListCache {
+
+    private static final String KEY_PREFIX = "order:user:";
+
+    /**
+     * 计数缓存中的占位字段
+     */
+    private static final String EMPTY_MARKER = "_";
+
+    /**
+     * 列表分页缓存过期时间（秒）
+     */
+    private static final long LIST_EXPIRE_SECONDS = 300;
+
+    /**
+     * 状态计数缓存过期时间（秒）
+     */
+    private static final long COUNT_EXPIRE_SECONDS = 1800;
+
+    /**
+     * 版本号过期时间（天），需远大于数据缓存的过期时间，避免版本号回绕后命中旧数据
+     */
+    private static final long VERSION_EXPIRE_DAYS = 7;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 获取用户的列表缓存
+     *
+     * @param userId 用户ID
+     * @param key    列表在用户命名空间内的键（状态、游标、每页数量等）
+     * @param loader 缓存未命中时的加载函数
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getList(Long userId, String key, Supplier<Map<String, Object>> loader) {
+        if (redisTemplate == null || userId == null) {
+            return loader.get();
+        }
+        String cacheKey;
+        try {
+            cacheKey = namespace(userId) + "list:" + key;
+            Object cached = redisTemplate.opsForValue().get(cacheKey);
+            if (cached instanceof Map) {
+                return (Map<String, Object>) cached;
+            }
+        } catch (Exception e) {
+            log.warn("读取用户订单列表缓存失败，userId={}: {}", userId, e.getMessage());
+            return loader.get();
+        }
+        Map<String, Object> value = loader.get();
+        if (value != null) {
+            try {
+                redisTemplate.opsForValue().set(cacheKey, value, LIST_EXPIRE_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("写入用户订单列表缓存失败，userId={}: {}", userId, e.getMessage());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 获取用户各状态的订单数
+     * 同一版本内只执行一次分组计数，之后各分页请求直接读取缓存的计数
+     *
+     * @param userId 用户ID
+     * @param loader 缓存未命中时的加载函数，返回 状态 -> 订单数
+     */
+    public Map<Integer, Long> getStatusCounts(Long userId, Supplier<Map<Integer, Long>> loader) {
+        if (redisTemplate == null || userId == null) {
+            return loader.get();
+        }
+        String cacheKey;
+        try {
+            cacheKey = namespace(userId) + "count";
+            Map<Object, Object> cached = redisTemplate.opsForHash().entries(cacheKey);
+            if (!cached.isEmpty()) {
+                Map<Integer, Long> counts = new HashMap<>(cached.size());
+                cached.forEach((status, count) -> {
+                    if (!EMPTY_MARKER.equals(status)) {
+                        counts.put(Integer.valueOf(status.toString()), ((Number) count).longValue());
+                    }
+                });
+                return counts;
+            }
+        } catch (Exception e) {
+            log.warn("读取用户订单计数缓存失败，userId={}: {}", userId, e.getMessage());
+            return loader.get();
+        }
+        Map<Integer, Long> counts = loader.get();
+        try {
+            Map<String, Object> hash = new HashMap<>(counts.size() + 1);
+            counts.forEach((status, count) -> hash.put(String.valueOf(status), count));
+            // 没有订单的用户也写入占位字段，避免反复执行计数查询
+            hash.put(EMPTY_MARKER, 0L);
+            redisTemplate.opsForHash().putAll(cacheKey, hash);
+            redisTemplate.expire(cacheKey, COUNT_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入用户订单计数缓存失败，userId={}: {}", userId, e.getMessage());
+        }
+        return counts;
+    }
+
+    /**
+     * 使用户的订单列表与计数缓存失效
+     * 存在活动事务时在事务提交后执行，避免并发读请求在提交前把旧数据写回新版本
+     *
+     * @param userId 用户ID
+     */
+    public void evict(Long userId) {
+        if (redisTemplate == null || userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(userId);
+                }
+            });
+        } else {
+            doEvict(userId);
+        }
+    }
+
+    private void doEvict(Long userId) {
+        try {
+            String versionKey = versionKey(userId);
+            redisTemplate.opsForValue().increment(versionKey);
+            redisTemplate.expire(versionKey, VERSION_EXPIRE_DAYS, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("清除用户订单列表缓存失败，userId={}: {}", userId, e.getMessage());
+        }
+    }
+
+    private String namespace(Long userId) {
+        Object version = redisTemplate.opsForValue().get(versionKey(userId));
+        return KEY_PREFIX + userId + ":v" + (version == null ? 0 : version) + ":";
+    }
+
+    private static String versionKey(Long userId) {
+        return KEY_PREFIX + userId + ":ver";
+    }
+}
@@ -1,7 +1,10 @@
 package com.heikeji.mall.order.config;
 
+import com.heikeji.common.core.id.IdGenerator;
+import com.heikeji.mall.common.datasource.ReadWriteSplitDataSourceConfig;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 /**
@@ -15,6 +18,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
         "com.heikeji.mall.order.mapper",
         "com.heikeji.mall.order.config"
 })
+@Import({IdGenerator.class, ReadWriteSplitDataSourceConfig.class})
 public class OrderServiceConfig {
     
     // 可以在这里添加订单服务相关的配置
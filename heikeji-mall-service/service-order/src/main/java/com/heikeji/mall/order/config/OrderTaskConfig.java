@@ -1,6 +1,7 @@
 package com.heikeji.mall.order.config;
 
 import com.heikeji.mall.order.service.OrderService;
+import com.heikeji.mall.order.service.OrderStatService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -20,11 +21,14 @@ public class OrderTaskConfig {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderStatService orderStatService;
+
     /**
-     * 定时取消超时未支付的订单
-     * 每5分钟执行一次
+     * 兜底取消超时未支付的订单
+     * 订单到期后由延时队列及时取消，本任务只处理Redis不可用等情况下遗漏的订单，默认每30分钟执行一次
      */
-    @Scheduled(cron = "0 0/5 * * * ?")
+    @Scheduled(cron = "${order.timeout.sweep-cron:0 0/30 * * * ?}")
     public void autoCancelTimeoutOrders() {
         log.info("开始执行定时任务：取消超时未支付订单，执行时间：{}", new Date());
         try {
@@ -36,8 +40,8 @@ public class OrderTaskConfig {
     }
 
     /**
-     * 定时自动确认收货
-     * 每天凌晨1点执行一次
+     * 兜底自动确认收货
+     * 订单到期后由延时队列及时确认，本任务每天凌晨1点处理遗漏的订单
      */
     @Scheduled(cron = "0 0 1 * * ?")
     public void autoConfirmReceivedOrders() {
@@ -49,4 +53,17 @@ public class OrderTaskConfig {
             log.error("定时任务执行失败：自动确认收货", e);
         }
     }
+
+    /**
+     * 增量同步订单小时统计表，首次执行时全量回填历史数据
+     * 每分钟执行一次
+     */
+    @Scheduled(initialDelay = 30000, fixedDelay = 60000)
+    public void refreshOrderStat() {
+        try {
+            orderStatService.refresh();
+        } catch (Exception e) {
+            log.error("定时任务执行失败：同步订单统计", e);
+        }
+    }
 }
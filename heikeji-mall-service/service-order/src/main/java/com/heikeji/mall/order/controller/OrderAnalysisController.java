@@ -2,11 +2,13 @@ package com.heikeji.mall.order.controller;
 
 import com.heikeji.common.core.domain.R;
 import com.heikeji.mall.order.service.OrderAnalysisService;
+import com.heikeji.mall.order.service.OrderStatService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,6 +28,9 @@ public class OrderAnalysisController {
     @Autowired
     private OrderAnalysisService orderAnalysisService;
 
+    @Autowired
+    private OrderStatService orderStatService;
+
     /**
      * 获取订单概览数据
      */
@@ -146,4 +151,16 @@ public class OrderAnalysisController {
         List<Map<String, Object>> distribution = orderAnalysisService.getOrderRegionDistribution(startDate, endDate);
         return R.success(distribution);
     }
-}
\ No newline at end of file
+
+    /**
+     * 回填订单统计数据
+     */
+    @Operation(summary = "回填订单统计数据")
+    @PostMapping("/stat/rebuild")
+    public R<Void> rebuildOrderStat(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date startDate,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Date endDate) {
+        orderStatService.rebuild(startDate, endDate);
+        return R.success();
+    }
+}
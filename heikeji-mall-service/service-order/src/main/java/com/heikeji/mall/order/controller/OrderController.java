@@ -1,10 +1,12 @@
 package com.heikeji.mall.order.controller;
 
+import com.heikeji.common.core.domain.ChunkResult;
 import com.heikeji.common.core.domain.R; // 确保使用R类而不是不存在的Result类
 import com.heikeji.mall.order.domain.vo.OrderDetailVO;
 // import com.heikeji.mall.common.core.result.ResultCode; // 包不存在，暂时注释
 // import com.heikeji.mall.order.constant.OrderConstant; // 包不存在，暂时注释
 import com.heikeji.mall.order.service.OrderService;
+import com.heikeji.mall.order.timeout.OrderTimeoutDispatcher;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +27,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderTimeoutDispatcher orderTimeoutDispatcher;
+
     /**
      * 自动取消超时订单接口（供定时任务调用）
      * @param paramMap 包含超时时间参数
@@ -80,6 +85,66 @@ public class OrderController {
         }
     }
     
+    /**
+     * 分块自动取消超时订单接口（供定时任务按主键游标分块调用）
+     * @param minutes 超时分钟数
+     * @param afterId 游标，只处理主键大于该值的订单
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit 每块最大订单数
+     * @return 本块处理结果
+     */
+    @Operation(summary = "分块自动取消超时订单")
+    @PostMapping("/auto-cancel/chunk")
+    public R<ChunkResult> autoCancelOrderChunk(
+            @RequestParam Integer minutes,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "0") Integer shardIndex,
+            @RequestParam(defaultValue = "1") Integer shardTotal,
+            @RequestParam(defaultValue = "500") Integer limit) {
+        try {
+            return R.success(orderService.cancelTimeoutOrderChunk(minutes, afterId, shardIndex, shardTotal, limit));
+        } catch (Exception e) {
+            log.error("分块自动取消订单失败，afterId：{}，分片：{}/{}", afterId, shardIndex, shardTotal, e);
+            return R.error("分块自动取消订单失败");
+        }
+    }
+    
+    /**
+     * 分块自动确认收货接口（供定时任务按主键游标分块调用）
+     * @param days 超时天数
+     * @param afterId 游标，只处理主键大于该值的订单
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数
+     * @param limit 每块最大订单数
+     * @return 本块处理结果
+     */
+    @Operation(summary = "分块自动确认收货")
+    @PostMapping("/auto-confirm/chunk")
+    public R<ChunkResult> autoConfirmOrderChunk(
+            @RequestParam Integer days,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "0") Integer shardIndex,
+            @RequestParam(defaultValue = "1") Integer shardTotal,
+            @RequestParam(defaultValue = "500") Integer limit) {
+        try {
+            return R.success(orderService.autoConfirmOrderChunk(days, afterId, shardIndex, shardTotal, limit));
+        } catch (Exception e) {
+            log.error("分块自动确认收货失败，afterId：{}，分片：{}/{}", afterId, shardIndex, shardTotal, e);
+            return R.error("分块自动确认收货失败");
+        }
+    }
+    
+    /**
+     * 获取超时延时队列统计
+     * @return 各超时类型的处理数、跳过数、失败数与队列积压
+     */
+    @Operation(summary = "获取超时延时队列统计")
+    @GetMapping("/timeout/stats")
+    public R<Map<String, Object>> getTimeoutStats() {
+        return R.success(orderTimeoutDispatcher.getStats());
+    }
+    
     /**
      * 获取订单列表
      */
@@ -100,6 +165,27 @@ public class OrderController {
         }
     }
     
+    /**
+     * 游标分页获取订单列表
+     */
+    @Operation(summary = "游标分页获取订单列表")
+    @GetMapping("/list/cursor")
+    public R<?> getOrderListByCursor(
+            @RequestParam Long userId,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        try {
+            Map<String, Object> orderList = orderService.getUserOrderListByCursor(userId, status, cursor, limit);
+            return R.success(orderList);
+        } catch (IllegalArgumentException e) {
+            return R.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("游标分页获取订单列表失败", e);
+            return R.error("获取订单列表失败");
+        }
+    }
+    
     /**
      * 获取订单详情
      */
@@ -0,0 +1,34 @@
+package com.heikeji.mall.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 订单统计聚合行DTO
+ * 未参与分组的维度字段为null
+ */
+@Data
+public class OrderStatDTO {
+    // 统计小时
+    private Date statHour;
+
+    // 商家ID
+    private Long storeId;
+
+    // 订单状态
+    private Integer status;
+
+    // 支付状态
+    private Integer payStatus;
+
+    // 金额区间
+    private Integer amountRange;
+
+    // 订单数
+    private Long orderCount;
+
+    // 订单总金额
+    private BigDecimal totalAmount;
+}
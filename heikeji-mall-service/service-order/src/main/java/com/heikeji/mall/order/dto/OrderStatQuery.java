@@ -0,0 +1,59 @@
+package com.heikeji.mall.order.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 订单统计查询条件
+ * [fullStart, fullEnd) 内的整点小时从统计表读取，[start, fullStart) 与 [fullEnd, end] 两段边界从订单明细聚合
+ */
+@Data
+public class OrderStatQuery {
+    // 开始时间（含）
+    private Date start;
+
+    // 结束时间（含）
+    private Date end;
+
+    // 统计表覆盖的开始小时（含）
+    private Date fullStart;
+
+    // 统计表覆盖的结束小时（不含）
+    private Date fullEnd;
+
+    // 订单状态过滤（可选）
+    private Integer status;
+
+    // 分组维度
+    private List<Dimension> dimensions = new ArrayList<>();
+
+    /**
+     * 统计维度
+     */
+    public enum Dimension {
+        HOUR("stat_hour", "statHour"),
+        STORE("store_id", "storeId"),
+        STATUS("status", "status"),
+        PAY_STATUS("pay_status", "payStatus"),
+        AMOUNT_RANGE("amount_range", "amountRange");
+
+        private final String column;
+        private final String property;
+
+        Dimension(String column, String property) {
+            this.column = column;
+            this.property = property;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.heikeji.mall.order.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.heikeji.mall.order.domain.vo.OrderListVO;
 import com.heikeji.mall.order.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -54,4 +56,35 @@ public interface OrderMapper extends BaseMapper<Order> {
      * @return 分页订单列表
      */
     IPage<Order> selectUserOrderListPage(@Param("page") Page<Order> page, @Param("userId") Long userId, @Param("status") Integer status);
+
+    /**
+     * 游标分页查询用户订单列表，按创建时间、ID倒序
+     * @param userId 用户ID
+     * @param status 订单状态（可选）
+     * @param cursorTime 上一页最后一条记录的创建时间（为空时查询第一页）
+     * @param cursorId 上一页最后一条记录的ID（为空时查询第一页）
+     * @param limit 查询数量
+     * @return 订单列表
+     */
+    List<OrderListVO> selectUserOrderListByCursor(@Param("userId") Long userId, @Param("status") Integer status,
+                                                  @Param("cursorTime") Date cursorTime, @Param("cursorId") Long cursorId,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 偏移分页查询用户订单列表，按创建时间、ID倒序
+     * @param userId 用户ID
+     * @param status 订单状态（可选）
+     * @param offset 偏移量
+     * @param limit 查询数量
+     * @return 订单列表
+     */
+    List<OrderListVO> selectUserOrderListByOffset(@Param("userId") Long userId, @Param("status") Integer status,
+                                                  @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * 按状态统计用户订单数
+     * @param userId 用户ID
+     * @return 每行包含 status、cnt
+     */
+    List<Map<String, Object>> selectUserOrderStatusCounts(@Param("userId") Long userId);
 }
@@ -0,0 +1,75 @@
+package com.heikeji.mall.order.mapper;
+
+import com.heikeji.mall.order.dto.OrderStatDTO;
+import com.heikeji.mall.order.dto.OrderStatQuery;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 订单统计Mapper
+ */
+@Mapper
+public interface OrderStatMapper {
+
+    /**
+     * 查询增量同步水位
+     * @param name 检查点名称
+     * @return 水位，未初始化时返回null
+     */
+    Date selectWatermark(@Param("name") String name);
+
+    /**
+     * 保存增量同步水位，watermark为null时使用数据库当前时间
+     * @param name 检查点名称
+     * @param watermark 水位
+     * @return 影响行数
+     */
+    int saveWatermark(@Param("name") String name, @Param("watermark") Date watermark);
+
+    /**
+     * 查询订单最大更新时间
+     * @param since 起始更新时间（不含），为null时查询全表
+     * @return 最大更新时间
+     */
+    Date selectMaxUpdatedAt(@Param("since") Date since);
+
+    /**
+     * 查询指定更新时间段内发生变更的订单所在的创建小时
+     * @param since 起始更新时间（不含）
+     * @param until 结束更新时间（含）
+     * @return 需要重算的小时列表
+     */
+    List<Date> selectDirtyHours(@Param("since") Date since, @Param("until") Date until);
+
+    /**
+     * 查询最早的订单创建时间
+     * @return 最早创建时间
+     */
+    Date selectMinCreatedAt();
+
+    /**
+     * 删除统计小时段的数据
+     * @param start 开始小时（含）
+     * @param end 结束小时（不含）
+     * @return 影响行数
+     */
+    int deleteHourRange(@Param("start") Date start, @Param("end") Date end);
+
+    /**
+     * 从订单明细重新聚合统计小时段的数据
+     * @param start 开始小时（含）
+     * @param end 结束小时（不含）
+     * @return 影响行数
+     */
+    int insertHourRange(@Param("start") Date start, @Param("end") Date end);
+
+    /**
+     * 按维度聚合查询订单统计
+     * @param query 查询条件
+     * @return 聚合结果
+     */
+    List<OrderStatDTO> selectStats(@Param("query") OrderStatQuery query);
+}
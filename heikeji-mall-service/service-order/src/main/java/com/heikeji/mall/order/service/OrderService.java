@@ -1,10 +1,12 @@
 package com.heikeji.mall.order.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.heikeji.common.core.domain.ChunkResult;
 import com.heikeji.mall.order.domain.vo.OrderDetailVO;
 import com.heikeji.mall.order.domain.vo.OrderListVO;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.entity.OrderItem;
+import com.heikeji.mall.order.timeout.OrderTimeoutResult;
 import java.math.BigDecimal;
 import java.util.Date;
 import com.heikeji.mall.takeout.dto.CreateTakeoutOrderDTO;
@@ -139,6 +141,16 @@ public interface OrderService extends IService<Order> {
      * @return 鍒嗛〉璁㈠崟鏁版嵁
      */
     Map<String, Object> getUserOrderList(Long userId, Integer status, Integer page, Integer limit);
+
+    /**
+     * 游标分页获取用户订单列表，按创建时间倒序，翻页深度不影响查询开销
+     * @param userId 用户ID
+     * @param status 订单状态（可选）
+     * @param cursor 上一页返回的nextCursor，为空时查询第一页
+     * @param limit 每页数量
+     * @return 分页订单数据，包含list、total、hasMore、nextCursor
+     */
+    Map<String, Object> getUserOrderListByCursor(Long userId, Integer status, String cursor, Integer limit);
     
     /**
      * 鑾峰彇寰呭鐞嗚鍗曞垪琛?     * @return 寰呭鐞嗚鍗曞垪琛?     */
@@ -182,6 +194,44 @@ public interface OrderService extends IService<Order> {
      * @return 确认收货的订单数量
      */
     int autoConfirmReceivedOrders();
+
+    /**
+     * 分块取消超时未支付的订单，供定时任务按主键游标分块调用
+     * @param timeoutMinutes 超时分钟数
+     * @param afterId 游标，只处理主键大于该值的订单，为空时从头开始
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数，按主键取模分片，不大于1时不分片
+     * @param limit 每块最大订单数
+     * @return 本块处理结果
+     */
+    ChunkResult cancelTimeoutOrderChunk(int timeoutMinutes, Long afterId, int shardIndex, int shardTotal, int limit);
+
+    /**
+     * 分块自动确认超时未收货的订单，供定时任务按主键游标分块调用
+     * @param timeoutDays 超时天数
+     * @param afterId 游标，只处理主键大于该值的订单，为空时从头开始
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数，按主键取模分片，不大于1时不分片
+     * @param limit 每块最大订单数
+     * @return 本块处理结果
+     */
+    ChunkResult autoConfirmOrderChunk(int timeoutDays, Long afterId, int shardIndex, int shardTotal, int limit);
+
+    /**
+     * 取消一个超时未支付的订单，供延时队列到期时调用
+     * 以待支付状态和超时时间为更新条件，订单已支付、已取消时不做修改，尚未超时时按实际到期时间重新入队，可重复调用
+     * @param orderId 订单ID
+     * @return 处理结果
+     */
+    OrderTimeoutResult cancelTimeoutOrder(Long orderId);
+
+    /**
+     * 自动确认一个超时未收货的订单，供延时队列到期时调用
+     * 以待收货状态和超时时间为更新条件，订单已确认收货时不做修改，尚未超时时按实际到期时间重新入队，可重复调用
+     * @param orderId 订单ID
+     * @return 处理结果
+     */
+    OrderTimeoutResult autoConfirmOrder(Long orderId);
     
     /**
      * 申请退款
@@ -0,0 +1,39 @@
+package com.heikeji.mall.order.service;
+
+import com.heikeji.mall.order.dto.OrderStatDTO;
+import com.heikeji.mall.order.dto.OrderStatQuery;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 订单统计服务接口
+ * 维护按小时预聚合的订单统计表，并为分析接口提供按维度聚合的查询
+ */
+public interface OrderStatService {
+
+    /**
+     * 增量同步：根据订单更新时间找出发生变更的小时并重新聚合，
+     * 统计表尚未初始化时执行全量回填
+     */
+    void refresh();
+
+    /**
+     * 回填指定时间段的统计数据（按天分批重算）
+     *
+     * @param startDate 开始时间
+     * @param endDate 结束时间
+     */
+    void rebuild(Date startDate, Date endDate);
+
+    /**
+     * 按维度聚合订单统计，结果与直接聚合订单明细一致
+     *
+     * @param startDate 开始时间（含）
+     * @param endDate 结束时间（含）
+     * @param status 订单状态过滤（可选）
+     * @param dimensions 分组维度
+     * @return 聚合结果
+     */
+    List<OrderStatDTO> query(Date startDate, Date endDate, Integer status, OrderStatQuery.Dimension... dimensions);
+}
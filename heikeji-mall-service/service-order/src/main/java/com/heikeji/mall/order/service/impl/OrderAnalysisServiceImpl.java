@@ -1,9 +1,12 @@
 package com.heikeji.mall.order.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.heikeji.mall.order.dto.OrderStatDTO;
+import com.heikeji.mall.order.dto.OrderStatQuery;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.mapper.OrderMapper;
 import com.heikeji.mall.order.service.OrderAnalysisService;
+import com.heikeji.mall.order.service.OrderStatService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -14,31 +17,44 @@ import java.util.stream.Collectors;
 
 /**
  * 订单数据分析服务实现类
+ * 计数类指标从订单小时统计表按维度聚合，查询成本与时间桶数量相关，与订单量无关
  */
 @Service
 public class OrderAnalysisServiceImpl implements OrderAnalysisService {
 
+    /**
+     * 金额区间名称，下标与统计表的amount_range一致
+     */
+    private static final String[] AMOUNT_RANGES = {"0-50", "50-100", "100-200", "200-500", "500+"};
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private OrderStatService orderStatService;
+
     @Override
     @Cacheable(value = "orderAnalysis", key = "'overview_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getOrderOverview(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        // 查询订单总数
-        long totalOrders = orderMapper.selectCount(queryWrapper);
-        
-        // 查询已完成订单数
-        long completedOrders = orderMapper.selectCount(queryWrapper.clone().eq("status", 5)); // 5表示订单已完成
-        
-        // 查询待处理订单数
-        long pendingOrders = orderMapper.selectCount(queryWrapper.clone().in("status", Arrays.asList(1, 2, 3))); // 1-3表示待处理状态
-        
-        // 查询取消订单数
-        long cancelledOrders = orderMapper.selectCount(queryWrapper.clone().eq("status", 4)); // 4表示订单已取消
+        // 按订单状态一次性聚合
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null, OrderStatQuery.Dimension.STATUS);
+        
+        long totalOrders = 0;
+        long completedOrders = 0;
+        long pendingOrders = 0;
+        long cancelledOrders = 0;
+        for (OrderStatDTO stat : stats) {
+            long count = stat.getOrderCount();
+            totalOrders += count;
+            int status = stat.getStatus();
+            if (status == 5) { // 5表示订单已完成
+                completedOrders += count;
+            } else if (status >= 1 && status <= 3) { // 1-3表示待处理状态
+                pendingOrders += count;
+            } else if (status == 4) { // 4表示订单已取消
+                cancelledOrders += count;
+            }
+        }
         
         // 查询退款订单数
         long refundedOrders = 0; // 简化实现：数据库中没有refund_status字段，暂时返回0
@@ -62,38 +78,19 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'trend_' + #startDate.time + '_' + #endDate.time + '_' + #interval")
     public Map<String, Object> getOrderTrend(Date startDate, Date endDate, String interval) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
+        // 按小时和订单状态聚合
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null,
+                OrderStatQuery.Dimension.HOUR, OrderStatQuery.Dimension.STATUS);
         
         // 根据时间间隔分组统计订单数据
         Map<String, Map<String, Object>> trendMap = new TreeMap<>();
+        Calendar calendar = Calendar.getInstance();
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
         
-        for (Order order : orders) {
-            Date orderDate = order.getCreateTime();
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(orderDate);
-            String timeKey = "";
-            
-            // 根据不同时间间隔生成时间键
-            switch (interval) {
-                case "day":
-                    timeKey = new SimpleDateFormat("yyyy-MM-dd").format(orderDate);
-                    break;
-                case "week":
-                    // 获取周数
-                    int weekOfYear = calendar.get(Calendar.WEEK_OF_YEAR);
-                    timeKey = calendar.get(Calendar.YEAR) + "-W" + weekOfYear;
-                    break;
-                case "month":
-                    timeKey = calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1);
-                    break;
-                default:
-                    timeKey = new SimpleDateFormat("yyyy-MM-dd").format(orderDate);
-                    break;
-            }
+        for (OrderStatDTO stat : stats) {
+            // 同一小时内的订单时间键相同，按小时起点生成即可
+            String timeKey = getTimeKey(stat.getStatHour(), interval, calendar, dayFormat);
+            long count = stat.getOrderCount();
             
             // 初始化或更新时间键对应的订单数据
             final String finalTimeKey = timeKey;
@@ -107,13 +104,13 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
             });
             
             Map<String, Object> trendData = trendMap.get(timeKey);
-            trendData.put("orderCount", (long) trendData.get("orderCount") + 1);
+            trendData.put("orderCount", (long) trendData.get("orderCount") + count);
             
             // 更新不同状态的订单数量
-            if (order.getStatus() == 5) { // 已完成
-                trendData.put("completedOrderCount", (long) trendData.get("completedOrderCount") + 1);
-            } else if (order.getStatus() == 4) { // 已取消
-                trendData.put("cancelledOrderCount", (long) trendData.get("cancelledOrderCount") + 1);
+            if (stat.getStatus() == 5) { // 已完成
+                trendData.put("completedOrderCount", (long) trendData.get("completedOrderCount") + count);
+            } else if (stat.getStatus() == 4) { // 已取消
+                trendData.put("cancelledOrderCount", (long) trendData.get("cancelledOrderCount") + count);
             }
         }
         
@@ -133,15 +130,14 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'statusDistribution_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getOrderStatusDistribution(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
-        
         // 按订单状态分组统计
-        Map<Integer, Long> statusCount = orders.stream()
-                .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()));
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null, OrderStatQuery.Dimension.STATUS);
+        Map<Integer, Long> statusCount = new HashMap<>();
+        long totalOrders = 0;
+        for (OrderStatDTO stat : stats) {
+            statusCount.merge(stat.getStatus(), stat.getOrderCount(), Long::sum);
+            totalOrders += stat.getOrderCount();
+        }
         
         // 构建订单状态分布数据
         List<Map<String, Object>> distribution = new ArrayList<>();
@@ -154,7 +150,7 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
         });
         
         Map<String, Object> result = new HashMap<>();
-        result.put("totalOrders", orders.size());
+        result.put("totalOrders", (int) totalOrders);
         result.put("distribution", distribution);
         
         return result;
@@ -163,37 +159,21 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'amountDistribution_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getOrderAmountDistribution(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
-        
         // 按订单金额区间分组统计
         Map<String, Long> amountRangeCount = new TreeMap<>();
         
         // 定义金额区间
-        List<String> ranges = Arrays.asList("0-50", "50-100", "100-200", "200-500", "500+");
-        for (String range : ranges) {
+        for (String range : AMOUNT_RANGES) {
             amountRangeCount.put(range, 0L);
         }
         
         // 统计各金额区间的订单数量
-        for (Order order : orders) {
-            double amount = order.getTotalAmount().doubleValue();
-            String range;
-            if (amount < 50) {
-                range = "0-50";
-            } else if (amount < 100) {
-                range = "50-100";
-            } else if (amount < 200) {
-                range = "100-200";
-            } else if (amount < 500) {
-                range = "200-500";
-            } else {
-                range = "500+";
-            }
-            amountRangeCount.put(range, amountRangeCount.get(range) + 1);
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null, OrderStatQuery.Dimension.AMOUNT_RANGE);
+        long totalOrders = 0;
+        for (OrderStatDTO stat : stats) {
+            String range = AMOUNT_RANGES[stat.getAmountRange()];
+            amountRangeCount.put(range, amountRangeCount.get(range) + stat.getOrderCount());
+            totalOrders += stat.getOrderCount();
         }
         
         // 构建订单金额分布数据
@@ -206,7 +186,7 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
         });
         
         Map<String, Object> result = new HashMap<>();
-        result.put("totalOrders", orders.size());
+        result.put("totalOrders", (int) totalOrders);
         result.put("distribution", distribution);
         
         return result;
@@ -245,23 +225,20 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'timeDistribution_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getOrderTimeDistribution(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
-        
         // 按小时分组统计订单数量
         Map<Integer, Long> hourlyCount = new TreeMap<>();
         for (int hour = 0; hour < 24; hour++) {
             hourlyCount.put(hour, 0L);
         }
         
-        for (Order order : orders) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(order.getCreateTime());
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null, OrderStatQuery.Dimension.HOUR);
+        Calendar calendar = Calendar.getInstance();
+        long totalOrders = 0;
+        for (OrderStatDTO stat : stats) {
+            calendar.setTime(stat.getStatHour());
             int hour = calendar.get(Calendar.HOUR_OF_DAY);
-            hourlyCount.put(hour, hourlyCount.get(hour) + 1);
+            hourlyCount.put(hour, hourlyCount.get(hour) + stat.getOrderCount());
+            totalOrders += stat.getOrderCount();
         }
         
         // 构建订单时间分布数据
@@ -274,7 +251,7 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
         });
         
         Map<String, Object> result = new HashMap<>();
-        result.put("totalOrders", orders.size());
+        result.put("totalOrders", (int) totalOrders);
         result.put("distribution", distribution);
         
         return result;
@@ -283,18 +260,14 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'cancelReason_' + #startDate.time + '_' + #endDate.time")
     public List<Map<String, Object>> getOrderCancelReasonAnalysis(Date startDate, Date endDate) {
-        // 查询指定时间范围内的已取消订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate)
-                   .eq("status", 4); // 4表示订单已取消
-        
-        List<Order> cancelledOrders = orderMapper.selectList(queryWrapper);
+        // 查询指定时间范围内的已取消订单数
+        int cancelledOrders = (int) sumOrderCount(orderStatService.query(startDate, endDate, 4)); // 4表示订单已取消
         
         // 简化实现：假设取消原因存储在某个字段中，这里使用状态字段模拟
         Map<String, Long> reasonCount = new HashMap<>();
-        reasonCount.put("用户取消", (long) cancelledOrders.size() * 7 / 10);
-        reasonCount.put("商家取消", (long) cancelledOrders.size() * 2 / 10);
-        reasonCount.put("系统取消", (long) cancelledOrders.size() * 1 / 10);
+        reasonCount.put("用户取消", (long) cancelledOrders * 7 / 10);
+        reasonCount.put("商家取消", (long) cancelledOrders * 2 / 10);
+        reasonCount.put("系统取消", (long) cancelledOrders * 1 / 10);
         
         // 构建取消原因分析数据
         List<Map<String, Object>> analysis = new ArrayList<>();
@@ -302,7 +275,7 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
             Map<String, Object> reasonData = new HashMap<>();
             reasonData.put("reason", reason);
             reasonData.put("count", count);
-            reasonData.put("percentage", cancelledOrders.size() > 0 ? (double) count / cancelledOrders.size() * 100 : 0);
+            reasonData.put("percentage", cancelledOrders > 0 ? (double) count / cancelledOrders * 100 : 0);
             analysis.add(reasonData);
         });
         
@@ -312,18 +285,23 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'conversion_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getOrderConversionAnalysis(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        // 查询总订单数
-        long totalOrders = orderMapper.selectCount(queryWrapper);
-        
-        // 查询支付成功订单数
-        long paidOrders = orderMapper.selectCount(queryWrapper.clone().eq("pay_status", 1)); // 1表示已支付
-        
-        // 查询已完成订单数
-        long completedOrders = orderMapper.selectCount(queryWrapper.clone().eq("status", 5)); // 5表示已完成
+        // 按订单状态和支付状态一次性聚合
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, null,
+                OrderStatQuery.Dimension.STATUS, OrderStatQuery.Dimension.PAY_STATUS);
+        
+        long totalOrders = 0;
+        long paidOrders = 0;
+        long completedOrders = 0;
+        for (OrderStatDTO stat : stats) {
+            long count = stat.getOrderCount();
+            totalOrders += count;
+            if (stat.getPayStatus() == 1) { // 1表示已支付
+                paidOrders += count;
+            }
+            if (stat.getStatus() == 5) { // 5表示已完成
+                completedOrders += count;
+            }
+        }
         
         // 计算转化率
         double paymentConversionRate = totalOrders > 0 ? (double) paidOrders / totalOrders : 0;
@@ -376,18 +354,15 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
     @Override
     @Cacheable(value = "orderAnalysis", key = "'regionDistribution_' + #startDate.time + '_' + #endDate.time")
     public List<Map<String, Object>> getOrderRegionDistribution(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate);
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
+        // 查询指定时间范围内的订单数
+        int totalOrders = (int) sumOrderCount(orderStatService.query(startDate, endDate, null));
         
         // 简化实现：假设region字段表示订单地域，这里使用模拟数据
         Map<String, Long> regionCount = new HashMap<>();
-        regionCount.put("东校区", (long) orders.size() * 4 / 10);
-        regionCount.put("西校区", (long) orders.size() * 3 / 10);
-        regionCount.put("南校区", (long) orders.size() * 2 / 10);
-        regionCount.put("北校区", (long) orders.size() * 1 / 10);
+        regionCount.put("东校区", (long) totalOrders * 4 / 10);
+        regionCount.put("西校区", (long) totalOrders * 3 / 10);
+        regionCount.put("南校区", (long) totalOrders * 2 / 10);
+        regionCount.put("北校区", (long) totalOrders * 1 / 10);
         
         // 构建订单地域分布数据
         List<Map<String, Object>> distribution = new ArrayList<>();
@@ -395,13 +370,43 @@ public class OrderAnalysisServiceImpl implements OrderAnalysisService {
             Map<String, Object> regionData = new HashMap<>();
             regionData.put("region", region);
             regionData.put("orderCount", count);
-            regionData.put("percentage", orders.size() > 0 ? (double) count / orders.size() * 100 : 0);
+            regionData.put("percentage", totalOrders > 0 ? (double) count / totalOrders * 100 : 0);
             distribution.add(regionData);
         });
         
         return distribution;
     }
     
+    /**
+     * 根据时间间隔生成时间键
+     */
+    private String getTimeKey(Date date, String interval, Calendar calendar, SimpleDateFormat dayFormat) {
+        switch (interval) {
+            case "week":
+                calendar.setTime(date);
+                return calendar.get(Calendar.YEAR) + "-W" + calendar.get(Calendar.WEEK_OF_YEAR);
+            case "month":
+                calendar.setTime(date);
+                return calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1);
+            case "day":
+            default:
+                return dayFormat.format(date);
+        }
+    }
+    
+    /**
+     * 汇总订单数（无分组时聚合结果可能为null）
+     */
+    private long sumOrderCount(List<OrderStatDTO> stats) {
+        long total = 0;
+        for (OrderStatDTO stat : stats) {
+            if (stat != null && stat.getOrderCount() != null) {
+                total += stat.getOrderCount();
+            }
+        }
+        return total;
+    }
+    
     /**
      * 根据状态码获取状态名称
      */
@@ -1,7 +1,13 @@
 package com.heikeji.mall.order.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.common.core.domain.ChunkResult;
+import com.heikeji.common.core.id.IdGenerator;
+import com.heikeji.mall.order.cache.UserOrderListCache;
 import com.heikeji.mall.order.constant.OrderConstant;
 import com.heikeji.mall.order.domain.vo.OrderDetailVO;
 import com.heikeji.mall.order.domain.vo.OrderListVO;
@@ -10,19 +16,26 @@ import com.heikeji.mall.order.entity.OrderItem;
 import com.heikeji.mall.order.mapper.OrderItemMapper;
 import com.heikeji.mall.order.mapper.OrderMapper;
 import com.heikeji.mall.order.service.OrderService;
+import com.heikeji.mall.order.timeout.OrderTimeoutQueue;
+import com.heikeji.mall.order.timeout.OrderTimeoutResult;
+import com.heikeji.mall.order.timeout.OrderTimeoutType;
 import com.heikeji.mall.payment.service.PaymentService;
 import com.heikeji.mall.takeout.dto.CreateTakeoutOrderDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * 订单服务实现类
@@ -37,6 +50,51 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     @Autowired
     private OrderItemMapper orderItemMapper;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private UserOrderListCache userOrderListCache;
+
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    /**
+     * 分页查询单页最大数量
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * 不分页查询用户订单列表时返回的最大数量，更早的订单通过游标分页获取
+     */
+    private static final int MAX_USER_ORDER_LIST_SIZE = 200;
+
+    /**
+     * 超时订单分块处理的单块最大数量
+     */
+    private static final int MAX_TIMEOUT_CHUNK_SIZE = 1000;
+
+    @Autowired(required = false)
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 未支付订单的超时时间（分钟）
+     */
+    @Value("${order.timeout.unpaid-minutes:30}")
+    private int unpaidTimeoutMinutes = 30;
+
+    /**
+     * 待收货订单自动确认收货的时间（天）
+     */
+    @Value("${order.timeout.auto-confirm-days:7}")
+    private int autoConfirmDays = 7;
+
+    /**
+     * 本地定时任务每块处理的订单数
+     */
+    @Value("${order.timeout.chunk-size:500}")
+    private int timeoutChunkSize = 500;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(value = {"orderCache", "salesAnalysis"}, allEntries = true)
@@ -63,6 +121,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 保存订单
             orderMapper.insert(order);
+            userOrderListCache.evict(order.getUserId());
+            scheduleUnpaidTimeout(order);
             
             log.info("创建外卖订单成功，订单号：{}", orderNo);
             
@@ -105,11 +165,27 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         Order order = new Order();
         order.setStatus(status);
         order.setUpdateTime(new Date());
+        boolean delivered = OrderConstant.ORDER_STATUS_PENDING_RECEIVE.equals(status);
+        if (delivered) {
+            // 发货时间作为自动确认收货的计时起点
+            order.setDeliveryTime(order.getUpdateTime());
+        }
         
         QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("order_no", orderNo);
         
-        return orderMapper.update(order, queryWrapper) > 0;
+        boolean updated = orderMapper.update(order, queryWrapper) > 0;
+        if (updated) {
+            Order existing = getByOrderNo(orderNo);
+            if (existing != null) {
+                userOrderListCache.evict(existing.getUserId());
+                if (delivered) {
+                    orderTimeoutQueue.schedule(OrderTimeoutType.AUTO_CONFIRM, existing.getId(),
+                            order.getDeliveryTime().getTime() + TimeUnit.DAYS.toMillis(autoConfirmDays));
+                }
+            }
+        }
+        return updated;
     }
 
     @Override
@@ -140,6 +216,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 4. 保存更新
             orderMapper.updateById(order);
+            userOrderListCache.evict(order.getUserId());
+            orderTimeoutQueue.remove(OrderTimeoutType.UNPAID_CANCEL, order.getId());
             
             log.info("订单支付成功，订单号：{}", orderNo);
             return true;
@@ -215,6 +293,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 5. 保存更新
             orderMapper.updateById(order);
+            userOrderListCache.evict(order.getUserId());
+            orderTimeoutQueue.remove(OrderTimeoutType.UNPAID_CANCEL, order.getId());
             
             log.info("订单取消成功，订单号：{}", orderNo);
             return true;
@@ -277,6 +357,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 4. 保存订单
             orderMapper.insert(order);
+            userOrderListCache.evict(order.getUserId());
+            scheduleUnpaidTimeout(order);
             
             log.info("从购物车创建订单成功，订单号：{}", orderNo);
             
@@ -320,6 +402,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 4. 保存订单
             orderMapper.insert(order);
+            userOrderListCache.evict(order.getUserId());
+            scheduleUnpaidTimeout(order);
             
             log.info("直接购买创建订单成功，订单号：{}", orderNo);
             
@@ -355,6 +439,8 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 4. 保存更新
             orderMapper.updateById(order);
+            userOrderListCache.evict(order.getUserId());
+            orderTimeoutQueue.remove(OrderTimeoutType.AUTO_CONFIRM, order.getId());
             
             log.info("订单确认收货成功，订单号：{}", orderNo);
             return true;
@@ -379,37 +465,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     @Override
-    @Cacheable(value = "orderCache", key = "'user_order_list_' + #userId + '_' + #status")
     public List<OrderListVO> getOrderListByUserIdAndStatus(Long userId, Integer status) {
         log.info("获取用户订单列表，用户ID：{}，状态：{}", userId, status);
         try {
-            // 1. 创建查询条件
-            QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("user_id", userId);
-            
-            // 2. 如果状态不为空，添加状态条件
-            if (status != null) {
-                queryWrapper.eq("status", status);
-            }
-            
-            // 3. 按创建时间倒序排序
-            queryWrapper.orderByDesc("create_time");
-            
-            // 4. 查询订单列表
-            List<Order> orders = orderMapper.selectList(queryWrapper);
-            
-            // 5. 转换为OrderListVO列表
-            List<OrderListVO> orderListVOs = new ArrayList<>();
-            for (Order order : orders) {
-                OrderListVO vo = new OrderListVO();
-                // 这里需要根据OrderListVO的实际字段进行赋值
-                // 简化实现，只设置基本信息
-                vo.setOrderNo(order.getOrderNo());
-                vo.setStatus(order.getStatus());
-                vo.setTotalAmount(order.getTotalAmount());
-                vo.setCreateTime(order.getCreateTime());
-                orderListVOs.add(vo);
-            }
+            // 只返回最近的订单，避免一次加载用户全部历史订单
+            List<OrderListVO> orderListVOs = orderMapper.selectUserOrderListByCursor(
+                    userId, status, null, null, MAX_USER_ORDER_LIST_SIZE);
             
             log.info("获取用户订单列表成功，用户ID：{}，订单数量：{}", userId, orderListVOs.size());
             return orderListVOs;
@@ -458,74 +519,123 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
 
     @Override
-    @Cacheable(value = "orderCache", key = "'user_orders_' + #userId + '_' + #status + '_' + #page + '_' + #limit")
     public Map<String, Object> getUserOrderList(Long userId, Integer status, Integer page, Integer limit) {
         log.info("获取用户分页订单列表，用户ID：{}，状态：{}，页码：{}，每页数量：{}", userId, status, page, limit);
+        // 1. 参数校验
+        int pageNum = page == null || page < 1 ? 1 : page;
+        int pageSize = normalizePageSize(limit);
         try {
-            // 1. 参数校验
-            if (page == null || page < 1) {
-                page = 1;
-            }
-            if (limit == null || limit < 1) {
-                limit = 10;
-            }
-            
-            // 2. 计算偏移量
-            int offset = (page - 1) * limit;
-            
-            // 3. 创建查询条件
-            QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("user_id", userId);
-            
-            // 4. 如果状态不为空，添加状态条件
-            if (status != null) {
-                queryWrapper.eq("status", status);
-            }
-            
-            // 5. 按创建时间倒序排序
-            queryWrapper.orderByDesc("create_time");
-            
-            // 6. 查询总记录数
-            long total = orderMapper.selectCount(queryWrapper);
-            
-            // 7. 查询当前页的订单列表
-            queryWrapper.last("LIMIT " + offset + ", " + limit);
-            List<Order> orders = orderMapper.selectList(queryWrapper);
-            
-            // 8. 转换为OrderListVO列表
-            List<OrderListVO> orderListVOs = new ArrayList<>();
-            for (Order order : orders) {
-                OrderListVO vo = new OrderListVO();
-                // 简化实现，只设置基本信息
-                vo.setOrderNo(order.getOrderNo());
-                vo.setStatus(order.getStatus());
-                vo.setTotalAmount(order.getTotalAmount());
-                vo.setCreateTime(order.getCreateTime());
-                orderListVOs.add(vo);
-            }
-            
-            // 9. 构建返回结果
-            Map<String, Object> result = new HashMap<>();
-            result.put("total", total);
-            result.put("list", orderListVOs);
-            result.put("page", page);
-            result.put("limit", limit);
-            result.put("pages", (total + limit - 1) / limit);
-            
-            log.info("获取用户分页订单列表成功，用户ID：{}，总记录数：{}，当前页数量：{}", userId, total, orderListVOs.size());
-            return result;
+            return userOrderListCache.getList(userId, "page:" + status + ":" + pageNum + ":" + pageSize, () -> {
+                // 2. 总记录数取自按状态缓存的计数，不再每页执行COUNT
+                long total = countUserOrders(userId, status);
+                
+                // 3. 查询当前页，超出总数时不访问数据库
+                long offset = (long) (pageNum - 1) * pageSize;
+                List<OrderListVO> orderListVOs = offset >= total ? new ArrayList<>()
+                        : orderMapper.selectUserOrderListByOffset(userId, status, (int) offset, pageSize);
+                
+                // 4. 构建返回结果
+                Map<String, Object> result = new HashMap<>();
+                result.put("total", total);
+                result.put("list", orderListVOs);
+                result.put("page", pageNum);
+                result.put("limit", pageSize);
+                result.put("pages", (total + pageSize - 1) / pageSize);
+                
+                log.info("获取用户分页订单列表成功，用户ID：{}，总记录数：{}，当前页数量：{}", userId, total, orderListVOs.size());
+                return result;
+            });
         } catch (Exception e) {
             log.error("获取用户分页订单列表失败, userId={}", userId, e);
             Map<String, Object> result = new HashMap<>();
             result.put("total", 0);
             result.put("list", new ArrayList<>());
-            result.put("page", page);
-            result.put("limit", limit);
+            result.put("page", pageNum);
+            result.put("limit", pageSize);
             result.put("pages", 0);
             return result;
         }
     }
 
+    @Override
+    public Map<String, Object> getUserOrderListByCursor(Long userId, Integer status, String cursor, Integer limit) {
+        log.info("游标分页获取用户订单列表，用户ID：{}，状态：{}，游标：{}，每页数量：{}", userId, status, cursor, limit);
+        // 1. 解析游标：上一页最后一条记录的 创建时间毫秒数_订单ID
+        int pageSize = normalizePageSize(limit);
+        Date cursorTime = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.indexOf('_');
+            try {
+                cursorTime = new Date(Long.parseLong(cursor.substring(0, separator)));
+                cursorId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标：" + cursor);
+            }
+        }
+        Date seekTime = cursorTime;
+        Long seekId = cursorId;
+        
+        try {
+            String cacheKey = "cursor:" + status + ":" + (cursor == null ? "" : cursor) + ":" + pageSize;
+            return userOrderListCache.getList(userId, cacheKey, () -> {
+                // 2. 多查一条用于判断是否还有下一页
+                List<OrderListVO> orderListVOs = orderMapper.selectUserOrderListByCursor(
+                        userId, status, seekTime, seekId, pageSize + 1);
+                boolean hasMore = orderListVOs.size() > pageSize;
+                if (hasMore) {
+                    orderListVOs = new ArrayList<>(orderListVOs.subList(0, pageSize));
+                }
+                
+                // 3. 构建返回结果
+                Map<String, Object> result = new HashMap<>();
+                result.put("total", countUserOrders(userId, status));
+                result.put("list", orderListVOs);
+                result.put("limit", pageSize);
+                result.put("hasMore", hasMore);
+                if (hasMore) {
+                    OrderListVO last = orderListVOs.get(orderListVOs.size() - 1);
+                    result.put("nextCursor", last.getCreateTime().getTime() + "_" + last.getId());
+                }
+                
+                log.info("游标分页获取用户订单列表成功，用户ID：{}，当前页数量：{}，是否有下一页：{}", userId, orderListVOs.size(), hasMore);
+                return result;
+            });
+        } catch (Exception e) {
+            log.error("游标分页获取用户订单列表失败, userId={}", userId, e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("total", 0);
+            result.put("list", new ArrayList<>());
+            result.put("limit", pageSize);
+            result.put("hasMore", false);
+            return result;
+        }
+    }
+
+    /**
+     * 统计用户指定状态的订单数，状态为空时统计全部订单
+     */
+    private long countUserOrders(Long userId, Integer status) {
+        Map<Integer, Long> counts = userOrderListCache.getStatusCounts(userId, () -> {
+            Map<Integer, Long> result = new HashMap<>();
+            for (Map<String, Object> row : orderMapper.selectUserOrderStatusCounts(userId)) {
+                result.put(((Number) row.get("status")).intValue(), ((Number) row.get("cnt")).longValue());
+            }
+            return result;
+        });
+        if (status != null) {
+            return counts.getOrDefault(status, 0L);
+        }
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static int normalizePageSize(Integer limit) {
+        if (limit == null || limit < 1) {
+            return 10;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
     @Override
     @Cacheable(value = "orderCache", key = "'pending_orders'")
     public List<Order> getPendingOrders() {
@@ -562,21 +672,168 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"orderCache", "salesAnalysis"}, allEntries = true)
     public int cancelTimeoutOrders() {
         log.info("取消超时未支付订单");
-        // 简化实现
-        return 0;
+        int total = 0;
+        ChunkResult chunk;
+        Long afterId = null;
+        do {
+            chunk = cancelTimeoutOrderChunk(unpaidTimeoutMinutes, afterId, 0, 1, timeoutChunkSize);
+            total += chunk.getProcessed();
+            afterId = chunk.getLastId();
+        } while (chunk.isHasMore());
+        return total;
     }
     
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"orderCache", "salesAnalysis"}, allEntries = true)
     public int autoConfirmReceivedOrders() {
         log.info("自动确认超时未收货订单");
-        // 简化实现
-        return 0;
+        int total = 0;
+        ChunkResult chunk;
+        Long afterId = null;
+        do {
+            chunk = autoConfirmOrderChunk(autoConfirmDays, afterId, 0, 1, timeoutChunkSize);
+            total += chunk.getProcessed();
+            afterId = chunk.getLastId();
+        } while (chunk.isHasMore());
+        return total;
+    }
+
+    @Override
+    @CacheEvict(value = "salesAnalysis", allEntries = true)
+    public ChunkResult cancelTimeoutOrderChunk(int timeoutMinutes, Long afterId, int shardIndex, int shardTotal, int limit) {
+        Date deadline = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(timeoutMinutes));
+        return processTimeoutChunk(OrderConstant.ORDER_STATUS_PENDING_PAYMENT, Order::getCreateTime, deadline,
+                TimeUnit.MINUTES.toMillis(timeoutMinutes), afterId, shardIndex, shardTotal, limit,
+                update -> update.set(Order::getStatus, OrderConstant.ORDER_STATUS_CANCELLED));
+    }
+
+    @Override
+    @CacheEvict(value = "salesAnalysis", allEntries = true)
+    public ChunkResult autoConfirmOrderChunk(int timeoutDays, Long afterId, int shardIndex, int shardTotal, int limit) {
+        Date deadline = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(timeoutDays));
+        Date now = new Date();
+        return processTimeoutChunk(OrderConstant.ORDER_STATUS_PENDING_RECEIVE, Order::getDeliveryTime, deadline,
+                TimeUnit.DAYS.toMillis(timeoutDays), afterId, shardIndex, shardTotal, limit,
+                update -> update.set(Order::getStatus, OrderConstant.ORDER_STATUS_COMPLETED)
+                        .set(Order::getCompleteTime, now));
+    }
+
+    /**
+     * 按主键游标读取一块超时订单，在一个短事务中用一条条件更新语句修改状态
+     * 更新时再次校验原状态，已被用户支付或确认的订单不会被覆盖，重复执行同一块是幂等的
+     *
+     * @param timeField 计算超时的时间字段
+     * @param timeoutMillis 超时时长，用于计算到期时间
+     * @param transition 设置目标状态的更新条件
+     */
+    private ChunkResult processTimeoutChunk(Integer status, SFunction<Order, Date> timeField, Date deadline,
+                                            long timeoutMillis, Long afterId, int shardIndex, int shardTotal, int limit,
+                                            Consumer<LambdaUpdateWrapper<Order>> transition) {
+        int chunkSize = Math.min(Math.max(limit, 1), MAX_TIMEOUT_CHUNK_SIZE);
+        LambdaQueryWrapper<Order> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(Order::getId, Order::getUserId, timeField)
+                .eq(Order::getStatus, status)
+                .lt(timeField, deadline)
+                .gt(afterId != null, Order::getId, afterId)
+                .apply(shardTotal > 1, "MOD(id, {0}) = {1}", shardTotal, shardIndex)
+                .orderByAsc(Order::getId)
+                .last("LIMIT " + chunkSize);
+        List<Order> orders = orderMapper.selectList(queryWrapper);
+        if (orders.isEmpty()) {
+            return ChunkResult.of(afterId, null, 0, 0, chunkSize, null);
+        }
+
+        List<Long> ids = new ArrayList<>(orders.size());
+        Set<Long> userIds = new HashSet<>();
+        long oldestTime = Long.MAX_VALUE;
+        for (Order order : orders) {
+            ids.add(order.getId());
+            userIds.add(order.getUserId());
+            Date time = timeField.apply(order);
+            if (time != null) {
+                oldestTime = Math.min(oldestTime, time.getTime());
+            }
+        }
+        Supplier<Integer> update = () -> {
+            LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
+            transition.accept(updateWrapper);
+            updateWrapper.set(Order::getUpdateTime, new Date())
+                    .in(Order::getId, ids)
+                    .eq(Order::getStatus, status);
+            return orderMapper.update(null, updateWrapper);
+        };
+        int processed = transactionTemplate != null ? transactionTemplate.execute(txStatus -> update.get()) : update.get();
+        // 事务提交后只失效本块涉及用户的列表缓存，避免提交前被并发查询用旧数据重新填充
+        userIds.forEach(userOrderListCache::evict);
+        Long oldestDueTime = oldestTime != Long.MAX_VALUE ? oldestTime + timeoutMillis : null;
+        return ChunkResult.of(afterId, ids.get(ids.size() - 1), orders.size(), processed, chunkSize, oldestDueTime);
+    }
+
+    @Override
+    @CacheEvict(value = "salesAnalysis", allEntries = true)
+    public OrderTimeoutResult cancelTimeoutOrder(Long orderId) {
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(unpaidTimeoutMinutes);
+        return applyTimeoutTransition(OrderTimeoutType.UNPAID_CANCEL, orderId, OrderConstant.ORDER_STATUS_PENDING_PAYMENT,
+                Order::getCreateTime, timeoutMillis,
+                update -> update.set(Order::getStatus, OrderConstant.ORDER_STATUS_CANCELLED));
+    }
+
+    @Override
+    @CacheEvict(value = "salesAnalysis", allEntries = true)
+    public OrderTimeoutResult autoConfirmOrder(Long orderId) {
+        Date now = new Date();
+        long timeoutMillis = TimeUnit.DAYS.toMillis(autoConfirmDays);
+        return applyTimeoutTransition(OrderTimeoutType.AUTO_CONFIRM, orderId, OrderConstant.ORDER_STATUS_PENDING_RECEIVE,
+                Order::getDeliveryTime, timeoutMillis,
+                update -> update.set(Order::getStatus, OrderConstant.ORDER_STATUS_COMPLETED)
+                        .set(Order::getCompleteTime, now));
+    }
+
+    /**
+     * 对单个到期订单执行超时状态变更，与分块扫描使用相同的状态和时间条件，两者并发处理同一订单时只有一方生效
+     * 数据库时间会舍入到秒，订单可能比队列中的到期时间晚约一秒才满足条件，此时按数据库时间重新入队
+     */
+    private OrderTimeoutResult applyTimeoutTransition(OrderTimeoutType type, Long orderId, Integer status,
+                                                      SFunction<Order, Date> timeField, long timeoutMillis,
+                                                      Consumer<LambdaUpdateWrapper<Order>> transition) {
+        if (orderId == null) {
+            return OrderTimeoutResult.SKIPPED;
+        }
+        Order order = orderMapper.selectOne(new LambdaQueryWrapper<Order>()
+                .select(Order::getId, Order::getUserId, Order::getStatus, timeField)
+                .eq(Order::getId, orderId));
+        if (order == null) {
+            return OrderTimeoutResult.SKIPPED;
+        }
+        Date time = timeField.apply(order);
+        long now = System.currentTimeMillis();
+        Date deadline = new Date(now - timeoutMillis);
+        if (status.equals(order.getStatus()) && time != null && time.after(deadline)) {
+            // 租约期间改回实际到期时间，至少延后一秒，避免反复领取
+            orderTimeoutQueue.schedule(type, orderId, Math.max(time.getTime() + timeoutMillis, now + 1000));
+            return OrderTimeoutResult.RESCHEDULED;
+        }
+        LambdaUpdateWrapper<Order> updateWrapper = new LambdaUpdateWrapper<>();
+        transition.accept(updateWrapper);
+        updateWrapper.set(Order::getUpdateTime, new Date())
+                .eq(Order::getId, orderId)
+                .eq(Order::getStatus, status)
+                .le(timeField, deadline);
+        if (orderMapper.update(null, updateWrapper) == 0) {
+            return OrderTimeoutResult.SKIPPED;
+        }
+        userOrderListCache.evict(order.getUserId());
+        return OrderTimeoutResult.PROCESSED;
+    }
+
+    /**
+     * 下单后登记未支付超时时间
+     */
+    private void scheduleUnpaidTimeout(Order order) {
+        long createTime = order.getCreateTime() != null ? order.getCreateTime().getTime() : System.currentTimeMillis();
+        orderTimeoutQueue.schedule(OrderTimeoutType.UNPAID_CANCEL, order.getId(),
+                createTime + TimeUnit.MINUTES.toMillis(unpaidTimeoutMinutes));
     }
     
     @Override
@@ -827,6 +1084,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
             
             // 4. 保存更新
             orderMapper.updateById(order);
+            userOrderListCache.evict(order.getUserId());
             
             log.info("处理退款成功完成，订单号：{}", orderNo);
             return true;
@@ -942,10 +1200,6 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
      * 生成订单号
      */
     private String generateOrderNo() {
-        // 生成唯一订单号，格式：时间戳+6位随机数
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String timeStr = sdf.format(new Date());
-        String randomStr = String.format("%06d", new Random().nextInt(1000000));
-        return timeStr + randomStr;
+        return idGenerator.nextNo();
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.heikeji.mall.order.service.impl;
+
+import com.heikeji.mall.order.dto.OrderStatDTO;
+import com.heikeji.mall.order.dto.OrderStatQuery;
+import com.heikeji.mall.order.mapper.OrderStatMapper;
+import com.heikeji.mall.order.service.OrderStatService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 订单统计服务实现类
+ * 订单表的updated_at在每次写入时自动更新，按更新时间水位增量找出变更订单所在的创建小时并整小时重算，
+ * 重算是幂等的，因此多节点并发刷新或水位回退重叠都不会影响正确性。
+ */
+@Slf4j
+@Service
+public class OrderStatServiceImpl implements OrderStatService {
+
+    private static final String CHECKPOINT_NAME = "order_stat_hourly";
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 回填时每批重算的小时数
+     */
+    private static final int REBUILD_BATCH_HOURS = 24;
+
+    /**
+     * 水位回退重叠时间，覆盖提交晚于更新时间的长事务
+     */
+    private static final long WATERMARK_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Autowired
+    private OrderStatMapper orderStatMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /**
+     * 本节点是否确认统计表已完成初始化，未完成前查询全部走明细聚合
+     */
+    private volatile boolean initialized;
+
+    @Autowired
+    public OrderStatServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            Date watermark = orderStatMapper.selectWatermark(CHECKPOINT_NAME);
+            if (watermark == null) {
+                initialize();
+                return;
+            }
+
+            Date since = new Date(watermark.getTime() - WATERMARK_OVERLAP_MILLIS);
+            Date until = orderStatMapper.selectMaxUpdatedAt(since);
+            if (until != null) {
+                List<Date> dirtyHours = orderStatMapper.selectDirtyHours(since, until);
+                for (Date hour : dirtyHours) {
+                    rebuildHours(hour, new Date(hour.getTime() + HOUR_MILLIS));
+                }
+                if (until.after(watermark)) {
+                    orderStatMapper.saveWatermark(CHECKPOINT_NAME, until);
+                }
+                log.debug("订单统计增量同步完成，重算小时数：{}，水位：{}", dirtyHours.size(), until);
+            }
+            initialized = true;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(Date startDate, Date endDate) {
+        Date end = ceilHour(endDate);
+        for (Date from = floorHour(startDate); from.before(end); ) {
+            Date to = new Date(Math.min(from.getTime() + REBUILD_BATCH_HOURS * HOUR_MILLIS, end.getTime()));
+            rebuildHours(from, to);
+            from = to;
+        }
+        log.info("订单统计回填完成，时间段：{} ~ {}", startDate, endDate);
+    }
+
+    @Override
+    public List<OrderStatDTO> query(Date startDate, Date endDate, Integer status, OrderStatQuery.Dimension... dimensions) {
+        OrderStatQuery query = new OrderStatQuery();
+        query.setStart(startDate);
+        query.setEnd(endDate);
+        query.setStatus(status);
+        query.setDimensions(Arrays.asList(dimensions));
+
+        // 统计表只覆盖完整落在区间内的整点小时
+        Date fullStart = ceilHour(startDate);
+        Date fullEnd = floorHour(new Date(endDate.getTime() + 1));
+        if (!fullStart.before(fullEnd) || !catchUp()) {
+            fullStart = startDate;
+            fullEnd = startDate;
+        }
+        query.setFullStart(fullStart);
+        query.setFullEnd(fullEnd);
+        return orderStatMapper.selectStats(query);
+    }
+
+    /**
+     * 查询前追平增量变更，失败时返回false由调用方退回明细聚合
+     */
+    private boolean catchUp() {
+        if (!initialized) {
+            return false;
+        }
+        try {
+            refresh();
+            return true;
+        } catch (Exception e) {
+            log.warn("订单统计增量同步失败，本次查询改为聚合订单明细: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 全量回填，水位取回填开始前的最大更新时间，回填期间的变更由下一次增量同步补齐
+     */
+    private void initialize() {
+        Date until = orderStatMapper.selectMaxUpdatedAt(null);
+        Date minCreatedAt = orderStatMapper.selectMinCreatedAt();
+        if (minCreatedAt != null) {
+            log.info("订单统计表未初始化，开始全量回填");
+            rebuild(minCreatedAt, new Date());
+        }
+        orderStatMapper.saveWatermark(CHECKPOINT_NAME, until);
+        initialized = true;
+    }
+
+    private void rebuildHours(Date start, Date end) {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderStatMapper.deleteHourRange(start, end);
+            orderStatMapper.insertHourRange(start, end);
+        });
+    }
+
+    private static Date floorHour(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTime();
+    }
+
+    private static Date ceilHour(Date date) {
+        Date floor = floorHour(date);
+        return floor.getTime() == date.getTime() ? floor : new Date(floor.getTime() + HOUR_MILLIS);
+    }
+}
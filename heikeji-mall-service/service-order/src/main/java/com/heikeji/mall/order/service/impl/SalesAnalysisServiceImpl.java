@@ -2,16 +2,20 @@ package com.heikeji.mall.order.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.heikeji.mall.order.dto.OrderStatDTO;
+import com.heikeji.mall.order.dto.OrderStatQuery;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.entity.OrderItem;
 import com.heikeji.mall.order.mapper.OrderItemMapper;
 import com.heikeji.mall.order.mapper.OrderMapper;
+import com.heikeji.mall.order.service.OrderStatService;
 import com.heikeji.mall.order.service.SalesAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,6 +25,7 @@ import java.util.stream.Collectors;
 
 /**
  * 销售数据分析服务实现类
+ * 订单维度的销售额与订单数从订单小时统计表聚合，金额以DECIMAL精确累加后再转换为double
  */
 @Service
 public class SalesAnalysisServiceImpl implements SalesAnalysisService {
@@ -31,22 +36,23 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
     @Autowired
     private OrderItemMapper orderItemMapper;
 
+    @Autowired
+    private OrderStatService orderStatService;
+
     @Override
     @Cacheable(value = "salesAnalysis", key = "'overview_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getSalesOverview(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate)
-                   .eq("status", 5); // 5表示订单已完成
-        
-        // 查询订单总数
-        long totalOrders = orderMapper.selectCount(queryWrapper);
-        
-        // 查询订单总金额
-        List<Order> orders = orderMapper.selectList(queryWrapper);
-        double totalSales = orders.stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+        // 一次聚合出已完成订单的总数和总金额
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, 5); // 5表示订单已完成
+        long totalOrders = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderStatDTO stat : stats) {
+            if (stat.getOrderCount() != null) {
+                totalOrders += stat.getOrderCount();
+                totalAmount = totalAmount.add(stat.getTotalAmount());
+            }
+        }
+        double totalSales = totalAmount.doubleValue();
         
         // 查询订单总商品数量（简化实现，实际需要从订单商品表查询）
         long totalProducts = 0;
@@ -69,54 +75,31 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
     @Override
     @Cacheable(value = "salesAnalysis", key = "'trend_' + #startDate.time + '_' + #endDate.time + '_' + #interval")
     public Map<String, Object> getSalesTrend(Date startDate, Date endDate, String interval) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate)
-                   .eq("status", 5); // 5表示订单已完成
-        
-        List<Order> orders = orderMapper.selectList(queryWrapper);
+        // 按小时聚合已完成订单
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, 5, OrderStatQuery.Dimension.HOUR); // 5表示订单已完成
         
         // 根据时间间隔分组统计销售数据
         Map<String, Map<String, Object>> trendMap = new TreeMap<>();
+        Map<String, BigDecimal> salesAmounts = new HashMap<>();
+        Calendar calendar = Calendar.getInstance();
+        SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd");
         
-        for (Order order : orders) {
-            Date orderDate = order.getCreateTime();
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(orderDate);
-            String timeKey = "";
-            
-            // 根据不同时间间隔生成时间键
-            switch (interval) {
-                case "day":
-                    timeKey = new SimpleDateFormat("yyyy-MM-dd").format(orderDate);
-                    break;
-                case "week":
-                    // 获取周数
-                    int weekOfYear = calendar.get(Calendar.WEEK_OF_YEAR);
-                    timeKey = calendar.get(Calendar.YEAR) + "-W" + weekOfYear;
-                    break;
-                case "month":
-                    timeKey = calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1);
-                    break;
-                default:
-                    timeKey = new SimpleDateFormat("yyyy-MM-dd").format(orderDate);
-                    break;
-            }
+        for (OrderStatDTO stat : stats) {
+            // 同一小时内的订单时间键相同，按小时起点生成即可
+            String timeKey = getTimeKey(stat.getStatHour(), interval, calendar, dayFormat);
             
             // 初始化或更新时间键对应的销售数据
-            final String finalTimeKey = timeKey;
-            trendMap.computeIfAbsent(timeKey, k -> {
-                Map<String, Object> trendData = new HashMap<>();
-                trendData.put("time", finalTimeKey);
-                trendData.put("salesAmount", 0.0);
-                trendData.put("orderCount", 0L);
-                trendData.put("productCount", 0L);
-                return trendData;
+            Map<String, Object> trendData = trendMap.computeIfAbsent(timeKey, k -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("time", timeKey);
+                data.put("orderCount", 0L);
+                data.put("productCount", 0L);
+                return data;
             });
             
-            Map<String, Object> trendData = trendMap.get(timeKey);
-            trendData.put("salesAmount", (double) trendData.get("salesAmount") + order.getTotalAmount().doubleValue());
-            trendData.put("orderCount", (long) trendData.get("orderCount") + 1);
+            BigDecimal salesAmount = salesAmounts.merge(timeKey, stat.getTotalAmount(), BigDecimal::add);
+            trendData.put("salesAmount", salesAmount.doubleValue());
+            trendData.put("orderCount", (long) trendData.get("orderCount") + stat.getOrderCount());
             // 简化实现，不统计商品数量
         }
         
@@ -243,16 +226,13 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
     @Override
     @Cacheable(value = "salesAnalysis", key = "'merchantRanking_' + #startDate.time + '_' + #endDate.time + '_' + #limit")
     public List<Map<String, Object>> getMerchantSalesRanking(Date startDate, Date endDate, int limit) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate)
-                   .eq("status", 5); // 5表示订单已完成
-        List<Order> orders = orderMapper.selectList(queryWrapper);
+        // 按商家聚合已完成订单
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, 5, OrderStatQuery.Dimension.STORE); // 5表示订单已完成
         
         // 按商家ID分组统计销售额
         Map<Long, Map<String, Object>> merchantSales = new HashMap<>();
-        for (Order order : orders) {
-            Long merchantId = order.getMerchantId();
+        for (OrderStatDTO stat : stats) {
+            Long merchantId = stat.getStoreId();
             
             merchantSales.computeIfAbsent(merchantId, k -> {
                 Map<String, Object> salesData = new HashMap<>();
@@ -264,8 +244,8 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
             });
             
             Map<String, Object> salesData = merchantSales.get(merchantId);
-            salesData.put("salesAmount", (double) salesData.get("salesAmount") + order.getTotalAmount().doubleValue());
-            salesData.put("orderCount", (long) salesData.get("orderCount") + 1);
+            salesData.put("salesAmount", (double) salesData.get("salesAmount") + stat.getTotalAmount().doubleValue());
+            salesData.put("orderCount", (long) salesData.get("orderCount") + stat.getOrderCount());
         }
         
         // 转换为列表并按销售额排序
@@ -280,17 +260,17 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
     @Override
     @Cacheable(value = "salesAnalysis", key = "'paymentDistribution_' + #startDate.time + '_' + #endDate.time")
     public Map<String, Object> getPaymentMethodDistribution(Date startDate, Date endDate) {
-        // 查询指定时间范围内的订单
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.between("created_at", startDate, endDate)
-                   .eq("status", 5); // 5表示订单已完成
-        List<Order> orders = orderMapper.selectList(queryWrapper);
+        // 聚合已完成订单（订单表未持久化支付方式，全部归入未知支付方式）
+        List<OrderStatDTO> stats = orderStatService.query(startDate, endDate, 5); // 5表示订单已完成
         
         // 按支付方式分组统计订单数量和金额
         Map<Integer, Map<String, Object>> paymentDistribution = new HashMap<>();
         
-        for (Order order : orders) {
-            Integer paymentMethod = order.getPayType();
+        for (OrderStatDTO stat : stats) {
+            if (stat.getOrderCount() == null || stat.getOrderCount() == 0) {
+                continue;
+            }
+            Integer paymentMethod = null;
             
             paymentDistribution.computeIfAbsent(paymentMethod, k -> {
                 Map<String, Object> methodData = new HashMap<>();
@@ -302,8 +282,8 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
             });
             
             Map<String, Object> methodData = paymentDistribution.get(paymentMethod);
-            methodData.put("orderCount", (long) methodData.get("orderCount") + 1);
-            methodData.put("salesAmount", (double) methodData.get("salesAmount") + order.getTotalAmount().doubleValue());
+            methodData.put("orderCount", (long) methodData.get("orderCount") + stat.getOrderCount());
+            methodData.put("salesAmount", (double) methodData.get("salesAmount") + stat.getTotalAmount().doubleValue());
         }
         
         // 转换为列表格式
@@ -337,6 +317,23 @@ public class SalesAnalysisServiceImpl implements SalesAnalysisService {
         return result;
     }
     
+    /**
+     * 根据时间间隔生成时间键
+     */
+    private String getTimeKey(Date date, String interval, Calendar calendar, SimpleDateFormat dayFormat) {
+        switch (interval) {
+            case "week":
+                calendar.setTime(date);
+                return calendar.get(Calendar.YEAR) + "-W" + calendar.get(Calendar.WEEK_OF_YEAR);
+            case "month":
+                calendar.setTime(date);
+                return calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1);
+            case "day":
+            default:
+                return dayFormat.format(date);
+        }
+    }
+    
     /**
      * 获取分类名称（简化实现）
      */
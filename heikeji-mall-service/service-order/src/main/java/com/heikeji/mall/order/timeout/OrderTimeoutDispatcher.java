@@ -0,0 +1,209 @@
+package com.heikeji.mall.order.timeout;
+
+import com.heikeji.mall.order.service.OrderService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单超时分发器
+ * <p>
+ * 每种超时类型由一个轮询任务按固定间隔从延时队列领取到期订单，交给消费线程池逐个处理。
+ * 处理方法以原状态和到期时间为更新条件，订单已支付、已确认或被重复领取时更新0行，直接确认出队；
+ * 订单仍在等待状态但按数据库时间尚未到期时，处理方法已按实际到期时间重新入队，不确认出队。
+ * 处理失败的订单不确认，租约到期后重新领取；Redis不可用期间暂停轮询，由定时兜底扫描处理。
+ */
+@Slf4j
+@Component
+public class OrderTimeoutDispatcher {
+
+    /**
+     * Redis异常后暂停轮询的时间（毫秒）
+     */
+    private static final long REDIS_RETRY_INTERVAL = 5000;
+
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    /**
+     * 是否启用延时队列，关闭后超时订单只由定时扫描处理
+     */
+    @Value("${order.timeout.queue.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    @Value("${order.timeout.queue.poll-interval-millis:1000}")
+    private long pollIntervalMillis = 1000;
+
+    /**
+     * 单次领取的最大订单数
+     */
+    @Value("${order.timeout.queue.batch-size:100}")
+    private int batchSize = 100;
+
+    /**
+     * 消费线程数
+     */
+    @Value("${order.timeout.queue.consumer-threads:4}")
+    private int consumerThreads = 4;
+
+    /**
+     * 领取租约时长（秒），超过该时长未确认的订单会被重新领取
+     */
+    @Value("${order.timeout.queue.lease-seconds:60}")
+    private long leaseSeconds = 60;
+
+    private ThreadPoolExecutor consumerPool;
+
+    private final Map<OrderTimeoutType, TypeStats> stats = createStats();
+
+    private volatile long redisUnavailableUntil;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("订单超时延时队列未启用，超时订单由定时扫描处理");
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由轮询线程自己处理，领取速度随消费能力自动放慢
+        consumerPool = new ThreadPoolExecutor(consumerThreads, consumerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize * 2),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-timeout-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        for (OrderTimeoutType type : OrderTimeoutType.values()) {
+            taskScheduler.scheduleWithFixedDelay(() -> poll(type), Duration.ofMillis(pollIntervalMillis));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (consumerPool == null) {
+            return;
+        }
+        // 未处理完的订单不确认，租约到期后由其他实例重新领取
+        consumerPool.shutdown();
+        try {
+            consumerPool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 领取并分发到期订单，领满一批时继续领取直到没有到期订单
+     */
+    void poll(OrderTimeoutType type) {
+        if (System.currentTimeMillis() < redisUnavailableUntil || consumerPool.isShutdown()) {
+            return;
+        }
+        try {
+            List<Long> orderIds;
+            do {
+                orderIds = orderTimeoutQueue.claimDue(type, batchSize, TimeUnit.SECONDS.toMillis(leaseSeconds));
+                for (Long orderId : orderIds) {
+                    consumerPool.execute(() -> handle(type, orderId));
+                }
+            } while (orderIds.size() >= batchSize && !consumerPool.isShutdown());
+        } catch (Exception e) {
+            redisUnavailableUntil = System.currentTimeMillis() + REDIS_RETRY_INTERVAL;
+            log.warn("领取超时订单失败，{}毫秒内暂停轮询，type={}: {}", REDIS_RETRY_INTERVAL, type, e.getMessage());
+        }
+    }
+
+    /**
+     * 处理一个到期订单
+     */
+    void handle(OrderTimeoutType type, Long orderId) {
+        TypeStats typeStats = stats.get(type);
+        try {
+            OrderTimeoutResult result = type == OrderTimeoutType.UNPAID_CANCEL
+                    ? orderService.cancelTimeoutOrder(orderId)
+                    : orderService.autoConfirmOrder(orderId);
+            if (result == OrderTimeoutResult.RESCHEDULED) {
+                typeStats.rescheduled.incrementAndGet();
+                log.debug("{}尚未到期，已重新入队，orderId={}", type.getDescription(), orderId);
+                return;
+            }
+            orderTimeoutQueue.ack(type, orderId);
+            if (result == OrderTimeoutResult.PROCESSED) {
+                typeStats.processed.incrementAndGet();
+                log.info("{}完成，orderId={}", type.getDescription(), orderId);
+            } else {
+                typeStats.skipped.incrementAndGet();
+            }
+        } catch (Exception e) {
+            typeStats.failed.incrementAndGet();
+            log.warn("{}失败，租约到期后重试，orderId={}: {}", type.getDescription(), orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取各超时类型的处理统计与队列积压
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        long now = System.currentTimeMillis();
+        for (OrderTimeoutType type : OrderTimeoutType.values()) {
+            TypeStats typeStats = stats.get(type);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("processed", typeStats.processed.get());
+            item.put("skipped", typeStats.skipped.get());
+            item.put("rescheduled", typeStats.rescheduled.get());
+            item.put("failed", typeStats.failed.get());
+            try {
+                item.put("queueSize", orderTimeoutQueue.size(type));
+                Long earliest = orderTimeoutQueue.earliestDeadline(type);
+                // 最早到期时间早于当前时间说明有积压
+                item.put("backlogMillis", earliest != null ? Math.max(0, now - earliest) : 0);
+            } catch (Exception e) {
+                item.put("queueError", e.getMessage());
+            }
+            result.put(type.getCode(), item);
+        }
+        return result;
+    }
+
+    private static Map<OrderTimeoutType, TypeStats> createStats() {
+        Map<OrderTimeoutType, TypeStats> stats = new EnumMap<>(OrderTimeoutType.class);
+        for (OrderTimeoutType type : OrderTimeoutType.values()) {
+            stats.put(type, new TypeStats());
+        }
+        return stats;
+    }
+
+    private static class TypeStats {
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong rescheduled = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+    }
+}
@@ -0,0 +1,166 @@
+package com.heikeji.mall.order.timeout;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 订单超时延时队列
+ * <p>
+ * 每种超时类型对应一个Redis有序集合 order:timeout:{类型}，成员为订单ID，分数为到期时间。
+ * 消费者通过Lua脚本原子领取到期订单，领取时把分数改为租约到期时间而不是直接删除：
+ * 处理成功后确认删除；处理中进程崩溃时，租约到期后订单会被重新领取。
+ * 入队与出队都在事务提交后执行，回滚的下单不会入队。Redis不可用时由定时兜底扫描处理。
+ */
+@Slf4j
+@Component
+public class OrderTimeoutQueue {
+
+    private static final String KEY_PREFIX = "order:timeout:";
+
+    /**
+     * 领取脚本：取出到期成员并把分数改为租约到期时间
+     * KEYS: 队列；ARGV: 当前时间、最大领取数、租约到期时间
+     */
+    private static final String CLAIM_LUA_SCRIPT = """
+        local items = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+        for _, item in ipairs(items) do
+            redis.call('ZADD', KEYS[1], ARGV[3], item)
+        end
+        return items
+    """;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final DefaultRedisScript<List> claimScript = new DefaultRedisScript<>(CLAIM_LUA_SCRIPT, List.class);
+
+    /**
+     * 登记订单的超时时间，存在活动事务时在事务提交后入队
+     *
+     * @param type           超时类型
+     * @param orderId        订单ID
+     * @param deadlineMillis 到期时间（毫秒时间戳）
+     */
+    public void schedule(OrderTimeoutType type, Long orderId, long deadlineMillis) {
+        if (stringRedisTemplate == null || orderId == null) {
+            return;
+        }
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForZSet().add(key(type), String.valueOf(orderId), deadlineMillis);
+            } catch (Exception e) {
+                log.warn("订单超时入队失败，由兜底扫描处理，type={}, orderId={}: {}", type, orderId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 订单已离开等待状态（已支付、已取消、已确认收货）时移出队列，存在活动事务时在事务提交后执行
+     * 移除失败不影响正确性，到期后处理时状态校验不通过即跳过
+     */
+    public void remove(OrderTimeoutType type, Long orderId) {
+        if (stringRedisTemplate == null || orderId == null) {
+            return;
+        }
+        afterCommit(() -> ack(type, orderId));
+    }
+
+    /**
+     * 领取到期的订单
+     *
+     * @param type        超时类型
+     * @param max         最大领取数
+     * @param leaseMillis 租约时长，超过该时长未确认的订单会被重新领取
+     * @return 订单ID
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> claimDue(OrderTimeoutType type, int max, long leaseMillis) {
+        if (stringRedisTemplate == null) {
+            return Collections.emptyList();
+        }
+        long now = System.currentTimeMillis();
+        List<Object> items = stringRedisTemplate.execute(claimScript, Collections.singletonList(key(type)),
+                String.valueOf(now), String.valueOf(max), String.valueOf(now + leaseMillis));
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> orderIds = new ArrayList<>(items.size());
+        for (Object item : items) {
+            try {
+                orderIds.add(Long.valueOf(item.toString()));
+            } catch (NumberFormatException e) {
+                stringRedisTemplate.opsForZSet().remove(key(type), item.toString());
+            }
+        }
+        return orderIds;
+    }
+
+    /**
+     * 确认订单已处理，从队列删除
+     */
+    public void ack(OrderTimeoutType type, Long orderId) {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForZSet().remove(key(type), String.valueOf(orderId));
+        } catch (Exception e) {
+            log.warn("订单超时出队失败，type={}, orderId={}: {}", type, orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * 队列中的订单数
+     */
+    public long size(OrderTimeoutType type) {
+        if (stringRedisTemplate == null) {
+            return 0;
+        }
+        Long size = stringRedisTemplate.opsForZSet().zCard(key(type));
+        return size != null ? size : 0;
+    }
+
+    /**
+     * 队列中最早的到期时间（含已领取未确认的租约），队列为空时返回null
+     */
+    public Long earliestDeadline(OrderTimeoutType type) {
+        if (stringRedisTemplate == null) {
+            return null;
+        }
+        Set<ZSetOperations.TypedTuple<String>> head = stringRedisTemplate.opsForZSet().rangeWithScores(key(type), 0, 0);
+        if (head == null || head.isEmpty()) {
+            return null;
+        }
+        Double score = head.iterator().next().getScore();
+        return score != null ? score.longValue() : null;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String key(OrderTimeoutType type) {
+        return KEY_PREFIX + type.getCode();
+    }
+}
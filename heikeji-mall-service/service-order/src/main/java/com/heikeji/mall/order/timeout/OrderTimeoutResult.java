@@ -0,0 +1,22 @@
+package com.heikeji.mall.order.timeout;
+
+/**
+ * 单个到期订单的处理结果
+ */
+public enum OrderTimeoutResult {
+
+    /**
+     * 已完成超时状态变更
+     */
+    PROCESSED,
+
+    /**
+     * 订单已离开等待状态或不存在，无需处理
+     */
+    SKIPPED,
+
+    /**
+     * 订单仍在等待状态但尚未到期（数据库时间精度导致提前领取），已按实际到期时间重新入队
+     */
+    RESCHEDULED
+}
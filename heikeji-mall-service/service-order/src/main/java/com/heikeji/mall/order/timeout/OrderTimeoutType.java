@@ -0,0 +1,34 @@
+package com.heikeji.mall.order.timeout;
+
+/**
+ * 订单超时类型
+ */
+public enum OrderTimeoutType {
+
+    /**
+     * 未支付订单超时取消，下单时入队
+     */
+    UNPAID_CANCEL("cancel", "超时未支付取消"),
+
+    /**
+     * 待收货订单超时自动确认收货，发货时入队
+     */
+    AUTO_CONFIRM("confirm", "超时自动确认收货");
+
+    private final String code;
+
+    private final String description;
+
+    OrderTimeoutType(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -1,11 +1,13 @@
 package com.heikeji.mall.order.service;
 
+import com.heikeji.mall.order.cache.UserOrderListCache;
 import com.heikeji.mall.order.constant.OrderConstant;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.entity.OrderItem;
 import com.heikeji.mall.order.mapper.OrderMapper;
 import com.heikeji.mall.order.service.OrderItemService;
 import com.heikeji.mall.order.service.impl.OrderServiceImpl;
+import com.heikeji.mall.order.timeout.OrderTimeoutQueue;
 import com.heikeji.mall.product.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -39,6 +41,12 @@ public class InventoryTest {
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private UserOrderListCache userOrderListCache;
+
+    @Mock
+    private OrderTimeoutQueue orderTimeoutQueue;
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
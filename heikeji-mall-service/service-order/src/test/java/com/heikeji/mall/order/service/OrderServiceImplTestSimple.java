@@ -1,11 +1,13 @@
 package com.heikeji.mall.order.service;
 
+import com.heikeji.mall.order.cache.UserOrderListCache;
 import com.heikeji.mall.order.constant.OrderConstant;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.service.impl.OrderServiceImpl;
 import com.heikeji.mall.order.mapper.OrderMapper;
 import com.heikeji.mall.order.mapper.OrderItemMapper;
 import com.heikeji.mall.order.service.OrderItemService;
+import com.heikeji.mall.order.timeout.OrderTimeoutQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,6 +34,12 @@ public class OrderServiceImplTestSimple {
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private UserOrderListCache userOrderListCache;
+
+    @Mock
+    private OrderTimeoutQueue orderTimeoutQueue;
+
     @Mock
     private OrderItemMapper orderItemMapper;
 
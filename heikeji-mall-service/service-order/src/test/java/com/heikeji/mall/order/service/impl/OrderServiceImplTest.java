@@ -1,8 +1,10 @@
 package com.heikeji.mall.order.service.impl;
 
+import com.heikeji.mall.order.cache.UserOrderListCache;
 import com.heikeji.mall.order.constant.OrderConstant;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.mapper.OrderMapper;
+import com.heikeji.mall.order.timeout.OrderTimeoutQueue;
 import com.heikeji.mall.takeout.dto.CreateTakeoutOrderDTO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,6 +30,12 @@ public class OrderServiceImplTest {
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private UserOrderListCache userOrderListCache;
+
+    @Mock
+    private OrderTimeoutQueue orderTimeoutQueue;
+
     private Order testOrder;
 
     @BeforeEach
@@ -1,9 +1,11 @@
 package com.heikeji.mall.order.service.impl;
 
+import com.heikeji.mall.order.cache.UserOrderListCache;
 import com.heikeji.mall.order.constant.OrderConstant;
 import com.heikeji.mall.order.entity.Order;
 import com.heikeji.mall.order.mapper.OrderMapper;
 import com.heikeji.mall.order.service.OrderService;
+import com.heikeji.mall.order.timeout.OrderTimeoutQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -29,6 +31,12 @@ public class RefundProcessTest {
     @Mock
     private OrderMapper orderMapper;
 
+    @Mock
+    private UserOrderListCache userOrderListCache;
+
+    @Mock
+    private OrderTimeoutQueue orderTimeoutQueue;
+
     private Order testOrder;
 
     @BeforeEach
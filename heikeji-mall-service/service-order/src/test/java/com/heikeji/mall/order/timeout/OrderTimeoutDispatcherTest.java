@@ -0,0 +1,76 @@
+package com.heikeji.mall.order.timeout;
+
+import com.heikeji.mall.order.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单超时分发器测试
+ */
+@ExtendWith(MockitoExtension.class)
+public class OrderTimeoutDispatcherTest {
+
+    @InjectMocks
+    private OrderTimeoutDispatcher dispatcher;
+
+    @Mock
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    @Mock
+    private OrderService orderService;
+
+    /**
+     * 处理成功或订单已离开等待状态时都确认出队
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleAcksProcessedAndSkipped() {
+        when(orderService.cancelTimeoutOrder(1L)).thenReturn(OrderTimeoutResult.PROCESSED);
+        when(orderService.autoConfirmOrder(2L)).thenReturn(OrderTimeoutResult.SKIPPED);
+
+        dispatcher.handle(OrderTimeoutType.UNPAID_CANCEL, 1L);
+        dispatcher.handle(OrderTimeoutType.AUTO_CONFIRM, 2L);
+
+        verify(orderTimeoutQueue).ack(OrderTimeoutType.UNPAID_CANCEL, 1L);
+        verify(orderTimeoutQueue).ack(OrderTimeoutType.AUTO_CONFIRM, 2L);
+        Map<String, Object> stats = dispatcher.getStats();
+        assertEquals(1L, ((Map<String, Object>) stats.get("cancel")).get("processed"));
+        assertEquals(1L, ((Map<String, Object>) stats.get("confirm")).get("skipped"));
+    }
+
+    /**
+     * 订单按数据库时间尚未到期时已重新入队，不确认出队
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleDoesNotAckRescheduled() {
+        when(orderService.cancelTimeoutOrder(1L)).thenReturn(OrderTimeoutResult.RESCHEDULED);
+
+        dispatcher.handle(OrderTimeoutType.UNPAID_CANCEL, 1L);
+
+        verify(orderTimeoutQueue, never()).ack(any(), any());
+        assertEquals(1L, ((Map<String, Object>) dispatcher.getStats().get("cancel")).get("rescheduled"));
+    }
+
+    /**
+     * 处理失败时不确认，等待租约到期后重新领取
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleFailureKeepsLease() {
+        when(orderService.cancelTimeoutOrder(1L)).thenThrow(new RuntimeException("db down"));
+
+        dispatcher.handle(OrderTimeoutType.UNPAID_CANCEL, 1L);
+
+        verify(orderTimeoutQueue, never()).ack(any(), any());
+        assertEquals(1L, ((Map<String, Object>) dispatcher.getStats().get("cancel")).get("failed"));
+    }
+}
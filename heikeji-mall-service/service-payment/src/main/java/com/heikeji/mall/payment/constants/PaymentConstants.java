@@ -39,6 +39,22 @@ public class PaymentConstants {
         public static final Integer CAMPUS_CARD_PAY = 4;
     }
     
+    /**
+     * 对账状态
+     */
+    public static final class RECONCILIATION_STATUS {
+        // 未对账
+        public static final Integer UNRECONCILED = 0;
+        // 对账成功
+        public static final Integer SUCCESS = 1;
+        // 金额不符
+        public static final Integer AMOUNT_DIFF = 2;
+        // 平台有本系统无
+        public static final Integer PLATFORM_ONLY = 3;
+        // 本系统有平台无
+        public static final Integer SYSTEM_ONLY = 4;
+    }
+    
     /**
      * 微信支付相关常量
      */
@@ -3,6 +3,8 @@ package com.heikeji.mall.payment.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.heikeji.mall.payment.entity.Reconciliation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -48,8 +50,36 @@ public interface ReconciliationMapper extends BaseMapper<Reconciliation> {
     /**
      * 批量插入对账记录
      */
+    @Insert("<script>" +
+            "INSERT INTO payment_reconciliation (batch_no, reconciliation_date, payment_type, payment_no, transaction_id, order_no, " +
+            "order_amount, actual_amount, platform_amount, reconciliation_status, diff_amount, error_reason, solve_status, " +
+            "create_time, update_time) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.batchNo}, #{item.reconciliationDate}, #{item.paymentType}, #{item.paymentNo}, #{item.transactionId}, #{item.orderNo}, " +
+            "#{item.orderAmount}, #{item.actualAmount}, #{item.platformAmount}, #{item.reconciliationStatus}, #{item.diffAmount}, " +
+            "#{item.errorReason}, #{item.solveStatus}, #{item.createTime}, #{item.updateTime})" +
+            "</foreach>" +
+            "</script>")
     int batchInsert(@Param("list") List<Reconciliation> reconciliationList);
 
+    /**
+     * 按ID游标分页读取批次的对账记录，用于流式导出
+     */
+    @Select("<script>" +
+            "SELECT * FROM payment_reconciliation WHERE batch_no = #{batchNo} " +
+            "<if test='afterId != null'>AND id &gt; #{afterId} </if>" +
+            "ORDER BY id LIMIT #{limit}" +
+            "</script>")
+    List<Reconciliation> selectPageByBatchNo(@Param("batchNo") String batchNo,
+                                             @Param("afterId") Long afterId,
+                                             @Param("limit") int limit);
+
+    /**
+     * 删除批次的对账记录，重新执行对账前清除上次的结果
+     */
+    @Delete("DELETE FROM payment_reconciliation WHERE batch_no = #{batchNo}")
+    int deleteByBatchNo(@Param("batchNo") String batchNo);
+
     /**
      * 批量更新对账记录状态
      */
@@ -0,0 +1,85 @@
+package com.heikeji.mall.payment.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对账交易暂存Mapper
+ * 对账时把本系统和支付平台两侧的交易暂存到 payment_reconciliation_txn，按 (来源, 分区, 交易号) 建索引，
+ * 两侧都可以按交易号有序地分页读取做归并比对，应用内存不随当日交易量增长。
+ */
+@Mapper
+public interface ReconciliationTxnMapper {
+
+    /**
+     * 本系统交易来源
+     */
+    int SOURCE_SYSTEM = 1;
+
+    /**
+     * 支付平台交易来源
+     */
+    int SOURCE_PLATFORM = 2;
+
+    /**
+     * 暂存本系统指定日期、支付方式的已支付交易，数据在数据库内复制，不经过应用
+     * 没有平台交易号的记录以空串暂存，排在最前，比对结果为本系统有平台无
+     */
+    @Insert("INSERT INTO payment_reconciliation_txn (batch_no, source, bucket, transaction_id, payment_no, order_no, amount) " +
+            "SELECT #{batchNo}, 1, CRC32(COALESCE(transaction_id, '')) % #{buckets}, COALESCE(transaction_id, ''), " +
+            "payment_no, order_no, COALESCE(amount, 0) " +
+            "FROM payment " +
+            "WHERE payment_type = #{paymentType} AND status = 1 " +
+            "AND create_time >= #{startTime} AND create_time <= #{endTime}")
+    int stageSystemTransactions(@Param("batchNo") String batchNo,
+                                @Param("paymentType") Integer paymentType,
+                                @Param("startTime") String startTime,
+                                @Param("endTime") String endTime,
+                                @Param("buckets") int buckets);
+
+    /**
+     * 批量暂存支付平台交易
+     */
+    @Insert("<script>" +
+            "INSERT INTO payment_reconciliation_txn (batch_no, source, bucket, transaction_id, payment_no, order_no, amount) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{batchNo}, 2, CRC32(#{item.transactionId}) % #{buckets}, #{item.transactionId}, NULL, #{item.outTradeNo}, #{item.amount})" +
+            "</foreach>" +
+            "</script>")
+    int stagePlatformTransactions(@Param("batchNo") String batchNo,
+                                  @Param("buckets") int buckets,
+                                  @Param("list") List<Map<String, Object>> transactions);
+
+    /**
+     * 按 (交易号, id) 游标分页读取指定来源、分区的暂存交易
+     * 交易号列使用二进制排序规则，顺序与 {@link String#compareTo} 一致
+     */
+    @Select("<script>" +
+            "SELECT id, transaction_id AS transactionId, payment_no AS paymentNo, order_no AS orderNo, amount " +
+            "FROM payment_reconciliation_txn " +
+            "WHERE batch_no = #{batchNo} AND source = #{source} AND bucket = #{bucket} " +
+            "<if test='afterId != null'>" +
+            "AND (transaction_id &gt; #{afterTransactionId} OR (transaction_id = #{afterTransactionId} AND id &gt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY transaction_id, id " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Map<String, Object>> selectPage(@Param("batchNo") String batchNo,
+                                         @Param("source") int source,
+                                         @Param("bucket") int bucket,
+                                         @Param("afterTransactionId") String afterTransactionId,
+                                         @Param("afterId") Long afterId,
+                                         @Param("limit") int limit);
+
+    /**
+     * 清除批次的暂存交易
+     */
+    @Delete("DELETE FROM payment_reconciliation_txn WHERE batch_no = #{batchNo}")
+    int deleteByBatchNo(@Param("batchNo") String batchNo);
+}
@@ -0,0 +1,456 @@
+package com.heikeji.mall.payment.reconciliation;
+
+import com.heikeji.mall.payment.constants.PaymentConstants;
+import com.heikeji.mall.payment.entity.Reconciliation;
+import com.heikeji.mall.payment.entity.ReconciliationBatch;
+import com.heikeji.mall.payment.mapper.ReconciliationMapper;
+import com.heikeji.mall.payment.mapper.ReconciliationTxnMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 流式对账引擎
+ * <ol>
+ *     <li>本系统交易通过 INSERT ... SELECT 在数据库内暂存，平台交易分块写入暂存表，两侧按 CRC32(交易号) 分到 {@link #BUCKETS} 个分区</li>
+ *     <li>每个分区按交易号游标分页读取两侧交易，做归并比对，内存中只保留一页数据</li>
+ *     <li>比对结果攒满 {@link #CHUNK_SIZE} 条批量插入并单独提交，统计数据在比对过程中累加，无需事后再查</li>
+ * </ol>
+ * 交易量超过 {@link #PARALLEL_THRESHOLD} 时各分区由多个线程并行比对，不同分区的交易号互不相交，结果可直接合并。
+ */
+@Component
+public class ReconciliationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationEngine.class);
+
+    /**
+     * 暂存交易的哈希分区数
+     */
+    private static final int BUCKETS = 16;
+
+    /**
+     * 每次分页读取的暂存交易数
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * 每次批量写入的记录数
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * 两侧交易总数达到该值时并行比对
+     */
+    private static final int PARALLEL_THRESHOLD = 200000;
+
+    /**
+     * 并行比对的最大线程数，每个线程同时占用一个数据库连接
+     */
+    private static final int MAX_WORKERS = 4;
+
+    private static final Integer SOLVE_STATUS_UNSOLVED = 0;
+
+    @Autowired
+    private ReconciliationMapper reconciliationMapper;
+
+    @Autowired
+    private ReconciliationTxnMapper reconciliationTxnMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ReconciliationEngine(PlatformTransactionManager transactionManager) {
+        // 每个分块独立提交，不受调用方事务影响
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 执行批次对账，会先清除该批次上次执行留下的对账记录
+     *
+     * @param batch                对账批次
+     * @param platformTransactions 平台交易，无需排序
+     * @return 对账统计
+     */
+    public Stats reconcile(ReconciliationBatch batch, Iterator<Map<String, Object>> platformTransactions) {
+        String batchNo = batch.getBatchNo();
+        String date = batch.getReconciliationDate();
+        reconciliationMapper.deleteByBatchNo(batchNo);
+        reconciliationTxnMapper.deleteByBatchNo(batchNo);
+        try {
+            int systemRows = reconciliationTxnMapper.stageSystemTransactions(batchNo, batch.getPaymentType(),
+                    date + " 00:00:00", date + " 23:59:59", BUCKETS);
+            int platformRows = stagePlatformTransactions(batchNo, platformTransactions);
+            log.info("对账交易暂存完成，批次号: {}, 系统交易: {}, 平台交易: {}", batchNo, systemRows, platformRows);
+
+            int workers = systemRows + platformRows >= PARALLEL_THRESHOLD
+                    ? Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()) : 1;
+            return workers > 1 ? joinParallel(batch, workers) : joinSequential(batch);
+        } finally {
+            reconciliationTxnMapper.deleteByBatchNo(batchNo);
+        }
+    }
+
+    /**
+     * 比对内存中的两侧交易，排序后按同样的归并方式处理
+     *
+     * @param batch        对账批次
+     * @param systemData   本系统交易
+     * @param platformData 平台交易
+     * @return 对账统计
+     */
+    public Stats match(ReconciliationBatch batch, List<Map<String, Object>> systemData, List<Map<String, Object>> platformData) {
+        Comparator<Map<String, Object>> byTransactionId = Comparator.comparing(ReconciliationEngine::transactionKey);
+        List<Map<String, Object>> system = new ArrayList<>(systemData);
+        system.sort(byTransactionId);
+        List<Map<String, Object>> platform = platformData.stream()
+                .filter(item -> !transactionKey(item).isEmpty())
+                .sorted(byTransactionId)
+                .collect(Collectors.toList());
+
+        Stats stats = new Stats();
+        ChunkWriter writer = new ChunkWriter(batch, stats);
+        ReconciliationMergeJoin.join(system.iterator(), platform.iterator(), ReconciliationEngine::transactionKey, writer);
+        writer.flush();
+        return stats;
+    }
+
+    private int stagePlatformTransactions(String batchNo, Iterator<Map<String, Object>> transactions) {
+        int staged = 0;
+        int skipped = 0;
+        List<Map<String, Object>> chunk = new ArrayList<>(CHUNK_SIZE);
+        while (transactions.hasNext()) {
+            Map<String, Object> item = transactions.next();
+            if (transactionKey(item).isEmpty()) {
+                skipped++;
+                continue;
+            }
+            chunk.add(item);
+            if (chunk.size() >= CHUNK_SIZE) {
+                staged += reconciliationTxnMapper.stagePlatformTransactions(batchNo, BUCKETS, chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            staged += reconciliationTxnMapper.stagePlatformTransactions(batchNo, BUCKETS, chunk);
+        }
+        if (skipped > 0) {
+            log.warn("平台交易缺少交易号，已忽略，批次号: {}, 数量: {}", batchNo, skipped);
+        }
+        return staged;
+    }
+
+    private Stats joinSequential(ReconciliationBatch batch) {
+        Stats total = new Stats();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total.merge(joinBucket(batch, bucket));
+        }
+        return total;
+    }
+
+    private Stats joinParallel(ReconciliationBatch batch, int workers) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "reconcile-" + batch.getBatchNo() + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Stats>> futures = new ArrayList<>(BUCKETS);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                int current = bucket;
+                futures.add(executor.submit(() -> joinBucket(batch, current)));
+            }
+            Stats total = new Stats();
+            for (Future<Stats> future : futures) {
+                total.merge(future.get());
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("对账执行被中断，批次号: " + batch.getBatchNo(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("对账分区执行失败，批次号: " + batch.getBatchNo(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Stats joinBucket(ReconciliationBatch batch, int bucket) {
+        Stats stats = new Stats();
+        ChunkWriter writer = new ChunkWriter(batch, stats);
+        ReconciliationMergeJoin.join(
+                new StagedTransactionIterator(batch.getBatchNo(), ReconciliationTxnMapper.SOURCE_SYSTEM, bucket),
+                new StagedTransactionIterator(batch.getBatchNo(), ReconciliationTxnMapper.SOURCE_PLATFORM, bucket),
+                ReconciliationEngine::transactionKey, writer);
+        writer.flush();
+        return stats;
+    }
+
+    private static String transactionKey(Map<String, Object> transaction) {
+        Object transactionId = transaction.get("transactionId");
+        return transactionId == null ? "" : transactionId.toString();
+    }
+
+    private static BigDecimal amountOf(Map<String, Object> transaction) {
+        Object amount = transaction.get("amount");
+        return amount == null ? BigDecimal.ZERO : (BigDecimal) amount;
+    }
+
+    /**
+     * 按 (交易号, id) 游标分页读取暂存交易
+     */
+    private final class StagedTransactionIterator implements Iterator<Map<String, Object>> {
+        private final String batchNo;
+        private final int source;
+        private final int bucket;
+        private Iterator<Map<String, Object>> page = Collections.emptyIterator();
+        private String afterTransactionId;
+        private Long afterId;
+        private boolean exhausted;
+
+        private StagedTransactionIterator(String batchNo, int source, int bucket) {
+            this.batchNo = batchNo;
+            this.source = source;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (page.hasNext()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            List<Map<String, Object>> rows = reconciliationTxnMapper.selectPage(
+                    batchNo, source, bucket, afterTransactionId, afterId, PAGE_SIZE);
+            if (rows.size() < PAGE_SIZE) {
+                exhausted = true;
+            }
+            if (!rows.isEmpty()) {
+                Map<String, Object> last = rows.get(rows.size() - 1);
+                afterTransactionId = transactionKey(last);
+                afterId = ((Number) last.get("id")).longValue();
+            }
+            page = rows.iterator();
+            return page.hasNext();
+        }
+
+        @Override
+        public Map<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
+
+    /**
+     * 将比对结果转换为对账记录，分块写入并累加统计
+     */
+    private final class ChunkWriter implements ReconciliationMergeJoin.Listener<Map<String, Object>> {
+        private final ReconciliationBatch batch;
+        private final Stats stats;
+        private List<Reconciliation> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        private ChunkWriter(ReconciliationBatch batch, Stats stats) {
+            this.batch = batch;
+            this.stats = stats;
+        }
+
+        @Override
+        public void matched(Map<String, Object> system, Map<String, Object> platform) {
+            BigDecimal systemAmount = amountOf(system);
+            BigDecimal platformAmount = amountOf(platform);
+            stats.addSystem(systemAmount);
+            stats.addPlatform(platformAmount);
+
+            Reconciliation reconciliation = fromSystem(system, systemAmount);
+            reconciliation.setPlatformAmount(platformAmount);
+            if (systemAmount.compareTo(platformAmount) == 0) {
+                reconciliation.setReconciliationStatus(PaymentConstants.RECONCILIATION_STATUS.SUCCESS);
+            } else {
+                reconciliation.setReconciliationStatus(PaymentConstants.RECONCILIATION_STATUS.AMOUNT_DIFF);
+                reconciliation.setDiffAmount(systemAmount.subtract(platformAmount));
+                reconciliation.setErrorReason("金额不一致");
+            }
+            add(reconciliation);
+        }
+
+        @Override
+        public void systemOnly(Map<String, Object> system) {
+            BigDecimal systemAmount = amountOf(system);
+            stats.addSystem(systemAmount);
+
+            Reconciliation reconciliation = fromSystem(system, systemAmount);
+            reconciliation.setReconciliationStatus(PaymentConstants.RECONCILIATION_STATUS.SYSTEM_ONLY);
+            reconciliation.setPlatformAmount(BigDecimal.ZERO);
+            reconciliation.setDiffAmount(systemAmount);
+            reconciliation.setErrorReason("本系统有平台无");
+            add(reconciliation);
+        }
+
+        @Override
+        public void platformOnly(Map<String, Object> platform) {
+            BigDecimal platformAmount = amountOf(platform);
+            stats.addPlatform(platformAmount);
+
+            Reconciliation reconciliation = newRecord();
+            reconciliation.setTransactionId(transactionKey(platform));
+            // 暂存后的平台交易商户订单号在 orderNo，平台原始数据在 outTradeNo
+            Object orderNo = platform.containsKey("orderNo") ? platform.get("orderNo") : platform.get("outTradeNo");
+            reconciliation.setOrderNo(orderNo == null ? null : orderNo.toString());
+            reconciliation.setPlatformAmount(platformAmount);
+            reconciliation.setReconciliationStatus(PaymentConstants.RECONCILIATION_STATUS.PLATFORM_ONLY);
+            reconciliation.setOrderAmount(BigDecimal.ZERO);
+            reconciliation.setActualAmount(BigDecimal.ZERO);
+            reconciliation.setDiffAmount(platformAmount.negate());
+            reconciliation.setErrorReason("平台有本系统无");
+            add(reconciliation);
+        }
+
+        private Reconciliation fromSystem(Map<String, Object> system, BigDecimal systemAmount) {
+            String transactionId = transactionKey(system);
+            Reconciliation reconciliation = newRecord();
+            reconciliation.setPaymentNo((String) system.get("paymentNo"));
+            reconciliation.setTransactionId(transactionId.isEmpty() ? null : transactionId);
+            reconciliation.setOrderNo((String) system.get("orderNo"));
+            reconciliation.setOrderAmount(systemAmount);
+            reconciliation.setActualAmount(systemAmount);
+            return reconciliation;
+        }
+
+        private Reconciliation newRecord() {
+            Date now = new Date();
+            Reconciliation reconciliation = new Reconciliation();
+            reconciliation.setBatchNo(batch.getBatchNo());
+            reconciliation.setReconciliationDate(batch.getReconciliationDate());
+            reconciliation.setPaymentType(batch.getPaymentType());
+            reconciliation.setSolveStatus(SOLVE_STATUS_UNSOLVED);
+            reconciliation.setCreateTime(now);
+            reconciliation.setUpdateTime(now);
+            return reconciliation;
+        }
+
+        private void add(Reconciliation reconciliation) {
+            stats.count(reconciliation.getReconciliationStatus());
+            chunk.add(reconciliation);
+            if (chunk.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Reconciliation> records = chunk;
+            chunk = new ArrayList<>(CHUNK_SIZE);
+            transactionTemplate.executeWithoutResult(status -> reconciliationMapper.batchInsert(records));
+        }
+    }
+
+    /**
+     * 对账统计，比对过程中累加
+     */
+    public static final class Stats {
+        private int systemCount;
+        private BigDecimal systemAmount = BigDecimal.ZERO;
+        private int platformCount;
+        private BigDecimal platformAmount = BigDecimal.ZERO;
+        private int successCount;
+        private int amountDiffCount;
+        private int platformOnlyCount;
+        private int systemOnlyCount;
+
+        private void addSystem(BigDecimal amount) {
+            systemCount++;
+            systemAmount = systemAmount.add(amount);
+        }
+
+        private void addPlatform(BigDecimal amount) {
+            platformCount++;
+            platformAmount = platformAmount.add(amount);
+        }
+
+        private void count(Integer status) {
+            if (PaymentConstants.RECONCILIATION_STATUS.SUCCESS.equals(status)) {
+                successCount++;
+            } else if (PaymentConstants.RECONCILIATION_STATUS.AMOUNT_DIFF.equals(status)) {
+                amountDiffCount++;
+            } else if (PaymentConstants.RECONCILIATION_STATUS.PLATFORM_ONLY.equals(status)) {
+                platformOnlyCount++;
+            } else if (PaymentConstants.RECONCILIATION_STATUS.SYSTEM_ONLY.equals(status)) {
+                systemOnlyCount++;
+            }
+        }
+
+        private void merge(Stats other) {
+            systemCount += other.systemCount;
+            systemAmount = systemAmount.add(other.systemAmount);
+            platformCount += other.platformCount;
+            platformAmount = platformAmount.add(other.platformAmount);
+            successCount += other.successCount;
+            amountDiffCount += other.amountDiffCount;
+            platformOnlyCount += other.platformOnlyCount;
+            systemOnlyCount += other.systemOnlyCount;
+        }
+
+        public int getSystemCount() {
+            return systemCount;
+        }
+
+        public BigDecimal getSystemAmount() {
+            return systemAmount;
+        }
+
+        public int getPlatformCount() {
+            return platformCount;
+        }
+
+        public BigDecimal getPlatformAmount() {
+            return platformAmount;
+        }
+
+        public int getSuccessCount() {
+            return successCount;
+        }
+
+        public int getFailCount() {
+            return amountDiffCount + platformOnlyCount + systemOnlyCount;
+        }
+
+        public int getAmountDiffCount() {
+            return amountDiffCount;
+        }
+
+        public int getPlatformOnlyCount() {
+            return platformOnlyCount;
+        }
+
+        public int getSystemOnlyCount() {
+            return systemOnlyCount;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.heikeji.mall.payment.reconciliation;
+
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * 对账归并比对
+ * 两侧交易均按交易号升序输入，同时向前推进两个游标逐条比对，只持有两侧各一条当前记录，
+ * 内存占用与交易量无关。同一交易号在一侧出现多次时按出现顺序逐条配对，多出的记录视为单边交易。
+ */
+public final class ReconciliationMergeJoin {
+
+    private ReconciliationMergeJoin() {
+    }
+
+    /**
+     * 比对结果回调
+     */
+    public interface Listener<T> {
+
+        /**
+         * 两侧交易号一致
+         */
+        void matched(T system, T platform);
+
+        /**
+         * 本系统有平台无
+         */
+        void systemOnly(T system);
+
+        /**
+         * 平台有本系统无
+         */
+        void platformOnly(T platform);
+    }
+
+    /**
+     * 执行归并比对
+     *
+     * @param system   本系统交易，按交易号升序
+     * @param platform 平台交易，按交易号升序
+     * @param keyOf    取交易号，不能返回null
+     * @param listener 比对结果回调
+     * @throws IllegalStateException 输入未按交易号排序
+     */
+    public static <T> void join(Iterator<T> system, Iterator<T> platform,
+                                Function<T, String> keyOf, Listener<T> listener) {
+        Cursor<T> left = new Cursor<>(system, keyOf, "本系统");
+        Cursor<T> right = new Cursor<>(platform, keyOf, "平台");
+
+        while (left.current != null || right.current != null) {
+            int cmp;
+            if (left.current == null) {
+                cmp = 1;
+            } else if (right.current == null) {
+                cmp = -1;
+            } else {
+                cmp = left.key.compareTo(right.key);
+            }
+
+            if (cmp < 0) {
+                listener.systemOnly(left.current);
+                left.advance();
+            } else if (cmp > 0) {
+                listener.platformOnly(right.current);
+                right.advance();
+            } else {
+                listener.matched(left.current, right.current);
+                left.advance();
+                right.advance();
+            }
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final Iterator<T> iterator;
+        private final Function<T, String> keyOf;
+        private final String side;
+        private T current;
+        private String key;
+
+        private Cursor(Iterator<T> iterator, Function<T, String> keyOf, String side) {
+            this.iterator = iterator;
+            this.keyOf = keyOf;
+            this.side = side;
+            advance();
+        }
+
+        private void advance() {
+            if (!iterator.hasNext()) {
+                current = null;
+                return;
+            }
+            T next = iterator.next();
+            String nextKey = keyOf.apply(next);
+            // 排序规则不一致会导致把可匹配的交易误判为单边，发现逆序立即中止
+            if (key != null && nextKey.compareTo(key) < 0) {
+                throw new IllegalStateException(side + "交易未按交易号排序：" + nextKey + " 位于 " + key + " 之后");
+            }
+            current = next;
+            key = nextKey;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.github.binarywang.wxpay.service.WxPayService;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.common.core.id.IdGenerator;
 import com.heikeji.mall.payment.entity.Payment;
 import com.heikeji.mall.payment.entity.vo.PaymentVO;
 import com.heikeji.mall.payment.mapper.PaymentMapper;
@@ -31,7 +32,6 @@ import java.util.concurrent.TimeUnit;
 import com.heikeji.mall.payment.constants.PaymentConstants;
 
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -75,6 +75,9 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     /**
      * 生成支付订单号
      */
@@ -672,20 +675,14 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
      * 生成充值订单号
      */
     private String generateRechargeNo() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String dateStr = sdf.format(new Date());
-        String randomStr = String.format("%06d", new Random().nextInt(1000000));
-        return "RCG" + dateStr + randomStr;
+        return idGenerator.nextNo("RCG");
     }
 
     /**
      * 生成支付流水号
      */
     private String generatePaymentNo() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String dateStr = sdf.format(new Date());
-        String randomStr = String.format("%06d", new Random().nextInt(1000000));
-        return "PAY" + dateStr + randomStr;
+        return idGenerator.nextNo("PAY");
     }
 
     /**
@@ -705,14 +702,7 @@ public class PaymentServiceImpl extends ServiceImpl<PaymentMapper, Payment> impl
      * 生成退款单号
      */
     private String generateRefundNo() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String dateStr = sdf.format(new Date());
-        StringBuilder sb = new StringBuilder(dateStr);
-        Random random = new Random();
-        for (int i = 0; i < 6; i++) {
-            sb.append(random.nextInt(10));
-        }
-        return "REF" + sb.toString();
+        return idGenerator.nextNo("REF");
     }
     
     /**
@@ -8,6 +8,7 @@ import com.heikeji.mall.payment.entity.ReconciliationBatch;
 import com.heikeji.mall.payment.mapper.PaymentMapper;
 import com.heikeji.mall.payment.mapper.ReconciliationBatchMapper;
 import com.heikeji.mall.payment.mapper.ReconciliationMapper;
+import com.heikeji.mall.payment.reconciliation.ReconciliationEngine;
 import com.heikeji.mall.payment.service.ReconciliationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,10 +16,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -40,6 +43,9 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
     @Autowired
     private PaymentMapper paymentMapper;
 
+    @Autowired
+    private ReconciliationEngine reconciliationEngine;
+
     // 对账状态常量
     private static final Integer STATUS_UNRECONCILED = 0;
     private static final Integer STATUS_SUCCESS = 1;
@@ -53,6 +59,11 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
     private static final Integer BATCH_STATUS_COMPLETED = 2;
     private static final Integer BATCH_STATUS_FAILED = 3;
 
+    /**
+     * 导出时每次读取的对账记录数
+     */
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     // 解决状态常量
     private static final Integer SOLVE_STATUS_UNSOLVED = 0;
     private static final Integer SOLVE_STATUS_SOLVED = 1;
@@ -93,9 +104,9 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
 
     /**
      * 执行对账逻辑
+     * 两侧交易暂存后按交易号归并比对，对账记录分块提交，不在单个事务中完成
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void executeReconciliation(String batchNo) {
         log.info("开始执行对账任务，批次号: {}", batchNo);
 
@@ -107,47 +118,25 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
                 return;
             }
 
-            // 获取系统交易数据
-            List<Map<String, Object>> systemData = fetchSystemTransactions(batch.getReconciliationDate(), batch.getPaymentType());
-            log.info("获取系统交易数据，数量: {}", systemData.size());
-
-            // 获取平台交易数据
-            List<Map<String, Object>> platformData = fetchPlatformTransactions(batch.getReconciliationDate(), batch.getPaymentType());
-            log.info("获取平台交易数据，数量: {}", platformData.size());
+            // 平台交易逐条暂存，对账单下载接口按行解析时可直接传入迭代器
+            Iterator<Map<String, Object>> platformTransactions =
+                    fetchPlatformTransactions(batch.getReconciliationDate(), batch.getPaymentType()).iterator();
+            ReconciliationEngine.Stats stats = reconciliationEngine.reconcile(batch, platformTransactions);
 
             // 更新批次统计信息
-            batch.setSystemTransactionCount(systemData.size());
-            batch.setPlatformTransactionCount(platformData.size());
-
-            // 计算系统交易总金额
-            BigDecimal systemTotalAmount = systemData.stream()
-                    .map(item -> (BigDecimal) item.get("amount"))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            batch.setSystemTotalAmount(systemTotalAmount);
-
-            // 计算平台交易总金额
-            BigDecimal platformTotalAmount = platformData.stream()
-                    .map(item -> (BigDecimal) item.get("amount"))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            batch.setPlatformTotalAmount(platformTotalAmount);
-
-            // 执行数据比对
-            matchTransactions(systemData, platformData, batchNo);
-
-            // 统计对账结果
-            Integer successCount = reconciliationMapper.countByStatus(batchNo, STATUS_SUCCESS);
-            Integer failCount = reconciliationMapper.countByStatus(batchNo, STATUS_AMOUNT_DIFF) +
-                    reconciliationMapper.countByStatus(batchNo, STATUS_PLATFORM_ONLY) +
-                    reconciliationMapper.countByStatus(batchNo, STATUS_SYSTEM_ONLY);
-
-            batch.setSuccessCount(successCount);
-            batch.setFailCount(failCount);
+            batch.setSystemTransactionCount(stats.getSystemCount());
+            batch.setSystemTotalAmount(stats.getSystemAmount());
+            batch.setPlatformTransactionCount(stats.getPlatformCount());
+            batch.setPlatformTotalAmount(stats.getPlatformAmount());
+            batch.setSuccessCount(stats.getSuccessCount());
+            batch.setFailCount(stats.getFailCount());
             batch.setReconciliationStatus(BATCH_STATUS_COMPLETED);
             batch.setEndTime(new Date());
             batch.setUpdateTime(new Date());
 
             reconciliationBatchMapper.updateById(batch);
-            log.info("对账任务执行完成，批次号: {}, 成功: {}, 失败: {}", batchNo, successCount, failCount);
+            log.info("对账任务执行完成，批次号: {}, 系统交易: {}, 平台交易: {}, 成功: {}, 失败: {}", batchNo,
+                    stats.getSystemCount(), stats.getPlatformCount(), stats.getSuccessCount(), stats.getFailCount());
 
         } catch (Exception e) {
             log.error("对账任务执行失败，批次号: {}", batchNo, e);
@@ -297,98 +286,21 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
 
     /**
      * 进行数据比对
+     * 两侧数据已在内存中，排序后按交易号归并比对
      */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void matchTransactions(List<Map<String, Object>> systemData, 
                                  List<Map<String, Object>> platformData, 
                                  String batchNo) {
         log.info("开始数据比对，系统数据: {}, 平台数据: {}", systemData.size(), platformData.size());
 
-        // 创建交易ID到平台数据的映射
-        Map<String, Map<String, Object>> platformMap = platformData.stream()
-                .collect(Collectors.toMap(
-                        item -> (String) item.get("transactionId"),
-                        item -> item,
-                        (v1, v2) -> v1 // 处理重复键
-                ));
-
-        // 创建支付流水号到系统数据的映射
-        Map<String, Map<String, Object>> systemMap = systemData.stream()
-                .collect(Collectors.toMap(
-                        item -> (String) item.get("paymentNo"),
-                        item -> item,
-                        (v1, v2) -> v1
-                ));
-
-        List<Reconciliation> reconciliationList = new ArrayList<>();
-
-        // 比对系统数据和平台数据
-        for (Map<String, Object> systemItem : systemData) {
-            String paymentNo = (String) systemItem.get("paymentNo");
-            String transactionId = (String) systemItem.get("transactionId");
-            BigDecimal systemAmount = (BigDecimal) systemItem.get("amount");
-
-            Reconciliation reconciliation = new Reconciliation();
-            reconciliation.setBatchNo(batchNo);
-            reconciliation.setPaymentNo(paymentNo);
-            reconciliation.setTransactionId(transactionId);
-            reconciliation.setOrderNo((String) systemItem.get("orderNo"));
-            reconciliation.setOrderAmount(systemAmount);
-            reconciliation.setActualAmount(systemAmount);
-            reconciliation.setCreateTime(new Date());
-            reconciliation.setUpdateTime(new Date());
-
-            // 检查平台是否有对应的交易
-            if (transactionId != null && platformMap.containsKey(transactionId)) {
-                Map<String, Object> platformItem = platformMap.remove(transactionId);
-                BigDecimal platformAmount = (BigDecimal) platformItem.get("amount");
-                reconciliation.setPlatformAmount(platformAmount);
-
-                // 比对金额
-                if (systemAmount.compareTo(platformAmount) == 0) {
-                    reconciliation.setReconciliationStatus(STATUS_SUCCESS);
-                } else {
-                    reconciliation.setReconciliationStatus(STATUS_AMOUNT_DIFF);
-                    reconciliation.setDiffAmount(systemAmount.subtract(platformAmount));
-                    reconciliation.setErrorReason("金额不一致");
-                }
-            } else {
-                // 平台没有对应交易
-                reconciliation.setReconciliationStatus(STATUS_SYSTEM_ONLY);
-                reconciliation.setPlatformAmount(BigDecimal.ZERO);
-                reconciliation.setDiffAmount(systemAmount);
-                reconciliation.setErrorReason("本系统有平台无");
-            }
-
-            reconciliationList.add(reconciliation);
-        }
-
-        // 处理平台有但系统没有的交易
-        for (Map<String, Object> platformItem : platformMap.values()) {
-            String transactionId = (String) platformItem.get("transactionId");
-            BigDecimal platformAmount = (BigDecimal) platformItem.get("amount");
-
-            Reconciliation reconciliation = new Reconciliation();
-            reconciliation.setBatchNo(batchNo);
-            reconciliation.setTransactionId(transactionId);
-            reconciliation.setPlatformAmount(platformAmount);
-            reconciliation.setReconciliationStatus(STATUS_PLATFORM_ONLY);
-            reconciliation.setOrderAmount(BigDecimal.ZERO);
-            reconciliation.setActualAmount(BigDecimal.ZERO);
-            reconciliation.setDiffAmount(platformAmount.negate());
-            reconciliation.setErrorReason("平台有本系统无");
-            reconciliation.setCreateTime(new Date());
-            reconciliation.setUpdateTime(new Date());
-
-            reconciliationList.add(reconciliation);
-        }
-
-        // 批量插入对账记录
-        if (!reconciliationList.isEmpty()) {
-            reconciliationMapper.batchInsert(reconciliationList);
-            log.info("对账记录插入完成，数量: {}", reconciliationList.size());
+        ReconciliationBatch batch = reconciliationBatchMapper.selectByBatchNo(batchNo);
+        if (batch == null) {
+            batch = new ReconciliationBatch();
+            batch.setBatchNo(batchNo);
         }
+        ReconciliationEngine.Stats stats = reconciliationEngine.match(batch, systemData, platformData);
+        log.info("对账记录插入完成，数量: {}", stats.getSuccessCount() + stats.getFailCount());
     }
 
     /**
@@ -446,38 +358,48 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
 
     /**
      * 导出对账数据
+     * 按ID分页读取对账记录，逐行写入带缓冲的文件
      */
     @Override
     public String exportReconciliationData(String batchNo) {
         log.info("导出对账数据，批次号: {}", batchNo);
 
-        // 获取对账记录
-        List<Reconciliation> records = reconciliationMapper.selectByBatchNo(batchNo);
-        
         // 生成CSV文件
         String exportPath = "/tmp/reconciliation_" + batchNo + ".csv";
-        try (FileWriter writer = new FileWriter(exportPath)) {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(exportPath), StandardCharsets.UTF_8)) {
             // 写入表头
             writer.write("批次号,对账日期,支付方式,支付流水号,交易号,订单号,订单金额,实际金额,平台金额,对账状态,差异金额,错误原因\n");
 
             // 写入数据
-            for (Reconciliation record : records) {
-                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s\n",
-                        record.getBatchNo(),
-                        record.getReconciliationDate(),
-                        record.getPaymentType(),
-                        record.getPaymentNo(),
-                        record.getTransactionId(),
-                        record.getOrderNo(),
-                        record.getOrderAmount(),
-                        record.getActualAmount(),
-                        record.getPlatformAmount(),
-                        getStatusText(record.getReconciliationStatus()),
-                        record.getDiffAmount(),
-                        record.getErrorReason()));
-            }
+            StringBuilder line = new StringBuilder(256);
+            int exported = 0;
+            Long afterId = null;
+            List<Reconciliation> records;
+            do {
+                records = reconciliationMapper.selectPageByBatchNo(batchNo, afterId, EXPORT_PAGE_SIZE);
+                for (Reconciliation record : records) {
+                    line.setLength(0);
+                    appendCsv(line, record.getBatchNo()).append(',');
+                    appendCsv(line, record.getReconciliationDate()).append(',');
+                    appendCsv(line, record.getPaymentType()).append(',');
+                    appendCsv(line, record.getPaymentNo()).append(',');
+                    appendCsv(line, record.getTransactionId()).append(',');
+                    appendCsv(line, record.getOrderNo()).append(',');
+                    appendCsv(line, record.getOrderAmount()).append(',');
+                    appendCsv(line, record.getActualAmount()).append(',');
+                    appendCsv(line, record.getPlatformAmount()).append(',');
+                    appendCsv(line, getStatusText(record.getReconciliationStatus())).append(',');
+                    appendCsv(line, record.getDiffAmount()).append(',');
+                    appendCsv(line, record.getErrorReason()).append('\n');
+                    writer.append(line);
+                }
+                exported += records.size();
+                if (!records.isEmpty()) {
+                    afterId = records.get(records.size() - 1).getId();
+                }
+            } while (records.size() == EXPORT_PAGE_SIZE);
 
-            log.info("对账数据导出成功，路径: {}", exportPath);
+            log.info("对账数据导出成功，路径: {}, 记录数: {}", exportPath, exported);
             return exportPath;
         } catch (IOException e) {
             log.error("导出对账数据失败", e);
@@ -485,6 +407,20 @@ public class ReconciliationServiceImpl extends ServiceImpl<ReconciliationMapper,
         }
     }
 
+    /**
+     * 追加CSV字段，包含逗号、引号或换行的字段加引号转义
+     */
+    private static StringBuilder appendCsv(StringBuilder line, Object value) {
+        if (value == null) {
+            return line;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return line.append(text);
+        }
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
     /**
      * 查询对账批次详情
      */
@@ -52,4 +52,19 @@ CREATE TABLE `reconciliation` (
   KEY `idx_status` (`reconciliation_status`),
   KEY `idx_solve_status` (`solve_status`),
   KEY `idx_create_time` (`create_time`)
-) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='支付对账记录表';
\ No newline at end of file
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='支付对账记录表';
+-- 对账交易暂存表
+-- 对账执行期间暂存本系统和支付平台两侧交易，按 (来源, 分区, 交易号) 有序分页读取做归并比对，执行结束即清除
+-- transaction_id 使用二进制排序规则，保证数据库排序与应用内字符串比较一致
+CREATE TABLE `payment_reconciliation_txn` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `batch_no` varchar(50) NOT NULL COMMENT '对账批次号',
+  `source` tinyint(4) NOT NULL COMMENT '数据来源(1:本系统 2:支付平台)',
+  `bucket` smallint(6) NOT NULL COMMENT '哈希分区(CRC32(transaction_id) % 分区数)',
+  `transaction_id` varchar(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL DEFAULT '' COMMENT '支付平台交易号，本系统无交易号时为空串',
+  `payment_no` varchar(50) DEFAULT NULL COMMENT '支付流水号',
+  `order_no` varchar(50) DEFAULT NULL COMMENT '订单号',
+  `amount` decimal(18,2) NOT NULL DEFAULT 0.00 COMMENT '交易金额',
+  PRIMARY KEY (`id`),
+  KEY `idx_batch_source_bucket_txn` (`batch_no`,`source`,`bucket`,`transaction_id`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='对账交易暂存表';
@@ -0,0 +1,58 @@
+package com.heikeji.mall.payment.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对账归并比对测试
+ */
+public class ReconciliationMergeJoinTest {
+
+    @Test
+    void testJoinClassifiesBothSides() {
+        List<String> result = join(Arrays.asList("", "A", "B", "B", "D"), Arrays.asList("A", "B", "C", "E"));
+
+        // 空交易号排在最前，重复交易号只与平台的一条记录配对
+        assertEquals(Arrays.asList("S:", "M:A", "M:B", "S:B", "P:C", "S:D", "P:E"), result);
+    }
+
+    @Test
+    void testJoinWithEmptySide() {
+        assertEquals(Arrays.asList("P:A", "P:B"), join(Collections.emptyList(), Arrays.asList("A", "B")));
+        assertEquals(Collections.singletonList("S:A"), join(Collections.singletonList("A"), Collections.emptyList()));
+    }
+
+    @Test
+    void testJoinRejectsUnsortedInput() {
+        assertThrows(IllegalStateException.class, () -> join(Arrays.asList("B", "A"), Collections.singletonList("C")));
+    }
+
+    private static List<String> join(List<String> system, List<String> platform) {
+        List<String> result = new ArrayList<>();
+        ReconciliationMergeJoin.join(system.iterator(), platform.iterator(), Function.identity(),
+                new ReconciliationMergeJoin.Listener<String>() {
+                    @Override
+                    public void matched(String systemKey, String platformKey) {
+                        result.add("M:" + systemKey);
+                    }
+
+                    @Override
+                    public void systemOnly(String systemKey) {
+                        result.add("S:" + systemKey);
+                    }
+
+                    @Override
+                    public void platformOnly(String platformKey) {
+                        result.add("P:" + platformKey);
+                    }
+                });
+        return result;
+    }
+}
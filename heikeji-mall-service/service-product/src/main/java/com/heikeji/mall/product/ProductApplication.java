@@ -1,5 +1,6 @@
 package com.heikeji.mall.product;
 
+import com.heikeji.mall.common.datasource.ReadWriteSplitDataSourceConfig;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -7,6 +8,7 @@ import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
 
 /**
  * Product Service Application Class
@@ -22,6 +24,8 @@ import org.springframework.context.annotation.ComponentScan;
 @MapperScan("com.heikeji.mall.product.mapper")
 @EnableFeignClients // 启用Feign客户端，自动扫描当前包及其子包
 @EnableDiscoveryClient
+// 读写分离默认关闭，开启方式见heikeji.datasource.read-write-split配置
+@Import(ReadWriteSplitDataSourceConfig.class)
 public class ProductApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,104 @@
+package com.heikeji.mall.product.cache;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.heikeji.mall.product.config.CacheConfig;
+import com.heikeji.mall.product.entity.Product;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品缓存依赖标签
+ * <ul>
+ *     <li>product:{id}：条目中包含该商品，商品信息变更时清除</li>
+ *     <li>category:{id}：按分类查询的列表，该分类下商品增减时清除</li>
+ *     <li>list：热门、新品、推荐、搜索、分页等列表，其成员取决于商品状态、销量等属性，商品上下架或属性变更时清除</li>
+ * </ul>
+ * 库存变化不影响以上任何标签，库存由 {@link ProductStockCache} 单独缓存。
+ */
+public final class ProductCacheTags {
+
+    public static final String LIST = "list";
+
+    private static final String PRODUCT_KEY_PREFIX = "product_";
+
+    private static final String CATEGORY_KEY_PREFIX = "category:";
+
+    private static final String CATEGORY_CHILDREN_KEY_PREFIX = "category_children_";
+
+    private ProductCacheTags() {
+    }
+
+    public static String product(Long productId) {
+        return "product:" + productId;
+    }
+
+    public static String category(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    /**
+     * 解析缓存条目依赖的标签：值中包含的商品ID + 由缓存键决定的分类或列表标签
+     */
+    public static Set<String> resolve(Object key, Object value) {
+        Set<String> tags = new HashSet<>();
+        collectProducts(value, tags);
+
+        String cacheKey = String.valueOf(key);
+        if (cacheKey.startsWith(CATEGORY_KEY_PREFIX)) {
+            tags.add(CATEGORY_KEY_PREFIX + cacheKey.substring(CATEGORY_KEY_PREFIX.length()));
+        } else if (!isProductKey(cacheKey)) {
+            // 包含子分类的列表无法只按单个分类标记，与其他列表一起处理
+            tags.add(LIST);
+        }
+        return tags;
+    }
+
+    /**
+     * 根据缓存键解析过期时间（秒）
+     */
+    public static long ttlSeconds(Object key) {
+        String cacheKey = String.valueOf(key);
+        if (cacheKey.startsWith(CATEGORY_KEY_PREFIX) || cacheKey.startsWith(CATEGORY_CHILDREN_KEY_PREFIX)) {
+            return CacheConfig.CACHE_EXPIRE_TIME_CATEGORY;
+        }
+        if (cacheKey.startsWith("hot") || cacheKey.startsWith("new_list_")) {
+            return CacheConfig.CACHE_EXPIRE_TIME_HOT;
+        }
+        if (cacheKey.startsWith("recommend_list_")) {
+            return CacheConfig.CACHE_EXPIRE_TIME_RECOMMEND;
+        }
+        if (cacheKey.startsWith("search_") || cacheKey.startsWith("page_")) {
+            return CacheConfig.CACHE_EXPIRE_TIME_SEARCH;
+        }
+        return CacheConfig.CACHE_EXPIRE_TIME_PRODUCT;
+    }
+
+    private static boolean isProductKey(String cacheKey) {
+        if (!cacheKey.startsWith(PRODUCT_KEY_PREFIX)) {
+            return false;
+        }
+        String id = cacheKey.substring(PRODUCT_KEY_PREFIX.length());
+        return !id.isEmpty() && id.chars().allMatch(Character::isDigit);
+    }
+
+    private static void collectProducts(Object value, Set<String> tags) {
+        if (value instanceof Product product) {
+            if (product.getId() != null) {
+                tags.add(product(product.getId()));
+            }
+        } else if (value instanceof IPage<?> page) {
+            collectProducts(page.getRecords(), tags);
+        } else if (value instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                collectProducts(element, tags);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            for (Object element : map.values()) {
+                collectProducts(element, tags);
+            }
+        }
+    }
+}
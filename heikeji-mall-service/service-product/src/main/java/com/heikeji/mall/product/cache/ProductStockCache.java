@@ -0,0 +1,115 @@
+package com.heikeji.mall.product.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.heikeji.mall.product.entity.Product;
+import com.heikeji.mall.product.mapper.ProductMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品库存缓存
+ * 库存、锁定库存、销量变化频繁，与商品详情、列表分开缓存：
+ * 库存变动只清除这里对应商品的一条记录，商品详情等缓存保持不变，
+ * 展示库存时以这里的数据覆盖详情缓存中的旧值。
+ * 多节点部署时其他节点的库存快照最多滞后 {@link #EXPIRE_MILLIS} 毫秒，实际扣减仍以数据库乐观锁为准。
+ */
+@Slf4j
+@Component
+public class ProductStockCache {
+
+    /**
+     * 库存快照过期时间（毫秒）
+     */
+    private static final long EXPIRE_MILLIS = 5000;
+
+    /**
+     * 最大缓存商品数，超过时清扫过期记录
+     */
+    private static final int MAX_SIZE = 100000;
+
+    @Resource
+    private ProductMapper productMapper;
+
+    private final Map<Long, StockSnapshot> snapshots = new ConcurrentHashMap<>(1024);
+
+    /**
+     * 获取商品库存快照
+     *
+     * @param productId 商品ID
+     * @return 库存快照，商品不存在时返回null
+     */
+    public StockSnapshot get(Long productId) {
+        long now = System.currentTimeMillis();
+        StockSnapshot snapshot = snapshots.get(productId);
+        if (snapshot != null && now < snapshot.expireAt) {
+            return snapshot;
+        }
+
+        Product product = productMapper.selectOne(new LambdaQueryWrapper<Product>()
+                .select(Product::getId, Product::getStock, Product::getLockedStock, Product::getSales)
+                .eq(Product::getId, productId));
+        if (product == null) {
+            snapshots.remove(productId);
+            return null;
+        }
+        snapshot = new StockSnapshot(product.getStock(), product.getLockedStock(), product.getSales(), now + EXPIRE_MILLIS);
+        if (snapshots.size() >= MAX_SIZE) {
+            snapshots.values().removeIf(s -> now >= s.expireAt);
+        }
+        snapshots.put(productId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 使商品库存快照失效
+     * 立即清除一次；存在活动事务时在事务结束后再清除一次，丢弃事务提交前被其他请求读回的旧值
+     *
+     * @param productId 商品ID
+     */
+    public void evict(Long productId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    snapshots.remove(productId);
+                }
+            });
+        }
+        snapshots.remove(productId);
+    }
+
+    /**
+     * 商品库存快照
+     */
+    public static final class StockSnapshot {
+        private final Integer stock;
+        private final Integer lockedStock;
+        private final Integer sales;
+        private final long expireAt;
+
+        private StockSnapshot(Integer stock, Integer lockedStock, Integer sales, long expireAt) {
+            this.stock = stock;
+            this.lockedStock = lockedStock;
+            this.sales = sales;
+            this.expireAt = expireAt;
+        }
+
+        public Integer getStock() {
+            return stock;
+        }
+
+        public Integer getLockedStock() {
+            return lockedStock;
+        }
+
+        public Integer getSales() {
+            return sales;
+        }
+    }
+}
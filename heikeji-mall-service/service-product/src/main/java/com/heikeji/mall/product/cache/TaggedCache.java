@@ -0,0 +1,206 @@
+package com.heikeji.mall.product.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 带依赖标签的本地缓存
+ * 写入缓存时记录该条目依赖的标签（如商品ID、分类ID），并维护 标签 -> 缓存键 的反向索引，
+ * 数据变更时按标签只清除受影响的条目，而不是清空整个缓存。
+ * 每个条目按缓存键设置过期时间，过期条目在读取时或定期清扫时移除。
+ */
+public class TaggedCache extends AbstractValueAdaptingCache {
+
+    /**
+     * 每写入多少次清扫一次过期条目
+     */
+    private static final int PURGE_INTERVAL = 1024;
+
+    private final String name;
+
+    private final Map<Object, Entry> store = new ConcurrentHashMap<>(256);
+
+    private final Map<String, Set<Object>> tagIndex = new ConcurrentHashMap<>(256);
+
+    private final BiFunction<Object, Object, Set<String>> tagResolver;
+
+    private final ToLongFunction<Object> ttlResolver;
+
+    private final AtomicInteger putCount = new AtomicInteger();
+
+    /**
+     * @param name        缓存名称
+     * @param tagResolver 根据缓存键和值解析依赖标签
+     * @param ttlResolver 根据缓存键解析过期时间（秒），小于等于0表示不过期
+     */
+    public TaggedCache(String name, BiFunction<Object, Object, Set<String>> tagResolver, ToLongFunction<Object> ttlResolver) {
+        super(true);
+        this.name = name;
+        this.tagResolver = tagResolver;
+        this.ttlResolver = ttlResolver;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Entry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Set<String> tags = tagResolver.apply(key, value);
+        long ttlSeconds = ttlResolver.applyAsLong(key);
+        long expireAt = ttlSeconds > 0 ? System.currentTimeMillis() + ttlSeconds * 1000 : Long.MAX_VALUE;
+        Entry entry = new Entry(toStoreValue(value), expireAt, tags);
+
+        // 先登记标签再写入条目，保证并发按标签清除时不会遗漏新条目
+        for (String tag : tags) {
+            tagIndex.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        Entry previous = store.put(key, entry);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+
+        if (putCount.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeExpired();
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        Entry entry = store.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+        }
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+        tagIndex.clear();
+    }
+
+    /**
+     * 清除依赖任一指定标签的缓存条目
+     *
+     * @param tags 标签集合
+     * @return 清除的条目数
+     */
+    public int evictTags(Collection<String> tags) {
+        int evicted = 0;
+        for (String tag : tags) {
+            Set<Object> keys = tagIndex.remove(tag);
+            if (keys == null) {
+                continue;
+            }
+            for (Object key : keys) {
+                Entry entry = store.remove(key);
+                if (entry != null) {
+                    unindex(key, entry);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 当前缓存条目数
+     */
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * 清扫已过期的条目
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        store.forEach((key, entry) -> {
+            if (entry.isExpired(now)) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    private void remove(Object key, Entry entry) {
+        if (store.remove(key, entry)) {
+            unindex(key, entry);
+        }
+    }
+
+    /**
+     * 从反向索引中移除条目的标签，同一键的新条目仍在使用的标签予以保留
+     */
+    private void unindex(Object key, Entry entry) {
+        for (String tag : entry.tags) {
+            Entry current = store.get(key);
+            if (current != null && current.tags.contains(tag)) {
+                continue;
+            }
+            tagIndex.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+        private final Set<String> tags;
+
+        private Entry(Object value, long expireAt, Set<String> tags) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.tags = tags;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
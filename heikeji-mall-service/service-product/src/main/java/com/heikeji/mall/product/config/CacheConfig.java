@@ -1,8 +1,12 @@
 package com.heikeji.mall.product.config;
 
+import com.heikeji.mall.product.cache.ProductCacheTags;
+import com.heikeji.mall.product.cache.TaggedCache;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +21,24 @@ import java.util.Arrays;
 @EnableCaching
 public class CacheConfig extends CachingConfigurerSupport {
     
+    /**
+     * 本地缓存管理器
+     * 商品缓存使用带依赖标签的缓存，写操作按商品、分类标签清除受影响的条目；其他缓存保持默认实现
+     */
+    @Bean
+    @Override
+    public CacheManager cacheManager() {
+        return new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                if (CACHE_NAME_PRODUCT.equals(name)) {
+                    return new TaggedCache(name, ProductCacheTags::resolve, ProductCacheTags::ttlSeconds);
+                }
+                return super.createConcurrentMapCache(name);
+            }
+        };
+    }
+    
     /**
      * 自定义缓存键生成器，生成统一格式的缓存键
      * 格式：methodName::param1::param2::...::paramN
@@ -1,12 +1,16 @@
 package com.heikeji.mall.product.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heikeji.common.core.annotation.RequiresAdmin;
+import com.heikeji.mall.common.batch.BulkImportSummary;
+import com.heikeji.mall.common.batch.JsonArrayStreamReader;
 import com.heikeji.mall.common.response.R;
 import com.heikeji.mall.product.dto.ProductBatchInsertDTO;
 import com.heikeji.mall.product.entity.Product;
 import com.heikeji.mall.product.service.ProductBatchInsertService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +18,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +39,9 @@ public class ProductBatchInsertController {
     @Autowired
     private ProductBatchInsertService productBatchInsertService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 单条商品数据插入
      *
@@ -99,6 +107,39 @@ public class ProductBatchInsertController {
         }
     }
 
+    /**
+     * 流式导入商品数据
+     * 请求体与批量插入相同（JSON数组），但不限制条数：服务端逐条解析、分批写入，
+     * 不在内存中保留全部数据，适用于整批上架商品目录
+     *
+     * @param request 请求体为商品数据JSON数组
+     * @return 导入汇总：总数、成功数、失败数、耗时和前100条错误详情
+     */
+    @PostMapping("/import")
+    @RequiresAdmin
+    @Operation(summary = "流式导入商品")
+    public R<Map<String, Object>> importProducts(HttpServletRequest request) {
+        log.info("收到流式导入商品请求, contentLength: {}", request.getContentLengthLong());
+
+        try (JsonArrayStreamReader<ProductBatchInsertDTO> reader =
+                     new JsonArrayStreamReader<>(objectMapper, request.getInputStream(), ProductBatchInsertDTO.class)) {
+            BulkImportSummary summary = productBatchInsertService.importStream(reader);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("totalCount", summary.getTotalCount());
+            response.put("successCount", summary.getSuccessCount());
+            response.put("failCount", summary.getFailCount());
+            response.put("durationMs", summary.getDurationMs());
+            response.put("errors", summary.getErrors());
+            response.put("errorsTruncated", summary.isErrorsTruncated());
+            return R.success(String.format("导入完成：成功%d条，失败%d条",
+                    summary.getSuccessCount(), summary.getFailCount()), response);
+        } catch (Exception e) {
+            log.error("流式导入商品异常: {}", e.getMessage(), e);
+            return R.error("导入失败：" + e.getMessage());
+        }
+    }
+
     /**
      * 验证商品数据是否可插入（预检查）
      * 不实际插入数据，仅检查外键约束和数据有效性
@@ -3,6 +3,7 @@ package com.heikeji.mall.product.controller;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.heikeji.common.core.annotation.RateLimiter;
 import com.heikeji.common.core.domain.R;
+import com.heikeji.mall.product.cache.ProductStockCache;
 import com.heikeji.mall.product.dto.ProductDetailVO;
 import com.heikeji.mall.product.dto.ProductListVO;
 import com.heikeji.mall.product.dto.ProductSearchDTO;
@@ -32,6 +33,9 @@ public class ProductController {
     @Autowired
     private ProductHotWordService productHotWordService;
 
+    @Autowired
+    private ProductStockCache productStockCache;
+
     /**
      * 分页查询商品列表
      */
@@ -110,6 +114,13 @@ public class ProductController {
         vo.setIsRecommend(product.getIsRecommend());
         vo.setCreateTime(product.getCreateTime());
         vo.setUpdateTime(product.getUpdateTime());
+        // 商品详情缓存不随库存变动刷新，库存和销量以库存缓存为准
+        ProductStockCache.StockSnapshot stock = productStockCache.get(id);
+        if (stock != null) {
+            vo.setStock(stock.getStock());
+            vo.setLockedStock(stock.getLockedStock());
+            vo.setSales(stock.getSales());
+        }
         return R.success(vo);
     }
 
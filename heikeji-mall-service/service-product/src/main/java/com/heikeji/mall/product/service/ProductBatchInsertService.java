@@ -1,9 +1,11 @@
 package com.heikeji.mall.product.service;
 
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
 import com.heikeji.mall.product.dto.ProductBatchInsertDTO;
 import com.heikeji.mall.product.entity.Product;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -30,4 +32,12 @@ public interface ProductBatchInsertService {
      *         - 失败记录的错误详情
      */
     Result<List<Product>> insertBatch(List<ProductBatchInsertDTO> dtoList);
+
+    /**
+     * 流式导入商品数据，适用于整批上架商品目录等大数据量场景
+     *
+     * @param source 逐条读取的商品数据，未经过参数验证
+     * @return 导入汇总，只包含成功/失败数量和前若干条错误详情
+     */
+    BulkImportSummary importStream(Iterator<ProductBatchInsertDTO> source);
 }
@@ -1,6 +1,11 @@
 package com.heikeji.mall.product.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
+import com.heikeji.mall.common.batch.BulkInsertEngine;
+import com.heikeji.mall.common.batch.BulkInsertTable;
+import com.heikeji.mall.common.batch.MultiRowInsertWriter;
 import com.heikeji.mall.product.dto.ProductBatchInsertDTO;
 import com.heikeji.mall.product.entity.Category;
 import com.heikeji.mall.product.entity.Product;
@@ -9,40 +14,76 @@ import com.heikeji.mall.product.mapper.CategoryMapper;
 import com.heikeji.mall.product.mapper.ProductMapper;
 import com.heikeji.mall.product.mapper.StoreMapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 商品批量插入服务实现类
  *
  * 功能特性：
  * 1. 支持单条和批量商品数据插入
- * 2. 外键约束验证（分类ID、商家ID）
+ * 2. 外键约束验证（分类ID、商家ID），批量插入时每批只查询一次
  * 3. 完整的事务处理机制
  * 4. 数据唯一性和完整性校验
  * 5. 异常处理和详细错误日志
+ * 6. 批量插入使用多行INSERT，失败批次二分定位坏数据，其余记录照常写入
+ * 7. 流式导入，不在内存中保留全部数据
  */
 @Service
 public class ProductBatchInsertServiceImpl extends ServiceImpl<ProductMapper, Product> implements ProductBatchInsertService {
 
     private static final Logger log = LoggerFactory.getLogger(ProductBatchInsertServiceImpl.class);
 
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    /**
+     * 多行插入的列，与convertToEntity设置的字段一致
+     */
+    private static final BulkInsertTable<Product> PRODUCT_TABLE = BulkInsertTable.<Product>of("product", Product::setId)
+            .column("name", Product::getName)
+            .column("category_id", Product::getCategoryId)
+            .column("store_id", Product::getMerchantId)
+            .column("price", Product::getPrice)
+            .column("original_price", Product::getOriginalPrice)
+            .column("stock", Product::getStock)
+            .column("images", Product::getImages)
+            .column("description", Product::getDescription)
+            .column("specifications", Product::getSpecifications)
+            .column("status", Product::getStatus)
+            .column("is_featured", Product::getIsRecommend);
+
     private final ProductMapper productMapper;
     private final CategoryMapper categoryMapper;
     private final StoreMapper storeMapper;
+    private final Validator validator;
+    private final MultiRowInsertWriter<Product> productWriter;
 
     public ProductBatchInsertServiceImpl(ProductMapper productMapper,
                                         CategoryMapper categoryMapper,
-                                        StoreMapper storeMapper) {
+                                        StoreMapper storeMapper,
+                                        JdbcTemplate jdbcTemplate,
+                                        Validator validator) {
         this.productMapper = productMapper;
         this.categoryMapper = categoryMapper;
         this.storeMapper = storeMapper;
+        this.validator = validator;
+        this.productWriter = new MultiRowInsertWriter<>(jdbcTemplate, PRODUCT_TABLE);
     }
 
     /**
@@ -98,48 +139,15 @@ public class ProductBatchInsertServiceImpl extends ServiceImpl<ProductMapper, Pr
             return Result.error("单次批量插入数量不能超过200条");
         }
 
-        List<Product> successList = new ArrayList<>();
-        List<String> errorList = new ArrayList<>();
-        int successCount = 0;
-        int failCount = 0;
-
+        List<Integer> rowNumbers = new ArrayList<>(dtoList.size());
         for (int i = 0; i < dtoList.size(); i++) {
-            ProductBatchInsertDTO dto = dtoList.get(i);
-            try {
-                validateForeignKeys(dto);
-
-                Product product = convertToEntity(dto);
-                boolean saved = save(product);
-
-                if (saved) {
-                    successList.add(product);
-                    successCount++;
-                    log.info("第{}条商品插入成功, productId: {}, name: {}", i + 1, product.getId(), product.getName());
-                } else {
-                    failCount++;
-                    errorList.add(String.format("第%d条(name=%s): 插入失败", i + 1, dto.getName()));
-                    log.warn("第{}条商品插入失败, name: {}", i + 1, dto.getName());
-                }
-            } catch (DuplicateKeyException e) {
-                failCount++;
-                String errorMsg = String.format("第%d条(name=%s): 数据冲突 - %s",
-                        i + 1, dto.getName(), e.getMessage());
-                errorList.add(errorMsg);
-                log.warn("第{}条商品数据冲突, name: {}, error: {}", i + 1, dto.getName(), e.getMessage());
-            } catch (IllegalArgumentException e) {
-                failCount++;
-                String errorMsg = String.format("第%d条(name=%s): %s",
-                        i + 1, dto.getName(), e.getMessage());
-                errorList.add(errorMsg);
-                log.warn("第{}条商品外键验证失败, name: {}, error: {}", i + 1, dto.getName(), e.getMessage());
-            } catch (Exception e) {
-                failCount++;
-                String errorMsg = String.format("第%d条(name=%s): %s",
-                        i + 1, dto.getName(), e.getMessage());
-                errorList.add(errorMsg);
-                log.error("第{}条商品插入异常, name: {}, error: {}", i + 1, dto.getName(), e.getMessage(), e);
-            }
+            rowNumbers.add(i + 1);
         }
+        BatchResult result = processBatch(dtoList, rowNumbers);
+        List<Product> successList = result.successList;
+        List<String> errorList = result.errorList;
+        int successCount = result.successList.size();
+        int failCount = result.failCount;
 
         log.info("批量插入完成, 总数: {}, 成功: {}, 失败: {}", dtoList.size(), successCount, failCount);
 
@@ -154,6 +162,142 @@ public class ProductBatchInsertServiceImpl extends ServiceImpl<ProductMapper, Pr
         }
     }
 
+    /**
+     * 流式导入商品数据
+     *
+     * 按IMPORT_BATCH_SIZE条一批读取、校验并写入，每批独立提交，内存中只保留当前批次；
+     * 返回结果只包含计数和前若干条错误信息。数据解析失败时停止读取，已读取的数据照常写入。
+     */
+    @Override
+    public BulkImportSummary importStream(Iterator<ProductBatchInsertDTO> source) {
+        long startTime = System.currentTimeMillis();
+        log.info("开始流式导入商品数据");
+
+        BulkImportSummary summary = new BulkImportSummary();
+        List<ProductBatchInsertDTO> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<Integer> rowNumbers = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int rowNumber = 0;
+        while (true) {
+            ProductBatchInsertDTO dto;
+            try {
+                if (!source.hasNext()) {
+                    break;
+                }
+                dto = source.next();
+            } catch (RuntimeException e) {
+                log.warn("第{}条之后的商品数据解析失败，停止读取: {}", rowNumber, e.getMessage());
+                summary.addFailure(String.format("第%d条之后的数据解析失败: %s", rowNumber, e.getMessage()));
+                break;
+            }
+            rowNumber++;
+            summary.addTotal(1);
+            Set<ConstraintViolation<ProductBatchInsertDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                summary.addFailure(String.format("第%d条(name=%s): %s", rowNumber, dto.getName(),
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "))));
+                continue;
+            }
+            batch.add(dto);
+            rowNumbers.add(rowNumber);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                mergeInto(summary, processBatch(batch, rowNumbers));
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                rowNumbers = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            mergeInto(summary, processBatch(batch, rowNumbers));
+        }
+
+        summary.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("流式导入商品完成, 总数: {}, 成功: {}, 失败: {}, 耗时: {}ms",
+                summary.getTotalCount(), summary.getSuccessCount(), summary.getFailCount(), summary.getDurationMs());
+        return summary;
+    }
+
+    /**
+     * 处理一批商品数据：批量外键校验 → 多行插入（失败时二分定位坏数据）
+     *
+     * @param rowNumbers 每条数据在整个请求中的序号（从1开始），用于错误信息
+     */
+    private BatchResult processBatch(List<ProductBatchInsertDTO> batch, List<Integer> rowNumbers) {
+        BatchResult result = new BatchResult();
+
+        Set<Long> categoryIds = findExistingCategoryIds(batch);
+        Set<Long> storeIds = findExistingStoreIds(batch);
+        List<Product> products = new ArrayList<>(batch.size());
+        List<Integer> productRowNumbers = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            ProductBatchInsertDTO dto = batch.get(i);
+            String error = null;
+            if (!categoryIds.contains(dto.getCategoryId())) {
+                error = "分类ID " + dto.getCategoryId() + " 不存在";
+            } else if (!storeIds.contains(dto.getStoreId())) {
+                error = "商家ID " + dto.getStoreId() + " 不存在";
+            }
+            if (error != null) {
+                result.failCount++;
+                result.errorList.add(String.format("第%d条(name=%s): %s", rowNumbers.get(i), dto.getName(), error));
+                log.warn("第{}条商品外键验证失败, name: {}, error: {}", rowNumbers.get(i), dto.getName(), error);
+            } else {
+                products.add(convertToEntity(dto));
+                productRowNumbers.add(rowNumbers.get(i));
+            }
+        }
+
+        BulkInsertEngine.insert(products, 0, productWriter, new BulkInsertEngine.Listener<Product>() {
+            @Override
+            public void onInserted(List<Product> rows) {
+                result.successList.addAll(rows);
+            }
+
+            @Override
+            public void onFailed(int index, Product row, RuntimeException error) {
+                result.failCount++;
+                String reason = error instanceof DuplicateKeyException ? "数据冲突 - " + error.getMessage() : error.getMessage();
+                result.errorList.add(String.format("第%d条(name=%s): %s", productRowNumbers.get(index), row.getName(), reason));
+                log.warn("第{}条商品插入失败, name: {}, error: {}", productRowNumbers.get(index), row.getName(), error.getMessage());
+            }
+        });
+        return result;
+    }
+
+    private Set<Long> findExistingCategoryIds(List<ProductBatchInsertDTO> batch) {
+        Set<Long> ids = collectIds(batch, true);
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return categoryMapper.selectList(new LambdaQueryWrapper<Category>().select(Category::getId).in(Category::getId, ids))
+                .stream().map(Category::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private Set<Long> findExistingStoreIds(List<ProductBatchInsertDTO> batch) {
+        Set<Long> ids = collectIds(batch, false);
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return storeMapper.selectList(new LambdaQueryWrapper<Store>().select(Store::getId).in(Store::getId, ids))
+                .stream().map(Store::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private static Set<Long> collectIds(Collection<ProductBatchInsertDTO> batch, boolean category) {
+        Set<Long> ids = new HashSet<>();
+        for (ProductBatchInsertDTO dto : batch) {
+            Long id = category ? dto.getCategoryId() : dto.getStoreId();
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static void mergeInto(BulkImportSummary summary, BatchResult result) {
+        summary.addSuccess(result.successList.size());
+        for (String error : result.errorList) {
+            summary.addFailure(error);
+        }
+    }
+
     /**
      * 验证外键约束
      * 检查分类ID和商家ID是否存在
@@ -198,4 +342,10 @@ public class ProductBatchInsertServiceImpl extends ServiceImpl<ProductMapper, Pr
 
         return product;
     }
+
+    private static class BatchResult {
+        List<Product> successList = new ArrayList<>();
+        List<String> errorList = new ArrayList<>();
+        int failCount = 0;
+    }
 }
@@ -2,6 +2,7 @@ package com.heikeji.mall.product.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.mall.product.cache.ProductStockCache;
 import com.heikeji.mall.product.entity.Cart;
 import com.heikeji.mall.product.entity.Product;
 import com.heikeji.mall.product.mapper.CartMapper;
@@ -25,6 +26,9 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
     
     @Autowired
     private ProductService productService;
+    
+    @Autowired
+    private ProductStockCache productStockCache;
 
     /**
      * 添加购物车
@@ -43,7 +47,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
         }
         
         // 检查库存
-        if (product.getStock() < cart.getQuantity()) {
+        if (getAvailableStock(product) < cart.getQuantity()) {
             throw new RuntimeException("商品库存不足");
         }
         
@@ -81,7 +85,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
         if (product == null) {
             throw new RuntimeException("商品不存在");
         }
-        if (product.getStock() < quantity) {
+        if (getAvailableStock(product) < quantity) {
             throw new RuntimeException("商品库存不足");
         }
         
@@ -189,7 +193,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
         
         for (Cart cart : cartList) {
             Product product = productService.getById(cart.getProductId());
-            if (product != null && product.getStock() < cart.getQuantity()) {
+            if (product != null && getAvailableStock(product) < cart.getQuantity()) {
                 stockErrorList.add(product.getName() + " 库存不足");
             }
         }
@@ -239,4 +243,15 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements Ca
     public List<Cart> getUserCartList(Long userId) {
         return getCartList(userId);
     }
+    
+    /**
+     * 获取商品当前库存，商品详情缓存不随库存变动刷新，以库存缓存为准
+     */
+    private int getAvailableStock(Product product) {
+        ProductStockCache.StockSnapshot stock = productStockCache.get(product.getId());
+        if (stock != null && stock.getStock() != null) {
+            return stock.getStock();
+        }
+        return product.getStock() != null ? product.getStock() : 0;
+    }
 }
@@ -4,7 +4,12 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.common.core.constant.CacheConstants;
 import com.heikeji.common.core.exception.BaseException;
+import com.heikeji.mall.product.cache.ProductCacheTags;
+import com.heikeji.mall.product.cache.ProductStockCache;
+import com.heikeji.mall.product.cache.TaggedCache;
+import com.heikeji.mall.product.config.CacheConfig;
 import com.heikeji.mall.product.document.ProductIndex;
 import com.heikeji.mall.product.dto.ProductDetailVO;
 import com.heikeji.mall.product.dto.ProductListVO;
@@ -15,10 +20,15 @@ import com.heikeji.mall.product.service.ProductViewHistoryService;
 import com.heikeji.mall.product.service.ProductElasticsearchService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -42,6 +52,15 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     
     @Resource
     private ProductElasticsearchService productElasticsearchService;
+    
+    @Resource
+    private ProductStockCache productStockCache;
+    
+    @Resource
+    private CacheManager cacheManager;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
 
     @Override
     @Cacheable(value = "productCache", key = "'product_' + #productId", unless = "#result == null", cacheManager = "cacheManager")
@@ -106,12 +125,13 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true) // 新增商品时清除所有缓存，因为可能影响热门商品等列表
     public boolean save(Product product) {
         boolean result = super.save(product);
         
         if (result) {
             log.info("新增商品成功，商品ID：{}", product.getId());
+            // 新增商品可能进入所属分类及热门、新品等列表
+            evictProductCache(Collections.emptyList(), product.getCategoryId(), true);
             // 同步更新Elasticsearch索引
             ProductIndex productIndex = ProductIndex.fromProduct(product);
             productElasticsearchService.save(productIndex);
@@ -122,12 +142,12 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", key = "'product_' + #product.id")
     public boolean updateById(Product product) {
         boolean result = super.updateById(product);
         
         if (result) {
             log.info("更新商品成功，商品ID：{}", product.getId());
+            evictProductCache(Collections.singletonList(product.getId()), product.getCategoryId(), true);
             // 同步更新Elasticsearch索引
             ProductIndex productIndex = ProductIndex.fromProduct(product);
             productElasticsearchService.save(productIndex);
@@ -138,7 +158,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", key = "'product_' + #product.id")
     public boolean removeById(Product product) {
         // 逻辑删除商品
         product.setDelFlag(1);
@@ -156,7 +175,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public boolean removeById(Serializable productId) {
         // 逻辑删除商品
         Long id = Long.valueOf(productId.toString());
@@ -196,7 +214,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean deductStock(Long productId, Integer quantity) {
         // 获取当前商品信息
         Product product = this.getById(productId);
@@ -219,13 +236,15 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
             throw new BaseException("商品库存扣减失败，请重试");
         }
         
+        // 库存变动只清除库存缓存，不影响商品详情及列表缓存
+        productStockCache.evict(productId);
+        
         log.info("扣减商品库存成功，商品ID：{}，扣减数量：{}，当前版本：{}", productId, quantity, currentVersion + 1);
         return true;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean restoreStock(Long productId, Integer quantity) {
         // 获取当前商品信息
         Product product = this.getById(productId);
@@ -242,13 +261,15 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
             throw new BaseException("商品库存恢复失败，请重试");
         }
         
+        // 库存变动只清除库存缓存，不影响商品详情及列表缓存
+        productStockCache.evict(productId);
+        
         log.info("恢复商品库存成功，商品ID：{}，恢复数量：{}，当前版本：{}", productId, quantity, currentVersion + 1);
         return true;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean lockStock(Long productId, Integer quantity) {
         // 获取当前商品信息
         Product product = this.getById(productId);
@@ -271,13 +292,15 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
             throw new BaseException("商品库存锁定失败，请重试");
         }
         
+        // 库存变动只清除库存缓存，不影响商品详情及列表缓存
+        productStockCache.evict(productId);
+        
         log.info("锁定商品库存成功，商品ID：{}，锁定数量：{}，当前版本：{}", productId, quantity, currentVersion + 1);
         return true;
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean unlockStock(Long productId, Integer quantity) {
         // 获取当前商品信息
         Product product = this.getById(productId);
@@ -300,6 +323,9 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
             throw new BaseException("商品库存释放失败，请重试");
         }
         
+        // 库存变动只清除库存缓存，不影响商品详情及列表缓存
+        productStockCache.evict(productId);
+        
         log.info("释放商品锁定库存成功，商品ID：{}，释放数量：{}，当前版本：{}", productId, quantity, currentVersion + 1);
         return true;
     }
@@ -391,7 +417,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean putOn(Long productId) {
         Product product = this.getById(productId);
         if (product == null || product.getDelFlag() == 1) {
@@ -405,7 +430,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean putOff(Long productId) {
         Product product = this.getById(productId);
         if (product == null || product.getDelFlag() == 1) {
@@ -559,7 +583,6 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
     
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public Boolean setAlertStock(Long productId, Integer alertStock) {
         Product product = this.getById(productId);
         if (product == null || product.getDelFlag() == 1) {
@@ -567,7 +590,11 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
         }
         
         product.setAlertStock(alertStock);
-        boolean result = this.updateById(product);
+        // 预警阈值不影响搜索索引和列表，只清除该商品的缓存
+        boolean result = super.updateById(product);
+        if (result) {
+            evictProductCache(Collections.singletonList(productId), null, false);
+        }
         log.info("设置商品库存预警阈值，商品ID：{}，预警阈值：{}", productId, alertStock);
         return result;
     }
@@ -601,12 +628,69 @@ public class ProductServiceImpl extends ServiceImpl<ProductMapper, Product> impl
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "productCache", allEntries = true)
     public void batchDeleteByIds(List<Long> ids) {
         Product product = new Product();
         product.setDelFlag(1);
         product.setUpdateTime(new Date());
         this.update(product, new QueryWrapper<Product>().in("id", ids));
+        // 分类列表中包含这些商品的条目会按商品标签清除
+        evictProductCache(ids, null, true);
         log.info("批量删除商品成功，商品ID列表：{}，共删除{}条记录", ids, ids.size());
     }
-}
\ No newline at end of file
+
+    /**
+     * 按依赖标签清除商品缓存，存在活动事务时在事务提交后执行
+     *
+     * @param productIds 变更的商品ID
+     * @param categoryId 变更商品所属分类ID（可选）
+     * @param lists      是否同时清除热门、新品、推荐、搜索等列表
+     */
+    private void evictProductCache(List<Long> productIds, Long categoryId, boolean lists) {
+        Set<String> tags = new HashSet<>();
+        for (Long productId : productIds) {
+            tags.add(ProductCacheTags.product(productId));
+        }
+        if (categoryId != null) {
+            tags.add(ProductCacheTags.category(categoryId));
+        }
+        if (lists) {
+            tags.add(ProductCacheTags.LIST);
+        }
+
+        Cache cache = cacheManager.getCache(CacheConfig.CACHE_NAME_PRODUCT);
+        Runnable eviction = () -> {
+            if (cache instanceof TaggedCache taggedCache) {
+                int evicted = taggedCache.evictTags(tags);
+                log.debug("按标签清除商品缓存，标签：{}，清除条目数：{}", tags, evicted);
+            } else if (cache != null) {
+                cache.clear();
+            }
+            publishGatewayCachePurge();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    /**
+     * 通知网关清除商品接口的缓存响应，未连接Redis时网关缓存按过期时间失效
+     */
+    private void publishGatewayCachePurge() {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            // 前缀同时覆盖 /api/product/** 和 /api/products/**
+            stringRedisTemplate.convertAndSend(CacheConstants.GATEWAY_RESPONSE_CACHE_PURGE_CHANNEL, "/api/product");
+        } catch (Exception e) {
+            log.warn("发布网关缓存清除通知失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.heikeji.mall.product.cache;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.heikeji.mall.product.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 带依赖标签的商品缓存测试
+ */
+public class TaggedCacheTest {
+
+    private TaggedCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new TaggedCache("productCache", ProductCacheTags::resolve, ProductCacheTags::ttlSeconds);
+    }
+
+    @Test
+    void testEvictOnlyEntriesDependingOnProduct() {
+        cache.put("product_1", product(1L, 10L));
+        cache.put("product_2", product(2L, 10L));
+        cache.put("category:10", Arrays.asList(product(1L, 10L), product(2L, 10L)));
+        cache.put("category:20", Collections.singletonList(product(3L, 20L)));
+
+        Page<Product> page = new Page<>(1, 10);
+        page.setRecords(Collections.singletonList(product(2L, 10L)));
+        cache.put("page_1_10_x", page);
+
+        // 商品1信息变更：只清除商品1详情和包含商品1的分类列表
+        assertEquals(2, cache.evictTags(Collections.singletonList(ProductCacheTags.product(1L))));
+        assertNull(cache.get("product_1"));
+        assertNull(cache.get("category:10"));
+        assertNotNull(cache.get("product_2"));
+        assertNotNull(cache.get("category:20"));
+        assertNotNull(cache.get("page_1_10_x"));
+
+        // 列表标签不影响商品详情
+        assertEquals(1, cache.evictTags(List.of(ProductCacheTags.LIST)));
+        assertNotNull(cache.get("product_2"));
+    }
+
+    @Test
+    void testCategoryTagEvictsCategoryListWithoutMember() {
+        cache.put("category:20", Collections.singletonList(product(3L, 20L)));
+        cache.put("product_3", product(3L, 20L));
+
+        // 分类20下新增商品：分类列表失效，已有商品详情保留
+        assertEquals(1, cache.evictTags(Collections.singletonList(ProductCacheTags.category(20L))));
+        assertNull(cache.get("category:20"));
+        assertNotNull(cache.get("product_3"));
+    }
+
+    @Test
+    void testOverwriteDropsStaleTags() {
+        cache.put("hot_list_10", Collections.singletonList(product(1L, 10L)));
+        cache.put("hot_list_10", Collections.singletonList(product(2L, 10L)));
+
+        assertEquals(0, cache.evictTags(Collections.singletonList(ProductCacheTags.product(1L))));
+        assertNotNull(cache.get("hot_list_10"));
+        assertEquals(1, cache.evictTags(Collections.singletonList(ProductCacheTags.product(2L))));
+        assertEquals(0, cache.size());
+    }
+
+    private static Product product(Long id, Long categoryId) {
+        Product product = new Product();
+        product.setId(id);
+        product.setCategoryId(categoryId);
+        return product;
+    }
+}
@@ -1,5 +1,6 @@
 package com.heikeji.mall.product.service.impl;
 
+import com.heikeji.mall.product.cache.ProductStockCache;
 import com.heikeji.mall.product.entity.Product;
 import com.heikeji.mall.product.mapper.ProductMapper;
 import com.heikeji.mall.product.service.ProductService;
@@ -20,6 +21,9 @@ public class InventoryTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private ProductStockCache productStockCache;
+
     @InjectMocks
     private ProductServiceImpl productService;
 
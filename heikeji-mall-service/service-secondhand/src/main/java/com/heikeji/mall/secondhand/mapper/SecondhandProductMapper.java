@@ -8,10 +8,4 @@ import com.heikeji.mall.secondhand.entity.SecondhandProduct;
  */
 public interface SecondhandProductMapper extends BaseMapper<SecondhandProduct> {
 
-    /**
-     * 增加商品浏览量
-     * @param productId 商品ID
-     */
-    void increaseViewCount(Long productId);
-
 }
\ No newline at end of file
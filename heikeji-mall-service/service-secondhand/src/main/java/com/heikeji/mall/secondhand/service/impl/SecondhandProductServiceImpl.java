@@ -4,9 +4,11 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.common.core.counter.ViewCountAggregator;
 import com.heikeji.mall.secondhand.entity.SecondhandProduct;
 import com.heikeji.mall.secondhand.mapper.SecondhandProductMapper;
 import com.heikeji.mall.secondhand.service.SecondhandProductService;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -15,6 +17,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 二手商品服务实现类
@@ -29,6 +33,18 @@ public class SecondhandProductServiceImpl extends ServiceImpl<SecondhandProductM
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private ViewCountAggregator viewCountAggregator;
+
+    @PostConstruct
+    public void init() {
+        if (redisTemplate != null) {
+            // 浏览量写入数据库后删除商品缓存，下次读取时加载最新浏览量
+            viewCountAggregator.setFlushListener(productIds -> redisTemplate.delete(
+                    productIds.stream().map(id -> "secondhand:product:" + id).collect(Collectors.toList())));
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long publishProduct(SecondhandProduct product) {
@@ -62,6 +78,9 @@ public class SecondhandProductServiceImpl extends ServiceImpl<SecondhandProductM
             }
         }
 
+        if (product != null) {
+            mergePendingViews(product);
+        }
         increaseViewCount(productId);
 
         return product;
@@ -162,41 +181,49 @@ public class SecondhandProductServiceImpl extends ServiceImpl<SecondhandProductM
 
     @Override
     public void increaseViewCount(Long productId) {
-        new Thread(() -> {
-            secondhandProductMapper.increaseViewCount(productId);
-
-            if (redisTemplate != null) {
-                String redisKey = "secondhand:product:" + productId;
-                SecondhandProduct product = (SecondhandProduct) redisTemplate.opsForValue().get(redisKey);
-                if (product != null) {
-                    product.setViewCount(product.getViewCount() + 1);
-                    redisTemplate.opsForValue().set(redisKey, product, 1, TimeUnit.HOURS);
-                }
-            }
-        }).start();
+        viewCountAggregator.increment(productId);
     }
 
     @Override
     public List<SecondhandProduct> getHotProducts(Integer limit) {
-        List<SecondhandProduct> hotProducts = null;
-        if (redisTemplate != null) {
-            String redisKey = "secondhand:hot_products:" + limit;
-            hotProducts = (List<SecondhandProduct>) redisTemplate.opsForValue().get(redisKey);
+        // 优先按浏览排行取商品，多取一倍以跳过已下架的商品
+        List<Long> rankedIds = viewCountAggregator.top(limit * 2);
+        if (!rankedIds.isEmpty()) {
+            Map<Long, SecondhandProduct> productMap = secondhandProductMapper.selectBatchIds(rankedIds).stream()
+                    .collect(Collectors.toMap(SecondhandProduct::getId, Function.identity()));
+            List<SecondhandProduct> hotProducts = new ArrayList<>(limit);
+            List<Long> offShelfIds = new ArrayList<>();
+            for (Long id : rankedIds) {
+                SecondhandProduct product = productMap.get(id);
+                if (product == null || !Integer.valueOf(1).equals(product.getStatus())
+                        || !Integer.valueOf(0).equals(product.getDelFlag())) {
+                    offShelfIds.add(id);
+                } else if (hotProducts.size() < limit) {
+                    hotProducts.add(product);
+                }
+            }
+            viewCountAggregator.unrank(offShelfIds);
+            if (hotProducts.size() >= limit) {
+                hotProducts.forEach(this::mergePendingViews);
+                return hotProducts;
+            }
         }
 
-        if (hotProducts == null) {
-            QueryWrapper<SecondhandProduct> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("del_flag", 0);
-            queryWrapper.eq("status", 1);
-            queryWrapper.orderByDesc("view_count");
-            queryWrapper.last("LIMIT " + limit);
-
-            hotProducts = secondhandProductMapper.selectList(queryWrapper);
+        // 排行为空或名次不足时按数据库浏览量查询，并把结果补入排行
+        QueryWrapper<SecondhandProduct> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("del_flag", 0);
+        queryWrapper.eq("status", 1);
+        queryWrapper.orderByDesc("view_count");
+        queryWrapper.last("LIMIT " + limit);
 
-            if (hotProducts != null && !hotProducts.isEmpty() && redisTemplate != null) {
-                String redisKey = "secondhand:hot_products:" + limit;
-                redisTemplate.opsForValue().set(redisKey, hotProducts, 1, TimeUnit.HOURS);
+        List<SecondhandProduct> hotProducts = secondhandProductMapper.selectList(queryWrapper);
+        if (hotProducts != null && !hotProducts.isEmpty()) {
+            Map<Long, Long> counts = new HashMap<>(hotProducts.size() * 2);
+            for (SecondhandProduct product : hotProducts) {
+                counts.put(product.getId(), product.getViewCount() != null ? product.getViewCount().longValue() : 0L);
+                mergePendingViews(product);
             }
+            viewCountAggregator.rank(counts);
         }
 
         return hotProducts;
@@ -268,4 +295,15 @@ public class SecondhandProductServiceImpl extends ServiceImpl<SecondhandProductM
 
         return result;
     }
+
+    /**
+     * 把尚未写入数据库的浏览量合并到商品上
+     */
+    private void mergePendingViews(SecondhandProduct product) {
+        long pending = viewCountAggregator.pending(product.getId());
+        if (pending > 0) {
+            int viewCount = product.getViewCount() != null ? product.getViewCount() : 0;
+            product.setViewCount((int) Math.min(Integer.MAX_VALUE, viewCount + pending));
+        }
+    }
 }
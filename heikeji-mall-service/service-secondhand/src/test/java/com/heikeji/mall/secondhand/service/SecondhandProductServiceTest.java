@@ -1,5 +1,6 @@
 package com.heikeji.mall.secondhand.service;
 
+import com.heikeji.common.core.counter.ViewCountAggregator;
 import com.heikeji.mall.secondhand.entity.SecondhandProduct;
 import com.heikeji.mall.secondhand.mapper.SecondhandProductMapper;
 import com.heikeji.mall.secondhand.service.impl.SecondhandProductServiceImpl;
@@ -23,6 +24,9 @@ public class SecondhandProductServiceTest {
     @Mock
     private SecondhandProductMapper secondhandProductMapper;
 
+    @Mock
+    private ViewCountAggregator viewCountAggregator;
+
     @InjectMocks
     private SecondhandProductServiceImpl secondhandProductService;
 
@@ -126,13 +130,10 @@ public class SecondhandProductServiceTest {
 
     @Test
     void testIncreaseViewCount() {
-        // 测试increaseViewCount方法是否能够正常调用
-        // 由于该方法在新线程中执行，无法直接验证方法调用
-        // 我们只能测试方法是否能够正常执行，不抛出异常
+        // 浏览量只在内存中累加，由聚合器定期批量写入数据库
         secondhandProductService.increaseViewCount(1L);
         
-        // 验证方法能够正常执行，不抛出异常
-        assertTrue(true);
+        verify(viewCountAggregator, times(1)).increment(1L);
     }
 
     @Test
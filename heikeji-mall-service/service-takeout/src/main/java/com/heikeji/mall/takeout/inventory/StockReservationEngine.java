@@ -0,0 +1,684 @@
+package com.heikeji.mall.takeout.inventory;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.heikeji.mall.takeout.entity.TakeoutOrder;
+import com.heikeji.mall.takeout.entity.TakeoutProduct;
+import com.heikeji.mall.takeout.exception.TakeoutException;
+import com.heikeji.mall.takeout.mapper.TakeoutOrderMapper;
+import com.heikeji.mall.takeout.mapper.TakeoutProductMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 外卖库存预占引擎
+ * <p>
+ * 每个商家的可售库存预加载到Redis哈希 takeout:stock:{商家ID}（字段为商品ID），
+ * 一个订单的所有商品通过一次Lua脚本原子校验并扣减，同时记录带过期时间的预占记录：
+ * <ul>
+ *     <li>下单事务提交后确认预占，扣减量累加到Redis哈希 takeout:stock:{商家ID}:pend，
+ *     由任一实例的后台任务按商品合并后批量写回数据库，进程崩溃不会丢失已确认的扣减</li>
+ *     <li>下单事务回滚时释放预占，库存退回Redis</li>
+ *     <li>进程在提交前后崩溃导致的过期预占由对账任务处理：订单已落库则确认，否则释放</li>
+ * </ul>
+ * 商品首次访问或失效后，在锁定数据库行的事务内按 数据库库存 - 未完成预占 - 未写回扣减 重新加载，
+ * 写回任务在持有同一行锁时重新读取并扣减未写回量，两者看到的数据库库存与未写回量始终一致，多个实例同时写回也不会重复扣减。
+ * 写回以 stock &gt;= 数量 为条件，库存不足的商品记录错误日志并保留在未写回量中，不会被截断为0掩盖超卖。
+ * Redis不可用时降级为数据库条件更新（stock &gt;= 数量），并在恢复后让受影响商品从数据库重新加载。
+ * 只有确定预占脚本未执行（连接被拒绝）时才直接降级；超时等结果未知的异常先查询预占记录，
+ * 预占已存在按成功处理，查询也失败时拒绝下单，避免Redis与数据库重复扣减。
+ */
+@Slf4j
+@Component
+public class StockReservationEngine {
+
+    private static final String STOCK_KEY_PREFIX = "takeout:stock:";
+
+    /**
+     * 有未完成预占的商家集合，供对账任务遍历
+     */
+    private static final String MERCHANTS_KEY = "takeout:stock:merchants";
+
+    /**
+     * 有未写回扣减的商家集合，供写回任务遍历
+     */
+    private static final String PENDING_MERCHANTS_KEY = "takeout:stock:pend:merchants";
+
+    /**
+     * 预占有效期（毫秒），只在进程崩溃等异常情况下才会真正到期
+     */
+    private static final long RESERVATION_TTL_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * 库存扣减量写回数据库的间隔（毫秒）
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 过期预占对账间隔（毫秒）
+     */
+    private static final long SWEEP_INTERVAL_MILLIS = 30000;
+
+    /**
+     * 单次对账处理的预占数量上限
+     */
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    /**
+     * 一次预占中加载缺失商品库存的最大次数
+     */
+    private static final int MAX_SEED_ATTEMPTS = 3;
+
+    /**
+     * Redis异常后暂停访问Redis的时间（毫秒）
+     */
+    private static final long REDIS_RETRY_INTERVAL = 5000;
+
+    /**
+     * 预占脚本
+     * KEYS: 库存哈希、预占记录哈希、预占过期时间有序集合、商家集合
+     * ARGV: 订单号、过期时间、商家ID、(商品ID, 数量)...
+     * 返回 OK；库存不足返回 NOSTOCK:商品ID；有商品尚未加载时返回 NOSEED:商品ID,商品ID...
+     * 商家与预占记录在同一脚本中写入，对账任务总能找到每一条预占
+     */
+    private static final String RESERVE_LUA_SCRIPT = """
+        if redis.call('HEXISTS', KEYS[2], ARGV[1]) == 1 then
+            return 'OK'
+        end
+        local missing = {}
+        for i = 4, #ARGV, 2 do
+            if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 0 then
+                table.insert(missing, ARGV[i])
+            end
+        end
+        if #missing > 0 then
+            return 'NOSEED:' .. table.concat(missing, ',')
+        end
+        for i = 4, #ARGV, 2 do
+            if tonumber(redis.call('HGET', KEYS[1], ARGV[i])) < tonumber(ARGV[i + 1]) then
+                return 'NOSTOCK:' .. ARGV[i]
+            end
+        end
+        local items = {}
+        for i = 4, #ARGV, 2 do
+            redis.call('HINCRBY', KEYS[1], ARGV[i], -tonumber(ARGV[i + 1]))
+            table.insert(items, ARGV[i] .. ':' .. ARGV[i + 1])
+        end
+        redis.call('HSET', KEYS[2], ARGV[1], table.concat(items, ','))
+        redis.call('ZADD', KEYS[3], ARGV[2], ARGV[1])
+        redis.call('SADD', KEYS[4], ARGV[3])
+        return 'OK'
+    """;
+
+    /**
+     * 加载商品库存脚本：库存 = 数据库库存 - 未完成预占 - 未写回扣减，已加载的商品不覆盖
+     * KEYS: 库存哈希、预占记录哈希、未写回扣减哈希
+     * ARGV: (商品ID, 数据库库存)...
+     */
+    private static final String SEED_LUA_SCRIPT = """
+        local reserved = {}
+        for _, items in ipairs(redis.call('HVALS', KEYS[2])) do
+            for item in string.gmatch(items, '[^,]+') do
+                local sep = string.find(item, ':')
+                local productId = string.sub(item, 1, sep - 1)
+                reserved[productId] = (reserved[productId] or 0) + tonumber(string.sub(item, sep + 1))
+            end
+        end
+        for i = 1, #ARGV, 2 do
+            if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 0 then
+                local pending = tonumber(redis.call('HGET', KEYS[3], ARGV[i]) or '0')
+                local stock = tonumber(ARGV[i + 1]) - (reserved[ARGV[i]] or 0) - pending
+                redis.call('HSET', KEYS[1], ARGV[i], math.max(stock, 0))
+            end
+        end
+        return 'OK'
+    """;
+
+    /**
+     * 扣减量写回数据库后减少未写回量，减到0的字段删除
+     * KEYS: 未写回扣减哈希；ARGV: (商品ID, 数量)...
+     */
+    private static final String RELEASE_PENDING_LUA_SCRIPT = """
+        for i = 1, #ARGV, 2 do
+            if redis.call('HINCRBY', KEYS[1], ARGV[i], -tonumber(ARGV[i + 1])) <= 0 then
+                redis.call('HDEL', KEYS[1], ARGV[i])
+            end
+        end
+        return 'OK'
+    """;
+
+    /**
+     * 删除没有未完成预占的商品库存，使其从数据库重新加载；仍有预占的商品保留，返回保留的商品ID
+     * KEYS: 库存哈希、预占记录哈希；ARGV: 商品ID...
+     */
+    private static final String DROP_IDLE_LUA_SCRIPT = """
+        local reserved = {}
+        for _, items in ipairs(redis.call('HVALS', KEYS[2])) do
+            for item in string.gmatch(items, '[^,]+') do
+                reserved[string.sub(item, 1, string.find(item, ':') - 1)] = true
+            end
+        end
+        local kept = {}
+        for i = 1, #ARGV do
+            if reserved[ARGV[i]] then
+                table.insert(kept, ARGV[i])
+            else
+                redis.call('HDEL', KEYS[1], ARGV[i])
+            end
+        end
+        return table.concat(kept, ',')
+    """;
+
+    /**
+     * 商家没有未完成的预占时移出商家集合，与预占脚本互斥，不会移除刚写入预占的商家
+     * KEYS: 商家集合、预占过期时间有序集合；ARGV: 商家ID
+     */
+    private static final String UNTRACK_MERCHANT_LUA_SCRIPT = """
+        if redis.call('ZCARD', KEYS[2]) == 0 then
+            redis.call('SREM', KEYS[1], ARGV[1])
+        end
+        return 'OK'
+    """;
+
+    /**
+     * 商家没有未写回的扣减时移出待写回商家集合，与完成预占脚本互斥
+     * KEYS: 待写回商家集合、未写回扣减哈希；ARGV: 商家ID
+     */
+    private static final String UNTRACK_PENDING_LUA_SCRIPT = """
+        if redis.call('HLEN', KEYS[2]) == 0 then
+            redis.call('SREM', KEYS[1], ARGV[1])
+        end
+        return 'OK'
+    """;
+
+    /**
+     * 完成预占脚本：删除预占记录，ARGV[2]为1时把数量退回库存，否则计入未写回扣减并登记待写回商家
+     * KEYS: 库存哈希、预占记录哈希、预占过期时间有序集合、未写回扣减哈希、待写回商家集合
+     * ARGV: 订单号、是否释放、商家ID
+     * 返回预占的商品明细，预占已被处理时返回空串
+     */
+    private static final String COMPLETE_LUA_SCRIPT = """
+        local items = redis.call('HGET', KEYS[2], ARGV[1])
+        if not items then
+            return ''
+        end
+        redis.call('HDEL', KEYS[2], ARGV[1])
+        redis.call('ZREM', KEYS[3], ARGV[1])
+        for item in string.gmatch(items, '[^,]+') do
+            local sep = string.find(item, ':')
+            local productId = string.sub(item, 1, sep - 1)
+            local quantity = tonumber(string.sub(item, sep + 1))
+            if ARGV[2] == '1' then
+                if redis.call('HEXISTS', KEYS[1], productId) == 1 then
+                    redis.call('HINCRBY', KEYS[1], productId, quantity)
+                end
+            else
+                redis.call('HINCRBY', KEYS[4], productId, quantity)
+            end
+        end
+        if ARGV[2] ~= '1' then
+            redis.call('SADD', KEYS[5], ARGV[3])
+        end
+        return items
+    """;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TakeoutProductMapper takeoutProductMapper;
+
+    @Autowired
+    private TakeoutOrderMapper takeoutOrderMapper;
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    private final DefaultRedisScript<String> reserveScript = new DefaultRedisScript<>(RESERVE_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> completeScript = new DefaultRedisScript<>(COMPLETE_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> untrackMerchantScript = new DefaultRedisScript<>(UNTRACK_MERCHANT_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> seedScript = new DefaultRedisScript<>(SEED_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> releasePendingScript = new DefaultRedisScript<>(RELEASE_PENDING_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> dropIdleScript = new DefaultRedisScript<>(DROP_IDLE_LUA_SCRIPT, String.class);
+
+    private final DefaultRedisScript<String> untrackPendingScript = new DefaultRedisScript<>(UNTRACK_PENDING_LUA_SCRIPT, String.class);
+
+    /**
+     * 独立事务模板，加载库存与写回扣减各自在新事务中持有行锁
+     */
+    private TransactionTemplate requiresNewTemplate;
+
+    /**
+     * 降级期间直接在数据库扣减的商品：商家ID -> 商品ID，Redis恢复后需要从数据库重新加载
+     */
+    private final Map<Long, Set<Long>> staleProducts = new ConcurrentHashMap<>();
+
+    private volatile long redisUnavailableUntil;
+
+    @PostConstruct
+    public void init() {
+        if (transactionManager != null) {
+            requiresNewTemplate = new TransactionTemplate(transactionManager);
+            requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        taskScheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(FLUSH_INTERVAL_MILLIS));
+        taskScheduler.scheduleWithFixedDelay(this::sweep, Duration.ofMillis(SWEEP_INTERVAL_MILLIS));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * 为订单预占库存，需在下单事务内调用，事务提交后自动确认，回滚后自动释放
+     *
+     * @param merchantId 商家ID
+     * @param orderNo    订单号
+     * @param quantities 商品ID -> 购买数量（同一商品需已合并）
+     * @return 库存不足的商品ID，预占成功返回null
+     */
+    public Long reserve(Long merchantId, String orderNo, Map<Long, Integer> quantities) {
+        if (isRedisAvailable()) {
+            try {
+                Long shortage = reserveInRedis(merchantId, orderNo, quantities);
+                if (shortage == null) {
+                    registerCompletion(merchantId, orderNo);
+                }
+                return shortage;
+            } catch (Exception e) {
+                redisUnavailableUntil = System.currentTimeMillis() + REDIS_RETRY_INTERVAL;
+                if (!isConnectRefused(e) && reservationExists(merchantId, orderNo, e)) {
+                    // 脚本已执行但结果丢失，预占有效
+                    registerCompletion(merchantId, orderNo);
+                    return null;
+                }
+                log.warn("Redis库存预占失败，{}毫秒内降级为数据库扣减: {}", REDIS_RETRY_INTERVAL, e.getMessage());
+            }
+        }
+        return reserveInDatabase(merchantId, quantities);
+    }
+
+    /**
+     * 预占脚本结果未知时查询预占记录是否已写入
+     * 脚本是原子的，记录不存在说明脚本没有生效，可以安全降级；查询失败时无法判断，拒绝本次下单，
+     * 若脚本实际已执行，预占会在过期后由对账任务按订单不存在释放
+     */
+    private boolean reservationExists(Long merchantId, String orderNo, Exception cause) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(reservationKey(merchantId), orderNo));
+        } catch (Exception e) {
+            log.warn("库存预占结果未知，拒绝下单，订单号：{}: {}", orderNo, cause.getMessage());
+            throw new TakeoutException("库存服务繁忙，请稍后重试");
+        }
+    }
+
+    /**
+     * 连接被拒绝时命令没有发出，脚本一定未执行
+     */
+    private static boolean isConnectRefused(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 使商品在Redis中的库存失效，下次下单时从数据库重新加载
+     * 重新加载时扣除未完成预占与各实例未写回的扣减量，商家直接修改库存后调用本方法即可
+     *
+     * @param merchantId 商家ID
+     * @param productIds 商品ID
+     */
+    public void invalidate(Long merchantId, Collection<Long> productIds) {
+        if (merchantId == null || productIds == null || productIds.isEmpty()) {
+            return;
+        }
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        Runnable invalidation = () -> {
+            flush(merchantId);
+            try {
+                stringRedisTemplate.opsForHash().delete(stockKey(merchantId),
+                        productIds.stream().map(String::valueOf).toArray());
+            } catch (Exception e) {
+                log.warn("清除Redis商品库存失败，merchantId={}, productIds={}: {}", merchantId, productIds, e.getMessage());
+                markStale(merchantId, productIds);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    /**
+     * 将各商家已确认的扣减量按商品合并后批量写回数据库
+     */
+    public void flush() {
+        if (!isRedisAvailable()) {
+            return;
+        }
+        Set<String> merchants;
+        try {
+            merchants = stringRedisTemplate.opsForSet().members(PENDING_MERCHANTS_KEY);
+        } catch (Exception e) {
+            log.warn("读取待写回库存的商家失败: {}", e.getMessage());
+            return;
+        }
+        if (merchants != null) {
+            merchants.forEach(merchant -> flush(Long.valueOf(merchant)));
+        }
+    }
+
+    /**
+     * 将一个商家已确认的扣减量写回数据库，失败时保留在Redis中由下次写回重试
+     */
+    public void flush(Long merchantId) {
+        if (!isRedisAvailable()) {
+            return;
+        }
+        try {
+            writeBack(merchantId);
+        } catch (Exception e) {
+            log.error("外卖库存写回数据库失败，稍后重试，商家：{}", merchantId, e);
+        }
+    }
+
+    /**
+     * 锁定商品行后重新读取未写回量，在同一事务内扣减数据库库存并减少Redis中的未写回量
+     * 数据库更新持有行锁直到提交，加载库存与其他实例的写回对同一行加锁，不会看到只完成了其中一步的中间状态；
+     * 未写回量在提交前减少，提交失败时恢复，只有进程恰好在两者之间退出时才会丢失这一批扣减
+     */
+    private void writeBack(Long merchantId) {
+        List<Long> productIds = new ArrayList<>(readPending(merchantId).keySet());
+        if (productIds.isEmpty()) {
+            stringRedisTemplate.execute(untrackPendingScript, Arrays.asList(PENDING_MERCHANTS_KEY, pendingKey(merchantId)),
+                    String.valueOf(merchantId));
+            return;
+        }
+        Map<Long, Integer> released = new HashMap<>();
+        try {
+            executeInNewTransaction(() -> {
+                Map<Long, Integer> stocks = new HashMap<>(productIds.size() * 2);
+                for (TakeoutProduct product : takeoutProductMapper.selectStockForUpdate(productIds)) {
+                    stocks.put(product.getId(), product.getStock() == null ? 0 : product.getStock());
+                }
+                // 持有行锁后重新读取，其他实例已提交的写回已经减去了对应的未写回量
+                Map<Long, Integer> pending = readPending(merchantId);
+                Map<Long, Integer> deductions = new HashMap<>();
+                Map<Long, Integer> releases = new HashMap<>();
+                for (Long productId : productIds) {
+                    Integer quantity = pending.get(productId);
+                    if (quantity == null || quantity <= 0) {
+                        continue;
+                    }
+                    Integer stock = stocks.get(productId);
+                    if (stock == null) {
+                        log.warn("商品已删除，丢弃未写回的库存扣减，商家：{}，商品：{}，数量：{}", merchantId, productId, quantity);
+                        releases.put(productId, quantity);
+                    } else if (stock < quantity) {
+                        log.error("外卖商品数据库库存不足以写回已确认的扣减，可能已超卖，商家：{}，商品：{}，库存：{}，待扣减：{}",
+                                merchantId, productId, stock, quantity);
+                    } else {
+                        deductions.put(productId, quantity);
+                        releases.put(productId, quantity);
+                    }
+                }
+                if (!deductions.isEmpty()) {
+                    int updated = takeoutProductMapper.batchDeductStock(deductions);
+                    if (updated != deductions.size()) {
+                        throw new IllegalStateException("外卖库存写回行数不符，预期" + deductions.size() + "，实际" + updated);
+                    }
+                }
+                if (!releases.isEmpty()) {
+                    stringRedisTemplate.execute(releasePendingScript, Collections.singletonList(pendingKey(merchantId)),
+                            toArgs(releases).toArray());
+                    released.putAll(releases);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!released.isEmpty()) {
+                // 数据库回滚，恢复已减少的未写回量
+                restorePending(merchantId, released);
+            }
+            throw e;
+        }
+        log.debug("外卖库存批量写回数据库，商家：{}，商品数：{}", merchantId, released.size());
+    }
+
+    private Map<Long, Integer> readPending(Long merchantId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(pendingKey(merchantId));
+        Map<Long, Integer> pending = new HashMap<>(entries.size() * 2);
+        entries.forEach((productId, quantity) ->
+                pending.put(Long.valueOf(productId.toString()), Integer.valueOf(quantity.toString())));
+        return pending;
+    }
+
+    private void restorePending(Long merchantId, Map<Long, Integer> deductions) {
+        try {
+            deductions.forEach((productId, quantity) -> stringRedisTemplate.opsForHash()
+                    .increment(pendingKey(merchantId), String.valueOf(productId), quantity));
+        } catch (Exception e) {
+            log.error("恢复Redis未写回扣减量失败，商家：{}，扣减明细：{}", merchantId, deductions, e);
+        }
+    }
+
+    /**
+     * 从数据库加载Redis中缺失的商品库存
+     * 在新事务中锁定商品行后读取库存并执行加载脚本，与写回任务互斥
+     */
+    private void seed(Long merchantId, List<Long> productIds) {
+        executeInNewTransaction(() -> {
+            Map<Long, Integer> dbStocks = new HashMap<>(productIds.size() * 2);
+            for (TakeoutProduct product : takeoutProductMapper.selectStockForUpdate(productIds)) {
+                dbStocks.put(product.getId(), product.getStock() == null ? 0 : product.getStock());
+            }
+            List<String> args = new ArrayList<>(productIds.size() * 2);
+            for (Long productId : productIds) {
+                args.add(String.valueOf(productId));
+                args.add(String.valueOf(dbStocks.getOrDefault(productId, 0)));
+            }
+            stringRedisTemplate.execute(seedScript,
+                    Arrays.asList(stockKey(merchantId), reservationKey(merchantId), pendingKey(merchantId)),
+                    args.toArray());
+        });
+    }
+
+    private void executeInNewTransaction(Runnable action) {
+        if (requiresNewTemplate == null) {
+            action.run();
+            return;
+        }
+        requiresNewTemplate.executeWithoutResult(status -> action.run());
+    }
+
+    /**
+     * 对账：处理过期未完成的预占，订单已落库则确认，否则释放库存
+     */
+    public void sweep() {
+        if (!isRedisAvailable()) {
+            return;
+        }
+        try {
+            reloadStaleProducts();
+            Set<String> merchants = stringRedisTemplate.opsForSet().members(MERCHANTS_KEY);
+            if (merchants == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (String merchant : merchants) {
+                Long merchantId = Long.valueOf(merchant);
+                String expireKey = expireKey(merchantId);
+                Set<String> expired = stringRedisTemplate.opsForZSet().rangeByScore(expireKey, 0, now, 0, SWEEP_BATCH_SIZE);
+                if (expired != null) {
+                    for (String orderNo : expired) {
+                        boolean placed = takeoutOrderMapper.selectCount(new LambdaQueryWrapper<TakeoutOrder>()
+                                .eq(TakeoutOrder::getOrderNo, orderNo)) > 0;
+                        log.info("对账处理过期库存预占，订单号：{}，订单{}", orderNo, placed ? "已创建，确认预占" : "不存在，释放库存");
+                        complete(merchantId, orderNo, placed);
+                    }
+                }
+                stringRedisTemplate.execute(untrackMerchantScript, Arrays.asList(MERCHANTS_KEY, expireKey), merchant);
+            }
+        } catch (Exception e) {
+            log.warn("外卖库存预占对账失败: {}", e.getMessage());
+        }
+    }
+
+    private Long reserveInRedis(Long merchantId, String orderNo, Map<Long, Integer> quantities) {
+        List<String> args = new ArrayList<>(3 + quantities.size() * 2);
+        args.add(orderNo);
+        args.add(String.valueOf(System.currentTimeMillis() + RESERVATION_TTL_MILLIS));
+        args.add(String.valueOf(merchantId));
+        args.addAll(toArgs(quantities));
+
+        List<String> keys = Arrays.asList(stockKey(merchantId), reservationKey(merchantId), expireKey(merchantId), MERCHANTS_KEY);
+        for (int attempt = 0; attempt < MAX_SEED_ATTEMPTS; attempt++) {
+            String result = stringRedisTemplate.execute(reserveScript, keys, args.toArray());
+            if (result != null && result.startsWith("NOSTOCK:")) {
+                return Long.valueOf(result.substring("NOSTOCK:".length()));
+            }
+            if (result == null || !result.startsWith("NOSEED:")) {
+                return null;
+            }
+            seed(merchantId, Arrays.stream(result.substring("NOSEED:".length()).split(","))
+                    .map(Long::valueOf).collect(Collectors.toList()));
+        }
+        throw new IllegalStateException("商品库存加载后仍然缺失，商家：" + merchantId);
+    }
+
+    private Long reserveInDatabase(Long merchantId, Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (takeoutProductMapper.deductStock(entry.getKey(), entry.getValue()) == 0) {
+                return entry.getKey();
+            }
+        }
+        if (stringRedisTemplate != null) {
+            markStale(merchantId, quantities.keySet());
+        }
+        return null;
+    }
+
+    private static List<String> toArgs(Map<Long, Integer> quantities) {
+        List<String> args = new ArrayList<>(quantities.size() * 2);
+        quantities.forEach((productId, quantity) -> {
+            args.add(String.valueOf(productId));
+            args.add(String.valueOf(quantity));
+        });
+        return args;
+    }
+
+    private void registerCompletion(Long merchantId, String orderNo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(merchantId, orderNo, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    complete(merchantId, orderNo, status == STATUS_COMMITTED);
+                } catch (Exception e) {
+                    // 由对账任务在预占过期后处理
+                    log.warn("完成库存预占失败，订单号：{}: {}", orderNo, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 完成预占：确认时把扣减量计入Redis中的未写回量，释放时把库存退回Redis
+     */
+    private void complete(Long merchantId, String orderNo, boolean confirmed) {
+        stringRedisTemplate.execute(completeScript,
+                Arrays.asList(stockKey(merchantId), reservationKey(merchantId), expireKey(merchantId), pendingKey(merchantId),
+                        PENDING_MERCHANTS_KEY),
+                orderNo, confirmed ? "0" : "1", String.valueOf(merchantId));
+    }
+
+    private void markStale(Long merchantId, Collection<Long> productIds) {
+        staleProducts.computeIfAbsent(merchantId, id -> ConcurrentHashMap.newKeySet()).addAll(productIds);
+    }
+
+    /**
+     * 降级期间扣减过的商品从数据库重新加载，仍有未完成预占的商品留到下次对账
+     */
+    private void reloadStaleProducts() {
+        for (Long merchantId : new ArrayList<>(staleProducts.keySet())) {
+            Set<Long> productIds = staleProducts.remove(merchantId);
+            if (productIds == null || productIds.isEmpty()) {
+                continue;
+            }
+            String kept = stringRedisTemplate.execute(dropIdleScript,
+                    Arrays.asList(stockKey(merchantId), reservationKey(merchantId)),
+                    productIds.stream().map(String::valueOf).toArray());
+            if (kept != null && !kept.isEmpty()) {
+                markStale(merchantId, Arrays.stream(kept.split(",")).map(Long::valueOf).collect(Collectors.toList()));
+            }
+        }
+    }
+
+    private boolean isRedisAvailable() {
+        return stringRedisTemplate != null && System.currentTimeMillis() >= redisUnavailableUntil;
+    }
+
+    /**
+     * 同一商家的键使用相同的hash tag；预占、完成与对账脚本还会访问全局商家集合，Redis需为单分片部署
+     */
+    private static String stockKey(Long merchantId) {
+        return STOCK_KEY_PREFIX + "{" + merchantId + "}";
+    }
+
+    private static String reservationKey(Long merchantId) {
+        return stockKey(merchantId) + ":rsv";
+    }
+
+    private static String expireKey(Long merchantId) {
+        return stockKey(merchantId) + ":rsv:exp";
+    }
+
+    private static String pendingKey(Long merchantId) {
+        return stockKey(merchantId) + ":pend";
+    }
+}
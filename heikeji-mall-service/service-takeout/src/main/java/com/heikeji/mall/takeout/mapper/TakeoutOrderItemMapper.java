@@ -2,6 +2,8 @@ package com.heikeji.mall.takeout.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.heikeji.mall.takeout.entity.TakeoutOrderItem;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
 
@@ -20,4 +22,17 @@ public interface TakeoutOrderItemMapper extends BaseMapper<TakeoutOrderItem> {
      */
     List<TakeoutOrderItem> selectByProductId(Long productId);
 
-}
\ No newline at end of file
+    /**
+     * 批量插入订单商品
+     */
+    @Insert({"<script>",
+            "INSERT INTO takeout_order_item (order_id, product_id, product_name, product_image, quantity, price,",
+            "total_amount, specifications, create_time, update_time) VALUES",
+            "<foreach collection='items' item='item' separator=','>",
+            "(#{item.orderId}, #{item.productId}, #{item.productName}, #{item.productImage}, #{item.quantity}, #{item.price},",
+            "#{item.totalAmount}, #{item.specifications}, #{item.createTime}, #{item.updateTime})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("items") List<TakeoutOrderItem> items);
+
+}
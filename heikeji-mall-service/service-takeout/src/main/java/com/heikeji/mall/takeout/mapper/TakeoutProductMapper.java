@@ -4,7 +4,11 @@ import com.heikeji.mall.takeout.entity.TakeoutProduct;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 外卖商品Mapper接口
@@ -50,4 +54,48 @@ public interface TakeoutProductMapper extends BaseMapper<TakeoutProduct> {
      */
     List<TakeoutProduct> selectRecommendedProducts(@Param("merchantId") Long merchantId, 
                                                    @Param("limit") Integer limit);
-}
\ No newline at end of file
+
+    /**
+     * 扣减库存并增加销量，库存不足时不更新
+     * @param id 商品ID
+     * @param quantity 扣减数量
+     * @return 更新行数
+     */
+    @Update("UPDATE takeout_product SET stock = stock - #{quantity}, sales = sales + #{quantity}, update_time = NOW() "
+            + "WHERE id = #{id} AND stock >= #{quantity}")
+    int deductStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    /**
+     * 批量扣减库存并增加销量，库存不足的商品不更新
+     * @param deductions 商品ID -> 扣减数量
+     * @return 更新行数，小于商品数时说明有商品库存不足
+     */
+    @Update({"<script>",
+            "UPDATE takeout_product SET",
+            "stock = stock - CASE id",
+            "<foreach collection='deductions' index='id' item='quantity'> WHEN #{id} THEN #{quantity} </foreach>",
+            "END,",
+            "sales = sales + CASE id",
+            "<foreach collection='deductions' index='id' item='quantity'> WHEN #{id} THEN #{quantity} </foreach>",
+            "END,",
+            "update_time = NOW()",
+            "WHERE id IN",
+            "<foreach collection='deductions' index='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "AND stock >= CASE id",
+            "<foreach collection='deductions' index='id' item='quantity'> WHEN #{id} THEN #{quantity} </foreach>",
+            "END",
+            "</script>"})
+    int batchDeductStock(@Param("deductions") Map<Long, Integer> deductions);
+
+    /**
+     * 锁定商品行并查询库存，用于在事务内加载Redis库存
+     * @param ids 商品ID
+     * @return 商品ID与库存
+     */
+    @Select({"<script>",
+            "SELECT id, stock FROM takeout_product WHERE id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "FOR UPDATE",
+            "</script>"})
+    List<TakeoutProduct> selectStockForUpdate(@Param("ids") Collection<Long> ids);
+}
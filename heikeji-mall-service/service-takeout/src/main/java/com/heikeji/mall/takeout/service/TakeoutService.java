@@ -1,6 +1,7 @@
 package com.heikeji.mall.takeout.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.heikeji.common.core.domain.ChunkResult;
 import com.heikeji.mall.takeout.dto.CreateTakeoutOrderDTO;
 import com.heikeji.mall.takeout.entity.TakeoutOrder;
 import com.heikeji.mall.takeout.entity.DeliveryLocker;
@@ -117,4 +118,16 @@ public interface TakeoutService extends IService<TakeoutOrder> {
      * 释放超时占用的外卖柜
      */
     Integer releaseTimeoutLockers(Integer hours);
+
+    /**
+     * 分块释放超时占用的外卖柜，供定时任务按主键游标分块调用
+     *
+     * @param hours 超时小时数
+     * @param afterId 游标，只处理主键大于该值的订单，为空时从头开始
+     * @param shardIndex 分片序号
+     * @param shardTotal 分片总数，按主键取模分片，不大于1时不分片
+     * @param limit 每块最大订单数
+     * @return 本块处理结果
+     */
+    ChunkResult releaseTimeoutLockerChunk(Integer hours, Long afterId, int shardIndex, int shardTotal, int limit);
 }
\ No newline at end of file
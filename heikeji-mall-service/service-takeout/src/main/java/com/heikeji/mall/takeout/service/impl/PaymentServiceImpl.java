@@ -1,14 +1,15 @@
 package com.heikeji.mall.takeout.service.impl;
 
+import com.heikeji.common.core.id.IdGenerator;
 import com.heikeji.mall.takeout.entity.TakeoutOrder;
 import com.heikeji.mall.takeout.exception.TakeoutException;
 import com.heikeji.mall.takeout.service.PaymentService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -29,6 +30,9 @@ public class PaymentServiceImpl implements PaymentService {
         PAYMENT_METHOD_MAP.put(3, "银行卡");
     }
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     @Override
     public Map<String, Object> createPayment(TakeoutOrder order, Integer paymentMethod) throws TakeoutException {
         if (order == null || paymentMethod == null || !PAYMENT_METHOD_MAP.containsKey(paymentMethod)) {
@@ -196,17 +200,13 @@ public class PaymentServiceImpl implements PaymentService {
      * 生成支付流水号
      */
     private String generatePaymentNo() {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String random = String.format("%06d", new Random().nextInt(1000000));
-        return "PAY" + timestamp + random;
+        return idGenerator.nextNo("PAY");
     }
 
     /**
      * 生成退款流水号
      */
     private String generateRefundNo() {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        String random = String.format("%06d", new Random().nextInt(1000000));
-        return "REFUND" + timestamp + random;
+        return idGenerator.nextNo("REFUND");
     }
 }
\ No newline at end of file
@@ -1,12 +1,16 @@
 package com.heikeji.mall.takeout.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.heikeji.mall.takeout.inventory.StockReservationEngine;
 import com.heikeji.mall.takeout.mapper.TakeoutProductMapper;
 import com.heikeji.mall.takeout.entity.TakeoutProduct;
 import com.heikeji.mall.takeout.service.TakeoutProductService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 外卖商品服务实现类
@@ -14,6 +18,9 @@ import java.util.List;
 @Service
 public class TakeoutProductServiceImpl extends ServiceImpl<TakeoutProductMapper, TakeoutProduct> implements TakeoutProductService {
     
+    @Autowired
+    private StockReservationEngine stockReservationEngine;
+    
     @Override
     public List<TakeoutProduct> getProductsByMerchantId(Long merchantId) {
         return baseMapper.selectByMerchantId(merchantId);
@@ -44,8 +51,18 @@ public class TakeoutProductServiceImpl extends ServiceImpl<TakeoutProductMapper,
 
     @Override
     public boolean updateProduct(TakeoutProduct product) {
+        if (product.getStock() == null) {
+            product.setUpdateTime(new Date());
+            return updateById(product);
+        }
+        // 直接修改库存前先写回已确认的订单扣减，修改后让Redis中的库存重新加载
+        stockReservationEngine.flush();
         product.setUpdateTime(new Date());
-        return updateById(product);
+        boolean result = updateById(product);
+        if (result) {
+            invalidateStock(Collections.singletonList(product.getId()));
+        }
+        return result;
     }
 
     @Override
@@ -69,16 +86,22 @@ public class TakeoutProductServiceImpl extends ServiceImpl<TakeoutProductMapper,
 
     @Override
     public boolean updateProductStock(Long productId, Integer stock) {
+        stockReservationEngine.flush();
         TakeoutProduct product = new TakeoutProduct();
         product.setId(productId);
         product.setStock(stock);
         product.setUpdateTime(new Date());
-        return updateById(product);
+        boolean result = updateById(product);
+        if (result) {
+            invalidateStock(Collections.singletonList(productId));
+        }
+        return result;
     }
 
     @Override
     public boolean batchUpdateProductStock(List<Long> productIds, Integer stock) {
         // 批量更新菜品库存
+        stockReservationEngine.flush();
         for (Long productId : productIds) {
             TakeoutProduct product = new TakeoutProduct();
             product.setId(productId);
@@ -86,6 +109,7 @@ public class TakeoutProductServiceImpl extends ServiceImpl<TakeoutProductMapper,
             product.setUpdateTime(new Date());
             updateById(product);
         }
+        invalidateStock(productIds);
         return true;
     }
 
@@ -97,4 +121,14 @@ public class TakeoutProductServiceImpl extends ServiceImpl<TakeoutProductMapper,
         product.setUpdateTime(new Date());
         return updateById(product);
     }
-}
\ No newline at end of file
+
+    /**
+     * 按商家使商品在库存预占引擎中的库存失效
+     */
+    private void invalidateStock(List<Long> productIds) {
+        listByIds(productIds).stream()
+                .collect(Collectors.groupingBy(TakeoutProduct::getMerchantId,
+                        Collectors.mapping(TakeoutProduct::getId, Collectors.toList())))
+                .forEach(stockReservationEngine::invalidate);
+    }
+}
@@ -1,8 +1,11 @@
 package com.heikeji.mall.takeout.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.heikeji.common.constants.OrderStatusConstant;
+import com.heikeji.common.core.domain.ChunkResult;
+import com.heikeji.common.core.id.IdGenerator;
 import com.heikeji.mall.takeout.constants.TakeoutConstants;
 import com.heikeji.mall.takeout.dto.CreateTakeoutOrderDTO;
 import com.heikeji.mall.takeout.entity.DeliveryLocker;
@@ -12,6 +15,7 @@ import com.heikeji.mall.takeout.entity.TakeoutOrderItem;
 import com.heikeji.mall.takeout.entity.TakeoutProduct;
 import com.heikeji.mall.takeout.entity.TakeoutDeliveryTrack;
 import com.heikeji.mall.takeout.exception.TakeoutException;
+import com.heikeji.mall.takeout.inventory.StockReservationEngine;
 import com.heikeji.mall.takeout.mapper.DeliveryLockerMapper;
 import com.heikeji.mall.takeout.mapper.MerchantMapper;
 import com.heikeji.mall.takeout.mapper.TakeoutOrderItemMapper;
@@ -26,6 +30,7 @@ import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,9 +38,13 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * 外卖服务实现类
@@ -64,6 +73,21 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
     
     @Autowired
     private TakeoutDeliveryTrackService deliveryTrackService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private StockReservationEngine stockReservationEngine;
+
+    @Autowired(required = false)
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 超时外卖柜分块释放的单块最大数量
+     */
+    private static final int MAX_TIMEOUT_CHUNK_SIZE = 500;
+
     @Transactional(rollbackFor = Exception.class)
     @CacheEvict(value = {"takeoutCache"}, allEntries = true)
     @Override
@@ -115,28 +139,37 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
             throw new TakeoutException("订单商品不能为空");
         }
 
+        // 批量查询订单商品
+        List<Long> productIds = dto.getOrderItems().stream()
+                .map(CreateTakeoutOrderDTO.OrderItemDTO::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, TakeoutProduct> productMap = takeoutProductMapper.selectBatchIds(productIds).stream()
+                .collect(Collectors.toMap(TakeoutProduct::getId, Function.identity()));
+
         // 计算订单总金额并验证商品信息
         BigDecimal totalAmount = BigDecimal.ZERO;
         List<TakeoutOrderItem> orderItems = new ArrayList<>();
-        List<TakeoutProduct> productsToUpdate = new ArrayList<>();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Date now = new Date();
         
         for (CreateTakeoutOrderDTO.OrderItemDTO itemDTO : dto.getOrderItems()) {
             // 验证商品是否存在
-            TakeoutProduct product = takeoutProductMapper.selectById(itemDTO.getProductId());
+            TakeoutProduct product = productMap.get(itemDTO.getProductId());
             if (product == null) {
                 throw new TakeoutException("商品不存在: " + itemDTO.getProductId());
             }
 
+            // 验证商品属于下单商家，库存按商家维护
+            if (dto.getMerchantId() == null || !dto.getMerchantId().equals(product.getMerchantId())) {
+                throw new TakeoutException("商品不属于该商家: " + product.getName());
+            }
+
             // 验证商品状态
             if (product.getStatus() != 1) { // 1表示上架状态
                 throw new TakeoutException("商品已下架: " + product.getName());
             }
 
-            // 验证库存
-            if (product.getStock() < itemDTO.getQuantity()) {
-                throw new TakeoutException("商品库存不足: " + product.getName());
-            }
-
             // 验证价格
             if (itemDTO.getPrice().compareTo(product.getPrice()) != 0) {
                 throw new TakeoutException("商品价格已更新，请重新下单: " + product.getName());
@@ -155,14 +188,19 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
             orderItem.setPrice(product.getPrice());
             orderItem.setTotalAmount(itemTotal);
             orderItem.setSpecifications("");
-            orderItem.setCreateTime(new Date());
-            orderItem.setUpdateTime(new Date());
+            orderItem.setCreateTime(now);
+            orderItem.setUpdateTime(now);
             orderItems.add(orderItem);
 
-            // 更新商品库存和销量
-            product.setStock(product.getStock() - itemDTO.getQuantity());
-            product.setSales(product.getSales() + itemDTO.getQuantity());
-            productsToUpdate.add(product);
+            // 合并同一商品的购买数量
+            quantities.merge(product.getId(), itemDTO.getQuantity(), Integer::sum);
+        }
+
+        // 生成订单号并预占库存，事务提交后确认、回滚后自动释放
+        String orderNo = generateOrderNo();
+        Long shortage = stockReservationEngine.reserve(dto.getMerchantId(), orderNo, quantities);
+        if (shortage != null) {
+            throw new TakeoutException("商品库存不足: " + productMap.get(shortage).getName());
         }
 
         // 创建订单
@@ -181,30 +219,24 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
         // 设置订单总金额
         order.setTotalAmount(totalAmount);
         
-        // 生成订单号
-        order.setOrderNo(generateOrderNo());
+        // 设置订单号
+        order.setOrderNo(orderNo);
         
         // 设置订单状态为待接单
         order.setStatus(OrderStatusConstant.TAKEOUT_STATUS_PENDING_ACCEPT);
         
         // 设置创建时间和更新时间
-        Date now = new Date();
         order.setCreateTime(now);
         order.setUpdateTime(now);
         
         // 保存订单
         takeoutOrderMapper.insert(order);
         
-        // 保存订单商品项
+        // 批量保存订单商品项
         for (TakeoutOrderItem item : orderItems) {
             item.setOrderId(order.getId());
-            takeoutOrderItemMapper.insert(item);
-        }
-        
-        // 更新商品库存和销量
-        for (TakeoutProduct product : productsToUpdate) {
-            takeoutProductMapper.updateById(product);
         }
+        takeoutOrderItemMapper.insertBatch(orderItems);
         
         // 创建初始配送轨迹
         TakeoutDeliveryTrack track = new TakeoutDeliveryTrack();
@@ -428,7 +460,7 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
     }
 
     private String generateOrderNo() {
-        return "TO" + System.currentTimeMillis() + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return idGenerator.nextNo("TO");
     }
 
     private boolean isValidStatus(Integer status) {
@@ -732,38 +764,84 @@ public class TakeoutServiceImpl extends ServiceImpl<TakeoutOrderMapper, TakeoutO
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public Integer releaseTimeoutLockers(Integer hours) {
         if (hours == null || hours <= 0) {
             throw new IllegalArgumentException("超时小时数必须大于0");
         }
         
-        // 查询超时未取货的外卖柜配送订单
-        List<TakeoutOrder> overdueOrders = takeoutOrderMapper.selectOverdueDeliveredOrders(3, hours);
-        if (overdueOrders == null || overdueOrders.isEmpty()) {
-            return 0;
-        }
-        
+        // 按主键游标分块处理，每块在独立的短事务中提交
         int releasedCount = 0;
-        for (TakeoutOrder order : overdueOrders) {
-            try {
-                // 释放外卖柜格子
+        ChunkResult chunk;
+        Long afterId = null;
+        do {
+            chunk = releaseTimeoutLockerChunk(hours, afterId, 0, 1, MAX_TIMEOUT_CHUNK_SIZE);
+            releasedCount += chunk.getProcessed();
+            afterId = chunk.getLastId();
+        } while (chunk.isHasMore());
+        
+        return releasedCount;
+    }
+
+    @Override
+    public ChunkResult releaseTimeoutLockerChunk(Integer hours, Long afterId, int shardIndex, int shardTotal, int limit) {
+        if (hours == null || hours <= 0) {
+            throw new IllegalArgumentException("超时小时数必须大于0");
+        }
+        int chunkSize = Math.min(Math.max(limit, 1), MAX_TIMEOUT_CHUNK_SIZE);
+        long timeoutMillis = TimeUnit.HOURS.toMillis(hours);
+        Date deadline = new Date(System.currentTimeMillis() - timeoutMillis);
+        Supplier<ChunkResult> chunk = () -> {
+            // 查询超时未取货的外卖柜配送订单并加锁，本块提交前状态不会被并发修改
+            LambdaQueryWrapper<TakeoutOrder> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(TakeoutOrder::getId, TakeoutOrder::getDeliveryLockerCode, TakeoutOrder::getActualTime)
+                    .eq(TakeoutOrder::getStatus, OrderStatusConstant.TAKEOUT_STATUS_DELIVERED)
+                    .eq(TakeoutOrder::getDeliveryType, 1)
+                    .lt(TakeoutOrder::getActualTime, deadline)
+                    .gt(afterId != null, TakeoutOrder::getId, afterId)
+                    .apply(shardTotal > 1, "MOD(id, {0}) = {1}", shardTotal, shardIndex)
+                    .orderByAsc(TakeoutOrder::getId)
+                    .last("LIMIT " + chunkSize + " FOR UPDATE");
+            List<TakeoutOrder> overdueOrders = takeoutOrderMapper.selectList(queryWrapper);
+            if (overdueOrders.isEmpty()) {
+                return ChunkResult.of(afterId, null, 0, 0, chunkSize, null);
+            }
+            
+            List<Long> ids = new ArrayList<>(overdueOrders.size());
+            Map<String, Integer> releasedCells = new HashMap<>();
+            long oldestTime = Long.MAX_VALUE;
+            for (TakeoutOrder order : overdueOrders) {
+                ids.add(order.getId());
                 if (order.getDeliveryLockerCode() != null) {
-                    releaseLockerCell(order.getDeliveryLockerCode());
+                    releasedCells.merge(order.getDeliveryLockerCode(), 1, Integer::sum);
+                }
+                if (order.getActualTime() != null) {
+                    oldestTime = Math.min(oldestTime, order.getActualTime().getTime());
                 }
-                
-                // 更新订单状态为超时未取货
-                order.setStatus(OrderStatusConstant.TAKEOUT_STATUS_TIMEOUT_NOT_PICKED);
-                order.setUpdateTime(new Date());
-                
-                takeoutOrderMapper.updateById(order);
-                releasedCount++;
-            } catch (Exception e) {
-                log.error("释放外卖柜失败，订单ID: " + order.getId(), e);
             }
-        }
-        
-        return releasedCount;
+            
+            // 更新订单状态为超时未取货
+            Date now = new Date();
+            LambdaUpdateWrapper<TakeoutOrder> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.set(TakeoutOrder::getStatus, OrderStatusConstant.TAKEOUT_STATUS_TIMEOUT_NOT_PICKED)
+                    .set(TakeoutOrder::getUpdateTime, now)
+                    .in(TakeoutOrder::getId, ids)
+                    .eq(TakeoutOrder::getStatus, OrderStatusConstant.TAKEOUT_STATUS_DELIVERED);
+            int released = takeoutOrderMapper.update(null, updateWrapper);
+            
+            // 按外卖柜合并释放的格子数，每个柜子一条自增更新
+            releasedCells.forEach((lockerCode, cells) -> {
+                LambdaUpdateWrapper<DeliveryLocker> lockerWrapper = new LambdaUpdateWrapper<>();
+                lockerWrapper.setSql("available_cells = available_cells + " + cells)
+                        .set(DeliveryLocker::getUpdateTime, now)
+                        .eq(DeliveryLocker::getLockerCode, lockerCode);
+                deliveryLockerMapper.update(null, lockerWrapper);
+            });
+            
+            Long oldestDueTime = oldestTime != Long.MAX_VALUE ? oldestTime + timeoutMillis : null;
+            return ChunkResult.of(afterId, ids.get(ids.size() - 1), overdueOrders.size(), released, chunkSize,
+                    oldestDueTime);
+        };
+        return transactionTemplate != null ? transactionTemplate.execute(status -> chunk.get()) : chunk.get();
     }
     
 
@@ -0,0 +1,201 @@
+package com.heikeji.mall.user.behavior;
+
+import com.heikeji.mall.user.common.enums.UserBehaviorType;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个用户的行为滚动聚合
+ * 按自然日分桶，保留最近WINDOW_DAYS天，每个桶记录各行为类型次数、各分类次数和各商品的兴趣度，
+ * 7天、30天等窗口的统计在读取时对相应的桶求和。桶按epochDay取模复用，跨日时旧桶自动被覆盖。
+ * 加载历史与写入线程的累加可能交错，同一条记录按主键去重：加载完成前累加的记录不再合并，
+ * 合并过的、主键高于加载前累加水位的记录在之后累加时跳过。
+ */
+public class UserBehaviorAggregate {
+
+    /**
+     * 保留的天数
+     */
+    public static final int WINDOW_DAYS = 30;
+
+    private static final UserBehaviorType[] TYPES = UserBehaviorType.values();
+
+    private final DayBucket[] buckets = new DayBucket[WINDOW_DAYS];
+
+    /**
+     * 加载完成前已累加的记录主键，加载历史时跳过这些记录，加载完成后清空
+     */
+    private Set<Long> appliedBeforeLoaded = new HashSet<>();
+
+    /**
+     * 加载历史时合并的、写入线程可能尚未累加的记录主键，累加到这些记录时跳过并移除
+     */
+    private final Set<Long> mergedPendingApply = new HashSet<>();
+
+    /**
+     * 加载历史时使用的锁，与累加使用的对象锁分开，加载期间写入线程不被阻塞
+     */
+    private final Object loadLock = new Object();
+
+    private volatile boolean loaded;
+
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    /**
+     * 累加一条已入库的行为
+     */
+    public synchronized void apply(UserBehaviorEvent event) {
+        if (event.getId() != null) {
+            if (mergedPendingApply.remove(event.getId())) {
+                return;
+            }
+            if (appliedBeforeLoaded != null) {
+                appliedBeforeLoaded.add(event.getId());
+            }
+        }
+        // 新行为总是落在当天，旧桶由跨日覆盖淘汰
+        long epochDay = event.getBehaviorTime().toLocalDate().toEpochDay();
+        add(epochDay, event.getType(), event.getProductId(), event.getCategoryId(), epochDay);
+    }
+
+    /**
+     * 合并从数据库加载的历史行为
+     *
+     * @param id               记录主键
+     * @param appliedHighWater 查询前写入线程已累加完成的最大主键，高于该值的记录之后可能还会被累加
+     * @param epochDay         行为日期
+     * @param today            当前日期，超出窗口的记录被忽略
+     */
+    public synchronized void merge(long id, long appliedHighWater, long epochDay, UserBehaviorType type,
+                                   String productId, long today) {
+        if (appliedBeforeLoaded != null && appliedBeforeLoaded.contains(id)) {
+            return;
+        }
+        if (id > appliedHighWater) {
+            mergedPendingApply.add(id);
+        }
+        add(epochDay, type, productId, null, today);
+    }
+
+    private void add(long epochDay, UserBehaviorType type, String productId, Long categoryId, long today) {
+        if (type == null || epochDay <= today - WINDOW_DAYS) {
+            return;
+        }
+        int index = (int) Math.floorMod(epochDay, (long) WINDOW_DAYS);
+        DayBucket bucket = buckets[index];
+        if (bucket == null || bucket.epochDay < epochDay) {
+            bucket = new DayBucket(epochDay);
+            buckets[index] = bucket;
+        } else if (bucket.epochDay > epochDay) {
+            // 该位置已被更新的日期占用，说明这条记录已滑出窗口
+            return;
+        }
+        bucket.typeCounts[type.ordinal()]++;
+        if (categoryId != null) {
+            bucket.categoryCounts.merge(categoryId, 1L, Long::sum);
+        }
+        if (productId != null && type.getInterestWeight() > 0) {
+            bucket.productInterest.merge(productId, (long) type.getInterestWeight(), Long::sum);
+        }
+    }
+
+    /**
+     * 最近days天（含今天）某类行为的次数
+     */
+    public synchronized long count(UserBehaviorType type, long today, int days) {
+        long total = 0;
+        for (DayBucket bucket : buckets) {
+            if (inWindow(bucket, today, days)) {
+                total += bucket.typeCounts[type.ordinal()];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 最近days天各行为类型的次数，键为入库的行为类型值
+     */
+    public synchronized Map<String, Long> typeCounts(long today, int days) {
+        Map<String, Long> counts = new HashMap<>();
+        for (DayBucket bucket : buckets) {
+            if (inWindow(bucket, today, days)) {
+                for (UserBehaviorType type : TYPES) {
+                    long count = bucket.typeCounts[type.ordinal()];
+                    if (count > 0) {
+                        counts.merge(type.getValue(), count, Long::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 最近days天各商品分类的行为次数
+     */
+    public synchronized Map<Long, Long> categoryCounts(long today, int days) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (DayBucket bucket : buckets) {
+            if (inWindow(bucket, today, days)) {
+                bucket.categoryCounts.forEach((categoryId, count) -> counts.merge(categoryId, count, Long::sum));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 最近days天各商品的兴趣度（购买3、收藏2、浏览1）
+     */
+    public synchronized Map<String, Long> productInterest(long today, int days) {
+        Map<String, Long> interest = new HashMap<>();
+        for (DayBucket bucket : buckets) {
+            if (inWindow(bucket, today, days)) {
+                bucket.productInterest.forEach((productId, weight) -> interest.merge(productId, weight, Long::sum));
+            }
+        }
+        return interest;
+    }
+
+    private static boolean inWindow(DayBucket bucket, long today, int days) {
+        return bucket != null && bucket.epochDay <= today && bucket.epochDay > today - Math.min(days, WINDOW_DAYS);
+    }
+
+    public Object getLoadLock() {
+        return loadLock;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void markLoaded() {
+        this.loaded = true;
+        this.appliedBeforeLoaded = null;
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public void touch() {
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    private static final class DayBucket {
+
+        private final long epochDay;
+
+        private final long[] typeCounts = new long[TYPES.length];
+
+        private final Map<Long, Long> categoryCounts = new HashMap<>();
+
+        private final Map<String, Long> productInterest = new HashMap<>();
+
+        private DayBucket(long epochDay) {
+            this.epochDay = epochDay;
+        }
+    }
+}
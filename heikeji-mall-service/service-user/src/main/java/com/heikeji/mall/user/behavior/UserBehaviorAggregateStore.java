@@ -0,0 +1,130 @@
+package com.heikeji.mall.user.behavior;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.heikeji.mall.user.common.enums.UserBehaviorType;
+import com.heikeji.mall.user.entity.UserBehaviorLog;
+import com.heikeji.mall.user.mapper.UserBehaviorLogMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户行为聚合存储
+ * 只为被查询过的用户保存聚合：首次查询时从user_behavior_log加载最近30天的历史，
+ * 之后由写入线程把本实例新入库的行为累加进去，分析接口不再扫描原始日志。
+ * 聚合只累加本实例写入的行为，其他实例写入的行为在加载之后不会反映到已缓存的聚合中，
+ * 直到该用户空闲超过idle-minutes被淘汰、再次查询时重新加载。
+ */
+@Component
+public class UserBehaviorAggregateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(UserBehaviorAggregateStore.class);
+
+    @Autowired
+    private UserBehaviorLogMapper userBehaviorLogMapper;
+
+    /**
+     * 最多缓存的用户数，超出后查询结果不再缓存
+     */
+    @Value("${user.behavior.aggregate.max-users:100000}")
+    private int maxUsers = 100000;
+
+    /**
+     * 用户聚合的空闲淘汰时间（分钟）
+     */
+    @Value("${user.behavior.aggregate.idle-minutes:30}")
+    private long idleMinutes = 30;
+
+    private final ConcurrentHashMap<Long, UserBehaviorAggregate> aggregates = new ConcurrentHashMap<>();
+
+    /**
+     * 写入线程已累加完成的最大记录主键
+     */
+    private final AtomicLong appliedHighWater = new AtomicLong();
+
+    /**
+     * 获取用户的行为聚合，首次访问时从数据库加载
+     */
+    public UserBehaviorAggregate get(Long userId) {
+        UserBehaviorAggregate aggregate = aggregates.get(userId);
+        if (aggregate == null) {
+            if (aggregates.size() >= maxUsers) {
+                // 缓存已满，本次查询单独加载
+                aggregate = new UserBehaviorAggregate();
+            } else {
+                aggregate = aggregates.computeIfAbsent(userId, id -> new UserBehaviorAggregate());
+            }
+        }
+        aggregate.touch();
+        if (!aggregate.isLoaded()) {
+            load(userId, aggregate);
+        }
+        return aggregate;
+    }
+
+    /**
+     * 累加已入库的行为，只更新已缓存的用户，未缓存的用户在首次查询时从数据库加载
+     */
+    public void apply(List<UserBehaviorEvent> events) {
+        long maxId = 0;
+        for (UserBehaviorEvent event : events) {
+            UserBehaviorAggregate aggregate = aggregates.get(event.getUserId());
+            if (aggregate != null) {
+                aggregate.apply(event);
+            }
+            if (event.getId() != null) {
+                maxId = Math.max(maxId, event.getId());
+            }
+        }
+        // 累加完成后再推进水位，加载时读到水位以下的记录说明已经累加过或聚合尚未创建
+        appliedHighWater.accumulateAndGet(maxId, Math::max);
+    }
+
+    public int size() {
+        return aggregates.size();
+    }
+
+    /**
+     * 淘汰空闲的用户聚合
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        aggregates.values().removeIf(aggregate -> aggregate.getLastAccessTime() < expireBefore);
+    }
+
+    private void load(Long userId, UserBehaviorAggregate aggregate) {
+        synchronized (aggregate.getLoadLock()) {
+            if (aggregate.isLoaded()) {
+                return;
+            }
+            long highWater = appliedHighWater.get();
+            LocalDate today = LocalDate.now();
+            QueryWrapper<UserBehaviorLog> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "behavior_type", "behavior_content", "behavior_time");
+            queryWrapper.eq("user_id", userId);
+            queryWrapper.ge("behavior_time", today.minusDays(UserBehaviorAggregate.WINDOW_DAYS - 1).atStartOfDay());
+            List<UserBehaviorLog> logs = userBehaviorLogMapper.selectList(queryWrapper);
+            long todayEpochDay = today.toEpochDay();
+            for (UserBehaviorLog behaviorLog : logs) {
+                if (behaviorLog.getId() == null || behaviorLog.getBehaviorTime() == null) {
+                    continue;
+                }
+                aggregate.merge(behaviorLog.getId(), highWater, behaviorLog.getBehaviorTime().toLocalDate().toEpochDay(),
+                        UserBehaviorType.fromValue(behaviorLog.getBehaviorType()), behaviorLog.getBehaviorContent(),
+                        todayEpochDay);
+            }
+            aggregate.markLoaded();
+            log.debug("加载用户行为聚合，userId: {}, 记录数: {}", userId, logs.size());
+        }
+    }
+}
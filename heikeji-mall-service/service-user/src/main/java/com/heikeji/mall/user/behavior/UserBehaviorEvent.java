@@ -0,0 +1,76 @@
+package com.heikeji.mall.user.behavior;
+
+import com.heikeji.mall.user.common.enums.UserBehaviorType;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户行为事件
+ * 对应user_behavior_log的一行，额外携带商品分类用于内存聚合（分类不入库）。
+ * 行为时间精确到秒，与数据库DATETIME列保存的值一致。
+ */
+public final class UserBehaviorEvent {
+
+    private final Long userId;
+
+    private final UserBehaviorType type;
+
+    private final String productId;
+
+    private final Long categoryId;
+
+    private final LocalDateTime behaviorTime;
+
+    private final String ipAddress;
+
+    /**
+     * 入库后回填的主键
+     */
+    private volatile Long id;
+
+    public UserBehaviorEvent(Long userId, UserBehaviorType type, String productId, Long categoryId,
+                             LocalDateTime behaviorTime, String ipAddress) {
+        this.userId = userId;
+        this.type = type;
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.behaviorTime = behaviorTime.withNano(0);
+        this.ipAddress = ipAddress;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public UserBehaviorType getType() {
+        return type;
+    }
+
+    public String getTypeValue() {
+        return type.getValue();
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public LocalDateTime getBehaviorTime() {
+        return behaviorTime;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
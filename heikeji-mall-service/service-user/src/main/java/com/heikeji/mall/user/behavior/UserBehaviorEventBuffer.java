@@ -0,0 +1,221 @@
+package com.heikeji.mall.user.behavior;
+
+import com.heikeji.common.core.utils.MpscRingBuffer;
+import com.heikeji.mall.common.batch.BulkInsertEngine;
+import com.heikeji.mall.common.batch.BulkInsertTable;
+import com.heikeji.mall.common.batch.MultiRowInsertWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 用户行为事件缓冲写入器
+ * 请求线程把行为事件放入有界无锁队列后立即返回，队列满时丢弃并计数；
+ * 后台单线程攒批，达到batch-size或最早的事件等待超过flush-interval-millis时，以一条多行INSERT写入user_behavior_log，
+ * 写入成功的事件再累加到用户行为聚合。行为日志每次请求只占用一次连接获取，不再与下单争抢连接。
+ */
+@Component
+public class UserBehaviorEventBuffer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UserBehaviorEventBuffer.class);
+
+    private static final BulkInsertTable<UserBehaviorEvent> BEHAVIOR_LOG_TABLE =
+            BulkInsertTable.<UserBehaviorEvent>of("user_behavior_log", UserBehaviorEvent::setId)
+                    .column("user_id", UserBehaviorEvent::getUserId)
+                    .column("behavior_type", UserBehaviorEvent::getTypeValue)
+                    .column("behavior_content", UserBehaviorEvent::getProductId)
+                    .column("behavior_time", UserBehaviorEvent::getBehaviorTime)
+                    .column("ip_address", UserBehaviorEvent::getIpAddress)
+                    .column("create_time", UserBehaviorEvent::getBehaviorTime);
+
+    /**
+     * 队列为空时写入线程的休眠时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * 丢弃告警的最小间隔（毫秒）
+     */
+    private static final long DROP_WARN_INTERVAL = 60000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserBehaviorAggregateStore userBehaviorAggregateStore;
+
+    /**
+     * 队列容量
+     */
+    @Value("${user.behavior.buffer-size:16384}")
+    private int bufferSize = 16384;
+
+    /**
+     * 每条INSERT语句的最大行数
+     */
+    @Value("${user.behavior.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * 事件在内存中等待入库的最长时间（毫秒）
+     */
+    @Value("${user.behavior.flush-interval-millis:500}")
+    private long flushIntervalMillis = 500;
+
+    private MpscRingBuffer<UserBehaviorEvent> buffer;
+
+    private MultiRowInsertWriter<UserBehaviorEvent> writer;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder statements = new LongAdder();
+
+    private volatile long lastDropWarnTime;
+
+    private volatile boolean running;
+
+    private Thread consumer;
+
+    @Override
+    public void afterPropertiesSet() {
+        buffer = new MpscRingBuffer<>(bufferSize);
+        writer = new MultiRowInsertWriter<>(jdbcTemplate, BEHAVIOR_LOG_TABLE);
+        batchSize = Math.max(1, Math.min(batchSize, writer.getMaxRowsPerStatement()));
+        running = true;
+        consumer = new Thread(this::consume, "user-behavior-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                // 等待写入线程写完队列中剩余的事件
+                consumer.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 提交事件，队列满时丢弃
+     *
+     * @return 是否进入队列
+     */
+    public boolean publish(UserBehaviorEvent event) {
+        if (buffer.offer(event)) {
+            published.increment();
+            return true;
+        }
+        dropped.increment();
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarnTime > DROP_WARN_INTERVAL) {
+            lastDropWarnTime = now;
+            log.warn("用户行为队列已满，丢弃事件，累计丢弃: {}", dropped.sum());
+        }
+        return false;
+    }
+
+    /**
+     * 写入统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("statements", statements.sum());
+        stats.put("pending", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        stats.put("cachedUsers", userBehaviorAggregateStore.size());
+        return stats;
+    }
+
+    private void consume() {
+        List<UserBehaviorEvent> pending = new ArrayList<>(batchSize);
+        long firstPendingTime = 0;
+        while (true) {
+            int drained = buffer.drainTo(pending, batchSize - pending.size());
+            if (drained > 0 && pending.size() == drained) {
+                firstPendingTime = System.currentTimeMillis();
+            }
+            boolean stopping = !running;
+            if (!pending.isEmpty() && (pending.size() >= batchSize || stopping
+                    || System.currentTimeMillis() - firstPendingTime >= flushIntervalMillis)) {
+                flush(pending);
+                pending.clear();
+                continue;
+            }
+            if (stopping && buffer.size() == 0) {
+                break;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void flush(List<UserBehaviorEvent> batch) {
+        try {
+            statements.increment();
+            writer.write(batch);
+            onInserted(batch);
+        } catch (DataIntegrityViolationException e) {
+            // 个别记录数据不合法，二分定位后其余记录照常入库
+            BulkInsertEngine.insert(new ArrayList<>(batch), 0, rows -> {
+                statements.increment();
+                writer.write(rows);
+            }, new BulkInsertEngine.Listener<>() {
+                @Override
+                public void onInserted(List<UserBehaviorEvent> rows) {
+                    UserBehaviorEventBuffer.this.onInserted(rows);
+                }
+
+                @Override
+                public void onFailed(int index, UserBehaviorEvent row, RuntimeException error) {
+                    failed.increment();
+                    log.warn("用户行为写入失败，userId: {}, 类型: {}, 原因: {}", row.getUserId(), row.getTypeValue(),
+                            error.getMessage());
+                }
+            });
+        } catch (Throwable e) {
+            // 数据库不可用等整批失败的情况不再逐条重试，写入线程不能退出
+            failed.add(batch.size());
+            log.error("批量写入用户行为失败，条数: {}", batch.size(), e);
+        }
+    }
+
+    private void onInserted(List<UserBehaviorEvent> rows) {
+        written.add(rows.size());
+        try {
+            userBehaviorAggregateStore.apply(rows);
+        } catch (RuntimeException e) {
+            log.error("更新用户行为聚合失败", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.heikeji.mall.user.common.enums;
+
+/**
+ * 用户行为类型枚举
+ * code为前端上报的行为类型编号，value为user_behavior_log.behavior_type中保存的值
+ */
+public enum UserBehaviorType {
+    /**
+     * 浏览
+     */
+    BROWSE(1, "browse", 1),
+    /**
+     * 点击
+     */
+    CLICK(2, "click", 0),
+    /**
+     * 收藏
+     */
+    FAVORITE(3, "favorite", 2),
+    /**
+     * 分享
+     */
+    SHARE(4, "share", 0),
+    /**
+     * 购买
+     */
+    PURCHASE(5, "purchase", 3),
+    /**
+     * 评价
+     */
+    COMMENT(6, "comment", 0);
+
+    /**
+     * 行为类型编号
+     */
+    private final int code;
+
+    /**
+     * 入库的行为类型值
+     */
+    private final String value;
+
+    /**
+     * 计算商品兴趣度时的权重，0表示不计入
+     */
+    private final int interestWeight;
+
+    UserBehaviorType(int code, String value, int interestWeight) {
+        this.code = code;
+        this.value = value;
+        this.interestWeight = interestWeight;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getInterestWeight() {
+        return interestWeight;
+    }
+
+    /**
+     * 根据行为类型编号获取枚举
+     *
+     * @param code 行为类型编号
+     * @return 行为类型枚举，未知编号返回null
+     */
+    public static UserBehaviorType fromCode(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        for (UserBehaviorType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据入库的行为类型值获取枚举，兼容历史数据中直接保存的编号
+     *
+     * @param value 行为类型值
+     * @return 行为类型枚举，未知值返回null
+     */
+    public static UserBehaviorType fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (UserBehaviorType type : values()) {
+            if (type.value.equals(value)) {
+                return type;
+            }
+        }
+        try {
+            return fromCode(Integer.valueOf(value));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.heikeji.mall.user.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 批量导入线程池配置类
+ * 提供密码加密线程池：BCrypt是纯CPU计算，线程数与CPU核数一致，
+ * 队列满时由提交线程自己执行，导入再大也不会无限堆积任务
+ */
+@Configuration
+public class BulkImportConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
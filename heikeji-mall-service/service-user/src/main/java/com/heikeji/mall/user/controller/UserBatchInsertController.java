@@ -1,6 +1,9 @@
 package com.heikeji.mall.user.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.heikeji.common.core.annotation.RequiresAdmin;
+import com.heikeji.mall.common.batch.BulkImportSummary;
+import com.heikeji.mall.common.batch.JsonArrayStreamReader;
 import com.heikeji.mall.common.response.R;
 import com.heikeji.mall.user.dto.UserBatchInsertDTO;
 import com.heikeji.mall.user.entity.User;
@@ -10,10 +13,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +39,9 @@ public class UserBatchInsertController {
     @Autowired
     private UserBatchInsertService userBatchInsertService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 单条用户数据插入
      *
@@ -98,6 +106,39 @@ public class UserBatchInsertController {
         }
     }
 
+    /**
+     * 流式导入用户数据
+     * 请求体与批量插入相同（JSON数组），但不限制条数：服务端逐条解析、分批写入，
+     * 不在内存中保留全部数据，适用于开学批量开户等十万级导入
+     *
+     * @param request 请求体为用户数据JSON数组
+     * @return 导入汇总：总数、成功数、失败数、耗时和前100条错误详情
+     */
+    @PostMapping("/import")
+    @RequiresAdmin
+    @Operation(summary = "流式导入用户")
+    public R<Map<String, Object>> importUsers(HttpServletRequest request) {
+        log.info("收到流式导入用户请求, contentLength: {}", request.getContentLengthLong());
+
+        try (JsonArrayStreamReader<UserBatchInsertDTO> reader =
+                     new JsonArrayStreamReader<>(objectMapper, request.getInputStream(), UserBatchInsertDTO.class)) {
+            BulkImportSummary summary = userBatchInsertService.importStream(reader);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("totalCount", summary.getTotalCount());
+            response.put("successCount", summary.getSuccessCount());
+            response.put("failCount", summary.getFailCount());
+            response.put("durationMs", summary.getDurationMs());
+            response.put("errors", summary.getErrors());
+            response.put("errorsTruncated", summary.isErrorsTruncated());
+            return R.success(String.format("导入完成：成功%d条，失败%d条",
+                    summary.getSuccessCount(), summary.getFailCount()), response);
+        } catch (Exception e) {
+            log.error("流式导入用户异常: {}", e.getMessage(), e);
+            return R.error("导入失败：" + e.getMessage());
+        }
+    }
+
     /**
      * 验证数据是否可插入（预检查）
      * 不实际插入数据，仅检查唯一性约束和数据有效性
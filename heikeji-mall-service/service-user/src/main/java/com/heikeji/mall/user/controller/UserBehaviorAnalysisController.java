@@ -1,6 +1,7 @@
 package com.heikeji.mall.user.controller;
 
 import com.heikeji.common.core.domain.R;
+import com.heikeji.mall.user.behavior.UserBehaviorEventBuffer;
 import com.heikeji.mall.user.service.UserBehaviorAnalysisService;
 import com.heikeji.mall.user.vo.UserStatisticsVO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -27,6 +28,9 @@ public class UserBehaviorAnalysisController {
     @Autowired
     private UserBehaviorAnalysisService userBehaviorAnalysisService;
 
+    @Autowired
+    private UserBehaviorEventBuffer userBehaviorEventBuffer;
+
     /**
      * 获取用户统计数据
      */
@@ -129,6 +133,15 @@ public class UserBehaviorAnalysisController {
         return R.success(purchaseIntent);
     }
 
+    /**
+     * 获取行为写入统计
+     */
+    @Operation(summary = "获取行为写入统计")
+    @GetMapping("/ingestion-stats")
+    public R<Map<String, Object>> getIngestionStats() {
+        return R.success(userBehaviorEventBuffer.getStats());
+    }
+
     /**
      * 根据活跃度分数获取活跃度等级
      */
@@ -1,9 +1,11 @@
 package com.heikeji.mall.user.service;
 
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
 import com.heikeji.mall.user.dto.UserBatchInsertDTO;
 import com.heikeji.mall.user.entity.User;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -30,4 +32,12 @@ public interface UserBatchInsertService {
      *         - 失败记录的错误详情
      */
     Result<List<User>> insertBatch(List<UserBatchInsertDTO> dtoList);
+
+    /**
+     * 流式导入用户数据，适用于开学批量开户等大数据量场景
+     *
+     * @param source 逐条读取的用户数据，未经过参数验证
+     * @return 导入汇总，只包含成功/失败数量和前若干条错误详情
+     */
+    BulkImportSummary importStream(Iterator<UserBatchInsertDTO> source);
 }
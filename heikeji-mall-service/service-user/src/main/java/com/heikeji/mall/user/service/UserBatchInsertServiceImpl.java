@@ -2,10 +2,13 @@ package com.heikeji.mall.user.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
 import com.heikeji.mall.user.dto.UserBatchInsertDTO;
 import com.heikeji.mall.user.entity.User;
 import com.heikeji.mall.user.mapper.UserMapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
@@ -16,7 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -36,10 +41,12 @@ public class UserBatchInsertServiceImpl extends ServiceImpl<UserMapper, User> im
 
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
 
-    public UserBatchInsertServiceImpl(UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserBatchInsertServiceImpl(UserMapper userMapper, PasswordEncoder passwordEncoder, Validator validator) {
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.validator = validator;
     }
 
     /**
@@ -146,6 +153,63 @@ public class UserBatchInsertServiceImpl extends ServiceImpl<UserMapper, User> im
         }
     }
 
+    /**
+     * 流式导入用户数据
+     *
+     * 逐条读取、校验并插入，每条数据独立提交，内存中不保留已导入的数据；
+     * 数据解析失败时停止读取，已导入的数据保留。
+     */
+    @Override
+    @CacheEvict(value = "userCache", allEntries = true)
+    public BulkImportSummary importStream(Iterator<UserBatchInsertDTO> source) {
+        long startTime = System.currentTimeMillis();
+        log.info("开始流式导入用户数据");
+
+        BulkImportSummary summary = new BulkImportSummary();
+        int rowNumber = 0;
+        while (true) {
+            UserBatchInsertDTO dto;
+            try {
+                if (!source.hasNext()) {
+                    break;
+                }
+                dto = source.next();
+            } catch (RuntimeException e) {
+                log.warn("第{}条之后的数据解析失败，停止读取: {}", rowNumber, e.getMessage());
+                summary.addFailure(String.format("第%d条之后的数据解析失败: %s", rowNumber, e.getMessage()));
+                break;
+            }
+            rowNumber++;
+            summary.addTotal(1);
+
+            Set<ConstraintViolation<UserBatchInsertDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                summary.addFailure(String.format("第%d条(username=%s): %s", rowNumber, dto.getUsername(),
+                        violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "))));
+                continue;
+            }
+            try {
+                validateUserUniqueness(dto);
+                if (save(convertToEntity(dto))) {
+                    summary.addSuccess(1);
+                } else {
+                    summary.addFailure(String.format("第%d条(username=%s): 插入失败", rowNumber, dto.getUsername()));
+                }
+            } catch (DuplicateKeyException e) {
+                summary.addFailure(String.format("第%d条(username=%s): 数据重复 - %s",
+                        rowNumber, dto.getUsername(), extractDuplicateField(e.getMessage())));
+            } catch (Exception e) {
+                log.error("第{}条用户导入异常, username: {}, error: {}", rowNumber, dto.getUsername(), e.getMessage(), e);
+                summary.addFailure(String.format("第%d条(username=%s): %s", rowNumber, dto.getUsername(), e.getMessage()));
+            }
+        }
+
+        summary.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("流式导入完成, 总数: {}, 成功: {}, 失败: {}, 耗时: {}ms", summary.getTotalCount(),
+                summary.getSuccessCount(), summary.getFailCount(), summary.getDurationMs());
+        return summary;
+    }
+
     /**
      * 验证用户数据唯一性
      * 检查用户名、学号、手机号是否已存在
@@ -1,18 +1,26 @@
 package com.heikeji.mall.user.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
+import com.heikeji.mall.common.batch.BulkInsertEngine;
+import com.heikeji.mall.common.batch.BulkInsertTable;
+import com.heikeji.mall.common.batch.MultiRowInsertWriter;
 import com.heikeji.mall.user.dto.UserBatchInsertDTO;
 import com.heikeji.mall.user.entity.User;
 import com.heikeji.mall.user.mapper.UserMapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Primary;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -21,6 +29,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,9 +39,11 @@ import java.util.stream.Collectors;
  * 优化特性：
  * 1. ✅ 分批处理机制（支持超大批量数据）
  * 2. ✅ 异步插入支持（@Async）
- * 3. ✅ 批量唯一性预检查（减少数据库访问）
+ * 3. ✅ 批量唯一性预检查（每批每个唯一字段一条IN查询）
  * 4. ✅ 操作统计和性能监控
- * 5. ✅ 内存优化的数据处理
+ * 5. ✅ 内存优化的数据处理（流式导入不保留全部数据）
+ * 6. ✅ 密码在有界线程池中并行加密
+ * 7. ✅ 多行INSERT写入，失败批次二分定位坏数据，其余记录照常写入
  */
 @Service
 @Primary
@@ -42,15 +54,43 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
     private static final int DEFAULT_BATCH_SIZE = 100;
     private static final int MAX_BATCH_SIZE = 1000;
     private static final int MAX_SINGLE_REQUEST_SIZE = 500;
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    /**
+     * 多行插入的列，与convertToEntity设置的字段一致
+     */
+    private static final BulkInsertTable<User> USER_TABLE = BulkInsertTable.<User>of("user", User::setId)
+            .column("username", User::getUsername)
+            .column("password", User::getPassword)
+            .column("nickname", User::getNickname)
+            .column("avatar", User::getAvatar)
+            .column("email", User::getEmail)
+            .column("phone", User::getPhone)
+            .column("student_id", User::getStudentId)
+            .column("college", User::getCollege)
+            .column("major", User::getMajor)
+            .column("grade", User::getGrade)
+            .column("status", User::getStatus)
+            .column("balance", User::getBalance);
 
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final Executor passwordHashExecutor;
+    private final Validator validator;
+    private final MultiRowInsertWriter<User> userWriter;
 
     private final Map<String, Object> operationStats = new ConcurrentHashMap<>();
 
-    public UserBatchInsertServiceImplV2(UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserBatchInsertServiceImplV2(UserMapper userMapper,
+                                        PasswordEncoder passwordEncoder,
+                                        JdbcTemplate jdbcTemplate,
+                                        @Qualifier("passwordHashExecutor") Executor passwordHashExecutor,
+                                        Validator validator) {
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.passwordHashExecutor = passwordHashExecutor;
+        this.validator = validator;
+        this.userWriter = new MultiRowInsertWriter<>(jdbcTemplate, USER_TABLE);
     }
 
     @Override
@@ -157,7 +197,7 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
             log.info("[{}] 处理第{}/{}批, 本批{}条 (索引:{}-{})",
                     operationId, batchNum + 1, totalBatches, batch.size(), fromIndex, toIndex - 1);
 
-            BatchResult result = processSingleBatch(batch, batchNum, operationId);
+            BatchResult result = processSingleBatch(batch, rowNumbers(fromIndex, batch.size()));
 
             synchronized (allSuccessList) {
                 allSuccessList.addAll(result.successList);
@@ -205,10 +245,11 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
             int toIndex = Math.min(fromIndex + batchSize, dtoList.size());
             List<UserBatchInsertDTO> batch = new ArrayList<>(dtoList.subList(fromIndex, toIndex));
             final int currentBatch = batchNum;
+            final List<Integer> batchRowNumbers = rowNumbers(fromIndex, batch.size());
 
             CompletableFuture<BatchResult> future = CompletableFuture.supplyAsync(() -> {
                 log.info("[{}] 异步处理第{}/{}批", operationId, currentBatch + 1, totalBatches);
-                return processSingleBatch(batch, currentBatch, operationId);
+                return processSingleBatch(batch, batchRowNumbers);
             });
 
             futures.add(future);
@@ -245,41 +286,217 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
     }
 
     /**
-     * 处理单个批次的数据
+     * 流式导入用户数据
+     *
+     * 按IMPORT_BATCH_SIZE条一批读取、校验并写入，每批独立提交，内存中只保留当前批次；
+     * 返回结果只包含计数和前若干条错误信息。数据解析失败时停止读取，已读取的数据照常写入。
      */
-    private BatchResult processSingleBatch(List<UserBatchInsertDTO> batch,
-                                           int batchNum,
-                                           String operationId) {
+    @Override
+    @CacheEvict(value = "userCache", allEntries = true)
+    public BulkImportSummary importStream(Iterator<UserBatchInsertDTO> source) {
+        long startTime = System.currentTimeMillis();
+        String operationId = UUID.randomUUID().toString().substring(0, 8);
+        log.info("[{}] 开始流式导入用户", operationId);
+
+        BulkImportSummary summary = new BulkImportSummary();
+        List<UserBatchInsertDTO> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        List<Integer> batchRowNumbers = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int rowNumber = 0;
+        while (true) {
+            UserBatchInsertDTO dto;
+            try {
+                if (!source.hasNext()) {
+                    break;
+                }
+                dto = source.next();
+            } catch (RuntimeException e) {
+                log.warn("[{}] 第{}条之后的数据解析失败，停止读取: {}", operationId, rowNumber, e.getMessage());
+                summary.addFailure(String.format("第%d条之后的数据解析失败: %s", rowNumber, e.getMessage()));
+                break;
+            }
+            rowNumber++;
+            summary.addTotal(1);
+            String violation = validate(dto);
+            if (violation != null) {
+                summary.addFailure(formatError(rowNumber, dto.getUsername(), violation));
+                continue;
+            }
+            batch.add(dto);
+            batchRowNumbers.add(rowNumber);
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                mergeInto(summary, processSingleBatch(batch, batchRowNumbers));
+                batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+                batchRowNumbers = new ArrayList<>(IMPORT_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            mergeInto(summary, processSingleBatch(batch, batchRowNumbers));
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        summary.setDurationMs(duration);
+        log.info("[{}] 流式导入完成! 总数: {}, 成功: {}, 失败: {}, 耗时: {}ms",
+                operationId, summary.getTotalCount(), summary.getSuccessCount(), summary.getFailCount(), duration);
+        recordOperation(operationId, "import_stream", summary.getFailCount() == 0, duration,
+                summary.getSuccessCount(), summary.getFailCount());
+        return summary;
+    }
+
+    /**
+     * 处理单个批次的数据：批量唯一性预检查 → 并行加密密码 → 多行插入（失败时二分定位坏数据）
+     *
+     * @param rowNumbers 每条数据在整个请求中的序号（从1开始），用于错误信息
+     */
+    private BatchResult processSingleBatch(List<UserBatchInsertDTO> batch, List<Integer> rowNumbers) {
         BatchResult result = new BatchResult();
 
+        String[] conflicts = findConflicts(batch);
+        List<UserBatchInsertDTO> candidates = new ArrayList<>(batch.size());
+        List<Integer> candidateRowNumbers = new ArrayList<>(batch.size());
         for (int i = 0; i < batch.size(); i++) {
-            UserBatchInsertDTO dto = batch.get(i);
-            int globalIndex = batchNum * 100 + i + 1;
-            try {
-                validateUserUniqueness(dto);
-                User user = convertToEntity(dto);
-                boolean saved = save(user);
-
-                if (saved) {
-                    result.successList.add(user);
-                    result.successCount++;
-                } else {
-                    result.failCount++;
-                    result.errorList.add(formatError(globalIndex, dto.getUsername(), "插入失败"));
-                }
-            } catch (DuplicateKeyException e) {
+            if (conflicts[i] != null) {
                 result.failCount++;
-                result.errorList.add(formatError(globalIndex, dto.getUsername(),
-                        "数据重复-" + extractDuplicateField(e.getMessage())));
-            } catch (Exception e) {
-                result.failCount++;
-                result.errorList.add(formatError(globalIndex, dto.getUsername(), e.getMessage()));
+                result.errorList.add(formatError(rowNumbers.get(i), batch.get(i).getUsername(), "数据重复-" + conflicts[i]));
+            } else {
+                candidates.add(batch.get(i));
+                candidateRowNumbers.add(rowNumbers.get(i));
             }
         }
+        if (candidates.isEmpty()) {
+            return result;
+        }
+
+        List<User> users = convertToEntities(candidates);
+        BulkInsertEngine.insert(users, 0, userWriter, new BulkInsertEngine.Listener<User>() {
+            @Override
+            public void onInserted(List<User> rows) {
+                result.successList.addAll(rows);
+                result.successCount += rows.size();
+            }
 
+            @Override
+            public void onFailed(int index, User row, RuntimeException error) {
+                result.failCount++;
+                String message = error instanceof DuplicateKeyException
+                        ? "数据重复-" + extractDuplicateField(error.getMessage())
+                        : error.getMessage();
+                result.errorList.add(formatError(candidateRowNumbers.get(index), row.getUsername(), message));
+            }
+        });
         return result;
     }
 
+    /**
+     * 找出与数据库已有数据或本批前面数据重复的记录
+     * 每个唯一字段只执行一条IN查询
+     *
+     * @return 与batch等长的数组，重复时为重复字段名称，否则为null
+     */
+    private String[] findConflicts(List<UserBatchInsertDTO> batch) {
+        Set<String> existingUsernames = findExisting(User::getUsername, collect(batch, UserBatchInsertDTO::getUsername));
+        Set<String> existingStudentNos = findExisting(User::getStudentId, collect(batch, UserBatchInsertDTO::getStudentNo));
+        Set<String> existingPhones = findExisting(User::getPhone, collect(batch, UserBatchInsertDTO::getPhone));
+        Set<String> existingEmails = findExisting(User::getEmail, collect(batch, UserBatchInsertDTO::getEmail));
+
+        Set<String> usernames = new HashSet<>();
+        Set<String> studentNos = new HashSet<>();
+        Set<String> phones = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        String[] conflicts = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            UserBatchInsertDTO dto = batch.get(i);
+            String email = dto.getEmail() != null && !dto.getEmail().isEmpty() ? dto.getEmail() : null;
+            if (existingUsernames.contains(dto.getUsername()) || usernames.contains(dto.getUsername())) {
+                conflicts[i] = "用户名";
+            } else if (dto.getStudentNo() != null
+                    && (existingStudentNos.contains(dto.getStudentNo()) || studentNos.contains(dto.getStudentNo()))) {
+                conflicts[i] = "学号";
+            } else if (dto.getPhone() != null
+                    && (existingPhones.contains(dto.getPhone()) || phones.contains(dto.getPhone()))) {
+                conflicts[i] = "手机号";
+            } else if (email != null && (existingEmails.contains(email) || emails.contains(email))) {
+                conflicts[i] = "邮箱";
+            } else {
+                // 只有通过检查的记录才占用唯一值，避免一条坏数据连带后面的数据失败
+                usernames.add(dto.getUsername());
+                if (dto.getStudentNo() != null) {
+                    studentNos.add(dto.getStudentNo());
+                }
+                if (dto.getPhone() != null) {
+                    phones.add(dto.getPhone());
+                }
+                if (email != null) {
+                    emails.add(email);
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * 查询数据库中已存在的字段值
+     */
+    private Set<String> findExisting(SFunction<User, String> column, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return userMapper.selectList(new LambdaQueryWrapper<User>().select(column).in(column, values))
+                .stream()
+                .map(column)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> collect(List<UserBatchInsertDTO> batch,
+                                       Function<UserBatchInsertDTO, String> getter) {
+        Set<String> values = new HashSet<>();
+        for (UserBatchInsertDTO dto : batch) {
+            String value = getter.apply(dto);
+            if (value != null && !value.isEmpty()) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 在密码加密线程池中并行转换实体，BCrypt是整个导入中最耗CPU的步骤
+     */
+    private List<User> convertToEntities(List<UserBatchInsertDTO> dtos) {
+        List<CompletableFuture<User>> futures = new ArrayList<>(dtos.size());
+        for (UserBatchInsertDTO dto : dtos) {
+            futures.add(CompletableFuture.supplyAsync(() -> convertToEntity(dto), passwordHashExecutor));
+        }
+        List<User> users = new ArrayList<>(dtos.size());
+        for (CompletableFuture<User> future : futures) {
+            users.add(future.join());
+        }
+        return users;
+    }
+
+    private String validate(UserBatchInsertDTO dto) {
+        Set<ConstraintViolation<UserBatchInsertDTO>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+    }
+
+    private static List<Integer> rowNumbers(int fromIndex, int size) {
+        List<Integer> rowNumbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rowNumbers.add(fromIndex + i + 1);
+        }
+        return rowNumbers;
+    }
+
+    private static void mergeInto(BulkImportSummary summary, BatchResult result) {
+        summary.addSuccess(result.successCount);
+        for (String error : result.errorList) {
+            summary.addFailure(error);
+        }
+    }
+
     /**
      * 批量预检查所有数据的唯一性（优化：减少数据库往返次数）
      */
@@ -322,33 +539,18 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
     private void checkBatchUniqueness(List<String> values, String fieldName, Map<String, List<String>> conflicts) {
         if (values.isEmpty()) return;
 
-        Set<String> uniqueValues = new HashSet<>();
-        List<String> duplicates = new ArrayList<>();
-
-        for (String value : values) {
-            if (!uniqueValues.add(value)) {
-                duplicates.add(value);
-            }
+        SFunction<User, String> column = User::getUsername;
+        if ("student_no".equals(fieldName)) {
+            column = User::getStudentId;
+        } else if ("phone".equals(fieldName)) {
+            column = User::getPhone;
+        } else if ("email".equals(fieldName)) {
+            column = User::getEmail;
         }
 
-        if (!duplicates.isEmpty()) {
-            List<String> existingInDB = new ArrayList<>();
-            for (String dup : duplicates) {
-                Long count = userMapper.selectCount(
-                        new LambdaQueryWrapper<User>()
-                                .eq("username".equals(fieldName), User::getUsername, dup)
-                                .eq("student_no".equals(fieldName), User::getStudentId, dup)
-                                .eq("phone".equals(fieldName), User::getPhone, dup)
-                                .eq("email".equals(fieldName), User::getEmail, dup)
-                );
-                if (count > 0) {
-                    existingInDB.add(dup);
-                }
-            }
-
-            if (!existingInDB.isEmpty()) {
-                conflicts.put(fieldName, existingInDB);
-            }
+        Set<String> existingInDB = findExisting(column, new HashSet<>(values));
+        if (!existingInDB.isEmpty()) {
+            conflicts.put(fieldName, new ArrayList<>(existingInDB));
         }
     }
 
@@ -370,6 +572,8 @@ public class UserBatchInsertServiceImplV2 extends ServiceImpl<UserMapper, User>
     private User convertToEntity(UserBatchInsertDTO dto) {
         User user = new User();
         BeanUtils.copyProperties(dto, user);
+        // 实体中的学号字段为studentId，不会被copyProperties复制
+        user.setStudentId(dto.getStudentNo());
         if (dto.getPassword() != null && !dto.getPassword().isEmpty()) {
             user.setPassword(passwordEncoder.encode(dto.getPassword()));
         }
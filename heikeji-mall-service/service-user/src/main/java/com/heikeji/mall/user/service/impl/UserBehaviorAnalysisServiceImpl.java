@@ -1,6 +1,11 @@
 package com.heikeji.mall.user.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.heikeji.mall.user.behavior.UserBehaviorAggregate;
+import com.heikeji.mall.user.behavior.UserBehaviorAggregateStore;
+import com.heikeji.mall.user.behavior.UserBehaviorEvent;
+import com.heikeji.mall.user.behavior.UserBehaviorEventBuffer;
+import com.heikeji.mall.user.common.enums.UserBehaviorType;
 import com.heikeji.mall.user.dto.UserBehaviorDTO;
 import com.heikeji.mall.user.entity.UserBehaviorLog;
 import com.heikeji.mall.user.mapper.UserBehaviorLogMapper;
@@ -9,6 +14,7 @@ import com.heikeji.mall.user.vo.UserStatisticsVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
@@ -17,6 +23,7 @@ import java.util.stream.Collectors;
 
 /**
  * 用户行为分析服务实现类
+ * 行为记录经缓冲队列批量入库；热门商品、偏好和购买意向从按天分桶的行为聚合读取，不再扫描原始日志
  */
 @Service
 public class UserBehaviorAnalysisServiceImpl implements UserBehaviorAnalysisService {
@@ -24,17 +31,27 @@ public class UserBehaviorAnalysisServiceImpl implements UserBehaviorAnalysisServ
     @Autowired
     private UserBehaviorLogMapper userBehaviorLogMapper;
 
+    @Autowired
+    private UserBehaviorEventBuffer userBehaviorEventBuffer;
+
+    @Autowired
+    private UserBehaviorAggregateStore userBehaviorAggregateStore;
+
     @Override
     public boolean recordUserBehavior(UserBehaviorDTO behaviorDTO) {
-        // 转换DTO为实体类
-        UserBehaviorLog behaviorLog = new UserBehaviorLog();
-        behaviorLog.setUserId(behaviorDTO.getUserId());
-        behaviorLog.setBehaviorType(behaviorDTO.getBehaviorType().toString());
-        behaviorLog.setBehaviorContent(behaviorDTO.getProductId().toString());
-        behaviorLog.setBehaviorTime(LocalDateTime.now());
-        
-        // 保存到数据库
-        return userBehaviorLogMapper.insert(behaviorLog) > 0;
+        UserBehaviorType type = UserBehaviorType.fromCode(behaviorDTO.getBehaviorType());
+        if (behaviorDTO.getUserId() == null || type == null) {
+            return false;
+        }
+        // 放入缓冲队列后立即返回，由后台线程批量入库并更新行为聚合
+        UserBehaviorEvent event = new UserBehaviorEvent(
+                behaviorDTO.getUserId(),
+                type,
+                behaviorDTO.getProductId() != null ? behaviorDTO.getProductId().toString() : null,
+                behaviorDTO.getCategoryId(),
+                LocalDateTime.now(),
+                behaviorDTO.getIpAddress());
+        return userBehaviorEventBuffer.publish(event);
     }
 
     @Override
@@ -120,28 +137,14 @@ public class UserBehaviorAnalysisServiceImpl implements UserBehaviorAnalysisServ
     public List<Map<String, Object>> getUserHotProducts(Long userId, int limit) {
         List<Map<String, Object>> hotProducts = new ArrayList<>();
         
-        // 查询用户的浏览、购买、收藏行为
-        QueryWrapper<UserBehaviorLog> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("user_id", userId);
-        queryWrapper.in("behavior_type", Arrays.asList("browse", "purchase", "favorite"));
-        List<UserBehaviorLog> logs = userBehaviorLogMapper.selectList(queryWrapper);
-        
-        // 统计商品热度（购买权重为3，收藏权重为2，浏览权重为1）
-        Map<String, Integer> productHeat = new HashMap<>();
-        for (UserBehaviorLog log : logs) {
-            String productId = log.getBehaviorContent();
-            int weight = 1;
-            if ("favorite".equals(log.getBehaviorType())) {
-                weight = 2;
-            } else if ("purchase".equals(log.getBehaviorType())) {
-                weight = 3;
-            }
-            productHeat.put(productId, productHeat.getOrDefault(productId, 0) + weight);
-        }
+        // 从行为聚合读取最近30天的商品热度（购买权重为3，收藏权重为2，浏览权重为1）
+        long today = LocalDate.now().toEpochDay();
+        Map<String, Long> productHeat = userBehaviorAggregateStore.get(userId)
+                .productInterest(today, UserBehaviorAggregate.WINDOW_DAYS);
         
         // 按热度排序，取前N个商品
         productHeat.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
                 .limit(limit)
                 .forEach(entry -> {
                     Map<String, Object> product = new HashMap<>();
@@ -192,39 +195,26 @@ public class UserBehaviorAnalysisServiceImpl implements UserBehaviorAnalysisServ
     public Map<String, Object> getUserPreferences(Long userId) {
         Map<String, Object> preferences = new HashMap<>();
         
-        // 查询用户的浏览和购买行为
-        QueryWrapper<UserBehaviorLog> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("user_id", userId);
-        queryWrapper.in("behavior_type", Arrays.asList("browse", "purchase", "favorite"));
-        List<UserBehaviorLog> logs = userBehaviorLogMapper.selectList(queryWrapper);
-        
-        // 统计用户对不同商品的兴趣度（购买权重为3，收藏权重为2，浏览权重为1）
-        Map<String, Integer> productInterest = new HashMap<>();
-        for (UserBehaviorLog log : logs) {
-            String productId = log.getBehaviorContent();
-            int weight = 1;
-            if ("favorite".equals(log.getBehaviorType())) {
-                weight = 2;
-            } else if ("purchase".equals(log.getBehaviorType())) {
-                weight = 3;
-            }
-            productInterest.put(productId, productInterest.getOrDefault(productId, 0) + weight);
-        }
+        // 从行为聚合读取最近30天的商品兴趣度（购买权重为3，收藏权重为2，浏览权重为1）
+        long today = LocalDate.now().toEpochDay();
+        UserBehaviorAggregate aggregate = userBehaviorAggregateStore.get(userId);
+        Map<String, Long> productInterest = aggregate.productInterest(today, UserBehaviorAggregate.WINDOW_DAYS);
         
         // 按兴趣度排序，取前10个商品
         List<String> preferredProductIds = productInterest.entrySet().stream()
-                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
                 .limit(10)
                 .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
         
-        // 统计行为类型分布
-        Map<String, Long> behaviorTypeCount = logs.stream()
-                .collect(Collectors.groupingBy(UserBehaviorLog::getBehaviorType, Collectors.counting()));
+        // 行为类型分布和分类偏好
+        Map<String, Long> behaviorTypeCount = aggregate.typeCounts(today, UserBehaviorAggregate.WINDOW_DAYS);
+        Map<Long, Long> categoryCount = aggregate.categoryCounts(today, UserBehaviorAggregate.WINDOW_DAYS);
         
         preferences.put("preferredProductIds", preferredProductIds);
         preferences.put("productInterest", productInterest);
         preferences.put("behaviorTypeDistribution", behaviorTypeCount);
+        preferences.put("categoryDistribution", categoryCount);
         
         return preferences;
     }
@@ -362,31 +352,12 @@ public class UserBehaviorAnalysisServiceImpl implements UserBehaviorAnalysisServ
     public Map<String, Object> predictPurchaseIntent(Long userId) {
         Map<String, Object> purchaseIntent = new HashMap<>();
         
-        // 计算最近7天和最近30天的行为数据
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime sevenDaysAgo = now.minusDays(7);
-        LocalDateTime thirtyDaysAgo = now.minusDays(30);
-        
-        // 查询最近7天的浏览次数
-        QueryWrapper<UserBehaviorLog> browse7Query = new QueryWrapper<>();
-        browse7Query.eq("user_id", userId);
-        browse7Query.eq("behavior_type", "browse");
-        browse7Query.between("behavior_time", sevenDaysAgo, now);
-        long browseCount7 = userBehaviorLogMapper.selectCount(browse7Query);
-        
-        // 查询最近7天的收藏次数
-        QueryWrapper<UserBehaviorLog> favorite7Query = new QueryWrapper<>();
-        favorite7Query.eq("user_id", userId);
-        favorite7Query.eq("behavior_type", "favorite");
-        favorite7Query.between("behavior_time", sevenDaysAgo, now);
-        long favoriteCount7 = userBehaviorLogMapper.selectCount(favorite7Query);
-        
-        // 查询最近30天的购买次数
-        QueryWrapper<UserBehaviorLog> purchase30Query = new QueryWrapper<>();
-        purchase30Query.eq("user_id", userId);
-        purchase30Query.eq("behavior_type", "purchase");
-        purchase30Query.between("behavior_time", thirtyDaysAgo, now);
-        long purchaseCount30 = userBehaviorLogMapper.selectCount(purchase30Query);
+        // 从行为聚合读取最近7天的浏览、收藏次数和最近30天的购买次数
+        long today = LocalDate.now().toEpochDay();
+        UserBehaviorAggregate aggregate = userBehaviorAggregateStore.get(userId);
+        long browseCount7 = aggregate.count(UserBehaviorType.BROWSE, today, 7);
+        long favoriteCount7 = aggregate.count(UserBehaviorType.FAVORITE, today, 7);
+        long purchaseCount30 = aggregate.count(UserBehaviorType.PURCHASE, today, 30);
         
         // 简单规则引擎预测购买意向
         double intentScore = 0.0;
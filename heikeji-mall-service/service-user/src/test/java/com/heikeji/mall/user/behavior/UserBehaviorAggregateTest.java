@@ -0,0 +1,81 @@
+package com.heikeji.mall.user.behavior;
+
+import com.heikeji.mall.user.common.enums.UserBehaviorType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户行为聚合测试
+ */
+public class UserBehaviorAggregateTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 12, 19, 10, 0);
+
+    private static final long TODAY = NOW.toLocalDate().toEpochDay();
+
+    private static UserBehaviorEvent event(long id, UserBehaviorType type, String productId, LocalDateTime time) {
+        UserBehaviorEvent event = new UserBehaviorEvent(1L, type, productId, 100L, time, null);
+        event.setId(id);
+        return event;
+    }
+
+    @Test
+    public void testCountsByWindow() {
+        UserBehaviorAggregate aggregate = new UserBehaviorAggregate();
+        aggregate.merge(1, 0, TODAY - 10, UserBehaviorType.BROWSE, "p1", TODAY);
+        aggregate.merge(2, 0, TODAY - 3, UserBehaviorType.BROWSE, "p1", TODAY);
+        aggregate.merge(3, 0, TODAY - 40, UserBehaviorType.BROWSE, "p1", TODAY);
+        aggregate.apply(event(4, UserBehaviorType.PURCHASE, "p2", NOW));
+
+        assertEquals(1, aggregate.count(UserBehaviorType.BROWSE, TODAY, 7));
+        assertEquals(2, aggregate.count(UserBehaviorType.BROWSE, TODAY, 30));
+        assertEquals(1, aggregate.count(UserBehaviorType.PURCHASE, TODAY, 7));
+
+        Map<String, Long> interest = aggregate.productInterest(TODAY, 30);
+        assertEquals(Long.valueOf(2), interest.get("p1"));
+        assertEquals(Long.valueOf(3), interest.get("p2"));
+        assertEquals(Long.valueOf(1), aggregate.categoryCounts(TODAY, 30).get(100L));
+    }
+
+    @Test
+    public void testMergeSkipsRowsAlreadyApplied() {
+        UserBehaviorAggregate aggregate = new UserBehaviorAggregate();
+        aggregate.apply(event(10, UserBehaviorType.FAVORITE, "p1", NOW));
+        // 加载历史时读到已累加的记录不重复计数，其他记录照常合并
+        aggregate.merge(10, 10, TODAY, UserBehaviorType.FAVORITE, "p1", TODAY);
+        aggregate.merge(11, 10, TODAY, UserBehaviorType.FAVORITE, "p1", TODAY);
+        aggregate.merge(9, 10, TODAY, UserBehaviorType.FAVORITE, "p1", TODAY);
+        aggregate.markLoaded();
+
+        assertEquals(3, aggregate.count(UserBehaviorType.FAVORITE, TODAY, 1));
+    }
+
+    @Test
+    public void testApplySkipsRowsMergedDuringLoad() {
+        UserBehaviorAggregate aggregate = new UserBehaviorAggregate();
+        // 记录已提交并被加载读到，写入线程的累加在合并之后才到达
+        aggregate.merge(11, 10, TODAY, UserBehaviorType.FAVORITE, "p1", TODAY);
+        aggregate.markLoaded();
+        aggregate.apply(event(11, UserBehaviorType.FAVORITE, "p1", NOW));
+        aggregate.apply(event(12, UserBehaviorType.FAVORITE, "p1", NOW));
+
+        assertEquals(2, aggregate.count(UserBehaviorType.FAVORITE, TODAY, 1));
+    }
+
+    @Test
+    public void testBucketReusedAfterWindowSlides() {
+        UserBehaviorAggregate aggregate = new UserBehaviorAggregate();
+        aggregate.apply(event(1, UserBehaviorType.BROWSE, "p1", NOW));
+        LocalDateTime later = NOW.plusDays(UserBehaviorAggregate.WINDOW_DAYS);
+        aggregate.apply(event(2, UserBehaviorType.BROWSE, "p2", later));
+
+        long laterDay = later.toLocalDate().toEpochDay();
+        assertEquals(1, aggregate.count(UserBehaviorType.BROWSE, laterDay, 30));
+        assertNull(aggregate.productInterest(laterDay, 30).get("p1"));
+        assertEquals(0, aggregate.count(UserBehaviorType.BROWSE, TODAY, 30));
+    }
+}
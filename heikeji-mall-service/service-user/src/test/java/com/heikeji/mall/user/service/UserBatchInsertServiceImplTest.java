@@ -1,9 +1,11 @@
 package com.heikeji.mall.user.service;
 
 import com.heikeji.mall.common.Result;
+import com.heikeji.mall.common.batch.BulkImportSummary;
 import com.heikeji.mall.user.dto.UserBatchInsertDTO;
 import com.heikeji.mall.user.entity.User;
 import com.heikeji.mall.user.mapper.UserMapper;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.*;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -39,6 +41,9 @@ class UserBatchInsertServiceImplTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private Validator validator;
+
     @InjectMocks
     private UserBatchInsertServiceImpl service;
 
@@ -216,6 +221,24 @@ class UserBatchInsertServiceImplTest {
         assertEquals(Integer.valueOf(0), result.getData().getStatus());
     }
 
+    @Test
+    @DisplayName("流式导入 - 逐条写入并统计重复数据")
+    void testImportStream_CountsDuplicates() {
+        when(userMapper.exists(any())).thenReturn(false, true, false, false, false, false, false, false, false);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
+
+        BulkImportSummary summary = service.importStream(Arrays.asList(
+                createValidUserDTO("stream1", "2026002001"),
+                createValidUserDTO("stream2", "2026002002"),
+                createValidUserDTO("stream3", "2026002003")).iterator());
+
+        assertEquals(3, summary.getTotalCount());
+        assertEquals(2, summary.getSuccessCount());
+        assertEquals(1, summary.getFailCount());
+        assertTrue(summary.getErrors().get(0).contains("stream1"));
+        verify(userMapper, times(2)).insert(any(User.class));
+    }
+
     private UserBatchInsertDTO createValidUserDTO(String username, String studentNo) {
         UserBatchInsertDTO dto = new UserBatchInsertDTO();
         dto.setUsername(username);
@@ -0,0 +1,8 @@
+-- 用户订单列表游标分页索引
+-- 按 (user_id, created_at, id) 倒序翻页，列表投影列全部包含在索引中，无需回表
+
+-- 1. 用户订单列表覆盖索引（InnoDB二级索引隐含主键id）
+CREATE INDEX IF NOT EXISTS idx_user_created ON `order`(user_id, created_at, status, order_no, total_amount, delivery_fee);
+
+-- 2. 按状态筛选的用户订单列表及按状态计数
+CREATE INDEX IF NOT EXISTS idx_user_status_created ON `order`(user_id, status, created_at);
@@ -0,0 +1,20 @@
+-- 配送轨迹点表
+-- 配送员上报的位置先写入内存并合并写回delivery_tracking，按距离/时间抽样后的轨迹点追加写入本表，
+-- 查询配送跟踪时按订单回放；超过delivery.tracking.track-retention-days的记录由服务定时分批删除
+
+-- 1. 轨迹点表（只追加，不更新）
+CREATE TABLE IF NOT EXISTS `delivery_track_point` (
+  `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `order_id` BIGINT NOT NULL COMMENT '订单ID',
+  `delivery_user_id` BIGINT NOT NULL COMMENT '配送员ID',
+  `latitude` DECIMAL(10,7) NOT NULL COMMENT '纬度',
+  `longitude` DECIMAL(10,7) NOT NULL COMMENT '经度',
+  `recorded_at` DATETIME(3) NOT NULL COMMENT '上报时间',
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='配送轨迹点表';
+
+-- 2. 索引
+-- 按订单回放轨迹
+CREATE INDEX IF NOT EXISTS idx_track_point_order_time ON `delivery_track_point`(order_id, recorded_at);
+-- 按上报时间清理过期轨迹
+CREATE INDEX IF NOT EXISTS idx_track_point_recorded_at ON `delivery_track_point`(recorded_at);
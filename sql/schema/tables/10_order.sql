@@ -26,6 +26,10 @@ CREATE TABLE IF NOT EXISTS `order` (
   KEY `idx_store_id` (`store_id`),
   KEY `idx_status` (`status`),
   KEY `idx_order_no` (`order_no`),
+  KEY `idx_created_at` (`created_at`),
+  KEY `idx_updated_at` (`updated_at`),
+  KEY `idx_user_created` (`user_id`, `created_at`, `status`, `order_no`, `total_amount`, `delivery_fee`),
+  KEY `idx_user_status_created` (`user_id`, `status`, `created_at`),
   CONSTRAINT `fk_order_user_id` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE RESTRICT,
   CONSTRAINT `fk_order_store_id` FOREIGN KEY (`store_id`) REFERENCES `store` (`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
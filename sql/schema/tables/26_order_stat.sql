@@ -0,0 +1,20 @@
+-- 订单小时统计表（按订单创建时间所在小时预聚合，供订单/销售分析使用）
+CREATE TABLE IF NOT EXISTS `order_stat_hourly` (
+  `stat_hour` TIMESTAMP NOT NULL COMMENT '统计小时（订单创建时间截断到整点）',
+  `store_id` BIGINT NOT NULL COMMENT '商家ID',
+  `status` TINYINT(1) NOT NULL COMMENT '订单状态',
+  `pay_status` TINYINT(1) NOT NULL COMMENT '支付状态',
+  `amount_range` TINYINT(1) NOT NULL COMMENT '金额区间 0:[0,50) 1:[50,100) 2:[100,200) 3:[200,500) 4:[500,+∞)',
+  `order_count` INT NOT NULL DEFAULT 0 COMMENT '订单数',
+  `total_amount` DECIMAL(16,2) NOT NULL DEFAULT 0.00 COMMENT '订单总金额',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`stat_hour`, `store_id`, `status`, `pay_status`, `amount_range`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单小时统计表';
+
+-- 统计增量同步检查点表（记录已同步的订单更新时间水位）
+CREATE TABLE IF NOT EXISTS `order_stat_checkpoint` (
+  `name` VARCHAR(50) NOT NULL COMMENT '检查点名称',
+  `watermark` TIMESTAMP NULL DEFAULT NULL COMMENT '已同步的订单更新时间水位',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='统计增量同步检查点表';